@@ -0,0 +1,88 @@
+package de.filefighter.rest.configuration;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt with a cost that fits the hardware. Unlike the normal encoder {@link #upgradeEncoding(String)} is true for every hash
+ * with another cost, so passwords are also hashed again with a lower cost after moving to slower hardware.
+ */
+@Log4j2
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    static final int MIN_COST = 10;
+    static final int MAX_COST = 16;
+    private static final String SAMPLE_PASSWORD = "86C9C198F7DF1F0E6633E21A12BCA14730A27070BBCC742FEC8B2B14B44A0126";
+
+    private final int cost;
+
+    public CalibratedBCryptPasswordEncoder(int cost) {
+        super(cost);
+        this.cost = cost;
+    }
+
+    /**
+     * Measures how long a hash takes and picks the highest cost that stays within the budget, but at least {@link #MIN_COST}.
+     */
+    public static CalibratedBCryptPasswordEncoder calibrate(long latencyBudgetMillis) {
+        long latencyBudgetNanos = latencyBudgetMillis * 1_000_000;
+        long minCostNanos = measureHashNanos(MIN_COST);
+        if (minCostNanos > latencyBudgetNanos)
+            log.warn("A bcrypt hash with the minimal cost {} takes {}ms, more than the budget of {}ms.", MIN_COST, minCostNanos / 1_000_000, latencyBudgetMillis);
+
+        int calibratedCost = pickCost(latencyBudgetNanos, minCostNanos);
+        log.info("Hashing passwords with the bcrypt cost {} for a budget of {}ms.", calibratedCost, latencyBudgetMillis);
+        return new CalibratedBCryptPasswordEncoder(calibratedCost);
+    }
+
+    static int pickCost(long latencyBudgetNanos, long minCostNanos) {
+        int pickedCost = MIN_COST;
+        long hashNanos = minCostNanos;
+        // every step doubles the time, so the slower costs are not measured.
+        while (pickedCost < MAX_COST && hashNanos * 2 <= latencyBudgetNanos) {
+            pickedCost++;
+            hashNanos *= 2;
+        }
+        return pickedCost;
+    }
+
+    private static long measureHashNanos(int cost) {
+        String salt = BCrypt.gensalt(cost);
+        long fastest = Long.MAX_VALUE;
+        // the first round also warms up the jit.
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return fastest;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int storedCost = getCost(encodedPassword);
+        // hashes we can't read are no bcrypt hashes and never match anyway.
+        return -1 != storedCost && cost != storedCost;
+    }
+
+    /**
+     * @return the cost of a hash like $2a$10$..., or -1 if it is no bcrypt hash.
+     */
+    static int getCost(String encodedPassword) {
+        if (null == encodedPassword || encodedPassword.length() < 7
+                || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$')
+            return -1;
+
+        char tens = encodedPassword.charAt(4);
+        char ones = encodedPassword.charAt(5);
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9')
+            return -1;
+
+        return (tens - '0') * 10 + (ones - '0');
+    }
+}
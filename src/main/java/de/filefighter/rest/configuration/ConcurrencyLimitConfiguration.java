@@ -0,0 +1,41 @@
+package de.filefighter.rest.configuration;
+
+import de.filefighter.rest.domain.common.concurrency.ConcurrencyLimiter;
+import de.filefighter.rest.rest.ConcurrencyLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Adaptive limit of the requests in flight, see filefighter.concurrency-limit-*.
+ */
+@Log4j2
+@Configuration
+public class ConcurrencyLimitConfiguration implements WebMvcConfigurer {
+
+    private final FileFighterProperties fileFighterProperties;
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimitConfiguration(FileFighterProperties fileFighterProperties, MeterRegistry meterRegistry) {
+        this.fileFighterProperties = fileFighterProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!fileFighterProperties.isConcurrencyLimitEnabled())
+            return;
+
+        log.info("Limiting the requests in flight between {} and {}, starting with {}. Priorities: {}.", fileFighterProperties.getConcurrencyLimitMin(),
+                fileFighterProperties.getConcurrencyLimitMax(), fileFighterProperties.getConcurrencyLimitInitial(), fileFighterProperties.getConcurrencyLimitPriorities());
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(fileFighterProperties.getConcurrencyLimitInitial(),
+                fileFighterProperties.getConcurrencyLimitMin(), fileFighterProperties.getConcurrencyLimitMax(), meterRegistry);
+
+        // before the rate limits, shedding has to stay cheap.
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(concurrencyLimiter, fileFighterProperties.getConcurrencyLimitPriorities()))
+                .order(Ordered.HIGHEST_PRECEDENCE);
+    }
+}
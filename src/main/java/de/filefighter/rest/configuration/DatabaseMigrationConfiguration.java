@@ -0,0 +1,37 @@
+package de.filefighter.rest.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+/**
+ * Runs the {@link DatabaseMigrations} before the templates are created, because they build the indexes (spring.data.mongodb.auto-index-creation).
+ * The templates are the same as the ones of spring boot, which are only created if there are none.
+ */
+@Configuration
+public class DatabaseMigrationConfiguration {
+
+    @Bean
+    public DatabaseMigrations databaseMigrations(MongoDatabaseFactory mongoDatabaseFactory) {
+        DatabaseMigrations databaseMigrations = new DatabaseMigrations(new MongoTemplate(mongoDatabaseFactory));
+        databaseMigrations.run();
+        return databaseMigrations;
+    }
+
+    @Bean
+    @DependsOn("databaseMigrations")
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter) {
+        return new MongoTemplate(mongoDatabaseFactory, mongoConverter);
+    }
+
+    @Bean
+    @DependsOn("databaseMigrations")
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory, MongoConverter mongoConverter) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory, mongoConverter);
+    }
+}
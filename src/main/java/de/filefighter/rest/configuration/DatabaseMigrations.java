@@ -0,0 +1,130 @@
+package de.filefighter.rest.configuration;
+
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
+import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import lombok.extern.log4j.Log4j2;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Brings the data of older versions up to date at startup, for example it cleans up data the unique indexes would reject.
+ * Runs before the MongoTemplate is created, because it builds the indexes, see {@link DatabaseMigrationConfiguration}.
+ * Every migration is skipped once there is nothing left to do, so they are cheap after the first start.
+ */
+@Log4j2
+public class DatabaseMigrations {
+
+    static final String FOLDER_PATH_INDEX = "folder_path_per_owner";
+
+    // without index creation, so the indexes are not built before the data was cleaned up.
+    private final MongoTemplate mongoTemplate;
+
+    public DatabaseMigrations(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void run() {
+        mergeDuplicateFolders();
+        removeDuplicateAccessTokens();
+        addRefreshTokenDigests();
+    }
+
+    /**
+     * Parallel uploads used to create the same folder more than once.
+     * The folder with the lowest id survives, it gets the items of the others and replaces them in their parent folders.
+     */
+    void mergeDuplicateFolders() {
+        if (hasIndex(FileSystemEntity.class, index -> FOLDER_PATH_INDEX.equals(index.getName())))
+            return;
+
+        Aggregation aggregation = newAggregation(
+                match(where("isFile").is(false)),
+                sort(Sort.by("fileSystemId")),
+                group("ownerId", "path").push("fileSystemId").as("fileSystemIds").count().as("count"),
+                match(where("count").gt(1)));
+
+        for (Document duplicates : mongoTemplate.aggregate(aggregation, FileSystemEntity.class, Document.class)) {
+            List<Long> fileSystemIds = ((List<?>) duplicates.get("fileSystemIds")).stream()
+                    .map(id -> ((Number) id).longValue())
+                    .collect(Collectors.toList());
+            mergeFolders(fileSystemIds.get(0), fileSystemIds.subList(1, fileSystemIds.size()));
+        }
+    }
+
+    /**
+     * Issuing a token used to find, delete and save it, parallel logins could leave several tokens for one user.
+     * Only the one that is valid the longest is kept.
+     */
+    void removeDuplicateAccessTokens() {
+        if (hasIndex(AccessTokenEntity.class, index -> index.isUnique() && index.isIndexForFields(Collections.singletonList("userId"))))
+            return;
+
+        Aggregation aggregation = newAggregation(
+                sort(Sort.by(Sort.Direction.DESC, "validUntil")),
+                group("userId").push("_id").as("mongoIds").count().as("count"),
+                match(where("count").gt(1)));
+
+        String collectionName = mongoTemplate.getCollectionName(AccessTokenEntity.class);
+        for (Document duplicates : mongoTemplate.aggregate(aggregation, collectionName, Document.class)) {
+            List<?> mongoIds = (List<?>) duplicates.get("mongoIds");
+            log.info("Removing {} older access tokens of user {}.", mongoIds.size() - 1, duplicates.get("_id"));
+            // the ids are used as they are stored, so the collection name is used instead of the entity.
+            mongoTemplate.remove(new Query(where("_id").in(mongoIds.subList(1, mongoIds.size()))), collectionName);
+        }
+    }
+
+    /**
+     * Users are looked up by the digest of their refresh token, the ones from before the digests only have the plain token.
+     */
+    void addRefreshTokenDigests() {
+        Query usersWithoutDigest = new Query(where("refreshToken").ne(null).and("refreshTokenDigest").exists(false));
+        usersWithoutDigest.fields().include("userId").include("refreshToken");
+
+        int addedDigests = 0;
+        for (UserEntity user : mongoTemplate.find(usersWithoutDigest, UserEntity.class)) {
+            // only if the token was not changed in the meantime, by another node that already runs.
+            Query query = new Query(where("userId").is(user.getUserId()).and("refreshToken").is(user.getRefreshToken()));
+            addedDigests += mongoTemplate.updateFirst(query, new Update().set("refreshTokenDigest", RefreshTokenDigest.digest(user.getRefreshToken())), UserEntity.class).getModifiedCount();
+        }
+        if (addedDigests > 0)
+            log.info("Added the refresh token digest of {} users.", addedDigests);
+    }
+
+    private void mergeFolders(long survivingId, List<Long> duplicateIds) {
+        List<FileSystemEntity> folders = mongoTemplate.find(new Query(where("fileSystemId").in(duplicateIds)), FileSystemEntity.class);
+        Set<Long> itemIds = new LinkedHashSet<>();
+        double size = 0;
+        for (FileSystemEntity folder : folders) {
+            Arrays.stream(folder.getItemIds()).forEach(itemIds::add);
+            size += folder.getSize();
+        }
+        log.info("Merging the duplicate folders {} into folder {}.", duplicateIds, survivingId);
+
+        // the surviving folder is updated first, so nothing is lost if the startup is aborted in between.
+        mongoTemplate.updateFirst(new Query(where("fileSystemId").is(survivingId)),
+                new Update().addToSet("itemIds").each(itemIds.toArray()).inc("size", size).inc("changes", 1),
+                FileSystemEntity.class);
+        Query referencingFolders = new Query(where("itemIds").in(duplicateIds));
+        mongoTemplate.updateMulti(referencingFolders, new Update().addToSet("itemIds", survivingId), FileSystemEntity.class);
+        mongoTemplate.updateMulti(referencingFolders, new Update().pullAll("itemIds", duplicateIds.toArray()).inc("changes", 1), FileSystemEntity.class);
+        mongoTemplate.remove(new Query(where("fileSystemId").in(duplicateIds)), FileSystemEntity.class);
+    }
+
+    private boolean hasIndex(Class<?> entityClass, Predicate<IndexInfo> index) {
+        return mongoTemplate.indexOps(entityClass).getIndexInfo().stream().anyMatch(index);
+    }
+}
@@ -0,0 +1,68 @@
+package de.filefighter.rest.configuration;
+
+/**
+ * Counts the mongo commands of the current request and the time they took.
+ * Only the blocking driver reports its commands on the thread of the request, the reactive reads are not counted.
+ */
+public final class DatabaseOperations {
+
+    private static final ThreadLocal<DatabaseOperations> CURRENT = new ThreadLocal<>();
+
+    private int count;
+    private long elapsedNanos;
+    private long documents;
+
+    private DatabaseOperations() {
+        // Only created with start().
+    }
+
+    /**
+     * Starts counting for the current thread, needs to be stopped with {@link #stop()}.
+     */
+    public static DatabaseOperations start() {
+        DatabaseOperations databaseOperations = new DatabaseOperations();
+        CURRENT.set(databaseOperations);
+        return databaseOperations;
+    }
+
+    /**
+     * Counts the operations of the current thread for a request that started on another thread, needs to be stopped with {@link #stop()}.
+     * The thread of the request must not run db operations meanwhile, the counter is not thread safe.
+     */
+    public static void attach(DatabaseOperations databaseOperations) {
+        if (null != databaseOperations)
+            CURRENT.set(databaseOperations);
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the counter of the current thread, null if nothing is counted.
+     */
+    public static DatabaseOperations current() {
+        return CURRENT.get();
+    }
+
+    void record(long nanos, int returnedDocuments) {
+        count++;
+        elapsedNanos += nanos;
+        documents += returnedDocuments;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @return the documents the queries returned, what they scanned to find them is not reported by mongo.
+     */
+    public long getDocuments() {
+        return documents;
+    }
+}
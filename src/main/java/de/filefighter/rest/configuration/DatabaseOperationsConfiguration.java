@@ -0,0 +1,31 @@
+package de.filefighter.rest.configuration;
+
+import de.filefighter.rest.rest.DatabaseOperationsFilter;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Counts the db operations of every request and writes the access log, see filefighter.database-operations-* and filefighter.access-log-*.
+ */
+@Configuration
+public class DatabaseOperationsConfiguration {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer databaseOperationsCustomizer() {
+        DatabaseOperationsListener listener = new DatabaseOperationsListener();
+        return builder -> builder.addCommandListener(listener);
+    }
+
+    @Bean
+    public FilterRegistrationBean<DatabaseOperationsFilter> databaseOperationsFilter(FileFighterProperties fileFighterProperties) {
+        FilterRegistrationBean<DatabaseOperationsFilter> registrationBean = new FilterRegistrationBean<>(
+                new DatabaseOperationsFilter(fileFighterProperties.isDatabaseOperationsHeader(), fileFighterProperties.getDatabaseOperationsWarnThreshold(),
+                        fileFighterProperties.getAccessLogSampleRate(), fileFighterProperties.getAccessLogSampleRates()));
+        // outside of the other filters, so their db operations are counted too.
+        registrationBean.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registrationBean;
+    }
+}
@@ -0,0 +1,45 @@
+package de.filefighter.rest.configuration;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds every finished mongo command to the {@link DatabaseOperations} of the current request.
+ */
+public class DatabaseOperationsListener implements CommandListener {
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getElapsedTime(TimeUnit.NANOSECONDS), event.getResponse());
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getElapsedTime(TimeUnit.NANOSECONDS), null);
+    }
+
+    private void record(long elapsedNanos, BsonDocument response) {
+        DatabaseOperations databaseOperations = DatabaseOperations.current();
+        if (null != databaseOperations)
+            databaseOperations.record(elapsedNanos, countReturnedDocuments(response));
+    }
+
+    /**
+     * find, aggregate and getMore return their documents in batches of a cursor.
+     */
+    static int countReturnedDocuments(BsonDocument response) {
+        if (null == response || !response.isDocument("cursor"))
+            return 0;
+
+        BsonDocument cursor = response.getDocument("cursor");
+        if (cursor.isArray("firstBatch"))
+            return cursor.getArray("firstBatch").size();
+        if (cursor.isArray("nextBatch"))
+            return cursor.getArray("nextBatch").size();
+        return 0;
+    }
+}
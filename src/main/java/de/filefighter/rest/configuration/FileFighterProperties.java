@@ -1,8 +1,12 @@
 package de.filefighter.rest.configuration;
 
+import de.filefighter.rest.domain.common.concurrency.RequestPriority;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "filefighter")
 public class FileFighterProperties {
@@ -13,6 +17,110 @@ public class FileFighterProperties {
     private String version = "undefined";
     private String date = "undefined";
     private boolean disablePasswordCheck = false;
+    /**
+     * Serve the filesystem read endpoints with the reactive mongo driver.
+     */
+    private boolean reactiveFileSystemReads = false;
+    /**
+     * Handle requests on virtual threads, needs java 21 or newer. The application does not start on older jvms if enabled.
+     */
+    private boolean virtualThreads = false;
+    /**
+     * Send the number of db operations and their time with every response.
+     */
+    private boolean databaseOperationsHeader = false;
+    /**
+     * Log a warning if a request needs more db operations, 0 to disable.
+     */
+    private int databaseOperationsWarnThreshold = 25;
+    /**
+     * Share of the requests that are written to the access log, between 0 and 1.
+     */
+    private double accessLogSampleRate = 1.0;
+    /**
+     * Sample rates of single endpoints, the key is the mapping like /v1/filesystem/contents.
+     */
+    private Map<String, Double> accessLogSampleRates = new HashMap<>();
+    /**
+     * Threads that check and hash passwords, defaults to the number of processors.
+     */
+    private int passwordHashingThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Password checks that can wait for a free thread, further logins are rejected with a 503.
+     */
+    private int passwordHashingQueueCapacity = 64;
+    /**
+     * BCrypt cost of new hashes, 0 to measure the hardware at startup and pick a cost within the latency budget.
+     */
+    private int passwordHashingCost = 0;
+    /**
+     * Time one password hash may take when the cost is picked at startup.
+     */
+    private long passwordHashingLatencyBudgetMillis = 100;
+    /**
+     * How often the write counters are polled to invalidate the caches, only used if mongo has no change streams.
+     */
+    private long cacheInvalidationPollIntervalMillis = 1000;
+    /**
+     * Limit the requests of every client per endpoint with token buckets, rejected requests get a 429.
+     */
+    private boolean rateLimitEnabled = true;
+    /**
+     * Keep the buckets in mongo, so the limits hold across all nodes. Otherwise every node allows the whole limit.
+     */
+    private boolean rateLimitShared = false;
+    /**
+     * Tokens a client can use at once per endpoint, a request costs one token per db operation.
+     */
+    private double rateLimitCapacity = 200;
+    /**
+     * Tokens that are refilled every second.
+     */
+    private double rateLimitRefillPerSecond = 50;
+    /**
+     * Capacities of single endpoints, the key is the mapping like /v1/filesystem/search.
+     */
+    private Map<String, Double> rateLimitCapacities = new HashMap<>();
+    /**
+     * Refills of single endpoints, the key is the mapping like /v1/filesystem/search.
+     */
+    private Map<String, Double> rateLimitRefillsPerSecond = new HashMap<>();
+    /**
+     * Returned documents that cost one more token.
+     */
+    private double rateLimitDocumentsPerToken = 100;
+    /**
+     * Limit the requests in flight to a limit that shrinks when they get slower, further requests are rejected with a 503.
+     */
+    private boolean concurrencyLimitEnabled = true;
+    private int concurrencyLimitInitial = 50;
+    private int concurrencyLimitMin = 10;
+    private int concurrencyLimitMax = 200;
+    /**
+     * Priorities of single endpoints, the key is the mapping like /v1/filesystem/search. Low ones are shed first, the others are normal.
+     */
+    private Map<String, RequestPriority> concurrencyLimitPriorities = new HashMap<>();
+    /**
+     * Threads of the bulkheads search, download and delete.
+     */
+    private Map<String, Integer> bulkheadThreads = new HashMap<>();
+    /**
+     * Requests that can wait in a bulkhead, further ones are rejected with a 503.
+     */
+    private Map<String, Integer> bulkheadQueueCapacities = new HashMap<>();
+    /**
+     * Time a request may wait and run in a bulkhead before the client gets a 503. A request that already runs is finished anyway,
+     * so delete defaults to 0, which waits for it.
+     */
+    private Map<String, Long> bulkheadTimeoutsMillis = new HashMap<>();
+    /**
+     * Time the listing of a folder is shared with identical requests after it finished, 0 only shares it with the ones that came while it was running.
+     */
+    private long folderContentsCoalescingWindowMillis = 1000;
+    /**
+     * Listings that are kept for the window at most, the others are only shared while they run.
+     */
+    private int folderContentsCoalescingMaxResults = 64;
 
     public String getVersion() {
         return version;
@@ -37,4 +145,228 @@ public class FileFighterProperties {
     public void setDisablePasswordCheck(boolean disablePasswordCheck) {
         this.disablePasswordCheck = disablePasswordCheck;
     }
-}
\ No newline at end of file
+
+    public boolean isReactiveFileSystemReads() {
+        return reactiveFileSystemReads;
+    }
+
+    public void setReactiveFileSystemReads(boolean reactiveFileSystemReads) {
+        this.reactiveFileSystemReads = reactiveFileSystemReads;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isDatabaseOperationsHeader() {
+        return databaseOperationsHeader;
+    }
+
+    public void setDatabaseOperationsHeader(boolean databaseOperationsHeader) {
+        this.databaseOperationsHeader = databaseOperationsHeader;
+    }
+
+    public int getDatabaseOperationsWarnThreshold() {
+        return databaseOperationsWarnThreshold;
+    }
+
+    public void setDatabaseOperationsWarnThreshold(int databaseOperationsWarnThreshold) {
+        this.databaseOperationsWarnThreshold = databaseOperationsWarnThreshold;
+    }
+
+    public double getAccessLogSampleRate() {
+        return accessLogSampleRate;
+    }
+
+    public void setAccessLogSampleRate(double accessLogSampleRate) {
+        this.accessLogSampleRate = accessLogSampleRate;
+    }
+
+    public Map<String, Double> getAccessLogSampleRates() {
+        return accessLogSampleRates;
+    }
+
+    public void setAccessLogSampleRates(Map<String, Double> accessLogSampleRates) {
+        this.accessLogSampleRates = accessLogSampleRates;
+    }
+
+    public int getPasswordHashingThreads() {
+        return passwordHashingThreads;
+    }
+
+    public void setPasswordHashingThreads(int passwordHashingThreads) {
+        this.passwordHashingThreads = passwordHashingThreads;
+    }
+
+    public int getPasswordHashingQueueCapacity() {
+        return passwordHashingQueueCapacity;
+    }
+
+    public void setPasswordHashingQueueCapacity(int passwordHashingQueueCapacity) {
+        this.passwordHashingQueueCapacity = passwordHashingQueueCapacity;
+    }
+
+    public int getPasswordHashingCost() {
+        return passwordHashingCost;
+    }
+
+    public void setPasswordHashingCost(int passwordHashingCost) {
+        this.passwordHashingCost = passwordHashingCost;
+    }
+
+    public long getPasswordHashingLatencyBudgetMillis() {
+        return passwordHashingLatencyBudgetMillis;
+    }
+
+    public void setPasswordHashingLatencyBudgetMillis(long passwordHashingLatencyBudgetMillis) {
+        this.passwordHashingLatencyBudgetMillis = passwordHashingLatencyBudgetMillis;
+    }
+
+    public long getCacheInvalidationPollIntervalMillis() {
+        return cacheInvalidationPollIntervalMillis;
+    }
+
+    public void setCacheInvalidationPollIntervalMillis(long cacheInvalidationPollIntervalMillis) {
+        this.cacheInvalidationPollIntervalMillis = cacheInvalidationPollIntervalMillis;
+    }
+
+    public boolean isRateLimitEnabled() {
+        return rateLimitEnabled;
+    }
+
+    public void setRateLimitEnabled(boolean rateLimitEnabled) {
+        this.rateLimitEnabled = rateLimitEnabled;
+    }
+
+    public boolean isRateLimitShared() {
+        return rateLimitShared;
+    }
+
+    public void setRateLimitShared(boolean rateLimitShared) {
+        this.rateLimitShared = rateLimitShared;
+    }
+
+    public double getRateLimitCapacity() {
+        return rateLimitCapacity;
+    }
+
+    public void setRateLimitCapacity(double rateLimitCapacity) {
+        this.rateLimitCapacity = rateLimitCapacity;
+    }
+
+    public double getRateLimitRefillPerSecond() {
+        return rateLimitRefillPerSecond;
+    }
+
+    public void setRateLimitRefillPerSecond(double rateLimitRefillPerSecond) {
+        this.rateLimitRefillPerSecond = rateLimitRefillPerSecond;
+    }
+
+    public Map<String, Double> getRateLimitCapacities() {
+        return rateLimitCapacities;
+    }
+
+    public void setRateLimitCapacities(Map<String, Double> rateLimitCapacities) {
+        this.rateLimitCapacities = rateLimitCapacities;
+    }
+
+    public Map<String, Double> getRateLimitRefillsPerSecond() {
+        return rateLimitRefillsPerSecond;
+    }
+
+    public void setRateLimitRefillsPerSecond(Map<String, Double> rateLimitRefillsPerSecond) {
+        this.rateLimitRefillsPerSecond = rateLimitRefillsPerSecond;
+    }
+
+    public double getRateLimitDocumentsPerToken() {
+        return rateLimitDocumentsPerToken;
+    }
+
+    public void setRateLimitDocumentsPerToken(double rateLimitDocumentsPerToken) {
+        this.rateLimitDocumentsPerToken = rateLimitDocumentsPerToken;
+    }
+
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    public void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+
+    public int getConcurrencyLimitInitial() {
+        return concurrencyLimitInitial;
+    }
+
+    public void setConcurrencyLimitInitial(int concurrencyLimitInitial) {
+        this.concurrencyLimitInitial = concurrencyLimitInitial;
+    }
+
+    public int getConcurrencyLimitMin() {
+        return concurrencyLimitMin;
+    }
+
+    public void setConcurrencyLimitMin(int concurrencyLimitMin) {
+        this.concurrencyLimitMin = concurrencyLimitMin;
+    }
+
+    public int getConcurrencyLimitMax() {
+        return concurrencyLimitMax;
+    }
+
+    public void setConcurrencyLimitMax(int concurrencyLimitMax) {
+        this.concurrencyLimitMax = concurrencyLimitMax;
+    }
+
+    public Map<String, RequestPriority> getConcurrencyLimitPriorities() {
+        return concurrencyLimitPriorities;
+    }
+
+    public void setConcurrencyLimitPriorities(Map<String, RequestPriority> concurrencyLimitPriorities) {
+        this.concurrencyLimitPriorities = concurrencyLimitPriorities;
+    }
+
+    public Map<String, Integer> getBulkheadThreads() {
+        return bulkheadThreads;
+    }
+
+    public void setBulkheadThreads(Map<String, Integer> bulkheadThreads) {
+        this.bulkheadThreads = bulkheadThreads;
+    }
+
+    public Map<String, Integer> getBulkheadQueueCapacities() {
+        return bulkheadQueueCapacities;
+    }
+
+    public void setBulkheadQueueCapacities(Map<String, Integer> bulkheadQueueCapacities) {
+        this.bulkheadQueueCapacities = bulkheadQueueCapacities;
+    }
+
+    public Map<String, Long> getBulkheadTimeoutsMillis() {
+        return bulkheadTimeoutsMillis;
+    }
+
+    public void setBulkheadTimeoutsMillis(Map<String, Long> bulkheadTimeoutsMillis) {
+        this.bulkheadTimeoutsMillis = bulkheadTimeoutsMillis;
+    }
+
+    public long getFolderContentsCoalescingWindowMillis() {
+        return folderContentsCoalescingWindowMillis;
+    }
+
+    public void setFolderContentsCoalescingWindowMillis(long folderContentsCoalescingWindowMillis) {
+        this.folderContentsCoalescingWindowMillis = folderContentsCoalescingWindowMillis;
+    }
+
+    public int getFolderContentsCoalescingMaxResults() {
+        return folderContentsCoalescingMaxResults;
+    }
+
+    public void setFolderContentsCoalescingMaxResults(int folderContentsCoalescingMaxResults) {
+        this.folderContentsCoalescingMaxResults = folderContentsCoalescingMaxResults;
+    }
+}
@@ -0,0 +1,44 @@
+package de.filefighter.rest.configuration;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Besides json the api also speaks cbor (application/cbor) and smile (application/x-jackson-smile), selected with the Accept and Content-Type headers.
+ * The binary formats use the same settings as the json mapper, json stays the default if the client accepts everything.
+ */
+@Configuration
+public class JacksonConfiguration {
+
+    /**
+     * Without a selection of fields the whole {@link FileSystemItem} is serialized.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fileSystemItemFieldsFilterCustomizer() {
+        return builder -> builder.filters(createDefaultFilters());
+    }
+
+    // the builder bean is a prototype, so changing the factory does not change the json mapper.
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    public static SimpleFilterProvider createDefaultFilters() {
+        return new SimpleFilterProvider().addFilter(FileSystemItem.FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll());
+    }
+}
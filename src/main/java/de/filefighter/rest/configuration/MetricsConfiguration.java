@@ -0,0 +1,63 @@
+package de.filefighter.rest.configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The metrics are exposed in the prometheus format on the management port, see management.server.port.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    public static final String BUSINESS_OPERATIONS_METRIC = "filefighter.business.operations";
+    public static final String OPERATION_TAG = "operation";
+
+    /**
+     * Needed for the @Timed annotations on the business services.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Adds the controller method to the http.server.requests metrics, because several methods share the same uri.
+     */
+    @Bean
+    public WebMvcTagsContributor handlerMethodTagsContributor() {
+        return new WebMvcTagsContributor() {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception) {
+                if (!(handler instanceof HandlerMethod))
+                    return Tags.empty();
+
+                HandlerMethod handlerMethod = (HandlerMethod) handler;
+                return Tags.of("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+                return Tags.empty();
+            }
+        };
+    }
+
+    /**
+     * Used for the blocking and the reactive mongo client.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoCommandMetricsCustomizer(MeterRegistry meterRegistry) {
+        MongoCommandMetricsListener listener = new MongoCommandMetricsListener(meterRegistry);
+        return builder -> builder.addCommandListener(listener);
+    }
+}
@@ -0,0 +1,75 @@
+package de.filefighter.rest.configuration;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the count and the duration of every mongo command by command name and collection.
+ * The collection is only part of the started event, so it is remembered until the command finished.
+ */
+public class MongoCommandMetricsListener implements CommandListener {
+
+    public static final String METRIC_NAME = "mongodb.driver.commands";
+    static final String UNKNOWN_COLLECTION = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, String> collectionsByRequestId = new ConcurrentHashMap<>();
+
+    public MongoCommandMetricsListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String collection = getCollectionName(event.getCommandName(), event.getCommand());
+        if (null != collection)
+            collectionsByRequestId.put(event.getRequestId(), collection);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        record(event.getRequestId(), event.getCommandName(), "SUCCESS", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        record(event.getRequestId(), event.getCommandName(), "FAILED", event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(int requestId, String commandName, String status, long elapsedNanos) {
+        String collection = collectionsByRequestId.remove(requestId);
+        Timer.builder(METRIC_NAME)
+                .description("Duration of the mongo commands.")
+                .tag("command", commandName)
+                .tag("collection", null == collection ? UNKNOWN_COLLECTION : collection)
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Most commands have the collection as value of the command name, like {find: "filesystem", filter: ...}.
+     */
+    static String getCollectionName(String commandName, BsonDocument command) {
+        BsonValue value = command.get(commandName);
+        if (null != value && value.isString())
+            return value.asString().getValue();
+
+        // getMore has the cursor id as value.
+        BsonValue collection = command.get("collection");
+        if (null != collection && collection.isString())
+            return collection.asString().getValue();
+
+        return null;
+    }
+}
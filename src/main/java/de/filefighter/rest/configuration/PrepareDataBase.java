@@ -5,6 +5,7 @@ import de.filefighter.rest.domain.filesystem.business.IdGenerationService;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
 import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
 import de.filefighter.rest.domain.user.data.persistence.UserEntity;
@@ -191,6 +192,7 @@ public class PrepareDataBase {
                         .lowercaseUsername("user")
                         .password(passwordEncoder.encode("D3500EF92337ED226F500EE57084D8FEEE559D0E411A635BC861DFD8159C0FBC")) // 1234 with salt
                         .refreshToken("rft1234")
+                        .refreshTokenDigest(RefreshTokenDigest.digest("rft1234"))
                         .groupIds(new long[]{ADMIN.getGroupId()})
                         .build()),
                 userRepository.save(UserEntity
@@ -200,6 +202,7 @@ public class PrepareDataBase {
                         .lowercaseUsername("user1")
                         .password(passwordEncoder.encode("6216104FA48274A78E291166EA2083E2EAAA5F4F200B2A8E83EE5B30D18019F0")) // 12345
                         .refreshToken("rft")
+                        .refreshTokenDigest(RefreshTokenDigest.digest("rft"))
                         .groupIds(new long[]{FAMILY.getGroupId()})
                         .build()));
     }
@@ -222,6 +225,7 @@ public class PrepareDataBase {
                 .lowercaseUsername("admin")
                 .password(passwordEncoder.encode("B6381E537A537181763A1A0E4CB00F6E70B57E01F18A2BF9AB602783BF8C22B3")) // admin
                 .refreshToken("rft1234")
+                .refreshTokenDigest(RefreshTokenDigest.digest("rft1234"))
                 .groupIds(new long[]{ADMIN.getGroupId()})
                 .build()));
     }
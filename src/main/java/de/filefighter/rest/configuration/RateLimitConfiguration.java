@@ -0,0 +1,70 @@
+package de.filefighter.rest.configuration;
+
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.ratelimit.InMemoryRateLimiter;
+import de.filefighter.rest.domain.common.ratelimit.MongoRateLimiter;
+import de.filefighter.rest.domain.common.ratelimit.RateLimit;
+import de.filefighter.rest.domain.common.ratelimit.RateLimiter;
+import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.rest.RateLimitInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Token bucket limits per client and endpoint, see filefighter.rate-limit-*.
+ */
+@Log4j2
+@Configuration
+public class RateLimitConfiguration implements WebMvcConfigurer {
+
+    private final FileFighterProperties fileFighterProperties;
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AccessTokenBusinessService accessTokenBusinessService;
+    private final InputSanitizerService inputSanitizerService;
+
+    public RateLimitConfiguration(FileFighterProperties fileFighterProperties, MongoTemplate mongoTemplate, MeterRegistry meterRegistry, AccessTokenBusinessService accessTokenBusinessService, InputSanitizerService inputSanitizerService) {
+        this.fileFighterProperties = fileFighterProperties;
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.accessTokenBusinessService = accessTokenBusinessService;
+        this.inputSanitizerService = inputSanitizerService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!fileFighterProperties.isRateLimitEnabled())
+            return;
+
+        RateLimiter rateLimiter = fileFighterProperties.isRateLimitShared() ? new MongoRateLimiter(mongoTemplate) : new InMemoryRateLimiter();
+        RateLimit defaultLimit = new RateLimit(fileFighterProperties.getRateLimitCapacity(), fileFighterProperties.getRateLimitRefillPerSecond());
+        Map<String, RateLimit> limits = createLimits(defaultLimit, fileFighterProperties.getRateLimitCapacities(), fileFighterProperties.getRateLimitRefillsPerSecond());
+        log.info("Limiting requests with {} buckets, default {}, endpoints {}.", fileFighterProperties.isRateLimitShared() ? "shared" : "in memory", defaultLimit, limits);
+
+        registry.addInterceptor(new RateLimitInterceptor(rateLimiter, accessTokenBusinessService, inputSanitizerService, defaultLimit, limits, fileFighterProperties.getRateLimitDocumentsPerToken(), meterRegistry));
+    }
+
+    /**
+     * An endpoint can override only the capacity or only the refill, the other value is taken from the default.
+     */
+    static Map<String, RateLimit> createLimits(RateLimit defaultLimit, Map<String, Double> capacities, Map<String, Double> refillsPerSecond) {
+        Set<String> mappings = new HashSet<>(capacities.keySet());
+        mappings.addAll(refillsPerSecond.keySet());
+
+        Map<String, RateLimit> limits = new HashMap<>();
+        for (String mapping : mappings)
+            limits.put(mapping, new RateLimit(
+                    capacities.getOrDefault(mapping, defaultLimit.getCapacity()),
+                    refillsPerSecond.getOrDefault(mapping, defaultLimit.getRefillPerSecond())));
+        return limits;
+    }
+}
@@ -11,6 +11,9 @@ public class RestConfiguration {
     public static final String FS_PATH_HEADER = "X-FF-PATH";
     public static final String FS_CURRENT_ID_HEADER = "X-FF-CURRENT";
     public static final String FS_DOWNLOAD_NAME_HEADER = "X-FF-NAME";
+    public static final String FS_COMPACT_CONTENTS_MEDIA_TYPE = "application/vnd.filefighter.compact+json";
+    public static final String DB_OPERATIONS_HEADER = "X-FF-DB-OPS";
+    public static final String DB_TIME_HEADER = "X-FF-DB-TIME";
     public static final String USER_BASE_URI = "/users/";
     public static final String DEFAULT_ERROR_URI = "/error";
     public static final long RUNTIME_USER_ID = 0;
@@ -1,15 +1,35 @@
 package de.filefighter.rest.configuration;
 
+import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Collections;
+
+@Log4j2
 @Configuration
 public class Security {
 
+    static final String BCRYPT_ID = "bcrypt";
+
+    /**
+     * New hashes look like {bcrypt}$2a$12$..., so the algorithm and the cost are stored with them.
+     */
     @Bean
-    public PasswordEncoder encoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder encoder(FileFighterProperties fileFighterProperties) {
+        CalibratedBCryptPasswordEncoder bCryptPasswordEncoder;
+        if (0 == fileFighterProperties.getPasswordHashingCost()) {
+            bCryptPasswordEncoder = CalibratedBCryptPasswordEncoder.calibrate(fileFighterProperties.getPasswordHashingLatencyBudgetMillis());
+        } else {
+            log.info("Hashing passwords with the configured bcrypt cost {}.", fileFighterProperties.getPasswordHashingCost());
+            bCryptPasswordEncoder = new CalibratedBCryptPasswordEncoder(fileFighterProperties.getPasswordHashingCost());
+        }
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(BCRYPT_ID, Collections.singletonMap(BCRYPT_ID, bCryptPasswordEncoder));
+        // older hashes were stored without the prefix, they are replaced on the next login.
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        return passwordEncoder;
     }
 }
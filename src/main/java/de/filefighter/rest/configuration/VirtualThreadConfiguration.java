@@ -0,0 +1,44 @@
+package de.filefighter.rest.configuration;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request on its own virtual thread, so slow requests that wait for the db do not block the tomcat thread pool.
+ * The project still targets java 11, so the executor is looked up at runtime. On older jvms the application does not start,
+ * instead of silently using the normal thread pool.
+ */
+@Log4j2
+@Configuration
+@ConditionalOnProperty(prefix = "filefighter", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * @throws IllegalStateException if the jvm has no virtual threads.
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("Handling requests with virtual threads.");
+            return executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+            // the method does not exist before java 21, or it is still a preview feature.
+            throw new IllegalStateException("filefighter.virtual-threads is enabled, but virtual threads are not available on java "
+                    + System.getProperty("java.version") + ". Use java 21 or newer or disable the property.", ex);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package de.filefighter.rest.domain.authentication;
 
 import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.Pair;
 import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import de.filefighter.rest.domain.common.jfr.AuthenticationEvent;
 import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.user.business.UserDTOService;
 import de.filefighter.rest.domain.user.data.dto.User;
@@ -10,12 +14,22 @@ import de.filefighter.rest.domain.user.data.persistence.UserEntity;
 import de.filefighter.rest.domain.user.data.persistence.UserRepository;
 import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
 import de.filefighter.rest.domain.user.group.Group;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static de.filefighter.rest.configuration.MetricsConfiguration.BUSINESS_OPERATIONS_METRIC;
+import static de.filefighter.rest.configuration.MetricsConfiguration.OPERATION_TAG;
 
 @Log4j2
 @Service
@@ -24,18 +38,87 @@ public class AuthenticationBusinessService {
     private final UserRepository userRepository;
     private final UserDTOService userDtoService;
     private final InputSanitizerService inputSanitizerService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final AccessTokenBusinessService accessTokenBusinessService;
+    private final MongoTemplate mongoTemplate;
 
-    public AuthenticationBusinessService(UserRepository userRepository, UserDTOService userDtoService, InputSanitizerService inputSanitizerService, PasswordEncoder passwordEncoder, AccessTokenBusinessService accessTokenBusinessService) {
+    public AuthenticationBusinessService(UserRepository userRepository, UserDTOService userDtoService, InputSanitizerService inputSanitizerService, PasswordHashingService passwordHashingService, AccessTokenBusinessService accessTokenBusinessService, MongoTemplate mongoTemplate) {
         this.userRepository = userRepository;
         this.userDtoService = userDtoService;
         this.inputSanitizerService = inputSanitizerService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.accessTokenBusinessService = accessTokenBusinessService;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * The password is checked on the pool of the {@link PasswordHashingService}, the future completes on one of its threads.
+     */
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "authentication"}, histogram = true)
+    public CompletableFuture<User> authenticateUserWithUsernameAndPassword(String base64encodedUserAndPassword) {
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        CompletableFuture<User> authentication;
+        try {
+            authentication = findUserByUsernameAndPassword(base64encodedUserAndPassword);
+        } catch (RuntimeException ex) {
+            commitAuthenticationEvent(event, "password", -1, false);
+            throw ex;
+        }
+        return authentication.whenComplete((user, ex) ->
+                commitAuthenticationEvent(event, "password", null == user ? -1 : user.getUserId(), null != user));
+    }
+
+    private CompletableFuture<User> findUserByUsernameAndPassword(String base64encodedUserAndPassword) {
+        Pair<String, String> credentials = parseBase64Credentials(base64encodedUserAndPassword);
+        String lowerCaseUsername = credentials.getFirst();
+        String password = credentials.getSecond();
+
+        if (!inputSanitizerService.passwordIsValid(password))
+            throw new UserNotAuthenticatedException("The password didn't match requirements, please hash the password with SHA-256.");
+
+        UserEntity userEntity = userRepository.findByLowercaseUsername(lowerCaseUsername);
+        if (null == userEntity)
+            throw new UserNotAuthenticatedException("No User found with this username and password.");
+
+        return passwordHashingService.matches(password, userEntity.getPassword()).thenApply(matches -> {
+            if (!matches)
+                throw new UserNotAuthenticatedException("No User found with this username and password.");
+
+            rehashPasswordIfNeeded(userEntity, password);
+            return userDtoService.createDto(userEntity);
+        });
+    }
+
+    /**
+     * Hashes the password again if it is stored with another algorithm or cost than new hashes, the login does not wait for it.
+     */
+    private void rehashPasswordIfNeeded(UserEntity userEntity, String password) {
+        String oldHash = userEntity.getPassword();
+        if (!passwordHashingService.needsRehash(oldHash))
+            return;
+
+        try {
+            passwordHashingService.encode(password).thenAccept(newHash -> {
+                // only replace the hash we checked, the password could have been changed in the meantime.
+                Query query = new Query();
+                query.addCriteria(Criteria.where("userId").is(userEntity.getUserId()).and("password").is(oldHash));
+                mongoTemplate.updateFirst(query, new Update().set("password", newHash), UserEntity.class);
+                log.debug("Rehashed the password of user {}.", userEntity.getUserId());
+            }).exceptionally(ex -> {
+                log.warn("Could not rehash the password of user {}: {}", userEntity.getUserId(), ex.getMessage());
+                return null;
+            });
+        } catch (ServiceOverloadedException ex) {
+            log.debug("Skipped rehashing the password of user {}, will try again on the next login.", userEntity.getUserId());
+        }
     }
 
-    public User authenticateUserWithUsernameAndPassword(String base64encodedUserAndPassword) {
+    /**
+     * @return the lowercase username and the password.
+     * @throws RequestDidntMeetFormalRequirementsException if the value is no base64 or does not contain exactly one username and password.
+     */
+    public Pair<String, String> parseBase64Credentials(String base64encodedUserAndPassword) {
         String decodedUsernameAndPassword;
         try {
             byte[] decodedValue = Base64.getDecoder().decode(base64encodedUserAndPassword);
@@ -52,32 +135,36 @@ public class AuthenticationBusinessService {
 
         String lowerCaseUsername = inputSanitizerService.sanitizeString(split[0].toLowerCase());
         String password = inputSanitizerService.sanitizeString(split[1]);
-
-        if (!inputSanitizerService.passwordIsValid(password))
-            throw new UserNotAuthenticatedException("The password didn't match requirements, please hash the password with SHA-256.");
-
-        UserEntity userEntity = userRepository.findByLowercaseUsername(lowerCaseUsername);
-        if (null == userEntity)
-            throw new UserNotAuthenticatedException("No User found with this username and password.");
-
-        if (!passwordEncoder.matches(password, userEntity.getPassword()))
-            throw new UserNotAuthenticatedException("No User found with this username and password.");
-
-        return userDtoService.createDto(userEntity);
+        return new Pair<>(lowerCaseUsername, password);
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "authentication"}, histogram = true)
     public User authenticateUserWithRefreshToken(String refreshToken) {
-        UserEntity userEntity = userRepository.findByRefreshToken(refreshToken);
-        if (null == userEntity)
+        return recordAuthentication("refreshToken", () -> findUserByRefreshToken(refreshToken));
+    }
+
+    private User findUserByRefreshToken(String refreshToken) {
+        String refreshTokenDigest = RefreshTokenDigest.digest(refreshToken);
+        // the users from before the digests got theirs at startup, see DatabaseMigrations.
+        UserEntity userEntity = userRepository.findByRefreshTokenDigest(refreshTokenDigest);
+        if (null == userEntity || !RefreshTokenDigest.matches(refreshToken, userEntity.getRefreshToken()))
             throw new UserNotAuthenticatedException("No user found for this Refresh Token.");
 
         return userDtoService.createDto(userEntity);
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "authentication"}, histogram = true)
     public User authenticateUserWithAccessToken(AccessToken accessToken) {
+        return recordAuthentication("accessToken", () -> findUserByAccessToken(accessToken));
+    }
+
+    private User findUserByAccessToken(AccessToken accessToken) {
         if (accessTokenBusinessService.accessTokenIsInvalid(accessToken.getValidUntil())) {
             log.debug("AccessToken used for auth was invalid: " + accessToken);
             throw new UserNotAuthenticatedException("AccessToken was not valid anymore.");
+        } else if (null != accessToken.getUser()) {
+            // the token carries a copy of the user, no need to read it.
+            return accessToken.getUser();
         } else {
             UserEntity userEntity = userRepository.findByUserId(accessToken.getUserId());
             if (null == userEntity)
@@ -87,15 +174,25 @@ public class AuthenticationBusinessService {
         }
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "authentication"}, histogram = true)
     public void authenticateUserWithAccessTokenAndGroup(AccessToken accessToken, Group groups) {
-        UserEntity userEntity = userRepository.findByUserId(accessToken.getUserId());
-        if (null == userEntity)
-            throw new UserNotAuthenticatedException(accessToken.getUserId());
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        boolean authenticated = false;
+        try {
+            checkGroupOfUser(accessToken, groups);
+            authenticated = true;
+        } finally {
+            commitAuthenticationEvent(event, "accessTokenAndGroup", accessToken.getUserId(), authenticated);
+        }
+    }
 
+    private void checkGroupOfUser(AccessToken accessToken, Group groups) {
+        long[] groupIdsOfUser = getGroupIdsOfUser(accessToken);
         boolean authenticated = false;
 
-        if (null != userEntity.getGroupIds()) {
-            for (long group : userEntity.getGroupIds()) {
+        if (null != groupIdsOfUser) {
+            for (long group : groupIdsOfUser) {
                 if (group == groups.getGroupId()) {
                     authenticated = true;
                     break;
@@ -106,4 +203,37 @@ public class AuthenticationBusinessService {
         if (!authenticated)
             throw new UserNotAuthenticatedException("Not in necessary group.");
     }
+
+    private long[] getGroupIdsOfUser(AccessToken accessToken) {
+        if (null != accessToken.getUser())
+            return Arrays.stream(accessToken.getUser().getGroups()).mapToLong(Group::getGroupId).toArray();
+
+        UserEntity userEntity = userRepository.findByUserId(accessToken.getUserId());
+        if (null == userEntity)
+            throw new UserNotAuthenticatedException(accessToken.getUserId());
+
+        return userEntity.getGroupIds();
+    }
+
+    private User recordAuthentication(String method, Supplier<User> authentication) {
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        User user = null;
+        try {
+            user = authentication.get();
+            return user;
+        } finally {
+            commitAuthenticationEvent(event, method, null == user ? -1 : user.getUserId(), null != user);
+        }
+    }
+
+    private void commitAuthenticationEvent(AuthenticationEvent event, String method, long userId, boolean successful) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = method;
+            event.userId = userId;
+            event.successful = successful;
+            event.commit();
+        }
+    }
 }
@@ -11,6 +11,8 @@ import de.filefighter.rest.domain.user.group.Group;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BASIC_PREFIX;
 import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BEARER_PREFIX;
 
@@ -29,7 +31,7 @@ public class AuthenticationService implements AuthenticationServiceInterface {
     }
 
     @Override
-    public User basicAuthentication(String base64encodedUsernameAndPasswordWithHeader) {
+    public CompletableFuture<User> basicAuthentication(String base64encodedUsernameAndPasswordWithHeader) {
         String sanitizedHeaderValue = inputSanitizerService.sanitizeRequestHeader(AUTHORIZATION_BASIC_PREFIX, base64encodedUsernameAndPasswordWithHeader);
         return authenticationBusinessService.authenticateUserWithUsernameAndPassword(sanitizedHeaderValue);
     }
@@ -4,8 +4,10 @@ import de.filefighter.rest.domain.common.Pair;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.group.Group;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthenticationServiceInterface {
-    User basicAuthentication(String base64encodedUsernameAndPasswordWithHeader);
+    CompletableFuture<User> basicAuthentication(String base64encodedUsernameAndPasswordWithHeader);
 
     User bearerAuthenticationWithAccessToken(String accessTokenWithHeader);
 
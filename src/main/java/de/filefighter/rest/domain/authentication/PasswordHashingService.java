@@ -0,0 +1,91 @@
+package de.filefighter.rest.domain.authentication;
+
+import de.filefighter.rest.configuration.FileFighterProperties;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Checks and hashes passwords on a small pool of its own, bcrypt is slow on purpose and would otherwise block the request threads.
+ * The queue of the pool is bounded, if it is full the task is rejected at once and the client gets a 503 instead of waiting.
+ */
+@Log4j2
+@Service
+public class PasswordHashingService {
+
+    static final String EXECUTOR_NAME = "password.hashing";
+    static final String REJECTED_METRIC = "filefighter.password.hashing.rejected";
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejectedCounter;
+
+    @Autowired
+    public PasswordHashingService(PasswordEncoder passwordEncoder, FileFighterProperties fileFighterProperties, MeterRegistry meterRegistry) {
+        this(passwordEncoder, createExecutor(fileFighterProperties.getPasswordHashingThreads(), fileFighterProperties.getPasswordHashingQueueCapacity()), meterRegistry);
+    }
+
+    PasswordHashingService(PasswordEncoder passwordEncoder, ThreadPoolExecutor executor, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        // executor.queued is the number of waiting tasks, executor.queue.remaining the free places.
+        new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Collections.emptyList()).bindTo(meterRegistry);
+        this.rejectedCounter = Counter.builder(REJECTED_METRIC)
+                .description("Password checks and hashes that were rejected because the pool was saturated.")
+                .register(meterRegistry);
+    }
+
+    static ThreadPoolExecutor createExecutor(int threads, int queueCapacity) {
+        log.info("Hashing passwords with {} threads and a queue of {}.", threads, queueCapacity);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @throws ServiceOverloadedException if the pool is saturated.
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @throws ServiceOverloadedException if the pool is saturated.
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @return true if the hash was made with another algorithm or cost than new hashes are.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many logins at the same time.");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -5,12 +5,15 @@ import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUpload;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+/**
+ * Runs on every request, so the checks are hand written scanners instead of regular expressions.
+ */
 @Service
 public class InputSanitizerService {
 
+    static final int PASSWORD_HASH_LENGTH = 64;
+    private static final String ILLEGAL_PATH_CHARACTERS = "~#@*+:!?&%<>|\"^\\";
+
     @Value("${filefighter.disable-password-check}")
     private boolean passwordCheckDisabled;
 
@@ -28,7 +31,22 @@ public class InputSanitizerService {
     public String sanitizeString(String string) {
         if (!InputSanitizerService.stringIsValid(string))
             throw new RequestDidntMeetFormalRequirementsException("String was empty.");
-        return string.replaceAll("\\s", "");
+
+        int firstWhitespace = 0;
+        while (firstWhitespace < string.length() && !isWhitespace(string.charAt(firstWhitespace)))
+            firstWhitespace++;
+
+        if (firstWhitespace == string.length())
+            return string;
+
+        StringBuilder sanitized = new StringBuilder(string.length() - 1);
+        sanitized.append(string, 0, firstWhitespace);
+        for (int i = firstWhitespace + 1; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (!isWhitespace(c))
+                sanitized.append(c);
+        }
+        return sanitized.toString();
     }
 
     public String sanitizePath(String path) {
@@ -45,36 +63,110 @@ public class InputSanitizerService {
         return fileSystemUpload;
     }
 
+    /**
+     * @param header prefix of the value, like "Bearer ". It is compared literally.
+     * @return the value after the header, up to the next occurrence of the header.
+     */
     public String sanitizeRequestHeader(String header, String testString) {
         if (!(stringIsValid(testString) && stringIsValid(header)))
             throw new RequestDidntMeetFormalRequirementsException("Header does not contain a valid String.");
 
-        if (!testString.matches("^" + header + "[^\\s](.*)$"))
+        if (!headerFormatIsValid(header, testString))
+            throw new RequestDidntMeetFormalRequirementsException("Header does not contain '" + header + "', or format is invalid.");
+
+        int valueStart = header.length();
+        int valueEnd = testString.indexOf(header, valueStart);
+        if (valueEnd == -1)
+            return testString.substring(valueStart);
+
+        // a value that only consists of headers has nothing to return.
+        if (valueEnd == valueStart && containsOnlyHeaders(header, testString, valueEnd))
             throw new RequestDidntMeetFormalRequirementsException("Header does not contain '" + header + "', or format is invalid.");
-        String[] split = testString.split(header);
-        return split[1];
+
+        return testString.substring(valueStart, valueEnd);
+    }
+
+    /**
+     * The header, one character that is no whitespace and then anything in one line.
+     */
+    private static boolean headerFormatIsValid(String header, String testString) {
+        if (testString.length() <= header.length() || !testString.startsWith(header))
+            return false;
+
+        if (isWhitespace(testString.charAt(header.length())))
+            return false;
+
+        int firstCharacterOfRest = header.length() + Character.charCount(testString.codePointAt(header.length()));
+        for (int i = firstCharacterOfRest; i < testString.length(); i++) {
+            if (isLineTerminator(testString.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean containsOnlyHeaders(String header, String testString, int start) {
+        int position = start;
+        while (position < testString.length()) {
+            if (!testString.startsWith(header, position))
+                return false;
+
+            position += header.length();
+        }
+        return true;
     }
 
     public boolean passwordIsValid(String password) {
         if (this.passwordCheckDisabled)
             return true;
 
-        Pattern pattern = Pattern.compile("\\b[A-Fa-f0-9]{64}\\b");
-        return pattern.matcher(password).matches();
+        if (password.length() != PASSWORD_HASH_LENGTH)
+            return false;
+
+        for (int i = 0; i < password.length(); i++) {
+            if (!isHexCharacter(password.charAt(i)))
+                return false;
+        }
+        return true;
     }
 
     public boolean pathIsValid(String path) {
-        String validString = sanitizeString(path);
+        if (!InputSanitizerService.stringIsValid(path))
+            throw new RequestDidntMeetFormalRequirementsException("String was empty.");
 
-        Pattern pattern = Pattern.compile("[~#@*+:!?&%<>|\"^\\\\]");
-        Matcher matcher = pattern.matcher(validString);
+        // the whitespaces are ignored, like in the sanitized path.
+        char previous = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (isWhitespace(c))
+                continue;
 
-        boolean stringContainsDoubleSlash = validString.contains("//");
+            if (ILLEGAL_PATH_CHARACTERS.indexOf(c) != -1 || (c == '/' && previous == '/'))
+                return false;
 
-        return !(matcher.find() || stringContainsDoubleSlash);
+            previous = c;
+        }
+        return true;
     }
 
     public String sanitizeTokenValue(String tokenValue) {
         return this.sanitizeString(tokenValue);
     }
+
+    /**
+     * Same as \\s of java.util.regex.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isHexCharacter(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /**
+     * The characters that are not matched by . of java.util.regex.
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
 }
@@ -0,0 +1,115 @@
+package de.filefighter.rest.domain.common;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Runs a call only once per key at the same time, threads that ask for the same key meanwhile wait for it and get the same result.
+ * Without a window nothing is cached, the next call after the first one finished runs again.
+ * With a window a successful result is also shared with the calls that start within the window after it finished,
+ * then it is evicted. Only a few results are kept at once, the others are not shared after they finished. Only coordinates the threads of this node.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+    private final AtomicInteger keptResults = new AtomicInteger();
+    private final long windowNanos;
+    private final int maxKeptResults;
+    private final LongSupplier nanoClock;
+    private final Executor evictionExecutor;
+
+    public SingleFlight() {
+        this(Duration.ZERO, 0);
+    }
+
+    public SingleFlight(Duration window, int maxKeptResults) {
+        this(window.toNanos(), maxKeptResults, System::nanoTime, CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @param evictionExecutor runs the eviction of a kept result once the window passed.
+     */
+    SingleFlight(long windowNanos, int maxKeptResults, LongSupplier nanoClock, Executor evictionExecutor) {
+        this.windowNanos = windowNanos;
+        this.maxKeptResults = maxKeptResults;
+        this.nanoClock = nanoClock;
+        this.evictionExecutor = evictionExecutor;
+    }
+
+    /**
+     * @throws RuntimeException the exception of the call, also in the threads that waited for it.
+     */
+    public V execute(K key, Supplier<V> call) {
+        long now = nanoClock.getAsLong();
+        Call<V> ownCall = new Call<>();
+        Call<V> sharedCall = calls.compute(key, (sameKey, keptCall) -> null == keptCall || keptCall.isExpired(now, windowNanos) ? ownCall : keptCall);
+        if (sharedCall != ownCall)
+            return await(sharedCall.result);
+
+        boolean keep = false;
+        try {
+            V result = call.get();
+            // failed calls are never kept, the next one tries again.
+            keep = windowNanos > 0 && keepResult();
+            ownCall.finishedAtNanos = nanoClock.getAsLong();
+            ownCall.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error ex) {
+            ownCall.result.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            if (keep) {
+                evictionExecutor.execute(() -> {
+                    calls.remove(key, ownCall);
+                    keptResults.decrementAndGet();
+                });
+            } else {
+                calls.remove(key, ownCall);
+            }
+        }
+    }
+
+    private boolean keepResult() {
+        if (keptResults.incrementAndGet() <= maxKeptResults)
+            return true;
+
+        keptResults.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * @return the running calls and the results kept within the window.
+     */
+    int getRunningCalls() {
+        return calls.size();
+    }
+
+    private V await(CompletableFuture<V> runningCall) {
+        try {
+            return runningCall.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw ex;
+        }
+    }
+
+    private static class Call<V> {
+
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        // set before the result is completed, so it is valid once the result is done.
+        private volatile long finishedAtNanos;
+
+        /**
+         * A result can outlive its window until the eviction ran.
+         */
+        boolean isExpired(long now, long windowNanos) {
+            return result.isDone() && now - finishedAtNanos > windowNanos;
+        }
+    }
+}
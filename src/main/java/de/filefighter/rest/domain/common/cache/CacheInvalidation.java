@@ -0,0 +1,23 @@
+package de.filefighter.rest.domain.common.cache;
+
+import lombok.Data;
+import org.bson.Document;
+
+/**
+ * A document of a collection was changed by this or another node.
+ * Without a documentId everything of the collection has to be evicted, because the changes are not known.
+ */
+@Data
+public class CacheInvalidation {
+    private final String collection;
+    private final Object documentId;
+    private final Document document; // the document after the change, null if it was deleted or is not known.
+
+    public static CacheInvalidation everything(String collection) {
+        return new CacheInvalidation(collection, null, null);
+    }
+
+    public boolean isEverything() {
+        return null == documentId;
+    }
+}
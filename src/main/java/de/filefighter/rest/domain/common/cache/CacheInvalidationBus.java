@@ -0,0 +1,91 @@
+package de.filefighter.rest.domain.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Caches subscribe here to evict their entries when a collection changes, on this node or any other.
+ * The changes are fed in by the {@link CacheInvalidationWatcher}, which only watches the collections that have listeners.
+ */
+@Log4j2
+@Service
+public class CacheInvalidationBus {
+
+    static final String INVALIDATIONS_METRIC = "filefighter.cache.invalidations";
+
+    private final Map<String, List<Consumer<CacheInvalidation>>> listeners = new ConcurrentHashMap<>();
+    private final Set<String> collectionsWithDocuments = ConcurrentHashMap.newKeySet();
+    private final MeterRegistry meterRegistry;
+    private CollectionWatcher collectionWatcher;
+
+    public CacheInvalidationBus(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * The listener is called on the threads of the mongo driver, it should only evict entries and return quickly.
+     * Updates do not carry the document after the change.
+     */
+    public void subscribe(String collection, Consumer<CacheInvalidation> listener) {
+        subscribe(collection, listener, false);
+    }
+
+    /**
+     * Same as {@link #subscribe(String, Consumer)}, but updates carry the document after the change if it is known.
+     * Every update of the collection is looked up then, so only subscribe like this if the document is used.
+     */
+    public void subscribeWithDocuments(String collection, Consumer<CacheInvalidation> listener) {
+        subscribe(collection, listener, true);
+    }
+
+    private synchronized void subscribe(String collection, Consumer<CacheInvalidation> listener, boolean withDocuments) {
+        boolean firstListener = !listeners.containsKey(collection);
+        listeners.computeIfAbsent(collection, key -> new CopyOnWriteArrayList<>()).add(listener);
+        boolean firstListenerWithDocuments = withDocuments && collectionsWithDocuments.add(collection);
+
+        if (null != collectionWatcher && (firstListener || firstListenerWithDocuments))
+            collectionWatcher.watch(collection, collectionsWithDocuments.contains(collection));
+    }
+
+    /**
+     * The watcher is called for every collection that already has listeners, and later whenever a collection needs to be watched (again).
+     */
+    public synchronized void setCollectionWatcher(CollectionWatcher collectionWatcher) {
+        this.collectionWatcher = collectionWatcher;
+        listeners.keySet().forEach(collection -> collectionWatcher.watch(collection, collectionsWithDocuments.contains(collection)));
+    }
+
+    public void publish(CacheInvalidation invalidation) {
+        Counter.builder(INVALIDATIONS_METRIC)
+                .description("Changes that evicted cache entries.")
+                .tag("collection", invalidation.getCollection())
+                .tag("scope", invalidation.isEverything() ? "collection" : "document")
+                .register(meterRegistry)
+                .increment();
+
+        for (Consumer<CacheInvalidation> listener : listeners.getOrDefault(invalidation.getCollection(), List.of())) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException ex) {
+                log.error("Cache listener failed for {}.", invalidation, ex);
+            }
+        }
+    }
+
+    public interface CollectionWatcher {
+
+        /**
+         * @param withDocuments the listeners need the documents after the changes.
+         */
+        void watch(String collection, boolean withDocuments);
+    }
+}
@@ -0,0 +1,182 @@
+package de.filefighter.rest.domain.common.cache;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import de.filefighter.rest.configuration.FileFighterProperties;
+import lombok.extern.log4j.Log4j2;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Feeds the {@link CacheInvalidationBus} with the changes of the collections caches subscribed to, nothing is watched before.
+ * On a replica set every change arrives through a change stream within milliseconds. A standalone mongod has no change streams,
+ * then the write counters of the collections are polled and a changed counter evicts everything of that collection.
+ */
+@Log4j2
+@Component
+public class CacheInvalidationWatcher {
+
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final Duration pollInterval;
+    private final Map<String, Long> lastWriteCounts = new ConcurrentHashMap<>();
+    private final Map<String, Disposable> changeStreams = new ConcurrentHashMap<>();
+    private final Set<String> changeStreamsWithDocuments = ConcurrentHashMap.newKeySet();
+    private final Set<String> polledCollections = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public CacheInvalidationWatcher(ReactiveMongoTemplate reactiveMongoTemplate, CacheInvalidationBus cacheInvalidationBus, FileFighterProperties fileFighterProperties) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.pollInterval = Duration.ofMillis(fileFighterProperties.getCacheInvalidationPollIntervalMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cacheInvalidationBus.setCollectionWatcher(this::watch);
+    }
+
+    void watch(String collection, boolean withDocuments) {
+        subscriptions.add(supportsChangeStreams().subscribe(changeStreamsSupported -> {
+            if (changeStreamsSupported) {
+                watchChangeStream(collection, withDocuments);
+            } else {
+                pollWriteCount(collection);
+            }
+        }, ex -> log.error("Could not start the cache invalidation of {}.", collection, ex)));
+    }
+
+    /**
+     * Change streams need the oplog of a replica set or a sharded cluster.
+     */
+    private Mono<Boolean> supportsChangeStreams() {
+        return reactiveMongoTemplate.executeCommand(new Document("isMaster", 1))
+                .map(reply -> reply.containsKey("setName") || "isdbgrid".equals(reply.get("msg")));
+    }
+
+    private synchronized void watchChangeStream(String collection, boolean withDocuments) {
+        boolean watched = changeStreams.containsKey(collection);
+        if (watched && (!withDocuments || changeStreamsWithDocuments.contains(collection)))
+            return;
+
+        log.info("Invalidating the caches of {} with a change stream{}.", collection, withDocuments ? ", looking up the changed documents" : "");
+        if (withDocuments)
+            changeStreamsWithDocuments.add(collection);
+        Disposable previousChangeStream = changeStreams.put(collection, openChangeStream(collection, withDocuments));
+        if (null != previousChangeStream) {
+            // changes between the two streams could be lost.
+            previousChangeStream.dispose();
+            cacheInvalidationBus.publish(CacheInvalidation.everything(collection));
+        }
+    }
+
+    /**
+     * @param withDocuments look up the document after every update, otherwise only inserts and replaces carry it.
+     */
+    private Disposable openChangeStream(String collection, boolean withDocuments) {
+        ChangeStreamOptions options = ChangeStreamOptions.builder()
+                .fullDocumentLookup(withDocuments ? FullDocument.UPDATE_LOOKUP : FullDocument.DEFAULT)
+                .build();
+
+        return Flux.defer(() -> reactiveMongoTemplate.changeStream(collection, options, Document.class))
+                .doOnNext(event -> cacheInvalidationBus.publish(toInvalidation(collection, event.getRaw())))
+                .doOnError(ex -> {
+                    // the changes until the stream is open again are lost.
+                    log.warn("Change stream on {} failed, evicting everything: {}", collection, ex.getMessage());
+                    cacheInvalidationBus.publish(CacheInvalidation.everything(collection));
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(100)).maxBackoff(Duration.ofSeconds(10)).transientErrors(true))
+                .subscribe();
+    }
+
+    static CacheInvalidation toInvalidation(String collection, ChangeStreamDocument<Document> change) {
+        if (null == change || null == change.getDocumentKey()
+                || (change.getOperationType() != OperationType.INSERT && change.getOperationType() != OperationType.UPDATE
+                && change.getOperationType() != OperationType.REPLACE && change.getOperationType() != OperationType.DELETE))
+            // drop, rename and invalidate concern the whole collection.
+            return CacheInvalidation.everything(collection);
+
+        return new CacheInvalidation(collection, toMongoId(change.getDocumentKey().get("_id")), change.getFullDocument());
+    }
+
+    /**
+     * @return the id like in the mongoId of the entities, ObjectIds as hex string.
+     */
+    private static Object toMongoId(BsonValue id) {
+        if (null == id)
+            return null;
+        if (id.isObjectId())
+            return id.asObjectId().getValue().toHexString();
+        if (id.isString())
+            return id.asString().getValue();
+        return id;
+    }
+
+    private void pollWriteCount(String collection) {
+        if (polledCollections.add(collection) && polling.compareAndSet(false, true)) {
+            log.info("Mongo is no replica set, invalidating caches by polling the write counts every {}ms.", pollInterval.toMillis());
+            subscriptions.add(poll());
+        }
+        log.debug("Polling the write count of {}.", collection);
+    }
+
+    private Disposable poll() {
+        return Flux.interval(pollInterval)
+                .concatMap(tick -> Flux.fromIterable(polledCollections)
+                        .concatMap(collection -> countWrites(collection).doOnNext(writeCount -> onWriteCount(collection, writeCount))))
+                .doOnError(ex -> log.warn("Polling the write counts failed: {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, pollInterval).maxBackoff(Duration.ofSeconds(10)).transientErrors(true))
+                .subscribe();
+    }
+
+    /**
+     * $collStats counts the writes of a collection since the start of the mongod, the counter works on a standalone as well.
+     */
+    private Mono<Long> countWrites(String collection) {
+        Document collStats = new Document("$collStats", new Document("latencyStats", new Document()));
+        return reactiveMongoTemplate.getCollection(collection)
+                .flatMapMany(mongoCollection -> mongoCollection.aggregate(Collections.singletonList(collStats)))
+                .map(CacheInvalidationWatcher::getWriteCount)
+                .reduce(0L, Long::sum);
+    }
+
+    static long getWriteCount(Document collStats) {
+        Document latencyStats = collStats.get("latencyStats", Document.class);
+        Document writes = null == latencyStats ? null : latencyStats.get("writes", Document.class);
+        // a collection that does not exist yet has no stats.
+        return null == writes || null == writes.get("ops") ? 0 : ((Number) writes.get("ops")).longValue();
+    }
+
+    void onWriteCount(String collection, long writeCount) {
+        Long lastWriteCount = lastWriteCounts.put(collection, writeCount);
+        // the counter also changes when the mongod restarts, so only equality matters.
+        if (null != lastWriteCount && lastWriteCount != writeCount)
+            cacheInvalidationBus.publish(CacheInvalidation.everything(collection));
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        subscriptions.dispose();
+        changeStreams.values().forEach(Disposable::dispose);
+    }
+}
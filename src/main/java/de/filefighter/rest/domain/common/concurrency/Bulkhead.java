@@ -0,0 +1,115 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import de.filefighter.rest.configuration.DatabaseOperations;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of its own for one kind of expensive request, so a burst of them only waits for each other and not for the request threads.
+ * If the queue is full the request is rejected at once, if it takes longer than the timeout the client gets a 503.
+ * A request that timed out or was cancelled while still queued is removed from the queue and never runs.
+ * One that already runs is finished, the mongo operations can't be interrupted safely, so its changes are made although the client got a 503.
+ * A timeout of 0 waits for every request, for changes that must not go through after the client was told otherwise.
+ */
+@Log4j2
+public class Bulkhead {
+
+    static final String REJECTED_METRIC = "filefighter.bulkhead.rejected";
+    static final String TIMED_OUT_METRIC = "filefighter.bulkhead.timed.out";
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Counter rejectedCounter;
+    private final Counter timedOutCounter;
+
+    public Bulkhead(String name, int threads, int queueCapacity, Duration timeout, MeterRegistry meterRegistry) {
+        log.info("Bulkhead {} with {} threads, a queue of {} and a timeout of {}ms.", name, threads, queueCapacity, timeout.toMillis());
+        this.name = name;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("bulkhead-" + name + "-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, "bulkhead." + name, Collections.emptyList()).bindTo(meterRegistry);
+        this.rejectedCounter = Counter.builder(REJECTED_METRIC)
+                .description("Requests that were rejected because the bulkhead was saturated.")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.timedOutCounter = Counter.builder(TIMED_OUT_METRIC)
+                .description("Requests that took longer than the timeout of the bulkhead.")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The task is submitted on subscription. Its db operations are counted for the request that called this method.
+     *
+     * @return a Mono that fails with a {@link ServiceOverloadedException} if the bulkhead is saturated or the task took too long.
+     */
+    public <T> Mono<T> execute(Supplier<T> task) {
+        DatabaseOperations databaseOperations = DatabaseOperations.current();
+        return Mono.defer(() -> {
+            CompletableFuture<T> result = submit(task, databaseOperations);
+            // Mono.fromFuture does not cancel the future, so the queued task would still run.
+            Mono<T> execution = Mono.fromFuture(result).doOnCancel(() -> result.cancel(false));
+            if (timeout.isZero())
+                return execution;
+
+            return execution.timeout(timeout, Mono.error(() -> {
+                result.cancel(false);
+                timedOutCounter.increment();
+                return new ServiceOverloadedException("The " + name + " took longer than " + timeout.toMillis() + "ms.");
+            }));
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task, DatabaseOperations databaseOperations) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable execution = () -> {
+            // cancelled while it was queued.
+            if (result.isDone())
+                return;
+
+            DatabaseOperations.attach(databaseOperations);
+            try {
+                result.complete(task.get());
+            } catch (RuntimeException | Error ex) {
+                result.completeExceptionally(ex);
+            } finally {
+                DatabaseOperations.stop();
+            }
+        };
+
+        try {
+            executor.execute(execution);
+        } catch (RejectedExecutionException ex) {
+            rejectedCounter.increment();
+            throw new ServiceOverloadedException("Too many requests for " + name + " at the same time.");
+        }
+        // frees the place in the queue for the next request right away.
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled())
+                executor.remove(execution);
+        });
+        return result;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    boolean awaitTermination(Duration duration) throws InterruptedException {
+        return executor.awaitTermination(duration.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
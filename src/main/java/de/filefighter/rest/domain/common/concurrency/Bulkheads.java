@@ -0,0 +1,61 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import de.filefighter.rest.configuration.FileFighterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * The bulkheads of the expensive filesystem requests, see filefighter.bulkhead-*. Auth, listings and the other requests stay on the request threads.
+ */
+@Service
+public class Bulkheads {
+
+    static final String SEARCH = "search";
+    static final String DOWNLOAD = "download";
+    static final String DELETE = "delete";
+    static final int DEFAULT_THREADS = 4;
+    static final int DEFAULT_QUEUE_CAPACITY = 16;
+    static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+    // a delete that already runs can't be stopped, so the client waits for it instead of getting a 503 for a delete that goes through.
+    static final long DEFAULT_DELETE_TIMEOUT_MILLIS = 0;
+
+    private final Bulkhead search;
+    private final Bulkhead download;
+    private final Bulkhead delete;
+
+    public Bulkheads(FileFighterProperties fileFighterProperties, MeterRegistry meterRegistry) {
+        this.search = createBulkhead(SEARCH, DEFAULT_TIMEOUT_MILLIS, fileFighterProperties, meterRegistry);
+        this.download = createBulkhead(DOWNLOAD, DEFAULT_TIMEOUT_MILLIS, fileFighterProperties, meterRegistry);
+        this.delete = createBulkhead(DELETE, DEFAULT_DELETE_TIMEOUT_MILLIS, fileFighterProperties, meterRegistry);
+    }
+
+    private static Bulkhead createBulkhead(String name, long defaultTimeoutMillis, FileFighterProperties fileFighterProperties, MeterRegistry meterRegistry) {
+        return new Bulkhead(name,
+                fileFighterProperties.getBulkheadThreads().getOrDefault(name, DEFAULT_THREADS),
+                fileFighterProperties.getBulkheadQueueCapacities().getOrDefault(name, DEFAULT_QUEUE_CAPACITY),
+                Duration.ofMillis(fileFighterProperties.getBulkheadTimeoutsMillis().getOrDefault(name, defaultTimeoutMillis)),
+                meterRegistry);
+    }
+
+    public Bulkhead getSearch() {
+        return search;
+    }
+
+    public Bulkhead getDownload() {
+        return download;
+    }
+
+    public Bulkhead getDelete() {
+        return delete;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        search.shutdown();
+        download.shutdown();
+        delete.shutdown();
+    }
+}
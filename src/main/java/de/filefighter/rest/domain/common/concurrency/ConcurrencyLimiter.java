@@ -0,0 +1,71 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the requests in flight to a limit that follows their latency, requests over the limit are shed at once instead of waiting in the queue of tomcat.
+ */
+public class ConcurrencyLimiter {
+
+    static final String LIMIT_METRIC = "filefighter.concurrency.limit";
+    static final String IN_FLIGHT_METRIC = "filefighter.concurrency.inflight";
+    static final String SHED_METRIC = "filefighter.concurrency.shed";
+
+    private final GradientConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<RequestPriority, Counter> shedCounters = new EnumMap<>(RequestPriority.class);
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, MeterRegistry meterRegistry) {
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit);
+        Gauge.builder(LIMIT_METRIC, this, ConcurrencyLimiter::getLimit)
+                .description("Requests that may be in flight at the same time.")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, inFlight, AtomicInteger::get)
+                .description("Requests in flight.")
+                .register(meterRegistry);
+        for (RequestPriority priority : RequestPriority.values())
+            shedCounters.put(priority, Counter.builder(SHED_METRIC)
+                    .description("Requests that were rejected because too many were in flight.")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+    }
+
+    /**
+     * @return true if the request may run, it then has to call {@link #release(long)}.
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        double admitted = Math.max(1, priority.getShareOfLimit() * limit.getLimit());
+        while (true) {
+            int current = inFlight.get();
+            if (current >= admitted) {
+                shedCounters.get(priority).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * @param rttNanos the latency of the request, negative if it should not change the limit.
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        if (rttNanos >= 0)
+            limit.onSample(rttNanos, current);
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,52 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+/**
+ * Adapts the limit to the ratio of the long term latency to the latency of the last requests, like the gradient limit of netflix/concurrency-limits.
+ * While the recent requests are not slower the limit grows by its square root, if they are slower it shrinks by the same ratio, at most by half.
+ */
+class GradientConcurrencyLimit {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    synchronized void onSample(long rttNanos, int inFlight) {
+        if (0 == longRttNanos) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+
+        shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+
+        // after an overload the long term latency is too high for a while, this brings it back down faster.
+        if (longRttNanos / shortRttNanos > 2)
+            longRttNanos *= 0.95;
+
+        // far below the limit the latency tells nothing about it.
+        if (inFlight < limit / 2)
+            return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,21 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+/**
+ * Requests of a priority are only admitted while the requests in flight stay below their share of the limit,
+ * so the low priority requests are shed first.
+ */
+public enum RequestPriority {
+    LOW(0.6),
+    NORMAL(0.9),
+    CRITICAL(1.0);
+
+    private final double shareOfLimit;
+
+    RequestPriority(double shareOfLimit) {
+        this.shareOfLimit = shareOfLimit;
+    }
+
+    public double getShareOfLimit() {
+        return shareOfLimit;
+    }
+}
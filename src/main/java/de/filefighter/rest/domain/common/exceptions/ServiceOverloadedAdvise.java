@@ -0,0 +1,28 @@
+package de.filefighter.rest.domain.common.exceptions;
+
+import de.filefighter.rest.rest.ServerResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Log4j2
+@ControllerAdvice
+public class ServiceOverloadedAdvise {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    @ResponseBody
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    ResponseEntity<ServerResponse> serviceOverloaded(ServiceOverloadedException ex) {
+        log.warn(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(new ServerResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+}
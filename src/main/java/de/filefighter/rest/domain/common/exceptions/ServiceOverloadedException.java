@@ -0,0 +1,14 @@
+package de.filefighter.rest.domain.common.exceptions;
+
+public class ServiceOverloadedException extends RuntimeException implements FileFighterException {
+
+    private static final String ERROR_MESSAGE_PREFIX = "Server is too busy right now, try again later.";
+
+    public ServiceOverloadedException(String reason) {
+        super(ERROR_MESSAGE_PREFIX + " " + reason);
+    }
+
+    public static String getErrorMessagePrefix() {
+        return ERROR_MESSAGE_PREFIX;
+    }
+}
@@ -0,0 +1,26 @@
+package de.filefighter.rest.domain.common.exceptions;
+
+import de.filefighter.rest.rest.ServerResponse;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Log4j2
+@ControllerAdvice
+public class TooManyRequestsAdvise {
+
+    @ResponseBody
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    ResponseEntity<ServerResponse> tooManyRequests(TooManyRequestsException ex) {
+        log.debug(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ServerResponse(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage()));
+    }
+}
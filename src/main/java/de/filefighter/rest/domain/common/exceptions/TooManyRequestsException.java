@@ -0,0 +1,21 @@
+package de.filefighter.rest.domain.common.exceptions;
+
+public class TooManyRequestsException extends RuntimeException implements FileFighterException {
+
+    private static final String ERROR_MESSAGE_PREFIX = "Too many requests, try again later.";
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds, String reason) {
+        super(ERROR_MESSAGE_PREFIX + " " + reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public static String getErrorMessagePrefix() {
+        return ERROR_MESSAGE_PREFIX;
+    }
+}
@@ -0,0 +1,22 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Authenticating a user with one of the methods of the AuthenticationBusinessService.
+ */
+@Name("de.filefighter.Authentication")
+@Label("Authentication")
+@Category({"FileFighter", "Authentication"})
+@StackTrace(false)
+public class AuthenticationEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("User Id")
+    public long userId;
+
+    @Label("Successful")
+    public boolean successful;
+}
@@ -0,0 +1,20 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Creating the dto of a file system item, including the user lookups if the users were not loaded before.
+ */
+@Name("de.filefighter.CreateDto")
+@Label("Create DTO")
+@Category({"FileFighter", "FileSystem"})
+@StackTrace(false)
+public class CreateDtoEvent extends Event {
+
+    @Label("File System Id")
+    public long fileSystemId;
+
+    @Label("Users Loaded")
+    @Description("The users were looked up for this dto.")
+    public boolean usersLoaded;
+}
@@ -0,0 +1,25 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Loading the folder of a path, checking the permissions and loading the visible contents. The dtos are not part of it.
+ */
+@Name("de.filefighter.FolderContents")
+@Label("Folder Contents")
+@Category({"FileFighter", "FileSystem"})
+@StackTrace(false)
+public class FolderContentsEvent extends Event {
+
+    @Label("Path")
+    public String path;
+
+    @Label("Folder Id")
+    public long folderId;
+
+    @Label("Item Count")
+    public int itemCount;
+
+    @Label("User Id")
+    public long userId;
+}
@@ -0,0 +1,22 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Deleting a file system item and everything below it.
+ */
+@Name("de.filefighter.RecursiveDelete")
+@Label("Recursive Delete")
+@Category({"FileFighter", "FileSystem"})
+@StackTrace(false)
+public class RecursiveDeleteEvent extends Event {
+
+    @Label("File System Id")
+    public long fileSystemId;
+
+    @Label("Deleted Count")
+    public int deletedCount;
+
+    @Label("User Id")
+    public long userId;
+}
@@ -0,0 +1,27 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A call of a blocking spring data repository.
+ */
+@Name("de.filefighter.RepositoryCall")
+@Label("Repository Call")
+@Category({"FileFighter", "Database"})
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Arguments")
+    @Description("Only the ids, the other arguments are replaced by their type.")
+    public String arguments;
+
+    @Label("Result Count")
+    @Description("Number of returned entities, -1 for counts and flags.")
+    public int resultCount;
+}
@@ -0,0 +1,91 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.StringJoiner;
+
+/**
+ * Emits a {@link RepositoryCallEvent} for every call of a blocking repository.
+ * The reactive repositories only return a publisher, so their calls would not show the time of the query.
+ */
+@Aspect
+@Component
+public class RepositoryCallEventAspect {
+
+    static final int MAX_ARGUMENTS_LENGTH = 256;
+
+    @Around("target(org.springframework.data.repository.Repository) && !target(org.springframework.data.repository.reactive.ReactiveCrudRepository)")
+    public Object recordRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled())
+            return joinPoint.proceed();
+
+        event.begin();
+        Object result = joinPoint.proceed();
+        event.end();
+        if (event.shouldCommit()) {
+            event.repository = getRepositoryName(joinPoint.getTarget(), joinPoint.getSignature().getDeclaringType());
+            event.method = joinPoint.getSignature().getName();
+            event.arguments = formatArguments(joinPoint.getArgs());
+            event.resultCount = countResults(result);
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * The target is a proxy of spring data, so the name of our repository interface is looked up.
+     */
+    static String getRepositoryName(Object target, Class<?> declaringType) {
+        for (Class<?> repositoryInterface : target.getClass().getInterfaces()) {
+            if (repositoryInterface.getName().startsWith("de.filefighter"))
+                return repositoryInterface.getSimpleName();
+        }
+        return declaringType.getSimpleName();
+    }
+
+    /**
+     * Only ids are recorded, strings can be tokens or passwords and the entities contain the password hashes.
+     */
+    static String formatArguments(Object[] arguments) {
+        StringJoiner formattedArguments = new StringJoiner(", ");
+        for (Object argument : arguments) {
+            formattedArguments.add(formatArgument(argument));
+        }
+
+        String formatted = formattedArguments.toString();
+        if (formatted.length() > MAX_ARGUMENTS_LENGTH)
+            return formatted.substring(0, MAX_ARGUMENTS_LENGTH) + "...";
+
+        return formatted;
+    }
+
+    private static String formatArgument(Object argument) {
+        if (null == argument)
+            return "null";
+        if (argument instanceof Number)
+            return argument.toString();
+        if (argument instanceof Collection && ((Collection<?>) argument).stream().allMatch(Number.class::isInstance))
+            return argument.toString();
+        if (argument instanceof long[])
+            return Arrays.toString((long[]) argument);
+
+        return argument.getClass().getSimpleName();
+    }
+
+    static int countResults(Object result) {
+        if (null == result)
+            return 0;
+        if (result instanceof Collection)
+            return ((Collection<?>) result).size();
+        if (result instanceof Number || result instanceof Boolean)
+            return -1;
+
+        return 1;
+    }
+}
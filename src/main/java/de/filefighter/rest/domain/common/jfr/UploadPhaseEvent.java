@@ -0,0 +1,28 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * One phase of a upload: "validate" the parent, create the missing "folders" and "commit" the file.
+ */
+@Name("de.filefighter.UploadPhase")
+@Label("Upload Phase")
+@Category({"FileFighter", "FileSystem"})
+@StackTrace(false)
+public class UploadPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Root Item Id")
+    public long rootItemId;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Created Folders")
+    public int createdFolders;
+
+    @Label("User Id")
+    public long userId;
+}
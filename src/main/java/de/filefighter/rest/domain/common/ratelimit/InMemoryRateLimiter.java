@@ -0,0 +1,50 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the buckets of this node, with several nodes every node allows the whole limit.
+ */
+public class InMemoryRateLimiter implements RateLimiter {
+
+    static final int SWEEP_THRESHOLD = 10_000;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public InMemoryRateLimiter() {
+        this(System::nanoTime);
+    }
+
+    InMemoryRateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public long tryAcquire(String key, RateLimit limit) {
+        long now = nanoClock.getAsLong();
+        if (buckets.size() > SWEEP_THRESHOLD)
+            sweep(now);
+
+        return buckets.computeIfAbsent(key, newKey -> new TokenBucket(limit, now)).tryTake(1, now);
+    }
+
+    @Override
+    public void charge(String key, RateLimit limit, double cost) {
+        long now = nanoClock.getAsLong();
+        buckets.computeIfAbsent(key, newKey -> new TokenBucket(limit, now)).take(cost, now);
+    }
+
+    /**
+     * A full bucket is the same as none, so they are removed.
+     */
+    private void sweep(long now) {
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,60 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the buckets in mongo, so all nodes share them. Every bucket is refilled and taken from in one atomic update,
+ * with the clock of the database, so the clocks of the nodes do not matter. Needs mongo 4.2 for the update pipelines.
+ */
+public class MongoRateLimiter implements RateLimiter {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoRateLimiter(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public long tryAcquire(String key, RateLimit limit) {
+        Document bucket = take(key, limit, 1, false);
+        if (null == bucket || bucket.getBoolean("granted", false))
+            return 0;
+
+        return limit.secondsUntil(((Number) bucket.get("tokens")).doubleValue(), 1);
+    }
+
+    @Override
+    public void charge(String key, RateLimit limit, double cost) {
+        take(key, limit, cost, true);
+    }
+
+    private Document take(String key, RateLimit limit, double cost, boolean force) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(RateLimitBucketEntity.class))
+                .findOneAndUpdate(Filters.eq("_id", key), createUpdate(limit, cost, force),
+                        new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+    }
+
+    static List<Bson> createUpdate(RateLimit limit, double cost, boolean force) {
+        Document elapsedSeconds = new Document("$divide", Arrays.asList(
+                new Document("$subtract", Arrays.asList("$$NOW", new Document("$ifNull", Arrays.asList("$updatedAt", "$$NOW")))),
+                1000));
+        Document refilledTokens = new Document("$min", Arrays.asList(limit.getCapacity(),
+                new Document("$add", Arrays.asList(
+                        new Document("$ifNull", Arrays.asList("$tokens", limit.getCapacity())),
+                        new Document("$multiply", Arrays.asList(elapsedSeconds, limit.getRefillPerSecond()))))));
+
+        return Arrays.asList(
+                new Document("$set", new Document("tokens", refilledTokens).append("updatedAt", "$$NOW")),
+                new Document("$set", new Document("granted", force ? Boolean.TRUE : new Document("$gte", Arrays.asList("$tokens", cost)))),
+                new Document("$set", new Document("tokens",
+                        new Document("$cond", Arrays.asList("$granted", new Document("$subtract", Arrays.asList("$tokens", cost)), "$tokens")))));
+    }
+}
@@ -0,0 +1,19 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import lombok.Data;
+
+/**
+ * A bucket holds up to capacity tokens and gets refillPerSecond of them back every second.
+ */
+@Data
+public class RateLimit {
+    private final double capacity;
+    private final double refillPerSecond;
+
+    /**
+     * @return the whole seconds until the bucket has the wanted tokens again, at least 1.
+     */
+    public long secondsUntil(double tokens, double wantedTokens) {
+        return Math.max(1, (long) Math.ceil((wantedTokens - tokens) / refillPerSecond));
+    }
+}
@@ -0,0 +1,23 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+import java.util.Date;
+
+/**
+ * A bucket of the {@link MongoRateLimiter}, it is only written with update pipelines. Buckets unused for an hour are removed.
+ */
+@Document(collection = "ratelimit")
+@Data
+public class RateLimitBucketEntity {
+
+    @MongoId
+    private final String key;
+    private double tokens;
+    @Indexed(expireAfterSeconds = 3600)
+    private Date updatedAt;
+    private boolean granted;
+}
@@ -0,0 +1,19 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+/**
+ * Token buckets, every request takes one token before it runs and is charged its further cost after it finished.
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes one token from the bucket of the key.
+     *
+     * @return 0 if the token was taken, otherwise the seconds until the bucket has one again.
+     */
+    long tryAcquire(String key, RateLimit limit);
+
+    /**
+     * Takes the cost of a finished request, the bucket can go below zero and then needs to be refilled before the next request.
+     */
+    void charge(String key, RateLimit limit, double cost);
+}
@@ -0,0 +1,42 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+class TokenBucket {
+
+    private final RateLimit limit;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(RateLimit limit, long nowNanos) {
+        this.limit = limit;
+        this.tokens = limit.getCapacity();
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * @return 0 if the tokens were taken, otherwise the seconds until there are enough.
+     */
+    synchronized long tryTake(double cost, long nowNanos) {
+        refill(nowNanos);
+        if (tokens < cost)
+            return limit.secondsUntil(tokens, cost);
+
+        tokens -= cost;
+        return 0;
+    }
+
+    synchronized void take(double cost, long nowNanos) {
+        refill(nowNanos);
+        tokens -= cost;
+    }
+
+    synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= limit.getCapacity();
+    }
+
+    private void refill(long nowNanos) {
+        double refilled = (nowNanos - lastRefillNanos) / 1_000_000_000.0 * limit.getRefillPerSecond();
+        tokens = Math.min(limit.getCapacity(), tokens + refilled);
+        lastRefillNanos = nowNanos;
+    }
+}
@@ -1,9 +1,15 @@
 package de.filefighter.rest.domain.filesystem.business;
 
+import de.filefighter.rest.configuration.FileFighterProperties;
 import de.filefighter.rest.configuration.RestConfiguration;
 import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.common.SingleFlight;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.common.jfr.FolderContentsEvent;
+import de.filefighter.rest.domain.common.jfr.RecursiveDeleteEvent;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
 import de.filefighter.rest.domain.filesystem.data.InteractionType;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
@@ -16,33 +22,212 @@ import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
 import de.filefighter.rest.domain.user.business.UserBusinessService;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.exceptions.UserNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static de.filefighter.rest.configuration.MetricsConfiguration.BUSINESS_OPERATIONS_METRIC;
+import static de.filefighter.rest.configuration.MetricsConfiguration.OPERATION_TAG;
+
 @Log4j2
 @Service
 public class FileSystemBusinessService {
 
     public static final String DELETION_FAILED_MSG = "Failed to delete FileSystemEntity with id ";
+    private static final String ALL_FIELDS_VARIANT = "all";
     private final FileSystemRepository fileSystemRepository;
     private final FileSystemHelperService fileSystemHelperService;
     private final FileSystemTypeRepository fileSystemTypeRepository;
     private final UserBusinessService userBusinessService;
+    // the contents of a folder version, shared by all users that list it.
+    private final SingleFlight<String, List<FileSystemEntity>> folderContentsLoading;
+    // the listing of a folder version, shared by the users that see the same entities in it.
+    private final SingleFlight<String, List<FileSystemItem>> folderContentsListing;
 
-    public FileSystemBusinessService(FileSystemRepository fileSystemRepository, FileSystemHelperService fileSystemHelperService, FileSystemTypeRepository fileSystemTypeRepository, UserBusinessService userBusinessService) {
+    public FileSystemBusinessService(FileSystemRepository fileSystemRepository, FileSystemHelperService fileSystemHelperService, FileSystemTypeRepository fileSystemTypeRepository, UserBusinessService userBusinessService, FileFighterProperties fileFighterProperties) {
         this.fileSystemRepository = fileSystemRepository;
         this.fileSystemHelperService = fileSystemHelperService;
         this.fileSystemTypeRepository = fileSystemTypeRepository;
         this.userBusinessService = userBusinessService;
+        Duration coalescingWindow = Duration.ofMillis(fileFighterProperties.getFolderContentsCoalescingWindowMillis());
+        this.folderContentsLoading = new SingleFlight<>(coalescingWindow, fileFighterProperties.getFolderContentsCoalescingMaxResults());
+        this.folderContentsListing = new SingleFlight<>(coalescingWindow, fileFighterProperties.getFolderContentsCoalescingMaxResults());
     }
 
-    @SuppressWarnings("java:S3776")
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "listing"}, histogram = true)
     public Pair<List<FileSystemItem>, Long> getFolderContentsByPath(String path, User authenticatedUser) {
+        return listFolderContents(path, authenticatedUser, ALL_FIELDS_VARIANT, this::getAllFolderContents,
+                entityWithPath -> fileSystemHelperService.createDTO(entityWithPath.getFirst(), authenticatedUser, entityWithPath.getSecond()));
+    }
+
+    /**
+     * Same as {@link #getFolderContentsByPath(String, User)}, but only the selected fields are loaded and set.
+     */
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "listing"}, histogram = true)
+    public Pair<List<FileSystemItem>, Long> getFolderContentsByPath(String path, User authenticatedUser, Set<FileSystemItemField> fields) {
+        return listFolderContents(path, authenticatedUser, fields.stream().map(FileSystemItemField::getJsonName).collect(Collectors.joining(".")),
+                folder -> fileSystemHelperService.getFolderContentsWithFields(folder, fields, false),
+                entityWithPath -> fileSystemHelperService.createDTO(entityWithPath.getFirst(), authenticatedUser, entityWithPath.getSecond(), fields));
+    }
+
+    /**
+     * Same as {@link #getFolderContentsByPath(String, User)}, but the users are loaded with one query and only sent once.
+     */
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "listing"}, histogram = true)
+    public Pair<CompactFileSystemContents, Long> getCompactFolderContentsByPath(String path, User authenticatedUser) {
+        Pair<List<Pair<FileSystemEntity, String>>, FileSystemEntity> folderContents = getFolderContentsWithPaths(path, authenticatedUser, ALL_FIELDS_VARIANT, this::getAllFolderContents);
+
+        Set<Long> userIds = new HashSet<>();
+        for (Pair<FileSystemEntity, String> entityWithPath : folderContents.getFirst()) {
+            userIds.add(entityWithPath.getFirst().getOwnerId());
+            userIds.add(entityWithPath.getFirst().getLastUpdatedBy());
+        }
+        Map<Long, User> users = userBusinessService.findUsersByIds(userIds);
+
+        ArrayList<FileSystemItem> fileSystemItems = new ArrayList<>();
+        for (Pair<FileSystemEntity, String> entityWithPath : folderContents.getFirst()) {
+            FileSystemEntity entity = entityWithPath.getFirst();
+            User owner = users.get(entity.getOwnerId());
+            User lastUpdatedBy = users.get(entity.getLastUpdatedBy());
+            if (null == owner || null == lastUpdatedBy) {
+                log.debug("Found missing user for entity {}.", entity);
+                throw new FileFighterDataException("Owner or auther of last change could not be found.");
+            }
+            fileSystemItems.add(fileSystemHelperService.createDTO(entity, owner, lastUpdatedBy, authenticatedUser, entityWithPath.getSecond()));
+        }
+        return new Pair<>(fileSystemHelperService.createCompactDTO(fileSystemItems), getFolderId(folderContents.getSecond()));
+    }
+
+    private List<FileSystemEntity> getAllFolderContents(FileSystemEntity folder) {
+        return fileSystemHelperService.getFolderContentsOfEntityAndPermissions(folder, null, false, false);
+    }
+
+    /**
+     * Builds the items of the visible entities, users that see the same entities in the same version of the folder share them.
+     *
+     * @param contentsVariant the fields the folder contents are loaded with.
+     */
+    private Pair<List<FileSystemItem>, Long> listFolderContents(String path, User authenticatedUser, String contentsVariant, Function<FileSystemEntity, List<FileSystemEntity>> folderContentsLoader, Function<Pair<FileSystemEntity, String>, FileSystemItem> dtoCreator) {
+        Pair<List<Pair<FileSystemEntity, String>>, FileSystemEntity> folderContents = getFolderContentsWithPaths(path, authenticatedUser, contentsVariant, folderContentsLoader);
+        FileSystemEntity folder = folderContents.getSecond();
+        if (null == folder) {
+            // the fake directory of the root folders is different for every user anyway.
+            return new Pair<>(createDTOs(folderContents.getFirst(), dtoCreator), -1L);
+        }
+
+        String listingKey = getFolderContentsKey(folder, contentsVariant) + ";" + getViewOfFolderContents(folderContents.getFirst(), authenticatedUser);
+        return new Pair<>(folderContentsListing.execute(listingKey, () -> createDTOs(folderContents.getFirst(), dtoCreator)), folder.getFileSystemId());
+    }
+
+    private List<FileSystemItem> createDTOs(List<Pair<FileSystemEntity, String>> entitiesWithPaths, Function<Pair<FileSystemEntity, String>, FileSystemItem> dtoCreator) {
+        return entitiesWithPaths.stream().map(dtoCreator).collect(Collectors.toList());
+    }
+
+    /**
+     * Every change of the folder or its contents changes the folder, so a changed folder is loaded again.
+     */
+    private static String getFolderContentsKey(FileSystemEntity folder, String contentsVariant) {
+        return folder.getFileSystemId() + ":" + folder.getVersion() + ":" + folder.getChanges() + ":" + contentsVariant;
+    }
+
+    /**
+     * The items only depend on the user by the entities the user may read and if the entities are shared with the user.
+     * Users with the same groups, or with the same grants in the folder, see the same.
+     *
+     * @return the view of the user on the visible entities.
+     */
+    private static String getViewOfFolderContents(List<Pair<FileSystemEntity, String>> visibleEntities, User authenticatedUser) {
+        StringBuilder view = new StringBuilder();
+        boolean ownsEntities = false;
+        for (Pair<FileSystemEntity, String> entityWithPath : visibleEntities) {
+            view.append(entityWithPath.getFirst().getFileSystemId()).append(',');
+            ownsEntities |= entityWithPath.getFirst().getOwnerId() == authenticatedUser.getUserId();
+        }
+        view.append(ownsEntities ? "owner:" + authenticatedUser.getUserId() : "shared");
+        return DigestUtils.md5DigestAsHex(view.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long getFolderId(FileSystemEntity folder) {
+        return null == folder ? -1 : folder.getFileSystemId();
+    }
+
+    /**
+     * @return the visible entities of the folder with their absolute paths, and the folder, or null if the real / was requested.
+     */
+    private Pair<List<Pair<FileSystemEntity, String>>, FileSystemEntity> getFolderContentsWithPaths(String path, User authenticatedUser, String contentsVariant, Function<FileSystemEntity, List<FileSystemEntity>> folderContentsLoader) {
+        FolderContentsEvent event = new FolderContentsEvent();
+        event.begin();
+        Pair<List<Pair<FileSystemEntity, String>>, FileSystemEntity> folderContents = loadFolderContentsWithPaths(path, authenticatedUser, contentsVariant, folderContentsLoader);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.folderId = getFolderId(folderContents.getSecond());
+            event.itemCount = folderContents.getFirst().size();
+            event.userId = authenticatedUser.getUserId();
+            event.commit();
+        }
+        return folderContents;
+    }
+
+    private Pair<List<Pair<FileSystemEntity, String>>, FileSystemEntity> loadFolderContentsWithPaths(String path, User authenticatedUser, String contentsVariant, Function<FileSystemEntity, List<FileSystemEntity>> folderContentsLoader) {
+        Pair<List<FileSystemEntity>, User> readableFolders = getReadableFoldersByPath(path, authenticatedUser);
+        User ownerOfRequestedFolder = readableFolders.getSecond();
+        List<Pair<FileSystemEntity, String>> entitiesWithPaths = new ArrayList<>();
+
+        // this is only the case if the real / was requested.
+        if (null == ownerOfRequestedFolder) {
+            // do not get the actual contents here but display the folder names as a fake directory.
+            for (FileSystemEntity folder : readableFolders.getFirst()) {
+                // change names here accordingly.
+                entitiesWithPaths.add(new Pair<>(folder, "/"));
+            }
+
+            return new Pair<>(entitiesWithPaths, null);
+        } else {
+            FileSystemEntity parentFolder = readableFolders.getFirst().get(0);
+            String pathToFind = parentFolder.getPath();
+
+            // the permissions are checked for every user, the loaded entities are the same for all.
+            List<FileSystemEntity> folderContents = folderContentsLoading.execute(getFolderContentsKey(parentFolder, contentsVariant), () -> folderContentsLoader.apply(parentFolder));
+
+            for (FileSystemEntity fileSystemEntityInFolder : folderContents) {
+                if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(fileSystemEntityInFolder, authenticatedUser, InteractionType.READ))
+                    continue;
+
+                String absolutePathToEntity = "/" + ownerOfRequestedFolder.getUsername() + pathToFind;
+                if (!pathToFind.equals("/")) {
+                    absolutePathToEntity = absolutePathToEntity + "/";
+                }
+                absolutePathToEntity = absolutePathToEntity + fileSystemEntityInFolder.getName();
+                entitiesWithPaths.add(new Pair<>(fileSystemEntityInFolder, absolutePathToEntity));
+            }
+
+            return new Pair<>(entitiesWithPaths, parentFolder);
+        }
+    }
+
+    /**
+     * Etag of the folder contents, only the folders are loaded and not their contents.
+     */
+    public String getFolderContentsETag(String path, User authenticatedUser) {
+        return fileSystemHelperService.createETag(getReadableFoldersByPath(path, authenticatedUser).getFirst(), authenticatedUser);
+    }
+
+    /**
+     * Finds the folder of the path and checks the permissions.
+     *
+     * @return the requested folder and its owner, or all visible root folders without a owner if the real / was requested.
+     */
+    @SuppressWarnings("java:S3776")
+    private Pair<List<FileSystemEntity>, User> getReadableFoldersByPath(String path, User authenticatedUser) {
         String[] pathWithoutSlashes = path.split("/");
 
         String pathToFind;
@@ -89,15 +274,7 @@ public class FileSystemBusinessService {
         boolean actualRootWasRequested = null == ownerOfRequestedFolder;
         if (actualRootWasRequested) {
             listOfPossibleDirectories.removeIf(entity -> entity.isFile() || entity.getTypeId() != FileSystemType.FOLDER.getId() || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ));
-
-            // do not get the actual contents here but display the folder names as a fake directory.
-            ArrayList<FileSystemItem> fileSystemItems = new ArrayList<>();
-            for (FileSystemEntity folder : listOfPossibleDirectories) {
-                // change names here accordingly.
-                fileSystemItems.add(fileSystemHelperService.createDTO(folder, authenticatedUser, "/"));
-            }
-
-            return new Pair<>(fileSystemItems, -1L);
+            return new Pair<>(listOfPossibleDirectories, null);
         } else {
             User finalOwnerOfRequestedFolder = ownerOfRequestedFolder;
             listOfPossibleDirectories.removeIf(entity -> (entity.isFile() || entity.getTypeId() != FileSystemType.FOLDER.getId() || entity.getOwnerId() != finalOwnerOfRequestedFolder.getUserId()));
@@ -114,24 +291,30 @@ public class FileSystemBusinessService {
             if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(parentFolder, authenticatedUser, InteractionType.READ))
                 throw new FileSystemContentsNotAccessibleException();
 
-            ArrayList<FileSystemItem> fileSystemItems = new ArrayList<>();
-            List<FileSystemEntity> folderContents =
-                    fileSystemHelperService.getFolderContentsOfEntityAndPermissions(parentFolder, authenticatedUser, true, false);
-
-            for (FileSystemEntity fileSystemEntityInFolder : folderContents) {
-                String absolutePathToEntity = "/" + ownerOfRequestedFolder.getUsername() + pathToFind;
-                if (!pathToFind.equals("/")) {
-                    absolutePathToEntity = absolutePathToEntity + "/";
-                }
-                absolutePathToEntity = absolutePathToEntity + fileSystemEntityInFolder.getName();
-                fileSystemItems.add(fileSystemHelperService.createDTO(fileSystemEntityInFolder, authenticatedUser, absolutePathToEntity));
-            }
-
-            return new Pair<>(fileSystemItems, parentFolder.getFileSystemId());
+            return new Pair<>(listOfPossibleDirectories, ownerOfRequestedFolder);
         }
     }
 
     public FileSystemItem getFileSystemItemInfo(long fsItemId, User authenticatedUser) {
+        return fileSystemHelperService.createDTO(getReadableFileSystemEntity(fsItemId, authenticatedUser), authenticatedUser, null);
+    }
+
+    /**
+     * Same as {@link #getFileSystemItemInfo(long, User)}, but only the selected fields are loaded and set.
+     */
+    public FileSystemItem getFileSystemItemInfo(long fsItemId, User authenticatedUser, Set<FileSystemItemField> fields) {
+        FileSystemEntity fileSystemEntity = fileSystemHelperService.findFileSystemEntityWithFields(fsItemId, fields, false);
+        if (null == fileSystemEntity || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(fileSystemEntity, authenticatedUser, InteractionType.READ))
+            throw new FileSystemItemNotFoundException(fsItemId);
+
+        return fileSystemHelperService.createDTO(fileSystemEntity, authenticatedUser, null, fields);
+    }
+
+    public String getFileSystemItemInfoETag(long fsItemId, User authenticatedUser) {
+        return fileSystemHelperService.createETag(Collections.singletonList(getReadableFileSystemEntity(fsItemId, authenticatedUser)), authenticatedUser);
+    }
+
+    private FileSystemEntity getReadableFileSystemEntity(long fsItemId, User authenticatedUser) {
         FileSystemEntity fileSystemEntity = fileSystemRepository.findByFileSystemId(fsItemId);
         if (null == fileSystemEntity)
             throw new FileSystemItemNotFoundException(fsItemId);
@@ -139,9 +322,10 @@ public class FileSystemBusinessService {
         if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(fileSystemEntity, authenticatedUser, InteractionType.READ))
             throw new FileSystemItemNotFoundException(fsItemId);
 
-        return fileSystemHelperService.createDTO(fileSystemEntity, authenticatedUser, null);
+        return fileSystemEntity;
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "delete"}, histogram = true)
     public List<FileSystemItem> deleteFileSystemItemById(long fsItemId, User authenticatedUser) {
         FileSystemEntity parentEntity = fileSystemRepository.findByFileSystemId(fsItemId);
         if (null == parentEntity)
@@ -153,10 +337,19 @@ public class FileSystemBusinessService {
         // update the time stamps in the file tree
         fileSystemHelperService.recursivlyUpdateTimeStamps(parentEntity, authenticatedUser, fileSystemHelperService.getCurrentTimeStamp());
 
-        log.info("User is {}.", authenticatedUser);
+        log.debug("User is {}.", authenticatedUser);
 
         ArrayList<FileSystemItem> returnList = new ArrayList<>();
+        RecursiveDeleteEvent event = new RecursiveDeleteEvent();
+        event.begin();
         recursivelyDeleteFileSystemEntity(parentEntity, authenticatedUser, returnList);
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileSystemId = fsItemId;
+            event.deletedCount = returnList.size();
+            event.userId = authenticatedUser.getUserId();
+            event.commit();
+        }
         return returnList;
     }
 
@@ -188,20 +381,20 @@ public class FileSystemBusinessService {
                     }
                 }
 
-                log.info("Currently working on: {}.", parentEntity);
+                log.debug("Currently working on: {}.", parentEntity);
 
                 if (foundInvisible && !foundNonDeletable) {
                     // only invisible files left.
-                    log.info("Found invisible FileSystemEntity {}", parentEntity);
+                    log.debug("Found invisible FileSystemEntity {}", parentEntity);
                     fileSystemHelperService.removeVisibilityRightsOfFileSystemEntityForUser(parentEntity, authenticatedUser);
                 } else if (!foundInvisible && !foundNonDeletable) {
                     // every child item of the entity can be deleted.
-                    log.info("Found no invisible or non deletable FileSystemEntities.");
+                    log.debug("Found no invisible or non deletable FileSystemEntities.");
                     fileSystemHelperService.deleteAndUnbindFileSystemEntity(parentEntity);
                     returnList.add(fileSystemHelperService.createDTO(parentEntity, authenticatedUser, null));
                 } else {
                     // else some files are left. invisible or not. but the entity cannot be deleted.
-                    log.info("Some visible entities could not be deleted but are visible.");
+                    log.debug("Some visible entities could not be deleted but are visible.");
                 }
             } else {
                 fileSystemHelperService.deleteAndUnbindFileSystemEntity(parentEntity);
@@ -212,6 +405,24 @@ public class FileSystemBusinessService {
     }
 
     public Pair<List<FileSystemItem>, String> downloadFileSystemEntity(List<Long> ids, User authenticatedUser) {
+        List<FileSystemItem> returnList = new ArrayList<>();
+        return downloadFileSystemEntity(ids, authenticatedUser, returnList, (entity, multipleEntities) ->
+                fileSystemHelperService.getContentsOfFolderRecursivly(returnList, entity, authenticatedUser, "", multipleEntities));
+    }
+
+    /**
+     * Same as {@link #downloadFileSystemEntity(List, User)}, but only the selected fields are loaded and set.
+     */
+    public Pair<List<FileSystemItem>, String> downloadFileSystemEntity(List<Long> ids, User authenticatedUser, Set<FileSystemItemField> fields) {
+        List<FileSystemItem> returnList = new ArrayList<>();
+        return downloadFileSystemEntity(ids, authenticatedUser, returnList, (entity, multipleEntities) ->
+                fileSystemHelperService.getContentsOfFolderRecursivly(returnList, entity, authenticatedUser, "", multipleEntities, fields));
+    }
+
+    /**
+     * @param addContentsOfEntity adds the contents of the entity to the returnList, the second parameter is true if multiple entities are downloaded.
+     */
+    private Pair<List<FileSystemItem>, String> downloadFileSystemEntity(List<Long> ids, User authenticatedUser, List<FileSystemItem> returnList, BiConsumer<FileSystemEntity, Boolean> addContentsOfEntity) {
         // validate input and check for parent
         if (ids.isEmpty())
             return new Pair<>(new ArrayList<>(), null);
@@ -238,13 +449,12 @@ public class FileSystemBusinessService {
         boolean allEntitiesAreInRoot = checkedEntities.stream().allMatch(entity -> !entity.isFile() && entity.getPath().equals("/"));
         boolean singleEntity = checkedEntities.size() == 1;
 
-        List<FileSystemItem> returnList = new ArrayList<>();
         String zipName;
 
         if (singleEntity) {
             FileSystemEntity currentEntity = checkedEntities.get(0);
             zipName = fileSystemHelperService.getNameOfZipWhenOnlyOneEntityNeedsToBeDownloaded(currentEntity, allEntitiesAreInRoot);
-            fileSystemHelperService.getContentsOfFolderRecursivly(returnList, currentEntity, authenticatedUser, "", false);
+            addContentsOfEntity.accept(currentEntity, false);
 
         } else {
             zipName = fileSystemHelperService.getNameOfZipWhenMultipleEntitiesNeedToBeDownloaded(checkedEntities, allEntitiesAreInRoot);
@@ -257,15 +467,44 @@ public class FileSystemBusinessService {
                 if (countOfDifferentParents != 1)
                     throw new FileSystemItemCouldNotBeDownloadedException("FileSystemEntity need to have a common parent entity.");
             }
-            checkedEntities.forEach(entity -> fileSystemHelperService.getContentsOfFolderRecursivly(returnList, entity, authenticatedUser, "", true));
+            checkedEntities.forEach(entity -> addContentsOfEntity.accept(entity, true));
         }
         return new Pair<>(returnList, zipName);
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "search"}, histogram = true)
     public List<FileSystemItem> searchFileSystemEntity(String sanitizedSearch, User authenticatedUser) {
+        List<FileSystemEntity> visibleEntities = getVisibleSearchResults(fileSystemRepository.findAllByNameContainingIgnoreCase(sanitizedSearch), sanitizedSearch, authenticatedUser);
+
+        return visibleEntities.stream()
+                .map(entity -> {
+                    String username = fileSystemHelperService.getOwnerUsernameForEntity(entity);
+                    return fileSystemHelperService.createDTO(entity, authenticatedUser, "/" + username + getPathOfEntity(entity));
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link #searchFileSystemEntity(String, User)}, but only the selected fields are loaded and set.
+     * The paths and their parent entities are only looked up if the path was selected.
+     */
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "search"}, histogram = true)
+    public List<FileSystemItem> searchFileSystemEntity(String sanitizedSearch, User authenticatedUser, Set<FileSystemItemField> fields) {
+        List<FileSystemEntity> visibleEntities = getVisibleSearchResults(fileSystemHelperService.findFileSystemEntitiesByNameWithFields(sanitizedSearch, fields), sanitizedSearch, authenticatedUser);
+
+        return visibleEntities.stream()
+                .map(entity -> {
+                    String path = null;
+                    if (fields.contains(FileSystemItemField.PATH))
+                        path = "/" + fileSystemHelperService.getOwnerUsernameForEntity(entity) + getPathOfEntity(entity);
+                    return fileSystemHelperService.createDTO(entity, authenticatedUser, path, fields);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<FileSystemEntity> getVisibleSearchResults(List<FileSystemEntity> foundEntities, String sanitizedSearch, User authenticatedUser) {
         // check for username with the same name
         User userWithTheName;
-        List<FileSystemEntity> foundEntities = fileSystemRepository.findAllByNameContainingIgnoreCase(sanitizedSearch);
 
         try {
             userWithTheName = userBusinessService.findUserByUsername(sanitizedSearch);
@@ -283,29 +522,26 @@ public class FileSystemBusinessService {
         if (null == foundEntities)
             throw new FileSystemItemNotFoundException();
 
-        List<FileSystemEntity> visibleEntities = foundEntities.stream()
+        return foundEntities.stream()
                 .filter(entity -> fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
                 .collect(Collectors.toList());
+    }
 
-        return visibleEntities.stream()
-                .map(entity -> {
-                    String username = fileSystemHelperService.getOwnerUsernameForEntity(entity);
-                    String path;
-                    if (entity.isFile() || entity.getTypeId() != FileSystemType.FOLDER.getId()) {
-                        FileSystemEntity parent = fileSystemRepository.findByItemIdsContaining(entity.getFileSystemId());
-                        if (null == parent)
-                            throw new FileFighterDataException("Couldn't find parent entity for id: " + entity.getFileSystemId());
-                        path = parent.getPath();
-                        if (path.equals("/")) {
-                            path += entity.getName();
-                        } else {
-                            path += "/" + entity.getName();
-                        }
-                    } else {
-                        path = entity.getPath();
-                    }
-                    return fileSystemHelperService.createDTO(entity, authenticatedUser, "/" + username + path);
-                })
-                .collect(Collectors.toList());
+    private String getPathOfEntity(FileSystemEntity entity) {
+        String path;
+        if (entity.isFile() || entity.getTypeId() != FileSystemType.FOLDER.getId()) {
+            FileSystemEntity parent = fileSystemRepository.findByItemIdsContaining(entity.getFileSystemId());
+            if (null == parent)
+                throw new FileFighterDataException("Couldn't find parent entity for id: " + entity.getFileSystemId());
+            path = parent.getPath();
+            if (path.equals("/")) {
+                path += entity.getName();
+            } else {
+                path += "/" + entity.getName();
+            }
+        } else {
+            path = entity.getPath();
+        }
+        return path;
     }
 }
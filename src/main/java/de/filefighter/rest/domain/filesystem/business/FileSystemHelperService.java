@@ -3,11 +3,16 @@ package de.filefighter.rest.domain.filesystem.business;
 import de.filefighter.rest.configuration.RestConfiguration;
 import de.filefighter.rest.domain.common.InputSanitizerService;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.common.jfr.CreateDtoEvent;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
 import de.filefighter.rest.domain.filesystem.data.InteractionType;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
 import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemCouldNotBeDownloadedException;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemCouldNotBeUploadedException;
 import de.filefighter.rest.domain.filesystem.type.FileSystemType;
 import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
 import de.filefighter.rest.domain.user.business.UserBusinessService;
@@ -16,15 +21,22 @@ import de.filefighter.rest.domain.user.data.persistence.UserEntity;
 import de.filefighter.rest.domain.user.exceptions.UserNotFoundException;
 import de.filefighter.rest.domain.user.group.Group;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Field;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static de.filefighter.rest.domain.filesystem.business.FileSystemBusinessService.DELETION_FAILED_MSG;
@@ -33,6 +45,11 @@ import static de.filefighter.rest.domain.filesystem.business.FileSystemBusinessS
 @Log4j2
 public class FileSystemHelperService {
 
+    public static final String VERSION_FIELD = "version";
+    public static final String CHANGES_FIELD = "changes";
+    public static final int MAX_CONCURRENT_MODIFICATION_RETRIES = 5;
+    static final long MAX_BACKOFF_MILLIS = 100;
+
     private final FileSystemRepository fileSystemRepository;
     private final FileSystemTypeRepository fileSystemTypeRepository;
     private final UserBusinessService userBusinessService;
@@ -81,23 +98,17 @@ public class FileSystemHelperService {
 
     public void removeVisibilityRightsOfFileSystemEntityForUser(FileSystemEntity entity, User authenticatedUser) {
         Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(entity.getFileSystemId()));
-        Update newUpdate = new Update();
 
         // user is either directly in the visible ids or in a group that is visible.
-        long[] newIdsWithoutCurrentUserId = Arrays.stream(entity.getVisibleForUserIds()).filter(userId -> userId != authenticatedUser.getUserId()).toArray();
-        if (newIdsWithoutCurrentUserId.length != entity.getVisibleForUserIds().length) {
-            // apply it.
-            newUpdate.set("visibleForUserIds", newIdsWithoutCurrentUserId);
-        }
+        // pull the ids atomically, so concurrent permission changes are not overwritten.
+        Update newUpdate = new Update().pull("visibleForUserIds", authenticatedUser.getUserId());
 
         // or user is in a group that can see the filesystem entity.
-        long[] newGroupIds = entity.getVisibleForGroupIds();
-        if (newGroupIds.length != 0) {
-            for (Group group : authenticatedUser.getGroups()) {
-                newGroupIds = Arrays.stream(newGroupIds).filter(id -> id != group.getGroupId()).toArray();
-            }
-            newUpdate.set("visibleForGroupIds", newGroupIds);
+        if (entity.getVisibleForGroupIds().length != 0 && authenticatedUser.getGroups().length != 0) {
+            Long[] groupIds = Arrays.stream(authenticatedUser.getGroups()).map(Group::getGroupId).toArray(Long[]::new);
+            newUpdate.pullAll("visibleForGroupIds", groupIds);
         }
+        newUpdate.inc(CHANGES_FIELD, 1);
         mongoTemplate.findAndModify(query, newUpdate, FileSystemEntity.class);
     }
 
@@ -128,6 +139,72 @@ public class FileSystemHelperService {
         return fileSystemEntities;
     }
 
+    /**
+     * Loads only the fields of the entities that are needed for the selected fields of the items.
+     *
+     * @param withItemIds load the item ids too, needed if the folder contents are loaded afterwards.
+     */
+    public Query includeEntityFields(Query query, Set<FileSystemItemField> fields, boolean withItemIds) {
+        Field projection = query.fields();
+        FileSystemItemField.REQUIRED_ENTITY_FIELDS.forEach(projection::include);
+        for (FileSystemItemField field : fields) {
+            for (String entityField : field.getEntityFields()) {
+                projection.include(entityField);
+            }
+        }
+        if (withItemIds)
+            projection.include("itemIds");
+        return query;
+    }
+
+    public FileSystemEntity findFileSystemEntityWithFields(long fileSystemId, Set<FileSystemItemField> fields, boolean withItemIds) {
+        Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(fileSystemId));
+        return mongoTemplate.findOne(includeEntityFields(query, fields, withItemIds), FileSystemEntity.class);
+    }
+
+    public List<FileSystemEntity> findFileSystemEntitiesByNameWithFields(String name, Set<FileSystemItemField> fields) {
+        Query query = new Query().addCriteria(Criteria.where("name").regex(Pattern.quote(name), "i"));
+        return mongoTemplate.find(includeEntityFields(query, fields, false), FileSystemEntity.class);
+    }
+
+    /**
+     * Same as {@link #getFolderContentsOfEntityAndPermissions(FileSystemEntity, User, boolean, boolean)} for visible entities,
+     * but with one query that only loads the needed fields.
+     */
+    public List<FileSystemEntity> getVisibleFolderContentsWithFields(FileSystemEntity fileSystemEntity, User authenticatedUser, Set<FileSystemItemField> fields, boolean withItemIds) {
+        List<FileSystemEntity> fileSystemEntities = getFolderContentsWithFields(fileSystemEntity, fields, withItemIds);
+        fileSystemEntities.removeIf(entity -> !userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ));
+        return fileSystemEntities;
+    }
+
+    /**
+     * Loads all entities of the folder with one query that only loads the needed fields, without checking the permissions.
+     *
+     * @return the entities in the order of the item ids.
+     */
+    public List<FileSystemEntity> getFolderContentsWithFields(FileSystemEntity fileSystemEntity, Set<FileSystemItemField> fields, boolean withItemIds) {
+        long[] folderContentItemIds = fileSystemEntity.getItemIds();
+        if (folderContentItemIds.length == 0)
+            return new ArrayList<>();
+
+        Query query = new Query().addCriteria(Criteria.where("fileSystemId").in(Arrays.asList(transformlongArrayToLong(folderContentItemIds))));
+        Map<Long, FileSystemEntity> entitiesById = new HashMap<>();
+        for (FileSystemEntity entity : mongoTemplate.find(includeEntityFields(query, fields, withItemIds), FileSystemEntity.class)) {
+            entitiesById.put(entity.getFileSystemId(), entity);
+        }
+
+        // keep the order of the item ids.
+        List<FileSystemEntity> fileSystemEntities = new ArrayList<>(folderContentItemIds.length);
+        for (long fileSystemId : folderContentItemIds) {
+            FileSystemEntity fileSystemEntityInFolder = entitiesById.get(fileSystemId);
+            if (null == fileSystemEntityInFolder)
+                throw new FileFighterDataException("FolderContents expected fileSystemItem with id " + fileSystemId + " but was empty.");
+
+            fileSystemEntities.add(fileSystemEntityInFolder);
+        }
+        return fileSystemEntities;
+    }
+
     public boolean userIsAllowedToInteractWithFileSystemEntity(FileSystemEntity fileSystemEntity, User authenticatedUser, InteractionType interaction) {
         // file was created by runtime user.
         if ((interaction == InteractionType.DELETE)
@@ -174,6 +251,106 @@ public class FileSystemHelperService {
         return false;
     }
 
+    /**
+     * Applies the update only if the entity was not modified by another conditional update since it was read.
+     * The version of the entity gets incremented with the update, the atomic updates of other changes leave it alone.
+     *
+     * @param entity entity in the state it was read.
+     * @param update update to apply.
+     * @return false if the entity was changed concurrently and the update was not applied.
+     */
+    public boolean updateFileSystemEntityIfUnchanged(FileSystemEntity entity, Update update) {
+        Criteria versionCriteria = Criteria.where(VERSION_FIELD);
+        if (entity.getVersion() == 0) {
+            // entities created before versioning do not have the field yet.
+            versionCriteria.in(0L, null);
+        } else {
+            versionCriteria.is(entity.getVersion());
+        }
+
+        Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(entity.getFileSystemId())).addCriteria(versionCriteria);
+        update.inc(VERSION_FIELD, 1).inc(CHANGES_FIELD, 1);
+        return null != mongoTemplate.findAndModify(query, update, FileSystemEntity.class);
+    }
+
+    /**
+     * Waits a random time before a conditional update is tried again, so the competing writers do not collide again right away.
+     *
+     * @param attempt the attempts so far, the maximum wait doubles with every one.
+     */
+    public void backOffBeforeRetry(int attempt) {
+        long maxBackoffMillis = Math.min(MAX_BACKOFF_MILLIS, 5L << Math.min(attempt, 10));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoffMillis + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileSystemItemCouldNotBeUploadedException("Interrupted while waiting to try again.");
+        }
+    }
+
+    /**
+     * Inserts the folder only if the owner does not have a folder with the same path yet.
+     *
+     * @param newFolder folder to create.
+     * @return the folder that is in the db now, check the fileSystemId to see if it was created by this call.
+     */
+    public FileSystemEntity createFolderIfAbsent(FileSystemEntity newFolder) {
+        Query query = new Query()
+                .addCriteria(Criteria.where("ownerId").is(newFolder.getOwnerId()))
+                .addCriteria(Criteria.where("path").is(newFolder.getPath()))
+                .addCriteria(Criteria.where("isFile").is(false));
+
+        Update update = new Update()
+                .setOnInsert("fileSystemId", newFolder.getFileSystemId())
+                .setOnInsert("name", newFolder.getName())
+                .setOnInsert("typeId", newFolder.getTypeId())
+                .setOnInsert("size", newFolder.getSize())
+                .setOnInsert("lastUpdated", newFolder.getLastUpdated())
+                .setOnInsert("lastUpdatedBy", newFolder.getLastUpdatedBy())
+                .setOnInsert("visibleForGroupIds", newFolder.getVisibleForGroupIds())
+                .setOnInsert("editableFoGroupIds", newFolder.getEditableFoGroupIds())
+                .setOnInsert("visibleForUserIds", newFolder.getVisibleForUserIds())
+                .setOnInsert("editableForUserIds", newFolder.getEditableForUserIds())
+                .setOnInsert("itemIds", newFolder.getItemIds())
+                .setOnInsert(VERSION_FIELD, newFolder.getVersion());
+
+        try {
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), FileSystemEntity.class);
+        } catch (DuplicateKeyException ex) {
+            // another node inserted the same folder at the same time.
+            log.debug("Folder {} was created concurrently.", newFolder.getPath());
+            return mongoTemplate.findOne(query, FileSystemEntity.class);
+        }
+    }
+
+    /**
+     * Creates a strong etag for the entities as the authenticated user sees them.
+     * Every change inside a folder increments the change counter and updates the time stamp of the folder and its parents, so the contents do not need to be loaded.
+     * The user and the groups of the user are part of the tag, because the permissions decide what the user can see.
+     * The usernames in the response are not, a rename increments the change counters instead, see UserBusinessService#updateUser.
+     *
+     * @param entities entities the response is built from, in the order of the response.
+     * @param authenticatedUser user the response is built for.
+     * @return quoted etag value.
+     */
+    public String createETag(List<FileSystemEntity> entities, User authenticatedUser) {
+        StringBuilder eTagSource = new StringBuilder().append(authenticatedUser.getUserId());
+        if (null != authenticatedUser.getGroups()) {
+            for (Group group : authenticatedUser.getGroups()) {
+                eTagSource.append(',').append(group.getGroupId());
+            }
+        }
+
+        for (FileSystemEntity entity : entities) {
+            eTagSource.append(';')
+                    .append(entity.getFileSystemId()).append(':')
+                    .append(entity.getVersion()).append(':')
+                    .append(entity.getChanges()).append(':')
+                    .append(entity.getLastUpdated());
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(eTagSource.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
     public String removeTrailingBackSlashes(String pathToFind) {
         char[] chars = pathToFind.toCharArray();
         // for the case of "/"
@@ -185,6 +362,8 @@ public class FileSystemHelperService {
     }
 
     public FileSystemItem createDTO(FileSystemEntity fileSystemEntity, User authenticatedUser, String absolutePathWithUsername) {
+        CreateDtoEvent event = new CreateDtoEvent();
+        event.begin();
         // for better responses and internal problem handling.
         User ownerOfFileSystemItem;
         User lastUpdatedByUser;
@@ -196,6 +375,23 @@ public class FileSystemHelperService {
             throw new FileFighterDataException("Owner or auther of last change could not be found.");
         }
 
+        FileSystemItem fileSystemItem = buildDTO(fileSystemEntity, ownerOfFileSystemItem, lastUpdatedByUser, authenticatedUser, absolutePathWithUsername);
+        commitCreateDtoEvent(event, fileSystemEntity, true);
+        return fileSystemItem;
+    }
+
+    /**
+     * Same as {@link #createDTO(FileSystemEntity, User, String)}, but with already loaded users.
+     */
+    public FileSystemItem createDTO(FileSystemEntity fileSystemEntity, User ownerOfFileSystemItem, User lastUpdatedByUser, User authenticatedUser, String absolutePathWithUsername) {
+        CreateDtoEvent event = new CreateDtoEvent();
+        event.begin();
+        FileSystemItem fileSystemItem = buildDTO(fileSystemEntity, ownerOfFileSystemItem, lastUpdatedByUser, authenticatedUser, absolutePathWithUsername);
+        commitCreateDtoEvent(event, fileSystemEntity, false);
+        return fileSystemItem;
+    }
+
+    private FileSystemItem buildDTO(FileSystemEntity fileSystemEntity, User ownerOfFileSystemItem, User lastUpdatedByUser, User authenticatedUser, String absolutePathWithUsername) {
         boolean isShared = ownerOfFileSystemItem.getUserId() != RestConfiguration.RUNTIME_USER_ID
                 && ownerOfFileSystemItem.getUserId() != authenticatedUser.getUserId();
         FileSystemType type = fileSystemTypeRepository.findFileSystemTypeById(fileSystemEntity.getTypeId());
@@ -225,6 +421,130 @@ public class FileSystemHelperService {
                 .build();
     }
 
+    /**
+     * Same as {@link #createDTO(FileSystemEntity, User, String)}, but only sets the selected fields.
+     * Users and types are only looked up if they are needed for one of the fields.
+     */
+    public FileSystemItem createDTO(FileSystemEntity fileSystemEntity, User authenticatedUser, String absolutePathWithUsername, Set<FileSystemItemField> fields) {
+        CreateDtoEvent event = new CreateDtoEvent();
+        event.begin();
+        User ownerOfFileSystemItem = null;
+        if (needsOwnerForDTO(absolutePathWithUsername, fields))
+            ownerOfFileSystemItem = findUserForDTO(fileSystemEntity.getOwnerId(), fileSystemEntity);
+        User lastUpdatedByUser = null;
+        if (fields.contains(FileSystemItemField.LAST_UPDATED_BY))
+            lastUpdatedByUser = findUserForDTO(fileSystemEntity.getLastUpdatedBy(), fileSystemEntity);
+
+        FileSystemItem fileSystemItem = buildDTO(fileSystemEntity, ownerOfFileSystemItem, lastUpdatedByUser, authenticatedUser, absolutePathWithUsername, fields);
+        commitCreateDtoEvent(event, fileSystemEntity, null != ownerOfFileSystemItem || null != lastUpdatedByUser);
+        return fileSystemItem;
+    }
+
+    /**
+     * Same as {@link #createDTO(FileSystemEntity, User, String, Set)}, but with the users already loaded.
+     *
+     * @param ownerOfFileSystemItem only needed if the owner, or the name or path of a root folder is selected.
+     * @param lastUpdatedByUser     only needed if lastUpdatedBy is selected.
+     */
+    public FileSystemItem createDTO(FileSystemEntity fileSystemEntity, User ownerOfFileSystemItem, User lastUpdatedByUser, User authenticatedUser, String absolutePathWithUsername, Set<FileSystemItemField> fields) {
+        CreateDtoEvent event = new CreateDtoEvent();
+        event.begin();
+        if ((null == ownerOfFileSystemItem && needsOwnerForDTO(absolutePathWithUsername, fields))
+                || (null == lastUpdatedByUser && fields.contains(FileSystemItemField.LAST_UPDATED_BY))) {
+            log.debug("Found missing user in createDTO. Entity: {}.", fileSystemEntity);
+            throw new FileFighterDataException("Owner or auther of last change could not be found.");
+        }
+
+        FileSystemItem fileSystemItem = buildDTO(fileSystemEntity, ownerOfFileSystemItem, lastUpdatedByUser, authenticatedUser, absolutePathWithUsername, fields);
+        commitCreateDtoEvent(event, fileSystemEntity, false);
+        return fileSystemItem;
+    }
+
+    /**
+     * The name and path of a root folder are the username of the owner.
+     */
+    public boolean needsOwnerForDTO(String absolutePathWithUsername, Set<FileSystemItemField> fields) {
+        return fields.contains(FileSystemItemField.OWNER)
+                || ("/".equals(absolutePathWithUsername) && (fields.contains(FileSystemItemField.NAME) || fields.contains(FileSystemItemField.PATH)));
+    }
+
+    private FileSystemItem buildDTO(FileSystemEntity fileSystemEntity, User ownerOfFileSystemItem, User lastUpdatedByUser, User authenticatedUser, String absolutePathWithUsername, Set<FileSystemItemField> fields) {
+        boolean isRootFolderOfUser = "/".equals(absolutePathWithUsername);
+        FileSystemItem.FileSystemItemBuilder builder = FileSystemItem.builder();
+        if (fields.contains(FileSystemItemField.FILE_SYSTEM_ID))
+            builder.fileSystemId(fileSystemEntity.getFileSystemId());
+        if (fields.contains(FileSystemItemField.NAME))
+            builder.name(isRootFolderOfUser ? ownerOfFileSystemItem.getUsername() : fileSystemEntity.getName());
+        if (fields.contains(FileSystemItemField.PATH) && null != absolutePathWithUsername)
+            builder.path(isRootFolderOfUser ? ("/" + ownerOfFileSystemItem.getUsername()).toLowerCase() : this.removeTrailingBackSlashes(absolutePathWithUsername).toLowerCase());
+        if (fields.contains(FileSystemItemField.SHARED))
+            builder.isShared(fileSystemEntity.getOwnerId() != RestConfiguration.RUNTIME_USER_ID && fileSystemEntity.getOwnerId() != authenticatedUser.getUserId());
+        if (fields.contains(FileSystemItemField.SIZE))
+            builder.size(fileSystemEntity.getSize());
+        if (fields.contains(FileSystemItemField.OWNER))
+            builder.owner(ownerOfFileSystemItem);
+        if (fields.contains(FileSystemItemField.LAST_UPDATED_BY))
+            builder.lastUpdatedBy(lastUpdatedByUser);
+        if (fields.contains(FileSystemItemField.LAST_UPDATED))
+            builder.lastUpdated(fileSystemEntity.getLastUpdated());
+        if (fields.contains(FileSystemItemField.TYPE)) {
+            FileSystemType type = fileSystemTypeRepository.findFileSystemTypeById(fileSystemEntity.getTypeId());
+            builder.type(type == FileSystemType.FOLDER && !fileSystemEntity.isFile() ? FileSystemType.FOLDER : type);
+        }
+        if (fields.contains(FileSystemItemField.MIME_TYPE))
+            builder.mimeType(fileSystemEntity.getMimeType());
+
+        return builder.build();
+    }
+
+    private void commitCreateDtoEvent(CreateDtoEvent event, FileSystemEntity fileSystemEntity, boolean usersLoaded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fileSystemId = fileSystemEntity.getFileSystemId();
+            event.usersLoaded = usersLoaded;
+            event.commit();
+        }
+    }
+
+    private User findUserForDTO(long userId, FileSystemEntity fileSystemEntity) {
+        try {
+            return userBusinessService.findUserById(userId);
+        } catch (UserNotFoundException exception) {
+            log.debug("Found UserNotFoundException in createDTO. Entity: {}.", fileSystemEntity);
+            throw new FileFighterDataException("Owner or auther of last change could not be found.");
+        }
+    }
+
+    /**
+     * Replaces the users of the items with their ids and puts every user only once into the users map.
+     */
+    public CompactFileSystemContents createCompactDTO(List<FileSystemItem> fileSystemItems) {
+        Map<Long, User> users = new LinkedHashMap<>();
+        List<CompactFileSystemItem> compactItems = new ArrayList<>(fileSystemItems.size());
+        for (FileSystemItem item : fileSystemItems) {
+            users.putIfAbsent(item.getOwner().getUserId(), item.getOwner());
+            users.putIfAbsent(item.getLastUpdatedBy().getUserId(), item.getLastUpdatedBy());
+
+            compactItems.add(CompactFileSystemItem.builder()
+                    .fileSystemId(item.getFileSystemId())
+                    .path(item.getPath())
+                    .name(item.getName())
+                    .isShared(item.isShared())
+                    .size(item.getSize())
+                    .ownerId(item.getOwner().getUserId())
+                    .lastUpdatedById(item.getLastUpdatedBy().getUserId())
+                    .lastUpdated(item.getLastUpdated())
+                    .type(item.getType())
+                    .mimeType(item.getMimeType())
+                    .build());
+        }
+
+        return CompactFileSystemContents.builder()
+                .items(compactItems)
+                .users(users)
+                .build();
+    }
+
     public void createBasicFilesForNewUser(UserEntity registeredUserEntity) {
         fileSystemRepository.save(FileSystemEntity
                 .builder()
@@ -247,6 +567,36 @@ public class FileSystemHelperService {
         if (countDeleted != 1)
             throw new FileFighterDataException(DELETION_FAILED_MSG + fileSystemEntity.getFileSystemId());
 
+        unbindFileSystemEntity(fileSystemEntity);
+    }
+
+    /**
+     * Deletes a folder that could not be added to its parent, unless something was already put into it.
+     *
+     * @return true if the folder was deleted.
+     */
+    public boolean deleteFolderIfEmpty(FileSystemEntity folder) {
+        Query query = new Query()
+                .addCriteria(Criteria.where("fileSystemId").is(folder.getFileSystemId()))
+                .addCriteria(Criteria.where("itemIds").size(0));
+        return mongoTemplate.remove(query, FileSystemEntity.class).getDeletedCount() == 1;
+    }
+
+    /**
+     * Same as {@link #deleteAndUnbindFileSystemEntity(FileSystemEntity)}, but an entity that was already deleted concurrently is skipped.
+     *
+     * @return false if the entity was already deleted.
+     */
+    public boolean deleteAndUnbindFileSystemEntityIfPresent(FileSystemEntity fileSystemEntity) {
+        // only the one that deleted it unbinds it, so the size of the parent is reduced once.
+        if (fileSystemRepository.deleteByFileSystemId(fileSystemEntity.getFileSystemId()) != 1)
+            return false;
+
+        unbindFileSystemEntity(fileSystemEntity);
+        return true;
+    }
+
+    private void unbindFileSystemEntity(FileSystemEntity fileSystemEntity) {
         Query query = new Query().addCriteria(Criteria.where("itemIds").is(fileSystemEntity.getFileSystemId()));
         Update newUpdate;
 
@@ -257,12 +607,13 @@ public class FileSystemHelperService {
         } else {
             newUpdate = new Update().pull("itemIds", fileSystemEntity.getFileSystemId());
         }
+        newUpdate.inc(CHANGES_FIELD, 1);
         mongoTemplate.findAndModify(query, newUpdate, FileSystemEntity.class);
     }
 
     public void recursivlyUpdateTimeStamps(FileSystemEntity currentEntity, User autheticatedUser, long currentTimeStamp) {
         Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(currentEntity.getFileSystemId()));
-        Update update = new Update().set("lastUpdated", currentTimeStamp).set("lastUpdatedBy", autheticatedUser.getUserId());
+        Update update = new Update().set("lastUpdated", currentTimeStamp).set("lastUpdatedBy", autheticatedUser.getUserId()).inc(CHANGES_FIELD, 1);
         mongoTemplate.findAndModify(query, update, FileSystemEntity.class);
 
         Query queryParentEntity = new Query().addCriteria(Criteria.where("itemIds").is(currentEntity.getFileSystemId()));
@@ -344,6 +695,27 @@ public class FileSystemHelperService {
 
     }
 
+    /**
+     * Same as {@link #getContentsOfFolderRecursivly(List, FileSystemEntity, User, String, boolean)}, but only loads and sets the selected fields.
+     */
+    public void getContentsOfFolderRecursivly(List<FileSystemItem> listToAdd, FileSystemEntity currentEntitiy, User authenticatedUser, String relativePath, boolean multipleEntitiesInCurrentEntity, Set<FileSystemItemField> fields) {
+        if (currentEntitiy.isFile() || currentEntitiy.getTypeId() != FileSystemType.FOLDER.getId()) {
+            listToAdd.add(this.createDTO(currentEntitiy, authenticatedUser, relativePath + currentEntitiy.getName(), fields));
+        } else {
+            if (currentEntitiy.getItemIds().length == 0) return;
+            List<FileSystemEntity> folderContents = this.getVisibleFolderContentsWithFields(currentEntitiy, authenticatedUser, fields, true);
+
+            if (folderContents.isEmpty())
+                throw new FileFighterDataException("Found no children for FileSystemEntity with id " + currentEntitiy.getFileSystemId());
+
+            boolean currentRunIsTheFirst = relativePath.equals("");
+            boolean currentEntityIsInRoot = currentEntitiy.getPath().equals("/");
+
+            String nextRelativePath = getNextRelativePath(currentEntitiy, relativePath, multipleEntitiesInCurrentEntity, currentRunIsTheFirst, currentEntityIsInRoot);
+            folderContents.forEach(nextEntity -> getContentsOfFolderRecursivly(listToAdd, nextEntity, authenticatedUser, nextRelativePath, folderContents.size() > 1, fields));
+        }
+    }
+
     private String getNextRelativePath(FileSystemEntity currentEntitiy, String relativePath, boolean multipleEntitiesInCurrentEntity, boolean currentRunIsTheFirst, boolean currentEntityIsInRoot) {
         String nextRelativePath = "";
         if (currentRunIsTheFirst) {
@@ -0,0 +1,47 @@
+package de.filefighter.rest.domain.filesystem.business;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out locks for folder paths of a owner, so only one thread of this node creates a folder at the same path.
+ * The locks are striped, so the memory used is fixed and unrelated paths only rarely share a lock.
+ * Between several nodes the unique index on the folder paths does the same job.
+ */
+@Service
+public class FileSystemPathLockService {
+
+    static final int NUMBER_OF_STRIPES = 256; // needs to be a power of two.
+
+    private final Lock[] stripes = new Lock[NUMBER_OF_STRIPES];
+
+    public FileSystemPathLockService() {
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Only hold one of these locks at a time, different paths can share the same stripe.
+     */
+    public Lock getLock(long ownerId, String path) {
+        return stripes[getStripeIndex(ownerId, path)];
+    }
+
+    int getStripeIndex(long ownerId, String path) {
+        int hash = 31 * Long.hashCode(ownerId) + normalizePath(path).hashCode();
+        // spread the higher bits, because only the lower ones are used.
+        hash ^= (hash >>> 16);
+        return hash & (NUMBER_OF_STRIPES - 1);
+    }
+
+    String normalizePath(String path) {
+        String normalizedPath = path.toLowerCase();
+        while (normalizedPath.length() > 1 && normalizedPath.endsWith("/")) {
+            normalizedPath = normalizedPath.substring(0, normalizedPath.length() - 1);
+        }
+        return normalizedPath;
+    }
+}
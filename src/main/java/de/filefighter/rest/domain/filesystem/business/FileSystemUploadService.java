@@ -1,8 +1,10 @@
 package de.filefighter.rest.domain.filesystem.business;
 
+import com.mongodb.client.result.UpdateResult;
 import de.filefighter.rest.domain.common.InputSanitizerService;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
 import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import de.filefighter.rest.domain.common.jfr.UploadPhaseEvent;
 import de.filefighter.rest.domain.filesystem.data.InteractionType;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.CreateNewFolder;
@@ -17,7 +19,9 @@ import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
 import de.filefighter.rest.domain.user.business.UserBusinessService;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.exceptions.UserNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -25,6 +29,10 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+
+import static de.filefighter.rest.configuration.MetricsConfiguration.BUSINESS_OPERATIONS_METRIC;
+import static de.filefighter.rest.configuration.MetricsConfiguration.OPERATION_TAG;
 
 @Log4j2
 @Service
@@ -39,8 +47,9 @@ public class FileSystemUploadService {
     private final MongoTemplate mongoTemplate;
     private final UserBusinessService userBusinessService;
     private final IdGenerationService idGenerationService;
+    private final FileSystemPathLockService fileSystemPathLockService;
 
-    public FileSystemUploadService(FileSystemRepository fileSystemRepository, FileSystemHelperService fileSystemHelperService, InputSanitizerService inputSanitizerService, FileSystemTypeRepository fileSystemTypeRepository, MongoTemplate mongoTemplate, UserBusinessService userBusinessService, IdGenerationService idGenerationService) {
+    public FileSystemUploadService(FileSystemRepository fileSystemRepository, FileSystemHelperService fileSystemHelperService, InputSanitizerService inputSanitizerService, FileSystemTypeRepository fileSystemTypeRepository, MongoTemplate mongoTemplate, UserBusinessService userBusinessService, IdGenerationService idGenerationService, FileSystemPathLockService fileSystemPathLockService) {
         this.fileSystemRepository = fileSystemRepository;
         this.fileSystemHelperService = fileSystemHelperService;
         this.inputSanitizerService = inputSanitizerService;
@@ -48,9 +57,13 @@ public class FileSystemUploadService {
         this.mongoTemplate = mongoTemplate;
         this.userBusinessService = userBusinessService;
         this.idGenerationService = idGenerationService;
+        this.fileSystemPathLockService = fileSystemPathLockService;
     }
 
+    @Timed(value = BUSINESS_OPERATIONS_METRIC, extraTags = {OPERATION_TAG, "upload"}, histogram = true)
     public List<FileSystemItem> uploadFileSystemItem(long rootItemId, FileSystemUpload fileSystemUpload, User authenticatedUser) {
+        UploadPhaseEvent validatePhase = new UploadPhaseEvent();
+        validatePhase.begin();
         FileSystemEntity uploadParent = fileSystemRepository.findByFileSystemId(rootItemId);
         if (null == uploadParent)
             throw new FileSystemItemCouldNotBeUploadedException();
@@ -69,13 +82,17 @@ public class FileSystemUploadService {
         } catch (UserNotFoundException exception) {
             throw new FileFighterDataException("Owner of upload parent entity could not be found.");
         }
+        commitUploadPhase(validatePhase, "validate", rootItemId, fileSystemUpload, 0, authenticatedUser);
+
+        UploadPhaseEvent foldersPhase = new UploadPhaseEvent();
+        foldersPhase.begin();
+        int createdFolders = 0;
 
         // TODO: the thing is that folders that get uploaded will only have lowercase names.
         String[] paths = fileSystemHelperService.splitPathIntoEnitityPaths(fileSystemUpload.getPath().toLowerCase(), uploadParent.getPath().toLowerCase());
 
+        // all folders on the path except the one that gets the file.
         List<FileSystemEntity> entitiesToUpdate = new ArrayList<>();
-        List<FileSystemEntity> entitiesToCreate = new ArrayList<>();
-
         List<FileSystemItem> returnItems = new ArrayList<>();
 
         FileSystemEntity latestEntity = uploadParent;
@@ -86,23 +103,17 @@ public class FileSystemUploadService {
             String currentEntityName = fileSystemHelperService.getEntityNameFromPath(currentAbsolutePath);
             currentAbsolutePath = currentAbsolutePath.toLowerCase();
 
-            log.debug("Checking folder path: {}", currentAbsolutePath);
+            log.trace("Checking folder path: {}", currentAbsolutePath);
 
             // does it exist?
-            FileSystemEntity alreadyExistingFolder = fileSystemRepository.findByPathAndOwnerId(currentAbsolutePath, uploadParent.getOwnerId());
-            if (null == alreadyExistingFolder) {
+            FileSystemEntity currentFolder = fileSystemRepository.findByPathAndOwnerId(currentAbsolutePath, uploadParent.getOwnerId());
+            boolean folderWasCreated = false;
+            if (null == currentFolder) {
                 // are you allowed to create it?
                 if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(latestEntity, authenticatedUser, InteractionType.CHANGE)
                         || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(latestEntity, authenticatedUser, InteractionType.READ))
                     throw new FileSystemItemCouldNotBeUploadedException();
 
-                // does a file with the same name already exist?
-                Long[] childrenIdsLong = fileSystemHelperService.transformlongArrayToLong(latestEntity.getItemIds());
-                List<FileSystemEntity> alreadyExistingFilesWithSameName = fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(childrenIdsLong), currentEntityName);
-                if (!alreadyExistingFilesWithSameName.isEmpty())
-                    throw new FileSystemItemCouldNotBeUploadedException("A File with the same name already exists when creating the new folder " + currentEntityName);
-
-                // create empty folder
                 FileSystemEntity newFolder = FileSystemEntity.builder()
                         .fileSystemId(idGenerationService.consumeNext())
                         .isFile(false)
@@ -115,55 +126,40 @@ public class FileSystemUploadService {
                         .typeId(FileSystemType.FOLDER.getId())
                         .path(currentAbsolutePath)
                         .name(currentEntityName)
-                        .lastUpdated(fileSystemHelperService.getCurrentTimeStamp())
+                        .lastUpdated(timeStamp)
                         .build();
 
-                // add latestEntityTo list and add current id to itemids array.
-                latestEntity.setItemIds(fileSystemHelperService.addLongToLongArray(latestEntity.getItemIds(), newFolder.getFileSystemId()));
-                entitiesToUpdate.add(latestEntity);
+                currentFolder = createFolderIfAbsent(latestEntity, newFolder);
+                folderWasCreated = currentFolder.getFileSystemId() == newFolder.getFileSystemId();
+            }
 
-                // set new folder entity as latest folder entity
-                log.debug("Creating new Folder {}", newFolder);
-                latestEntity = newFolder;
-                entitiesToCreate.add(newFolder);
-                returnItems.add(fileSystemHelperService.createDTO(newFolder, authenticatedUser, "/" + ownerOfParent.getUsername() + currentAbsolutePath));
+            if (folderWasCreated) {
+                createdFolders++;
+                log.debug("Created new Folder {}", currentFolder);
             } else {
                 // are you allowed to merge it?
-                if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(alreadyExistingFolder, authenticatedUser, InteractionType.CHANGE)
-                        || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(alreadyExistingFolder, authenticatedUser, InteractionType.READ))
+                if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(currentFolder, authenticatedUser, InteractionType.CHANGE)
+                        || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(currentFolder, authenticatedUser, InteractionType.READ))
                     throw new FileSystemItemCouldNotBeUploadedException();
 
-                // if yes add alreadyExistingFolder to latest Folder entity
-                log.debug("Merging existing Folder {}", alreadyExistingFolder);
-                entitiesToUpdate.add(latestEntity);
-                returnItems.add(fileSystemHelperService.createDTO(alreadyExistingFolder, authenticatedUser, "/" + ownerOfParent.getUsername() + currentAbsolutePath));
-                latestEntity = alreadyExistingFolder;
+                log.debug("Merging existing Folder {}", currentFolder);
             }
+            entitiesToUpdate.add(latestEntity);
+            returnItems.add(fileSystemHelperService.createDTO(currentFolder, authenticatedUser, "/" + ownerOfParent.getUsername() + currentAbsolutePath));
+            latestEntity = currentFolder;
         }
+        commitUploadPhase(foldersPhase, "folders", rootItemId, fileSystemUpload, createdFolders, authenticatedUser);
+
+        UploadPhaseEvent commitPhase = new UploadPhaseEvent();
+        commitPhase.begin();
         // here comes the file.
-        log.debug("Checking file path: {} / {}", uploadParent.getPath().toLowerCase(), fileSystemUpload.getPath().toLowerCase());
+        log.debug("Checking file path: {} / {}", uploadParent::getPath, fileSystemUpload::getPath);
 
         // are you allowed?
         if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(latestEntity, authenticatedUser, InteractionType.CHANGE)
                 || !fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(latestEntity, authenticatedUser, InteractionType.READ))
             throw new FileSystemItemCouldNotBeUploadedException();
 
-        // check for existing file or folder
-        Long[] childrenIdsLong = fileSystemHelperService.transformlongArrayToLong(latestEntity.getItemIds());
-        List<FileSystemEntity> alreadyExistingFilesWithSameName = fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(childrenIdsLong), fileSystemUpload.getName());
-        if (alreadyExistingFilesWithSameName.size() > 1)
-            throw new FileFighterDataException("Found more than one entity with the same name in folder: " + latestEntity);
-
-        // if name already exists and is folder -> exception. if file delete old and save new.
-        if (!alreadyExistingFilesWithSameName.isEmpty()) {
-            if (alreadyExistingFilesWithSameName.get(0).getTypeId() == FileSystemType.FOLDER.getId()) {
-                throw new FileSystemItemCouldNotBeUploadedException("A Folder with the same name '" + fileSystemUpload.getName() + "' already exists.");
-            }
-            FileSystemEntity fileToOverwrite = alreadyExistingFilesWithSameName.get(0);
-            log.debug("Found file to overwrite. Deleting it now. {}", fileToOverwrite);
-            fileSystemHelperService.deleteAndUnbindFileSystemEntity(fileToOverwrite);
-        }
-
         FileSystemEntity newFile = FileSystemEntity.builder()
                 .fileSystemId(idGenerationService.consumeNext())
                 .isFile(true)
@@ -180,40 +176,217 @@ public class FileSystemUploadService {
                 .size(fileSystemUpload.getSize())
                 .build();
 
-        // add latestEntityTo list and add current id to itemids array.
-        // if the file was overwritten then remove the id from parent.
-        long[] newIds = latestEntity.getItemIds();
-        if (!alreadyExistingFilesWithSameName.isEmpty()) {
-            newIds = Arrays.stream(latestEntity.getItemIds()).filter(id -> id != alreadyExistingFilesWithSameName.get(0).getFileSystemId()).toArray();
-        }
+        // a folder with the same name is never replaced.
+        FileSystemEntity folderToAttachTo = latestEntity;
+        checkThatNoFolderWithTheSameNameExists(folderToAttachTo, fileSystemUpload.getName());
+
         log.debug("Creating new File {}", newFile);
-        latestEntity.setItemIds(fileSystemHelperService.addLongToLongArray(newIds, newFile.getFileSystemId()));
-        entitiesToUpdate.add(latestEntity);
-        entitiesToCreate.add(newFile);
         returnItems.add(fileSystemHelperService.createDTO(newFile, authenticatedUser, "/" + ownerOfParent.getUsername() + paths[paths.length - 1]));
 
+        // create the file first, so the parent never references a missing entity.
+        fileSystemRepository.insert(newFile);
+
+        try {
+            // the push is atomic, so parallel uploads into the folder never conflict. Files with the same name are sorted out afterwards.
+            Query folderQuery = new Query().addCriteria(Criteria.where("fileSystemId").is(folderToAttachTo.getFileSystemId()));
+            UpdateResult bound = mongoTemplate.updateFirst(folderQuery, new Update()
+                    .push("itemIds", newFile.getFileSystemId())
+                    .inc("size", fileSystemUpload.getSize())
+                    .inc(FileSystemHelperService.CHANGES_FIELD, 1)
+                    .set("lastUpdated", timeStamp)
+                    .set("lastUpdatedBy", authenticatedUser.getUserId()), FileSystemEntity.class);
+            if (bound.getMatchedCount() == 0)
+                throw new FileSystemItemCouldNotBeUploadedException();
+
+            resolveEntitiesWithTheSameName(folderToAttachTo.getFileSystemId(), newFile);
+        } catch (RuntimeException ex) {
+            // the created folders stay, they are valid empty folders.
+            fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(newFile);
+            throw ex;
+        }
 
         // TODO: size does not get updated up the tree
 
-        // update everything except the itemIds, because that is done above.
+        // the other folders only get atomic changes, so concurrent uploads do not overwrite each other.
         entitiesToUpdate.forEach(entity -> {
             Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(entity.getFileSystemId()));
             Update newUpdate = new Update();
             newUpdate.set("lastUpdated", timeStamp);
             newUpdate.set("lastUpdatedBy", authenticatedUser.getUserId());
-            newUpdate.set("itemIds", entity.getItemIds());
-            newUpdate.set("size", entity.getSize() + fileSystemUpload.getSize());
+            newUpdate.inc("size", fileSystemUpload.getSize());
+            newUpdate.inc(FileSystemHelperService.CHANGES_FIELD, 1);
             mongoTemplate.findAndModify(query, newUpdate, FileSystemEntity.class);
         });
-        // create
-        fileSystemRepository.insert(entitiesToCreate);
 
         // update timestamp from parent upwards
         fileSystemHelperService.recursivlyUpdateTimeStamps(uploadParent, authenticatedUser, timeStamp);
+        commitUploadPhase(commitPhase, "commit", rootItemId, fileSystemUpload, createdFolders, authenticatedUser);
 
         return returnItems;
     }
 
+    private void commitUploadPhase(UploadPhaseEvent event, String phase, long rootItemId, FileSystemUpload fileSystemUpload, int createdFolders, User authenticatedUser) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.rootItemId = rootItemId;
+            event.path = fileSystemUpload.getPath();
+            event.createdFolders = createdFolders;
+            event.userId = authenticatedUser.getUserId();
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates the folder and adds it to the parent, unless another upload created a folder with the same path first.
+     * Parallel uploads on this node wait for the lock of the path, the ones on other nodes get stopped by the unique index.
+     * The lock is released while backing off, so the other paths of the same stripe are not blocked by the retries.
+     *
+     * @return the new folder or the folder that was created concurrently.
+     */
+    private FileSystemEntity createFolderIfAbsent(FileSystemEntity parent, FileSystemEntity newFolder) {
+        Lock pathLock = fileSystemPathLockService.getLock(newFolder.getOwnerId(), newFolder.getPath());
+        FileSystemEntity folder = null;
+        int attempts = 1;
+        while (true) {
+            pathLock.lock();
+            try {
+                if (null == folder) {
+                    // someone else could have created it while we waited.
+                    FileSystemEntity alreadyExistingFolder = fileSystemRepository.findByPathAndOwnerId(newFolder.getPath(), newFolder.getOwnerId());
+                    if (null != alreadyExistingFolder)
+                        return alreadyExistingFolder;
+
+                    // does a file with the same name already exist?
+                    checkThatNoEntityWithTheSameNameExists(parent, newFolder.getName());
+
+                    folder = fileSystemHelperService.createFolderIfAbsent(newFolder);
+                    if (null == folder)
+                        throw new FileFighterDataException("Folder " + newFolder.getPath() + " could not be created.");
+
+                    if (folder.getFileSystemId() != newFolder.getFileSystemId())
+                        return folder;
+                }
+
+                // add folder to children of parent.
+                if (fileSystemHelperService.updateFileSystemEntityIfUnchanged(parent, new Update().push("itemIds", folder.getFileSystemId()))) {
+                    try {
+                        // files are bound without the version, one with the same name could have come in between.
+                        resolveEntitiesWithTheSameName(parent.getFileSystemId(), folder);
+                    } catch (RuntimeException ex) {
+                        fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(folder);
+                        throw ex;
+                    }
+                    return folder;
+                }
+            } finally {
+                pathLock.unlock();
+            }
+
+            // if the parent changed in the meantime check the name again.
+            log.debug("Folder {} was modified concurrently, attempt {}.", parent.getFileSystemId(), attempts);
+            try {
+                if (attempts >= FileSystemHelperService.MAX_CONCURRENT_MODIFICATION_RETRIES)
+                    throw new FileSystemItemCouldNotBeUploadedException("The folder was modified by someone else too often. Please try again.");
+
+                fileSystemHelperService.backOffBeforeRetry(attempts++);
+                parent = fileSystemRepository.findByFileSystemId(parent.getFileSystemId());
+                if (null == parent)
+                    throw new FileSystemItemCouldNotBeUploadedException();
+
+                checkThatNoEntityWithTheSameNameExists(parent, folder.getName());
+            } catch (RuntimeException ex) {
+                deleteUnboundFolder(folder);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Adds the new folder to the parent while holding the lock of its path.
+     *
+     * @return false if the parent was changed concurrently.
+     */
+    private boolean bindNewFolder(Lock pathLock, long parentId, FileSystemEntity parent, FileSystemEntity newFolder) {
+        pathLock.lock();
+        try {
+            if (!fileSystemHelperService.updateFileSystemEntityIfUnchanged(parent, new Update().push("itemIds", newFolder.getFileSystemId())))
+                return false;
+
+            try {
+                // files are bound without the version, one with the same name could have come in between.
+                resolveEntitiesWithTheSameName(parentId, newFolder);
+            } catch (RuntimeException ex) {
+                fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(newFolder);
+                throw ex;
+            }
+            return true;
+        } finally {
+            pathLock.unlock();
+        }
+    }
+
+    /**
+     * Another upload could have found the folder while the lock was released and already put something into it, then it is kept.
+     */
+    private void deleteUnboundFolder(FileSystemEntity folder) {
+        if (!fileSystemHelperService.deleteFolderIfEmpty(folder))
+            log.warn("Folder {} could not be added to its parent, but is kept because it is not empty anymore.", folder.getFileSystemId());
+    }
+
+    private void checkThatNoEntityWithTheSameNameExists(FileSystemEntity folder, String name) {
+        Long[] childrenIdsLong = fileSystemHelperService.transformlongArrayToLong(folder.getItemIds());
+        List<FileSystemEntity> alreadyExistingFilesWithSameName = fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(childrenIdsLong), name);
+        if (!alreadyExistingFilesWithSameName.isEmpty())
+            throw new FileSystemItemCouldNotBeUploadedException("A File with the same name already exists when creating the new folder " + name);
+    }
+
+    private void checkThatNoFolderWithTheSameNameExists(FileSystemEntity folder, String name) {
+        Long[] childrenIdsLong = fileSystemHelperService.transformlongArrayToLong(folder.getItemIds());
+        List<FileSystemEntity> alreadyExistingEntitiesWithSameName = fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(childrenIdsLong), name);
+        for (FileSystemEntity entity : alreadyExistingEntitiesWithSameName) {
+            if (isFolder(entity))
+                throw new FileSystemItemCouldNotBeUploadedException("A Folder with the same name '" + name + "' already exists.");
+        }
+    }
+
+    /**
+     * Sorts out the entities with the same name after the bound entity was added to the folder, the order of the itemIds decides.
+     * The entity bound last always sees the others, so it resolves the conflict: a new file replaces the older files,
+     * everything else gives way to the entities that were there first. Every upload comes to the same result, no matter which one runs it.
+     *
+     * @throws FileSystemItemCouldNotBeUploadedException if the bound entity has to give way, the caller removes it again.
+     */
+    void resolveEntitiesWithTheSameName(long folderId, FileSystemEntity boundEntity) {
+        FileSystemEntity folder = fileSystemRepository.findByFileSystemId(folderId);
+        if (null == folder)
+            throw new FileSystemItemCouldNotBeUploadedException();
+
+        List<Long> itemIds = Arrays.asList(fileSystemHelperService.transformlongArrayToLong(folder.getItemIds()));
+        int position = itemIds.indexOf(boundEntity.getFileSystemId());
+
+        List<FileSystemEntity> olderEntities = new ArrayList<>();
+        for (FileSystemEntity entity : fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(itemIds, boundEntity.getName())) {
+            // the ones bound later resolve the conflict with this one themselves.
+            if (entity.getFileSystemId() != boundEntity.getFileSystemId() && itemIds.indexOf(entity.getFileSystemId()) < position)
+                olderEntities.add(entity);
+        }
+
+        for (FileSystemEntity olderEntity : olderEntities) {
+            if (isFolder(boundEntity) || isFolder(olderEntity))
+                throw new FileSystemItemCouldNotBeUploadedException("A Entity with the same name '" + boundEntity.getName() + "' already exists.");
+        }
+
+        for (FileSystemEntity olderFile : olderEntities) {
+            log.debug("Found file to overwrite. Deleting it now. {}", olderFile);
+            fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(olderFile);
+        }
+    }
+
+    private static boolean isFolder(FileSystemEntity entity) {
+        return !entity.isFile() || entity.getTypeId() == FileSystemType.FOLDER.getId();
+    }
+
     public List<FileSystemUploadPreflightResponse> preflightUploadFileSystemItem(long rootItemId, List<FileSystemUpload> uploads, User authenticatedUser) {
         FileSystemEntity uploadParent = fileSystemRepository.findByFileSystemId(rootItemId);
         if (null == uploadParent)
@@ -238,15 +411,14 @@ public class FileSystemUploadService {
                 String currentFolderName = fileSystemHelperService.getEntityNameFromPath(currentAbsolutePath);
 
                 PreflightResponse alreadyExistingResponse = responses.get(currentAbsolutePath);
-                log.debug("Current path {} already has response: {}.", currentAbsolutePath, alreadyExistingResponse);
-                log.debug("map: {}", responses);
+                log.trace("Current path {} already has response: {}.", currentAbsolutePath, alreadyExistingResponse);
 
                 if (null == alreadyExistingResponse) {
                     PreflightResponse preflightResponse = handlePreflightEntity(currentAbsolutePath,
                             currentFolderName,
                             responses,
                             uploadParent, authenticatedUser, false);
-                    log.debug("Path {} now has the response {}.", currentAbsolutePath, preflightResponse);
+                    log.trace("Path {} now has the response {}.", currentAbsolutePath, preflightResponse);
                     responses.put(currentAbsolutePath, preflightResponse);
 
                     // build the response for the folder
@@ -261,11 +433,11 @@ public class FileSystemUploadService {
                     ));
                 }
             }
-            log.debug("here is this file {}", upload);
+            log.trace("here is this file {}", upload);
             // here is the file.
             String absolutPathToFile = paths[paths.length - 1];
             PreflightResponse fileResponse = handlePreflightEntity(absolutPathToFile, upload.getName(), responses, uploadParent, authenticatedUser, true);
-            log.debug("Response: {} for upload {}", fileResponse, upload);
+            log.trace("Response: {} for upload {}", fileResponse, upload);
 
             // build the response and add it to list
             String relativeFilePathWithoutLeadingSlash = fileSystemHelperService.removeLeadingSlash(upload.getPath());
@@ -399,14 +571,6 @@ public class FileSystemUploadService {
         if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(parent, authenticatedUser, InteractionType.CHANGE))
             throw new FileSystemItemCouldNotBeUploadedException("You dont have write permissions in that directory.");
 
-        // check for already existing folder.
-        List<FileSystemEntity> children = fileSystemHelperService.getFolderContentsOfEntityAndPermissions(parent, authenticatedUser, false, false);
-        Optional<FileSystemEntity> entityWithSameName = children.stream().filter(child -> child.getName().equalsIgnoreCase(newFolderRequest.getName())).findFirst();
-        if (entityWithSameName.isPresent())
-            throw new FileSystemItemCouldNotBeUploadedException("A Entity with the same name already exists in this directory.");
-
-        long timeStamp = fileSystemHelperService.getCurrentTimeStamp();
-
         String dbPath;
         if (parent.getPath().equals("/")) {
             dbPath = parent.getPath() + newFolderRequest.getName().toLowerCase();
@@ -414,29 +578,74 @@ public class FileSystemUploadService {
             dbPath = parent.getPath() + "/" + newFolderRequest.getName().toLowerCase();
         }
 
-        FileSystemEntity newFolder = FileSystemEntity.builder()
-                .path(dbPath)
-                .name(newFolderRequest.getName())
-                .fileSystemId(idGenerationService.consumeNext())
-                .ownerId(parent.getOwnerId())
-                .editableForUserIds(parent.getEditableForUserIds())
-                .editableFoGroupIds(parent.getEditableFoGroupIds())
-                .visibleForGroupIds(parent.getVisibleForGroupIds())
-                .visibleForUserIds(parent.getVisibleForUserIds())
-                .size(0)
-                .typeId(FileSystemType.FOLDER.getId())
-                .isFile(false)
-                .lastUpdatedBy(authenticatedUser.getUserId())
-                .lastUpdated(timeStamp)
-                .build();
+        long timeStamp = fileSystemHelperService.getCurrentTimeStamp();
+        FileSystemEntity newFolder;
+
+        // only one folder with the same path can be created at a time.
+        Lock pathLock = fileSystemPathLockService.getLock(parent.getOwnerId(), dbPath);
+        pathLock.lock();
+        try {
+            // check for already existing folder.
+            List<FileSystemEntity> children = fileSystemHelperService.getFolderContentsOfEntityAndPermissions(parent, authenticatedUser, false, false);
+            Optional<FileSystemEntity> entityWithSameName = children.stream().filter(child -> child.getName().equalsIgnoreCase(newFolderRequest.getName())).findFirst();
+            if (entityWithSameName.isPresent())
+                throw new FileSystemItemCouldNotBeUploadedException("A Entity with the same name already exists in this directory.");
+
+            newFolder = FileSystemEntity.builder()
+                    .path(dbPath)
+                    .name(newFolderRequest.getName())
+                    .fileSystemId(idGenerationService.consumeNext())
+                    .ownerId(parent.getOwnerId())
+                    .editableForUserIds(parent.getEditableForUserIds())
+                    .editableFoGroupIds(parent.getEditableFoGroupIds())
+                    .visibleForGroupIds(parent.getVisibleForGroupIds())
+                    .visibleForUserIds(parent.getVisibleForUserIds())
+                    .size(0)
+                    .typeId(FileSystemType.FOLDER.getId())
+                    .isFile(false)
+                    .lastUpdatedBy(authenticatedUser.getUserId())
+                    .lastUpdated(timeStamp)
+                    .build();
+
+            try {
+                fileSystemRepository.insert(newFolder);
+            } catch (DuplicateKeyException ex) {
+                // another node created the folder at the same time.
+                throw new FileSystemItemCouldNotBeUploadedException("A Entity with the same name already exists in this directory.");
+            }
+        } finally {
+            pathLock.unlock();
+        }
 
-        fileSystemRepository.insert(newFolder);
+        // add folder to children of parent, if the parent changed in the meantime check the name again.
+        // the lock is released while backing off, so the other paths of the same stripe are not blocked by the retries.
+        int attempts = 1;
+        while (!bindNewFolder(pathLock, parentId, parent, newFolder)) {
+            log.debug("Folder {} was modified concurrently, attempt {}.", parentId, attempts);
+            if (attempts >= FileSystemHelperService.MAX_CONCURRENT_MODIFICATION_RETRIES) {
+                deleteUnboundFolder(newFolder);
+                throw new FileSystemItemCouldNotBeUploadedException("The folder was modified by someone else too often. Please try again.");
+            }
 
-        // add folder to children of parent.
-        long[] childrenWithNewFolder = fileSystemHelperService.addLongToLongArray(parent.getItemIds(), newFolder.getFileSystemId());
-        Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(parent.getFileSystemId()));
-        Update update = new Update().set("itemIds", childrenWithNewFolder);
-        mongoTemplate.findAndModify(query, update, FileSystemEntity.class);
+            try {
+                fileSystemHelperService.backOffBeforeRetry(attempts++);
+            } catch (RuntimeException ex) {
+                deleteUnboundFolder(newFolder);
+                throw ex;
+            }
+            FileSystemEntity currentParent = fileSystemRepository.findByFileSystemId(parentId);
+            if (null == currentParent) {
+                deleteUnboundFolder(newFolder);
+                throw new FileSystemItemCouldNotBeUploadedException("The folder was modified by someone else too often. Please try again.");
+            }
+
+            Long[] childrenIdsLong = fileSystemHelperService.transformlongArrayToLong(currentParent.getItemIds());
+            if (!fileSystemRepository.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(childrenIdsLong), newFolderRequest.getName()).isEmpty()) {
+                deleteUnboundFolder(newFolder);
+                throw new FileSystemItemCouldNotBeUploadedException("A Entity with the same name already exists in this directory.");
+            }
+            parent = currentParent;
+        }
 
         // update timestamps.
         fileSystemHelperService.recursivlyUpdateTimeStamps(parent, authenticatedUser, timeStamp);
@@ -7,13 +7,15 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Log4j2
 @Service
 public class IdGenerationService {
 
     private final FileSystemRepository fileSystemRepository;
-    private long counter;
+    // atomic instead of synchronized, so parallel uploads get unique ids without pinning virtual threads.
+    private final AtomicLong counter = new AtomicLong(-1);
 
     public IdGenerationService(FileSystemRepository fileSystemRepository) {
         this.fileSystemRepository = fileSystemRepository;
@@ -30,9 +32,9 @@ public class IdGenerationService {
 
         if (entityList.isEmpty() && max.isEmpty()) {
             log.warn("Database was empty. If this happens during production please contact the developers!");
-            counter = -1;
+            counter.set(-1);
         } else {
-            counter = max.get();
+            counter.set(max.get());
         }
 
         log.debug("Found {} entities in the db.", entityList.size());
@@ -40,11 +42,10 @@ public class IdGenerationService {
     }
 
     public long peekNext() {
-        return counter + 1;
+        return counter.get() + 1;
     }
 
     public long consumeNext() {
-        counter++;
-        return counter;
+        return counter.incrementAndGet();
     }
 }
@@ -0,0 +1,466 @@
+package de.filefighter.rest.domain.filesystem.business;
+
+import de.filefighter.rest.configuration.RestConfiguration;
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.InteractionType;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.filesystem.data.persistence.ReactiveFileSystemRepository;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemContentsNotAccessibleException;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemCouldNotBeDownloadedException;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemNotFoundException;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.user.business.UserDTOService;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.data.persistence.ReactiveUserRepository;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Non blocking version of the read operations of the {@link FileSystemBusinessService}.
+ * The permission checks and the dto creation are the same, only the db calls are done with the reactive repositories.
+ * If fields are selected only the needed fields of the entities are loaded, like in the blocking version.
+ */
+@Log4j2
+@Service
+@ConditionalOnProperty(prefix = "filefighter", name = "reactive-file-system-reads", havingValue = "true")
+public class ReactiveFileSystemBusinessService {
+
+    private static final String DOWNLOAD_NOT_ALLOWED_MSG = "FileSystemEntity does not exist or you are not allowed to see the entity.";
+
+    private final ReactiveFileSystemRepository reactiveFileSystemRepository;
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final FileSystemHelperService fileSystemHelperService;
+    private final UserDTOService userDTOService;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReactiveFileSystemBusinessService(ReactiveFileSystemRepository reactiveFileSystemRepository, ReactiveUserRepository reactiveUserRepository, FileSystemHelperService fileSystemHelperService, UserDTOService userDTOService, ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveFileSystemRepository = reactiveFileSystemRepository;
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.fileSystemHelperService = fileSystemHelperService;
+        this.userDTOService = userDTOService;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Mono<Pair<List<FileSystemItem>, Long>> getFolderContentsByPath(String path, User authenticatedUser) {
+        return getFolderContentsByPath(path, authenticatedUser, null);
+    }
+
+    /**
+     * @param fields selected fields, null if the whole items are sent.
+     */
+    public Mono<Pair<List<FileSystemItem>, Long>> getFolderContentsByPath(String path, User authenticatedUser, Set<FileSystemItemField> fields) {
+        return getReadableFoldersByPath(path, authenticatedUser).flatMap(readableFolders -> {
+            User ownerOfRequestedFolder = readableFolders.getSecond();
+
+            // this is only the case if the real / was requested.
+            if (null == ownerOfRequestedFolder) {
+                // do not get the actual contents here but display the folder names as a fake directory.
+                return createDTOs(readableFolders.getFirst(), folder -> "/", authenticatedUser, fields)
+                        .map(fileSystemItems -> new Pair<>(fileSystemItems, -1L));
+            }
+
+            FileSystemEntity parentFolder = readableFolders.getFirst().get(0);
+            String pathOfFolder = parentFolder.getPath();
+            String absolutePathToFolder = "/" + ownerOfRequestedFolder.getUsername() + pathOfFolder + (pathOfFolder.equals("/") ? "" : "/");
+            return getVisibleFolderContents(parentFolder, authenticatedUser, fields, false)
+                    .flatMap(folderContents -> createDTOs(folderContents, entity -> absolutePathToFolder + entity.getName(), authenticatedUser, fields))
+                    .map(fileSystemItems -> new Pair<>(fileSystemItems, parentFolder.getFileSystemId()));
+        });
+    }
+
+    /**
+     * Same as {@link #getFolderContentsByPath(String, User)}, but the users are only sent once.
+     */
+    public Mono<Pair<CompactFileSystemContents, Long>> getCompactFolderContentsByPath(String path, User authenticatedUser) {
+        return getFolderContentsByPath(path, authenticatedUser)
+                .map(folderContents -> new Pair<>(fileSystemHelperService.createCompactDTO(folderContents.getFirst()), folderContents.getSecond()));
+    }
+
+    /**
+     * Etag of the folder contents, only the folders are loaded and not their contents.
+     */
+    public Mono<String> getFolderContentsETag(String path, User authenticatedUser) {
+        return getReadableFoldersByPath(path, authenticatedUser)
+                .map(readableFolders -> fileSystemHelperService.createETag(readableFolders.getFirst(), authenticatedUser));
+    }
+
+    /**
+     * Finds the folder of the path and checks the permissions.
+     * Emits the requested folder and its owner, or all visible root folders without a owner if the real / was requested.
+     */
+    private Mono<Pair<List<FileSystemEntity>, User>> getReadableFoldersByPath(String path, User authenticatedUser) {
+        String[] pathWithoutSlashes = path.split("/");
+
+        // make path case insensitive
+        String lowerCasePath = path.toLowerCase();
+
+        if (lowerCasePath.equals("/"))
+            return getReadableRootFolders(authenticatedUser);
+
+        if (pathWithoutSlashes.length < 2)
+            return Mono.error(new FileSystemContentsNotAccessibleException("Path was in wrong format."));
+
+        if (!"".equals(pathWithoutSlashes[0]))
+            return Mono.error(new FileSystemContentsNotAccessibleException("Path was in wrong format. Use a leading backslash."));
+
+        // the first path must be the the username.
+        return reactiveUserRepository.findByLowercaseUsername(pathWithoutSlashes[1].toLowerCase())
+                .map(userDTOService::createDto)
+                .switchIfEmpty(Mono.error(FileSystemContentsNotAccessibleException::new))
+                .flatMap(ownerOfRequestedFolder -> getReadableFolderOfOwner(lowerCasePath, ownerOfRequestedFolder, authenticatedUser));
+    }
+
+    private Mono<Pair<List<FileSystemEntity>, User>> getReadableRootFolders(User authenticatedUser) {
+        return reactiveFileSystemRepository.findByPath("/")
+                .filter(entity -> !entity.isFile() && entity.getTypeId() == FileSystemType.FOLDER.getId() && fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
+                .collectList()
+                .map(folders -> new Pair<>(folders, null));
+    }
+
+    private Mono<Pair<List<FileSystemEntity>, User>> getReadableFolderOfOwner(String path, User ownerOfRequestedFolder, User authenticatedUser) {
+        String pathToFind;
+        String[] fileSystemPath = path.split(ownerOfRequestedFolder.getUsername().toLowerCase());
+        if (fileSystemPath.length == 1) {
+            if (!fileSystemPath[0].equals("/"))
+                return Mono.error(new FileSystemContentsNotAccessibleException());
+
+            pathToFind = "/";
+        } else {
+            pathToFind = fileSystemPath[1];
+        }
+        String finalPathToFind = fileSystemHelperService.removeTrailingBackSlashes(pathToFind).toLowerCase();
+
+        // find the folder with matching path.
+        return reactiveFileSystemRepository.findByPath(finalPathToFind)
+                .filter(entity -> !entity.isFile() && entity.getTypeId() == FileSystemType.FOLDER.getId() && entity.getOwnerId() == ownerOfRequestedFolder.getUserId())
+                .collectList()
+                .flatMap(possibleDirectories -> {
+                    if (possibleDirectories.isEmpty())
+                        return Mono.error(new FileSystemContentsNotAccessibleException());
+
+                    // now one Folder should remain
+                    if (possibleDirectories.size() != 1)
+                        return Mono.error(new FileFighterDataException("Found more than one folder with the path " + finalPathToFind));
+
+                    // check if the autheticatedUser can access this.
+                    if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(possibleDirectories.get(0), authenticatedUser, InteractionType.READ))
+                        return Mono.error(new FileSystemContentsNotAccessibleException());
+
+                    return Mono.just(new Pair<>(possibleDirectories, ownerOfRequestedFolder));
+                });
+    }
+
+    public Mono<FileSystemItem> getFileSystemItemInfo(long fsItemId, User authenticatedUser) {
+        return getFileSystemItemInfo(fsItemId, authenticatedUser, null);
+    }
+
+    /**
+     * @param fields selected fields, null if the whole item is sent.
+     */
+    public Mono<FileSystemItem> getFileSystemItemInfo(long fsItemId, User authenticatedUser, Set<FileSystemItemField> fields) {
+        return findByFileSystemId(fsItemId, fields, false)
+                .filter(entity -> fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
+                .switchIfEmpty(Mono.error(() -> new FileSystemItemNotFoundException(fsItemId)))
+                .flatMap(entity -> createDTOs(Collections.singletonList(entity), visibleEntity -> null, authenticatedUser, fields))
+                .map(fileSystemItems -> fileSystemItems.get(0));
+    }
+
+    public Mono<String> getFileSystemItemInfoETag(long fsItemId, User authenticatedUser) {
+        return getReadableFileSystemEntity(fsItemId, authenticatedUser)
+                .map(entity -> fileSystemHelperService.createETag(Collections.singletonList(entity), authenticatedUser));
+    }
+
+    private Mono<FileSystemEntity> getReadableFileSystemEntity(long fsItemId, User authenticatedUser) {
+        return reactiveFileSystemRepository.findByFileSystemId(fsItemId)
+                .filter(entity -> fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
+                .switchIfEmpty(Mono.error(() -> new FileSystemItemNotFoundException(fsItemId)));
+    }
+
+    public Mono<List<FileSystemItem>> searchFileSystemEntity(String sanitizedSearch, User authenticatedUser) {
+        return searchFileSystemEntity(sanitizedSearch, authenticatedUser, null);
+    }
+
+    /**
+     * @param fields selected fields, null if the whole items are sent.
+     */
+    public Mono<List<FileSystemItem>> searchFileSystemEntity(String sanitizedSearch, User authenticatedUser, Set<FileSystemItemField> fields) {
+        // check for username with the same name, the users root gets added to the results.
+        Flux<FileSystemEntity> rootOfUserWithTheName = reactiveUserRepository.findByLowercaseUsername(sanitizedSearch.toLowerCase())
+                .filter(userEntity -> userEntity.getUserId() != RestConfiguration.RUNTIME_USER_ID)
+                .flatMapMany(userEntity -> reactiveFileSystemRepository.findByPath("/")
+                        .filter(entity -> entity.getOwnerId() == userEntity.getUserId())
+                        .collectList()
+                        .flatMap(rootForUser -> {
+                            if (rootForUser.size() != 1)
+                                return Mono.error(new FileFighterDataException("Found not exactly one root folder for user with id: " + userEntity.getUserId()));
+
+                            FileSystemEntity userRootEntity = rootForUser.get(0);
+                            userRootEntity.setName(userEntity.getUsername());
+                            return Mono.just(userRootEntity);
+                        }));
+
+        return findAllByNameContainingIgnoreCase(sanitizedSearch, fields)
+                .concatWith(rootOfUserWithTheName)
+                .filter(entity -> fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
+                .concatMap(entity -> getPathOfEntity(entity).map(path -> new Pair<>(entity, path)))
+                .collectList()
+                .flatMap(entitiesWithPaths -> {
+                    Map<FileSystemEntity, String> paths = new IdentityHashMap<>();
+                    entitiesWithPaths.forEach(pair -> paths.put(pair.getFirst(), pair.getSecond()));
+                    List<FileSystemEntity> entities = entitiesWithPaths.stream().map(Pair::getFirst).collect(Collectors.toList());
+
+                    // the username is part of the paths.
+                    return loadUsers(entities, true, null == fields || fields.contains(FileSystemItemField.LAST_UPDATED_BY)).map(users -> entities.stream()
+                            .map(entity -> {
+                                User owner = users.get(entity.getOwnerId());
+                                String username = null == owner ? null : owner.getUsername();
+                                return createDTO(entity, users, authenticatedUser, "/" + username + paths.get(entity), fields);
+                            })
+                            .collect(Collectors.toList()));
+                });
+    }
+
+    private Mono<String> getPathOfEntity(FileSystemEntity entity) {
+        if (!entity.isFile() && entity.getTypeId() == FileSystemType.FOLDER.getId())
+            return Mono.just(entity.getPath());
+
+        return reactiveFileSystemRepository.findByItemIdsContaining(entity.getFileSystemId())
+                .switchIfEmpty(Mono.error(() -> new FileFighterDataException("Couldn't find parent entity for id: " + entity.getFileSystemId())))
+                .map(parent -> parent.getPath().equals("/") ? parent.getPath() + entity.getName() : parent.getPath() + "/" + entity.getName());
+    }
+
+    public Mono<Pair<List<FileSystemItem>, String>> downloadFileSystemEntity(List<Long> ids, User authenticatedUser) {
+        return downloadFileSystemEntity(ids, authenticatedUser, null);
+    }
+
+    /**
+     * @param fields selected fields, null if the whole items are sent.
+     */
+    public Mono<Pair<List<FileSystemItem>, String>> downloadFileSystemEntity(List<Long> ids, User authenticatedUser, Set<FileSystemItemField> fields) {
+        // validate input and check for parent
+        if (ids.isEmpty())
+            return Mono.just(new Pair<>(new ArrayList<>(), null));
+
+        return Flux.fromIterable(ids)
+                .filter(Objects::nonNull)
+                .concatMap(id -> findByFileSystemId(id, fields, true)
+                        .switchIfEmpty(Mono.error(() -> new FileSystemItemCouldNotBeDownloadedException(DOWNLOAD_NOT_ALLOWED_MSG))))
+                .map(entity -> {
+                    if (!fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(entity, authenticatedUser, InteractionType.READ))
+                        throw new FileSystemItemCouldNotBeDownloadedException(DOWNLOAD_NOT_ALLOWED_MSG);
+                    return entity;
+                })
+                .collectList()
+                .flatMap(checkedEntities -> {
+                    boolean allEntitiesAreInRoot = checkedEntities.stream().allMatch(entity -> !entity.isFile() && entity.getPath().equals("/"));
+
+                    Mono<String> zipName;
+                    Flux<Pair<FileSystemEntity, String>> files;
+                    if (checkedEntities.size() == 1) {
+                        FileSystemEntity currentEntity = checkedEntities.get(0);
+                        zipName = getNameOfZipWhenOnlyOneEntityNeedsToBeDownloaded(currentEntity, allEntitiesAreInRoot);
+                        files = getContentsOfFolderRecursivly(currentEntity, authenticatedUser, "", false, fields);
+                    } else {
+                        zipName = getNameOfZipWhenMultipleEntitiesNeedToBeDownloaded(checkedEntities, allEntitiesAreInRoot);
+                        files = Flux.fromIterable(checkedEntities)
+                                .concatMap(entity -> getContentsOfFolderRecursivly(entity, authenticatedUser, "", true, fields));
+                    }
+
+                    // the zip name can be null, so it is wrapped.
+                    return zipName.map(Optional::of).defaultIfEmpty(Optional.empty())
+                            .flatMap(name -> files.collectList()
+                                    .flatMap(filesWithPaths -> createDTOs(filesWithPaths, authenticatedUser, fields))
+                                    .map(fileSystemItems -> new Pair<>(fileSystemItems, name.orElse(null))));
+                });
+    }
+
+    private Flux<Pair<FileSystemEntity, String>> getContentsOfFolderRecursivly(FileSystemEntity currentEntity, User authenticatedUser, String relativePath, boolean multipleEntitiesInCurrentEntity, Set<FileSystemItemField> fields) {
+        if (currentEntity.isFile() || currentEntity.getTypeId() != FileSystemType.FOLDER.getId())
+            return Flux.just(new Pair<>(currentEntity, relativePath + currentEntity.getName()));
+
+        if (currentEntity.getItemIds().length == 0)
+            return Flux.empty();
+
+        boolean currentRunIsTheFirst = relativePath.equals("");
+        boolean currentEntityIsInRoot = currentEntity.getPath().equals("/");
+
+        Mono<String> nextRelativePath;
+        if (!currentRunIsTheFirst) {
+            nextRelativePath = Mono.just(relativePath + currentEntity.getName() + "/");
+        } else if (!multipleEntitiesInCurrentEntity) {
+            nextRelativePath = Mono.just("");
+        } else if (currentEntityIsInRoot) {
+            nextRelativePath = getOwnerUsernameForEntity(currentEntity).map(username -> relativePath + username + "/");
+        } else {
+            nextRelativePath = Mono.just(relativePath + currentEntity.getName() + "/");
+        }
+
+        return getVisibleFolderContents(currentEntity, authenticatedUser, fields, true)
+                .flatMapMany(folderContents -> {
+                    if (folderContents.isEmpty())
+                        return Flux.error(new FileFighterDataException("Found no children for FileSystemEntity with id " + currentEntity.getFileSystemId()));
+
+                    return nextRelativePath.flatMapMany(nextPath -> Flux.fromIterable(folderContents)
+                            .concatMap(nextEntity -> getContentsOfFolderRecursivly(nextEntity, authenticatedUser, nextPath, folderContents.size() > 1, fields)));
+                });
+    }
+
+    private Mono<String> getNameOfZipWhenOnlyOneEntityNeedsToBeDownloaded(FileSystemEntity currentEntity, boolean allEntitiesAreInRoot) {
+        // if it is a file we dont need to set the header.
+        if (currentEntity.isFile())
+            return Mono.empty();
+
+        if (allEntitiesAreInRoot)
+            return getOwnerUsernameForEntity(currentEntity);
+
+        return Mono.just(currentEntity.getName());
+    }
+
+    private Mono<String> getNameOfZipWhenMultipleEntitiesNeedToBeDownloaded(List<FileSystemEntity> entities, boolean allEntitiesAreInRoot) {
+        if (allEntitiesAreInRoot) {
+            return Flux.fromIterable(entities)
+                    .concatMap(this::getOwnerUsernameForEntity)
+                    .distinct()
+                    .collect(Collectors.joining());
+        }
+
+        return Flux.fromIterable(entities)
+                .concatMap(this::getParentName)
+                .distinct()
+                .collectList()
+                .flatMap(parentNames -> {
+                    if (parentNames.size() != 1)
+                        return Mono.error(new FileSystemItemCouldNotBeDownloadedException("FileSystemEntity need to have a common parent entity."));
+
+                    return Mono.just(parentNames.get(0));
+                });
+    }
+
+    private Mono<String> getParentName(FileSystemEntity entity) {
+        // the root folders have no parent, so they get a empty name.
+        if (!entity.isFile() && entity.getPath().equals("/"))
+            return Mono.just("");
+
+        return reactiveFileSystemRepository.findByItemIdsContaining(entity.getFileSystemId())
+                .switchIfEmpty(Mono.error(() -> new FileFighterDataException("Couldn't find the parent of the fileSystemEntity with id " + entity.getFileSystemId())))
+                .flatMap(parent -> parent.getPath().equals("/") ? getOwnerUsernameForEntity(parent) : Mono.just(parent.getName()));
+    }
+
+    private Mono<String> getOwnerUsernameForEntity(FileSystemEntity entity) {
+        return reactiveUserRepository.findAllByUserIdIn(Collections.singletonList(entity.getOwnerId()))
+                .next()
+                .map(UserEntity::getUsername)
+                .switchIfEmpty(Mono.error(() -> new FileFighterDataException("Owner for id " + entity.getOwnerId() + " could not be found.")));
+    }
+
+    /**
+     * Loads all children with one query and keeps the order of the item ids.
+     *
+     * @param withItemIds load the item ids too if only the selected fields are loaded, needed if the folder contents are loaded afterwards.
+     */
+    private Mono<List<FileSystemEntity>> getVisibleFolderContents(FileSystemEntity folder, User authenticatedUser, Set<FileSystemItemField> fields, boolean withItemIds) {
+        List<Long> itemIds = Arrays.stream(folder.getItemIds()).boxed().collect(Collectors.toList());
+        if (itemIds.isEmpty())
+            return Mono.just(new ArrayList<>());
+
+        return findAllByFileSystemIdIn(itemIds, fields, withItemIds)
+                .collectMap(FileSystemEntity::getFileSystemId)
+                .flatMap(children -> {
+                    List<FileSystemEntity> visibleChildren = new ArrayList<>(itemIds.size());
+                    for (long fileSystemId : itemIds) {
+                        FileSystemEntity child = children.get(fileSystemId);
+                        if (null == child)
+                            return Mono.error(new FileFighterDataException("FolderContents expected fileSystemItem with id " + fileSystemId + " but was empty."));
+
+                        if (fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(child, authenticatedUser, InteractionType.READ))
+                            visibleChildren.add(child);
+                    }
+                    return Mono.just(visibleChildren);
+                });
+    }
+
+    private Mono<List<FileSystemItem>> createDTOs(List<FileSystemEntity> entities, Function<FileSystemEntity, String> pathOfEntity, User authenticatedUser, Set<FileSystemItemField> fields) {
+        List<Pair<FileSystemEntity, String>> entitiesWithPaths = entities.stream().map(entity -> new Pair<>(entity, pathOfEntity.apply(entity))).collect(Collectors.toList());
+        return createDTOs(entitiesWithPaths, authenticatedUser, fields);
+    }
+
+    private Mono<List<FileSystemItem>> createDTOs(List<Pair<FileSystemEntity, String>> entitiesWithPaths, User authenticatedUser, Set<FileSystemItemField> fields) {
+        List<FileSystemEntity> entities = entitiesWithPaths.stream().map(Pair::getFirst).collect(Collectors.toList());
+        boolean withOwners = null == fields || entitiesWithPaths.stream().anyMatch(pair -> fileSystemHelperService.needsOwnerForDTO(pair.getSecond(), fields));
+        boolean withLastUpdatedBy = null == fields || fields.contains(FileSystemItemField.LAST_UPDATED_BY);
+        return loadUsers(entities, withOwners, withLastUpdatedBy).map(users -> entitiesWithPaths.stream()
+                .map(pair -> createDTO(pair.getFirst(), users, authenticatedUser, pair.getSecond(), fields))
+                .collect(Collectors.toList()));
+    }
+
+    private FileSystemItem createDTO(FileSystemEntity entity, Map<Long, User> users, User authenticatedUser, String absolutePathWithUsername, Set<FileSystemItemField> fields) {
+        User owner = users.get(entity.getOwnerId());
+        User lastUpdatedBy = users.get(entity.getLastUpdatedBy());
+        if (null != fields)
+            return fileSystemHelperService.createDTO(entity, owner, lastUpdatedBy, authenticatedUser, absolutePathWithUsername, fields);
+
+        if (null == owner || null == lastUpdatedBy) {
+            log.debug("Found missing user in createDTO. Entity: {}.", entity);
+            throw new FileFighterDataException("Owner or auther of last change could not be found.");
+        }
+        return fileSystemHelperService.createDTO(entity, owner, lastUpdatedBy, authenticatedUser, absolutePathWithUsername);
+    }
+
+    /**
+     * Loads the owners and last editors of all entities with one query, only the ones that are needed for the selected fields.
+     */
+    private Mono<Map<Long, User>> loadUsers(List<FileSystemEntity> entities, boolean withOwners, boolean withLastUpdatedBy) {
+        Set<Long> userIds = new HashSet<>();
+        entities.forEach(entity -> {
+            if (withOwners)
+                userIds.add(entity.getOwnerId());
+            if (withLastUpdatedBy)
+                userIds.add(entity.getLastUpdatedBy());
+        });
+        if (userIds.isEmpty())
+            return Mono.just(new HashMap<>());
+
+        return reactiveUserRepository.findAllByUserIdIn(userIds)
+                .collectMap(UserEntity::getUserId, userDTOService::createDto);
+    }
+
+    private Mono<FileSystemEntity> findByFileSystemId(long fileSystemId, Set<FileSystemItemField> fields, boolean withItemIds) {
+        if (null == fields)
+            return reactiveFileSystemRepository.findByFileSystemId(fileSystemId);
+
+        Query query = new Query().addCriteria(Criteria.where("fileSystemId").is(fileSystemId));
+        return reactiveMongoTemplate.findOne(fileSystemHelperService.includeEntityFields(query, fields, withItemIds), FileSystemEntity.class);
+    }
+
+    private Flux<FileSystemEntity> findAllByFileSystemIdIn(List<Long> fileSystemIds, Set<FileSystemItemField> fields, boolean withItemIds) {
+        if (null == fields)
+            return reactiveFileSystemRepository.findAllByFileSystemIdIn(fileSystemIds);
+
+        Query query = new Query().addCriteria(Criteria.where("fileSystemId").in(fileSystemIds));
+        return reactiveMongoTemplate.find(fileSystemHelperService.includeEntityFields(query, fields, withItemIds), FileSystemEntity.class);
+    }
+
+    private Flux<FileSystemEntity> findAllByNameContainingIgnoreCase(String name, Set<FileSystemItemField> fields) {
+        if (null == fields)
+            return reactiveFileSystemRepository.findAllByNameContainingIgnoreCase(name);
+
+        Query query = new Query().addCriteria(Criteria.where("name").regex(Pattern.quote(name), "i"));
+        return reactiveMongoTemplate.find(fileSystemHelperService.includeEntityFields(query, fields, false), FileSystemEntity.class);
+    }
+}
@@ -0,0 +1,69 @@
+package de.filefighter.rest.domain.filesystem.data;
+
+import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+
+import java.util.*;
+
+/**
+ * Fields of a {@link de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem} that can be requested with the fields parameter.
+ */
+public enum FileSystemItemField {
+    FILE_SYSTEM_ID("fileSystemId"),
+    PATH("path"),
+    NAME("name"),
+    SHARED("shared"),
+    SIZE("size", "size"),
+    OWNER("owner"),
+    LAST_UPDATED_BY("lastUpdatedBy", "lastUpdatedBy"),
+    LAST_UPDATED("lastUpdated", "lastUpdated"),
+    TYPE("type"),
+    MIME_TYPE("mimeType", "mimeType");
+
+    // needed for the permission checks and the paths, so they are always loaded.
+    public static final List<String> REQUIRED_ENTITY_FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "fileSystemId", "name", "path", "typeId", "isFile", "ownerId",
+            "visibleForUserIds", "visibleForGroupIds", "editableForUserIds", "editableFoGroupIds"));
+
+    private final String jsonName;
+    private final String[] entityFields;
+
+    FileSystemItemField(String jsonName, String... entityFields) {
+        this.jsonName = jsonName;
+        this.entityFields = entityFields;
+    }
+
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * @return the fields of the entity that need to be loaded additionally to the {@link #REQUIRED_ENTITY_FIELDS}.
+     */
+    public String[] getEntityFields() {
+        return entityFields;
+    }
+
+    /**
+     * @param fields comma separated names of the fields, as they are named in the json.
+     * @throws RequestDidntMeetFormalRequirementsException if a name is unknown or no field was selected.
+     */
+    public static Set<FileSystemItemField> parseFields(String fields) {
+        Set<FileSystemItemField> selectedFields = EnumSet.noneOf(FileSystemItemField.class);
+        for (String name : fields.split(",")) {
+            String trimmedName = name.trim();
+            if (trimmedName.isEmpty())
+                continue;
+
+            FileSystemItemField field = Arrays.stream(values())
+                    .filter(value -> value.jsonName.equals(trimmedName))
+                    .findFirst()
+                    .orElseThrow(() -> new RequestDidntMeetFormalRequirementsException("Fields contained a unknown field."));
+            selectedFields.add(field);
+        }
+
+        if (selectedFields.isEmpty())
+            throw new RequestDidntMeetFormalRequirementsException("Fields did not contain any field.");
+
+        return selectedFields;
+    }
+}
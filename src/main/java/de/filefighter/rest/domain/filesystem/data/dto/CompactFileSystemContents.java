@@ -0,0 +1,17 @@
+package de.filefighter.rest.domain.filesystem.data.dto;
+
+import de.filefighter.rest.domain.user.data.dto.User;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Builder
+@Data
+public class CompactFileSystemContents {
+
+    private List<CompactFileSystemItem> items;
+    private Map<Long, User> users;
+
+}
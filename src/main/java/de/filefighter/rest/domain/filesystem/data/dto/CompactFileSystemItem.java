@@ -0,0 +1,26 @@
+package de.filefighter.rest.domain.filesystem.data.dto;
+
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * {@link FileSystemItem} that only references the users by their id, the users are sent once in the {@link CompactFileSystemContents}.
+ */
+@Builder
+@Data
+public class CompactFileSystemItem {
+
+    @Builder.Default
+    private long fileSystemId = -1;
+    private String path;
+    private String name;
+    private boolean isShared;
+    private double size;
+    private long ownerId;
+    private long lastUpdatedById;
+    private long lastUpdated;
+    private FileSystemType type;
+    private String mimeType;
+
+}
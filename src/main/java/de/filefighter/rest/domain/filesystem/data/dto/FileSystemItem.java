@@ -1,5 +1,6 @@
 package de.filefighter.rest.domain.filesystem.data.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import de.filefighter.rest.domain.filesystem.type.FileSystemType;
 import de.filefighter.rest.domain.user.data.dto.User;
 import lombok.Builder;
@@ -7,8 +8,11 @@ import lombok.Data;
 
 @Builder
 @Data
+@JsonFilter(FileSystemItem.FIELDS_FILTER)
 public class FileSystemItem {
 
+    public static final String FIELDS_FILTER = "fileSystemItemFields";
+
     @Builder.Default
     private long fileSystemId = -1;
     private String path;
@@ -2,11 +2,14 @@ package de.filefighter.rest.domain.filesystem.data.persistence;
 
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
 @Data
 @Document(collection = "filesystem")
+// a owner can only have one folder per path, files do not have a path.
+@CompoundIndex(name = "folder_path_per_owner", def = "{'ownerId': 1, 'path': 1}", unique = true, partialFilter = "{'isFile': false}")
 @Builder
 public class FileSystemEntity {
 
@@ -37,5 +40,7 @@ public class FileSystemEntity {
     private long[] editableForUserIds = new long[0];
     @Builder.Default
     private long[] itemIds = new long[0];
+    private long version; // Incremented by conditional updates only, see FileSystemHelperService#updateFileSystemEntityIfUnchanged.
+    private long changes; // Incremented with every change of the entity or its contents, part of the etag. Never checked, so concurrent changes do not conflict.
 
 }
@@ -0,0 +1,21 @@
+package de.filefighter.rest.domain.filesystem.data.persistence;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Service
+public interface ReactiveFileSystemRepository extends ReactiveMongoRepository<FileSystemEntity, String> {
+    Mono<FileSystemEntity> findByFileSystemId(long fileSystemId);
+
+    Flux<FileSystemEntity> findByPath(String path);
+
+    Flux<FileSystemEntity> findAllByFileSystemIdIn(Collection<Long> fileSystemIds);
+
+    Flux<FileSystemEntity> findAllByNameContainingIgnoreCase(String name);
+
+    Mono<FileSystemEntity> findByItemIdsContaining(long id);
+}
@@ -0,0 +1,135 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static de.filefighter.rest.configuration.RestConfiguration.FS_PATH_HEADER;
+
+/**
+ * Helps answering conditional requests with the etags created by the business services.
+ */
+final class ConditionalRequests {
+
+    static final String CONDITIONAL_REQUESTS_METRIC = "filefighter.conditional.requests";
+    static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    private ConditionalRequests() {
+        // Cannot be instantiated.
+    }
+
+    /**
+     * @param ifNoneMatch value of the If-None-Match header, can be null.
+     * @param eTag        current etag of the resource.
+     * @return true if the client already has the current version.
+     */
+    static boolean isNotModified(String ifNoneMatch, String eTag) {
+        if (null == ifNoneMatch || ifNoneMatch.isBlank())
+            return false;
+
+        boolean notModified = matchesAnyETag(ifNoneMatch, eTag);
+        // hit ratio of the client caches.
+        Metrics.counter(CONDITIONAL_REQUESTS_METRIC, "result", notModified ? "hit" : "miss").increment();
+        return notModified;
+    }
+
+    private static boolean matchesAnyETag(String ifNoneMatch, String eTag) {
+        for (String clientETag : ifNoneMatch.split(",")) {
+            clientETag = clientETag.trim();
+            if (clientETag.equals("*"))
+                return true;
+
+            // If-None-Match uses the weak comparison.
+            if (clientETag.startsWith("W/"))
+                clientETag = clientETag.substring(2);
+
+            if (clientETag.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Different representations of the same resource need different strong etags.
+     */
+    static String createETagOfVariant(String eTag, String variant) {
+        return eTag.substring(0, eTag.length() - 1) + "-" + variant + "\"";
+    }
+
+    /**
+     * @param fields selected fields, null if the whole items are sent.
+     */
+    static String createETagOfFieldsVariant(String eTag, Set<FileSystemItemField> fields) {
+        if (null == fields)
+            return eTag;
+
+        return createETagOfVariant(eTag, fields.stream().map(FileSystemItemField::getJsonName).collect(Collectors.joining(".")));
+    }
+
+    /**
+     * Cbor and smile are other representations than json, so they get their own etags.
+     * Follows the content negotiation, json is sent if the client accepts it or everything.
+     *
+     * @param accept value of the Accept header, can be null.
+     */
+    static String createETagOfMediaTypeVariant(String eTag, String accept) {
+        if (null == accept || accept.isBlank())
+            return eTag;
+
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            // the request is rejected anyway.
+            return eTag;
+        }
+
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for (MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.getQualityValue() == 0)
+                continue;
+            if (acceptedType.includes(MediaType.APPLICATION_JSON))
+                return eTag;
+            if (acceptedType.includes(MediaType.APPLICATION_CBOR))
+                return createETagOfVariant(eTag, "cbor");
+            if (acceptedType.includes(APPLICATION_SMILE))
+                return createETagOfVariant(eTag, "smile");
+        }
+        return eTag;
+    }
+
+    /**
+     * The responses depend on the user, so they can only be cached by the client and have to be revalidated every time.
+     */
+    static HttpHeaders createETagHeaders(String eTag) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag(eTag);
+        responseHeaders.setCacheControl(CacheControl.noCache().cachePrivate());
+        responseHeaders.setVary(Arrays.asList(HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, HttpHeaders.ACCEPT, FS_PATH_HEADER));
+        return responseHeaders;
+    }
+
+    static <T> ResponseEntity<T> createNotModifiedResponse(String eTag) {
+        return new ResponseEntity<>(createETagHeaders(eTag), HttpStatus.NOT_MODIFIED);
+    }
+
+    /**
+     * Answer to a HEAD request, 304 if the client already has the current version.
+     */
+    static ResponseEntity<Void> createHeadResponse(String ifNoneMatch, String eTag) {
+        if (isNotModified(ifNoneMatch, eTag))
+            return createNotModifiedResponse(eTag);
+
+        return new ResponseEntity<>(createETagHeaders(eTag), HttpStatus.OK);
+    }
+}
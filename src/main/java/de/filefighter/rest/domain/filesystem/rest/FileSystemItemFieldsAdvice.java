@@ -0,0 +1,49 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import de.filefighter.rest.configuration.JacksonConfiguration;
+import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Leaves out the fields of the {@link FileSystemItem FileSystemItems} that were not selected with the fields parameter.
+ */
+@ControllerAdvice(assignableTypes = {FileSystemReadRestController.class, ReactiveFileSystemReadRestController.class})
+public class FileSystemItemFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    static final String FIELDS_PARAMETER = "fields";
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType, MethodParameter returnType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest))
+            return;
+
+        String fields = ((ServletServerHttpRequest) request).getServletRequest().getParameter(FIELDS_PARAMETER);
+        if (null == fields)
+            return;
+
+        Set<FileSystemItemField> selectedFields;
+        try {
+            selectedFields = FileSystemItemField.parseFields(fields);
+        } catch (RequestDidntMeetFormalRequirementsException ex) {
+            // the rest service already answered with the error, that body stays untouched.
+            return;
+        }
+
+        Set<String> jsonNames = selectedFields.stream().map(FileSystemItemField::getJsonName).collect(Collectors.toSet());
+        bodyContainer.setFilters(JacksonConfiguration.createDefaultFilters()
+                .addFilter(FileSystemItem.FIELDS_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(jsonNames)));
+    }
+}
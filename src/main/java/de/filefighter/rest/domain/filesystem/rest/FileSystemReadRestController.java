@@ -0,0 +1,142 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static de.filefighter.rest.configuration.RestConfiguration.*;
+
+/**
+ * Read endpoints of the filesystem. Replaced by the {@link ReactiveFileSystemReadRestController} if filefighter.reactive-file-system-reads is set.
+ */
+@Log4j2
+@RestController
+@Tag(name = "FileSystem", description = "FileSystem Controller")
+@RequestMapping(BASE_API_URI)
+@ConditionalOnProperty(prefix = "filefighter", name = "reactive-file-system-reads", havingValue = "false", matchIfMissing = true)
+public class FileSystemReadRestController {
+
+    private final FileSystemRestServiceInterface fileSystemRestService;
+
+    public FileSystemReadRestController(FileSystemRestServiceInterface fileSystemRestService) {
+        this.fileSystemRestService = fileSystemRestService;
+    }
+
+    @GetMapping(FS_BASE_URI + "contents")
+    public ResponseEntity<List<FileSystemItem>> getContentsOfFolder(
+            @RequestHeader(value = FS_PATH_HEADER, defaultValue = "/") String path,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(value = "Authorization") String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        log.debug("Requested Folder contents of folder with path {}.", path);
+        return fileSystemRestService.getContentsOfFolderByPathAndAccessToken(path, accessToken, fields, ifNoneMatch, accept);
+    }
+
+    @GetMapping(value = FS_BASE_URI + "contents", params = "compact=true")
+    public ResponseEntity<CompactFileSystemContents> getCompactContentsOfFolder(
+            @RequestHeader(value = FS_PATH_HEADER, defaultValue = "/") String path,
+            @RequestHeader(value = "Authorization") String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        log.debug("Requested compact Folder contents of folder with path {}.", path);
+        return fileSystemRestService.getCompactContentsOfFolderByPathAndAccessToken(path, accessToken, ifNoneMatch, accept);
+    }
+
+    /**
+     * Same as the compact parameter, for clients that select the representation with the Accept header.
+     */
+    @GetMapping(value = FS_BASE_URI + "contents", produces = FS_COMPACT_CONTENTS_MEDIA_TYPE)
+    public ResponseEntity<CompactFileSystemContents> getCompactContentsOfFolderByMediaType(
+            @RequestHeader(value = FS_PATH_HEADER, defaultValue = "/") String path,
+            @RequestHeader(value = "Authorization") String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        return getCompactContentsOfFolder(path, accessToken, ifNoneMatch, accept);
+    }
+
+    @RequestMapping(value = FS_BASE_URI + "contents", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getETagOfContentsOfFolder(
+            @RequestHeader(value = FS_PATH_HEADER, defaultValue = "/") String path,
+            @RequestParam(name = "compact", defaultValue = "false") boolean compact,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(value = "Authorization") String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        log.debug("Requested etag of the contents of folder with path {}.", path);
+        return fileSystemRestService.getETagOfFolderContentsByPathAndAccessToken(path, accessToken, compact || FileSystemRestService.acceptsCompactContents(accept), fields, ifNoneMatch, accept);
+    }
+
+    @GetMapping(FS_BASE_URI + "{fsItemId}/info")
+    public ResponseEntity<FileSystemItem> getFileOrFolderInfo(
+            @PathVariable long fsItemId,
+            @RequestParam(name = "fields", required = false) String fields,
+            @CookieValue(name = AUTHORIZATION_ACCESS_TOKEN_COOKIE, required = false) String cookieValue,
+            @RequestHeader(value = "Authorization", required = false) String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        log.debug("Requested information about FileSystemItem with id {}.", fsItemId);
+        log.debug("Header was {}, Cookie was {}", accessToken, cookieValue);
+        return fileSystemRestService.getInfoAboutFileOrFolderByIdAndAccessToken(fsItemId, new Pair<>(cookieValue, accessToken), fields, ifNoneMatch, accept);
+    }
+
+    @RequestMapping(value = FS_BASE_URI + "{fsItemId}/info", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getETagOfFileOrFolderInfo(
+            @PathVariable long fsItemId,
+            @RequestParam(name = "fields", required = false) String fields,
+            @CookieValue(name = AUTHORIZATION_ACCESS_TOKEN_COOKIE, required = false) String cookieValue,
+            @RequestHeader(value = "Authorization", required = false) String accessToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
+    ) {
+
+        log.debug("Requested etag of FileSystemItem with id {}.", fsItemId);
+        log.debug("Header was {}, Cookie was {}", accessToken, cookieValue);
+        return fileSystemRestService.getETagOfFileOrFolderByIdAndAccessToken(fsItemId, new Pair<>(cookieValue, accessToken), fields, ifNoneMatch, accept);
+    }
+
+    @GetMapping(FS_BASE_URI + "search")
+    public Mono<ResponseEntity<List<FileSystemItem>>> searchFileOrFolderByName(
+            @RequestParam(name = "name", defaultValue = "name") String name,
+            @RequestParam(name = "fields", required = false) String fields,
+            @RequestHeader(value = "Authorization") String accessToken
+    ) {
+
+        log.debug("Searching for file or folder with name {} decoded: ({})", () -> name, () -> URLDecoder.decode(name, StandardCharsets.UTF_8));
+        return fileSystemRestService.findFileOrFolderByNameAndAccessToken(name, accessToken, fields);
+    }
+
+    @GetMapping(FS_BASE_URI + "download")
+    public Mono<ResponseEntity<List<FileSystemItem>>> downloadFileOrFolder(
+            @RequestParam(name = "ids") List<Long> ids,
+            @RequestParam(name = "fields", required = false) String fields,
+            @CookieValue(name = AUTHORIZATION_ACCESS_TOKEN_COOKIE, required = false) String cookieValue,
+            @RequestHeader(value = "Authorization", required = false) String accessToken
+    ) {
+
+        log.debug("Tried downloading FileSystemEntities with the ids {}", ids);
+        log.debug("Header was {}, Cookie was {}", accessToken, cookieValue);
+        return fileSystemRestService.downloadFileSystemEntity(ids, new Pair<>(cookieValue, accessToken), fields);
+    }
+}
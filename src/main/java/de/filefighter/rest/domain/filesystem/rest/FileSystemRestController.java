@@ -1,6 +1,5 @@
 package de.filefighter.rest.domain.filesystem.rest;
 
-import de.filefighter.rest.domain.common.Pair;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItemUpdate;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.CreateNewFolder;
@@ -10,9 +9,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static de.filefighter.rest.configuration.RestConfiguration.*;
@@ -29,50 +27,6 @@ public class FileSystemRestController {
         this.fileSystemRestService = fileSystemRestService;
     }
 
-    @GetMapping(FS_BASE_URI + "contents")
-    public ResponseEntity<List<FileSystemItem>> getContentsOfFolder(
-            @RequestHeader(value = FS_PATH_HEADER, defaultValue = "/") String path,
-            @RequestHeader(value = "Authorization") String accessToken
-    ) {
-
-        log.info("Requested Folder contents of folder with path {}.", path);
-        return fileSystemRestService.getContentsOfFolderByPathAndAccessToken(path, accessToken);
-    }
-
-    @GetMapping(FS_BASE_URI + "{fsItemId}/info")
-    public ResponseEntity<FileSystemItem> getFileOrFolderInfo(
-            @PathVariable long fsItemId,
-            @CookieValue(name = AUTHORIZATION_ACCESS_TOKEN_COOKIE, required = false) String cookieValue,
-            @RequestHeader(value = "Authorization", required = false) String accessToken
-    ) {
-
-        log.info("Requested information about FileSystemItem with id {}.", fsItemId);
-        log.debug("Header was {}, Cookie was {}", accessToken, cookieValue);
-        return fileSystemRestService.getInfoAboutFileOrFolderByIdAndAccessToken(fsItemId, new Pair<>(cookieValue, accessToken));
-    }
-
-    @GetMapping(FS_BASE_URI + "search")
-    public ResponseEntity<List<FileSystemItem>> searchFileOrFolderByName(
-            @RequestParam(name = "name", defaultValue = "name") String name,
-            @RequestHeader(value = "Authorization") String accessToken
-    ) {
-
-        log.info("Searching for file or folder with name {} decoded: ({})", name, URLDecoder.decode(name, StandardCharsets.UTF_8));
-        return fileSystemRestService.findFileOrFolderByNameAndAccessToken(name, accessToken);
-    }
-
-    @GetMapping(FS_BASE_URI + "download")
-    public ResponseEntity<List<FileSystemItem>> downloadFileOrFolder(
-            @RequestParam(name = "ids") List<Long> ids,
-            @CookieValue(name = AUTHORIZATION_ACCESS_TOKEN_COOKIE, required = false) String cookieValue,
-            @RequestHeader(value = "Authorization", required = false) String accessToken
-    ) {
-
-        log.info("Tried downloading FileSystemEntities with the ids {}", ids);
-        log.debug("Header was {}, Cookie was {}", accessToken, cookieValue);
-        return fileSystemRestService.downloadFileSystemEntity(ids, new Pair<>(cookieValue, accessToken));
-    }
-
     @PostMapping(FS_BASE_URI + "{fsItemId}/folder/create")
     public ResponseEntity<FileSystemItem> createNewFolder(
             @PathVariable long fsItemId,
@@ -80,7 +34,7 @@ public class FileSystemRestController {
             @RequestHeader(value = "Authorization") String accessToken
     ) {
 
-        log.info("Tried creating new Folder {}", newFolder);
+        log.debug("Tried creating new Folder {}", newFolder);
         return fileSystemRestService.createNewFolder(fsItemId, newFolder, accessToken);
     }
 
@@ -91,7 +45,7 @@ public class FileSystemRestController {
             @RequestHeader(value = "Authorization") String accessToken
     ) {
 
-        log.info("Tried uploading new FileSystemUpload {}", fileSystemUpload);
+        log.debug("Tried uploading new FileSystemUpload {}", fileSystemUpload);
         return fileSystemRestService.uploadFileSystemItemWithAccessToken(fsItemId, fileSystemUpload, accessToken);
     }
 
@@ -102,7 +56,7 @@ public class FileSystemRestController {
             @RequestHeader(value = "Authorization") String accessToken
     ) {
 
-        log.info("Preflight for {} in id {}.", fileSystemUpload, fsItemId);
+        log.debug("Preflight for {} in id {}.", fileSystemUpload, fsItemId);
         return fileSystemRestService.preflightUploadOfFileSystemItem(fsItemId, fileSystemUpload, accessToken);
     }
 
@@ -113,17 +67,17 @@ public class FileSystemRestController {
             @RequestHeader(value = "Authorization") String accessToken
     ) {
 
-        log.info("Tried updating FileSystemItem {} with {}.", fsItemId, fileSystemItemUpdate);
+        log.debug("Tried updating FileSystemItem {} with {}.", fsItemId, fileSystemItemUpdate);
         return fileSystemRestService.updateFileSystemItemWithIdAndAccessToken(fsItemId, fileSystemItemUpdate, accessToken);
     }
 
     @DeleteMapping(FS_BASE_URI + "{fsItemId}/delete")
-    public ResponseEntity<List<FileSystemItem>> deleteFileOrFolder(
+    public Mono<ResponseEntity<List<FileSystemItem>>> deleteFileOrFolder(
             @PathVariable long fsItemId,
             @RequestHeader(value = "Authorization") String accessToken
     ) {
 
-        log.info("Tried deleting FileSystemItem with id {}", fsItemId);
+        log.debug("Tried deleting FileSystemItem with id {}", fsItemId);
         return fileSystemRestService.deleteFileSystemItemWithIdAndAccessToken(fsItemId, accessToken);
     }
 }
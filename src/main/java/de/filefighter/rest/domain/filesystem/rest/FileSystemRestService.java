@@ -4,8 +4,11 @@ import de.filefighter.rest.configuration.RestConfiguration;
 import de.filefighter.rest.domain.authentication.AuthenticationService;
 import de.filefighter.rest.domain.common.InputSanitizerService;
 import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.common.concurrency.Bulkheads;
 import de.filefighter.rest.domain.filesystem.business.FileSystemBusinessService;
 import de.filefighter.rest.domain.filesystem.business.FileSystemUploadService;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItemUpdate;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.CreateNewFolder;
@@ -14,54 +17,149 @@ import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUploadPre
 import de.filefighter.rest.domain.user.data.dto.User;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class FileSystemRestService implements FileSystemRestServiceInterface {
 
+    static final String COMPACT_VARIANT = "compact";
+    static final MediaType COMPACT_CONTENTS_MEDIA_TYPE = MediaType.valueOf(RestConfiguration.FS_COMPACT_CONTENTS_MEDIA_TYPE);
+
     private final FileSystemBusinessService fileSystemBusinessService;
     private final AuthenticationService authenticationService;
     private final InputSanitizerService inputSanitizerService;
     private final FileSystemUploadService fileSystemUploadService;
+    private final Bulkheads bulkheads;
 
-    public FileSystemRestService(FileSystemBusinessService fileSystemBusinessService, AuthenticationService authenticationService, InputSanitizerService inputSanitizerService, FileSystemUploadService fileSystemUploadService) {
+    public FileSystemRestService(FileSystemBusinessService fileSystemBusinessService, AuthenticationService authenticationService, InputSanitizerService inputSanitizerService, FileSystemUploadService fileSystemUploadService, Bulkheads bulkheads) {
         this.fileSystemBusinessService = fileSystemBusinessService;
         this.authenticationService = authenticationService;
         this.inputSanitizerService = inputSanitizerService;
         this.fileSystemUploadService = fileSystemUploadService;
+        this.bulkheads = bulkheads;
     }
 
     @Override
-    public ResponseEntity<List<FileSystemItem>> getContentsOfFolderByPathAndAccessToken(String path, String accessTokenValue) {
+    public ResponseEntity<List<FileSystemItem>> getContentsOfFolderByPathAndAccessToken(String path, String accessTokenValue, String fields, String ifNoneMatch, String accept) {
         User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue);
         String cleanPathString = inputSanitizerService.sanitizePath(path);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+
+        // create the etag before the contents. If the folder changes in between the client only gets the new contents again next time.
+        String eTag = ConditionalRequests.createETagOfFieldsVariant(fileSystemBusinessService.getFolderContentsETag(cleanPathString, authenticatedUser), selectedFields);
+        eTag = ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept);
+        if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+            return ConditionalRequests.createNotModifiedResponse(eTag);
+
+        Pair<List<FileSystemItem>, Long> folderContents = null == selectedFields
+                ? fileSystemBusinessService.getFolderContentsByPath(cleanPathString, authenticatedUser)
+                : fileSystemBusinessService.getFolderContentsByPath(cleanPathString, authenticatedUser, selectedFields);
+        return new ResponseEntity<>(folderContents.getFirst(), createFolderContentsHeaders(eTag, folderContents.getSecond()), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<CompactFileSystemContents> getCompactContentsOfFolderByPathAndAccessToken(String path, String accessTokenValue, String ifNoneMatch, String accept) {
+        User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue);
+        String cleanPathString = inputSanitizerService.sanitizePath(path);
+
+        String eTag = ConditionalRequests.createETagOfVariant(fileSystemBusinessService.getFolderContentsETag(cleanPathString, authenticatedUser), COMPACT_VARIANT);
+        eTag = ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept);
+        if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+            return ConditionalRequests.createNotModifiedResponse(eTag);
 
-        Pair<List<FileSystemItem>, Long> folderContents = fileSystemBusinessService.getFolderContentsByPath(cleanPathString, authenticatedUser);
-        HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set("Access-Control-Expose-Headers", RestConfiguration.FS_CURRENT_ID_HEADER);
-        responseHeaders.set(RestConfiguration.FS_CURRENT_ID_HEADER, folderContents.getSecond().toString());
-        return new ResponseEntity<>(folderContents.getFirst(), responseHeaders, HttpStatus.OK);
+        Pair<CompactFileSystemContents, Long> folderContents = fileSystemBusinessService.getCompactFolderContentsByPath(cleanPathString, authenticatedUser);
+        return new ResponseEntity<>(folderContents.getFirst(), createFolderContentsHeaders(eTag, folderContents.getSecond()), HttpStatus.OK);
     }
 
     @Override
-    public ResponseEntity<FileSystemItem> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> accessTokenValueOrHeader) {
+    public ResponseEntity<Void> getETagOfFolderContentsByPathAndAccessToken(String path, String accessTokenValue, boolean compact, String fields, String ifNoneMatch, String accept) {
+        User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue);
+        String cleanPathString = inputSanitizerService.sanitizePath(path);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+
+        String eTag = fileSystemBusinessService.getFolderContentsETag(cleanPathString, authenticatedUser);
+        // the compact listing does not support the fields.
+        eTag = compact ? ConditionalRequests.createETagOfVariant(eTag, COMPACT_VARIANT) : ConditionalRequests.createETagOfFieldsVariant(eTag, selectedFields);
+        return ConditionalRequests.createHeadResponse(ifNoneMatch, ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept));
+    }
+
+    /**
+     * @return the selected fields, or null if the parameter was not set and the whole items are sent.
+     */
+    static Set<FileSystemItemField> parseFields(String fields) {
+        return null == fields ? null : FileSystemItemField.parseFields(fields);
+    }
+
+    /**
+     * @param accept value of the Accept header, can be null.
+     * @return true if the client asked for the compact contents by their media type.
+     */
+    static boolean acceptsCompactContents(String accept) {
+        if (null == accept || accept.isBlank())
+            return false;
+
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(mediaType -> mediaType.getQualityValue() > 0 && COMPACT_CONTENTS_MEDIA_TYPE.equalsTypeAndSubtype(mediaType));
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+    }
+
+    static HttpHeaders createFolderContentsHeaders(String eTag, long currentFolderId) {
+        HttpHeaders responseHeaders = ConditionalRequests.createETagHeaders(eTag);
+        responseHeaders.set("Access-Control-Expose-Headers", RestConfiguration.FS_CURRENT_ID_HEADER + ", " + HttpHeaders.ETAG);
+        responseHeaders.set(RestConfiguration.FS_CURRENT_ID_HEADER, Long.toString(currentFolderId));
+        return responseHeaders;
+    }
+
+    @Override
+    public ResponseEntity<FileSystemItem> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> accessTokenValueOrHeader, String fields, String ifNoneMatch, String accept) {
         User authenticatedUser = authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader);
-        return new ResponseEntity<>(fileSystemBusinessService.getFileSystemItemInfo(fsItemId, authenticatedUser), HttpStatus.OK);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+
+        String eTag = ConditionalRequests.createETagOfFieldsVariant(fileSystemBusinessService.getFileSystemItemInfoETag(fsItemId, authenticatedUser), selectedFields);
+        eTag = ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept);
+        if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+            return ConditionalRequests.createNotModifiedResponse(eTag);
+
+        FileSystemItem fileSystemItem = null == selectedFields
+                ? fileSystemBusinessService.getFileSystemItemInfo(fsItemId, authenticatedUser)
+                : fileSystemBusinessService.getFileSystemItemInfo(fsItemId, authenticatedUser, selectedFields);
+        return new ResponseEntity<>(fileSystemItem, ConditionalRequests.createETagHeaders(eTag), HttpStatus.OK);
     }
 
     @Override
-    public ResponseEntity<List<FileSystemItem>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> accessTokenValueOrHeader) {
+    public ResponseEntity<Void> getETagOfFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> accessTokenValueOrHeader, String fields, String ifNoneMatch, String accept) {
         User authenticatedUser = authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader);
-        Pair<List<FileSystemItem>, String> listStringPair = fileSystemBusinessService.downloadFileSystemEntity(fsItemIds, authenticatedUser);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+        String eTag = ConditionalRequests.createETagOfFieldsVariant(fileSystemBusinessService.getFileSystemItemInfoETag(fsItemId, authenticatedUser), selectedFields);
+        return ConditionalRequests.createHeadResponse(ifNoneMatch, ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<FileSystemItem>>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> accessTokenValueOrHeader, String fields) {
+        User authenticatedUser = authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+
+        return bulkheads.getDownload().execute(() -> {
+            Pair<List<FileSystemItem>, String> listStringPair = null == selectedFields
+                    ? fileSystemBusinessService.downloadFileSystemEntity(fsItemIds, authenticatedUser)
+                    : fileSystemBusinessService.downloadFileSystemEntity(fsItemIds, authenticatedUser, selectedFields);
 
-        HttpHeaders responseHeaders = new HttpHeaders();
-        responseHeaders.set(RestConfiguration.FS_DOWNLOAD_NAME_HEADER, listStringPair.getSecond());
-        return new ResponseEntity<>(listStringPair.getFirst(), responseHeaders, HttpStatus.OK);
+            HttpHeaders responseHeaders = new HttpHeaders();
+            responseHeaders.set(RestConfiguration.FS_DOWNLOAD_NAME_HEADER, listStringPair.getSecond());
+            return new ResponseEntity<>(listStringPair.getFirst(), responseHeaders, HttpStatus.OK);
+        });
     }
 
     @Override
@@ -92,18 +190,24 @@ public class FileSystemRestService implements FileSystemRestServiceInterface {
     }
 
     @Override
-    public ResponseEntity<List<FileSystemItem>> deleteFileSystemItemWithIdAndAccessToken(long fsItemId, String accessTokenValue) {
+    public Mono<ResponseEntity<List<FileSystemItem>>> deleteFileSystemItemWithIdAndAccessToken(long fsItemId, String accessTokenValue) {
         User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue);
-        return new ResponseEntity<>(fileSystemBusinessService.deleteFileSystemItemById(fsItemId, authenticatedUser), HttpStatus.OK);
+        return bulkheads.getDelete().execute(() ->
+                new ResponseEntity<>(fileSystemBusinessService.deleteFileSystemItemById(fsItemId, authenticatedUser), HttpStatus.OK));
     }
 
     @Override
-    public ResponseEntity<List<FileSystemItem>> findFileOrFolderByNameAndAccessToken(String name, String accessToken) {
+    public Mono<ResponseEntity<List<FileSystemItem>>> findFileOrFolderByNameAndAccessToken(String name, String accessToken, String fields) {
         User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessToken);
-        String sanitizedSearch = inputSanitizerService.sanitizeString(name);
-        sanitizedSearch = URLDecoder.decode(sanitizedSearch, StandardCharsets.UTF_8);
-
-        return new ResponseEntity<>(fileSystemBusinessService.searchFileSystemEntity(sanitizedSearch, authenticatedUser), HttpStatus.OK);
+        String sanitizedSearch = URLDecoder.decode(inputSanitizerService.sanitizeString(name), StandardCharsets.UTF_8);
+        Set<FileSystemItemField> selectedFields = parseFields(fields);
+
+        return bulkheads.getSearch().execute(() -> {
+            List<FileSystemItem> foundItems = null == selectedFields
+                    ? fileSystemBusinessService.searchFileSystemEntity(sanitizedSearch, authenticatedUser)
+                    : fileSystemBusinessService.searchFileSystemEntity(sanitizedSearch, authenticatedUser, selectedFields);
+            return new ResponseEntity<>(foundItems, HttpStatus.OK);
+        });
     }
 
     @Override
@@ -1,21 +1,29 @@
 package de.filefighter.rest.domain.filesystem.rest;
 
 import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItemUpdate;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.CreateNewFolder;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUpload;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUploadPreflightResponse;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 public interface FileSystemRestServiceInterface {
-    ResponseEntity<List<FileSystemItem>> getContentsOfFolderByPathAndAccessToken(String path, String accessToken);
+    ResponseEntity<List<FileSystemItem>> getContentsOfFolderByPathAndAccessToken(String path, String accessToken, String fields, String ifNoneMatch, String accept);
 
-    ResponseEntity<FileSystemItem> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> authPair);
+    ResponseEntity<CompactFileSystemContents> getCompactContentsOfFolderByPathAndAccessToken(String path, String accessToken, String ifNoneMatch, String accept);
 
-    ResponseEntity<List<FileSystemItem>> findFileOrFolderByNameAndAccessToken(String name, String accessToken);
+    ResponseEntity<Void> getETagOfFolderContentsByPathAndAccessToken(String path, String accessToken, boolean compact, String fields, String ifNoneMatch, String accept);
+
+    ResponseEntity<FileSystemItem> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> authPair, String fields, String ifNoneMatch, String accept);
+
+    ResponseEntity<Void> getETagOfFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> authPair, String fields, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<List<FileSystemItem>>> findFileOrFolderByNameAndAccessToken(String name, String accessToken, String fields);
 
     ResponseEntity<List<FileSystemItem>> uploadFileSystemItemWithAccessToken(long rootItemId, FileSystemUpload fileSystemUpload, String accessToken);
 
@@ -23,9 +31,9 @@ public interface FileSystemRestServiceInterface {
 
     ResponseEntity<FileSystemItem> updateFileSystemItemWithIdAndAccessToken(long fsItemId, FileSystemItemUpdate fileSystemItemUpdate, String accessToken);
 
-    ResponseEntity<List<FileSystemItem>> deleteFileSystemItemWithIdAndAccessToken(long fsItemId, String accessToken);
+    Mono<ResponseEntity<List<FileSystemItem>>> deleteFileSystemItemWithIdAndAccessToken(long fsItemId, String accessToken);
 
-    ResponseEntity<List<FileSystemItem>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> authPair);
+    Mono<ResponseEntity<List<FileSystemItem>>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> authPair, String fields);
 
     ResponseEntity<FileSystemItem> createNewFolder(long parentId, CreateNewFolder newFolder, String accessToken);
 }
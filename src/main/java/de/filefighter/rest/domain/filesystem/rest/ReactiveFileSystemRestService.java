@@ -0,0 +1,145 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.configuration.RestConfiguration;
+import de.filefighter.rest.domain.authentication.AuthenticationService;
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.filesystem.business.ReactiveFileSystemBusinessService;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.user.data.dto.User;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+@Service
+@ConditionalOnProperty(prefix = "filefighter", name = "reactive-file-system-reads", havingValue = "true")
+public class ReactiveFileSystemRestService implements ReactiveFileSystemRestServiceInterface {
+
+    private final ReactiveFileSystemBusinessService reactiveFileSystemBusinessService;
+    private final AuthenticationService authenticationService;
+    private final InputSanitizerService inputSanitizerService;
+
+    public ReactiveFileSystemRestService(ReactiveFileSystemBusinessService reactiveFileSystemBusinessService, AuthenticationService authenticationService, InputSanitizerService inputSanitizerService) {
+        this.reactiveFileSystemBusinessService = reactiveFileSystemBusinessService;
+        this.authenticationService = authenticationService;
+        this.inputSanitizerService = inputSanitizerService;
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<FileSystemItem>>> getContentsOfFolderByPathAndAccessToken(String path, String accessTokenValue, String fields, String ifNoneMatch, String accept) {
+        return authenticate(() -> authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue))
+                .flatMap(authenticatedUser -> {
+                    String cleanPathString = inputSanitizerService.sanitizePath(path);
+                    Set<FileSystemItemField> selectedFields = FileSystemRestService.parseFields(fields);
+
+                    // create the etag before the contents. If the folder changes in between the client only gets the new contents again next time.
+                    return reactiveFileSystemBusinessService.getFolderContentsETag(cleanPathString, authenticatedUser)
+                            .map(eTag -> ConditionalRequests.createETagOfMediaTypeVariant(ConditionalRequests.createETagOfFieldsVariant(eTag, selectedFields), accept))
+                            .flatMap(eTag -> {
+                                if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+                                    return Mono.just(ConditionalRequests.<List<FileSystemItem>>createNotModifiedResponse(eTag));
+
+                                return reactiveFileSystemBusinessService.getFolderContentsByPath(cleanPathString, authenticatedUser, selectedFields)
+                                        .map(folderContents -> new ResponseEntity<>(folderContents.getFirst(), FileSystemRestService.createFolderContentsHeaders(eTag, folderContents.getSecond()), HttpStatus.OK));
+                            });
+                });
+    }
+
+    @Override
+    public Mono<ResponseEntity<CompactFileSystemContents>> getCompactContentsOfFolderByPathAndAccessToken(String path, String accessTokenValue, String ifNoneMatch, String accept) {
+        return authenticate(() -> authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue))
+                .flatMap(authenticatedUser -> {
+                    String cleanPathString = inputSanitizerService.sanitizePath(path);
+
+                    return reactiveFileSystemBusinessService.getFolderContentsETag(cleanPathString, authenticatedUser)
+                            .map(eTag -> ConditionalRequests.createETagOfMediaTypeVariant(ConditionalRequests.createETagOfVariant(eTag, FileSystemRestService.COMPACT_VARIANT), accept))
+                            .flatMap(eTag -> {
+                                if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+                                    return Mono.just(ConditionalRequests.<CompactFileSystemContents>createNotModifiedResponse(eTag));
+
+                                return reactiveFileSystemBusinessService.getCompactFolderContentsByPath(cleanPathString, authenticatedUser)
+                                        .map(folderContents -> new ResponseEntity<>(folderContents.getFirst(), FileSystemRestService.createFolderContentsHeaders(eTag, folderContents.getSecond()), HttpStatus.OK));
+                            });
+                });
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> getETagOfFolderContentsByPathAndAccessToken(String path, String accessTokenValue, boolean compact, String fields, String ifNoneMatch, String accept) {
+        return authenticate(() -> authenticationService.bearerAuthenticationWithAccessToken(accessTokenValue))
+                .flatMap(authenticatedUser -> {
+                    Set<FileSystemItemField> selectedFields = FileSystemRestService.parseFields(fields);
+                    return reactiveFileSystemBusinessService.getFolderContentsETag(inputSanitizerService.sanitizePath(path), authenticatedUser)
+                            .map(eTag -> compact ? ConditionalRequests.createETagOfVariant(eTag, FileSystemRestService.COMPACT_VARIANT) : ConditionalRequests.createETagOfFieldsVariant(eTag, selectedFields));
+                })
+                .map(eTag -> ConditionalRequests.createHeadResponse(ifNoneMatch, ConditionalRequests.createETagOfMediaTypeVariant(eTag, accept)));
+    }
+
+    @Override
+    public Mono<ResponseEntity<FileSystemItem>> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> accessTokenValueOrHeader, String fields, String ifNoneMatch, String accept) {
+        return authenticate(() -> authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader))
+                .flatMap(authenticatedUser -> {
+                    Set<FileSystemItemField> selectedFields = FileSystemRestService.parseFields(fields);
+                    return reactiveFileSystemBusinessService.getFileSystemItemInfoETag(fsItemId, authenticatedUser)
+                            .map(eTag -> ConditionalRequests.createETagOfMediaTypeVariant(ConditionalRequests.createETagOfFieldsVariant(eTag, selectedFields), accept))
+                            .flatMap(eTag -> {
+                                if (ConditionalRequests.isNotModified(ifNoneMatch, eTag))
+                                    return Mono.just(ConditionalRequests.<FileSystemItem>createNotModifiedResponse(eTag));
+
+                                return reactiveFileSystemBusinessService.getFileSystemItemInfo(fsItemId, authenticatedUser, selectedFields)
+                                        .map(fileSystemItem -> new ResponseEntity<>(fileSystemItem, ConditionalRequests.createETagHeaders(eTag), HttpStatus.OK));
+                            });
+                });
+    }
+
+    @Override
+    public Mono<ResponseEntity<Void>> getETagOfFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> accessTokenValueOrHeader, String fields, String ifNoneMatch, String accept) {
+        return authenticate(() -> authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader))
+                .flatMap(authenticatedUser -> reactiveFileSystemBusinessService.getFileSystemItemInfoETag(fsItemId, authenticatedUser))
+                .map(eTag -> ConditionalRequests.createETagOfMediaTypeVariant(ConditionalRequests.createETagOfFieldsVariant(eTag, FileSystemRestService.parseFields(fields)), accept))
+                .map(eTag -> ConditionalRequests.createHeadResponse(ifNoneMatch, eTag));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<FileSystemItem>>> findFileOrFolderByNameAndAccessToken(String name, String accessToken, String fields) {
+        return authenticate(() -> authenticationService.bearerAuthenticationWithAccessToken(accessToken))
+                .flatMap(authenticatedUser -> {
+                    Set<FileSystemItemField> selectedFields = FileSystemRestService.parseFields(fields);
+                    String sanitizedSearch = inputSanitizerService.sanitizeString(name);
+                    sanitizedSearch = URLDecoder.decode(sanitizedSearch, StandardCharsets.UTF_8);
+                    return reactiveFileSystemBusinessService.searchFileSystemEntity(sanitizedSearch, authenticatedUser, selectedFields);
+                })
+                .map(fileSystemItems -> new ResponseEntity<>(fileSystemItems, HttpStatus.OK));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<FileSystemItem>>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> accessTokenValueOrHeader, String fields) {
+        return authenticate(() -> authenticationService.authenticateUserWithCookieOrHeader(accessTokenValueOrHeader))
+                .flatMap(authenticatedUser -> {
+                    return reactiveFileSystemBusinessService.downloadFileSystemEntity(fsItemIds, authenticatedUser, FileSystemRestService.parseFields(fields));
+                })
+                .map(listStringPair -> {
+                    HttpHeaders responseHeaders = new HttpHeaders();
+                    responseHeaders.set(RestConfiguration.FS_DOWNLOAD_NAME_HEADER, listStringPair.getSecond());
+                    return new ResponseEntity<>(listStringPair.getFirst(), responseHeaders, HttpStatus.OK);
+                });
+    }
+
+    /**
+     * The authentication is still blocking, so it runs on the bounded elastic scheduler and not on the request thread.
+     */
+    private Mono<User> authenticate(Callable<User> authentication) {
+        return Mono.fromCallable(authentication).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,25 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveFileSystemRestServiceInterface {
+    Mono<ResponseEntity<List<FileSystemItem>>> getContentsOfFolderByPathAndAccessToken(String path, String accessToken, String fields, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<CompactFileSystemContents>> getCompactContentsOfFolderByPathAndAccessToken(String path, String accessToken, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<Void>> getETagOfFolderContentsByPathAndAccessToken(String path, String accessToken, boolean compact, String fields, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<FileSystemItem>> getInfoAboutFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> authPair, String fields, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<Void>> getETagOfFileOrFolderByIdAndAccessToken(long fsItemId, Pair<String, String> authPair, String fields, String ifNoneMatch, String accept);
+
+    Mono<ResponseEntity<List<FileSystemItem>>> findFileOrFolderByNameAndAccessToken(String name, String accessToken, String fields);
+
+    Mono<ResponseEntity<List<FileSystemItem>>> downloadFileSystemEntity(List<Long> fsItemIds, Pair<String, String> authPair, String fields);
+}
@@ -29,7 +29,7 @@ public class PermissionRestController {
             @RequestHeader(value = "Authorization", defaultValue = AUTHORIZATION_BEARER_PREFIX + "token") String accessToken
     ) {
 
-        log.info("Requested PermissionSet for FileSystemItem {}", fsItemId);
+        log.debug("Requested PermissionSet for FileSystemItem {}", fsItemId);
         return permissionsRestService.getPermissionSetByIdAndToken(fsItemId, accessToken);
     }
 
@@ -41,7 +41,7 @@ public class PermissionRestController {
             @RequestHeader(value = "Authorization", defaultValue = AUTHORIZATION_BEARER_PREFIX + "token") String accessToken
     ) {
 
-        log.info("Requested new User or Group permissions {} for Id {}.", permissionRequest, fsItemId);
+        log.debug("Requested new User or Group permissions {} for Id {}.", permissionRequest, fsItemId);
         return permissionsRestService.addUsersOrGroupsToPermissionSetForFileOrFolderWithAccessToken(permissionRequest, fsItemId, accessToken);
     }
 
@@ -53,7 +53,7 @@ public class PermissionRestController {
             @RequestHeader(value = "Authorization", defaultValue = AUTHORIZATION_BEARER_PREFIX + "token") String accessToken
     ) {
 
-        log.info("Requested removal of User or Group permissions {} for Id {}.", permissionRequest, fsItemId);
+        log.debug("Requested removal of User or Group permissions {} for Id {}.", permissionRequest, fsItemId);
         return permissionsRestService.removeUsersOrGroupsFromPermissionSetForFileOrFolderWithAccessToken(permissionRequest, fsItemId, accessToken);
     }
 }
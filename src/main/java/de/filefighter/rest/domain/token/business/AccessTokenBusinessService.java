@@ -1,13 +1,26 @@
 package de.filefighter.rest.domain.token.business;
 
+import de.filefighter.rest.domain.common.SingleFlight;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
+import de.filefighter.rest.domain.token.data.persistence.UserSnapshot;
 import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserRepository;
+import de.filefighter.rest.domain.user.exceptions.UserNotFoundException;
 import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -18,47 +31,104 @@ public class AccessTokenBusinessService {
 
     private final AccessTokenRepository accessTokenRepository;
     private final AccessTokenDTOService accessTokenDtoService;
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final SingleFlight<Long, AccessToken> accessTokenIssuing = new SingleFlight<>();
 
     public static final long ACCESS_TOKEN_DURATION_IN_SECONDS = 3600L;
     public static final long ACCESS_TOKEN_SAFETY_MARGIN = 5L;
+    static final String USER_SNAPSHOT_FIELD = "user";
+    static final String FOUND_ACCESS_TOKEN_ATTRIBUTE = AccessTokenBusinessService.class.getName() + ".foundAccessToken";
 
-    public AccessTokenBusinessService(AccessTokenRepository accessTokenRepository, AccessTokenDTOService accessTokenDtoService) {
+    public AccessTokenBusinessService(AccessTokenRepository accessTokenRepository, AccessTokenDTOService accessTokenDtoService, MongoTemplate mongoTemplate, UserRepository userRepository) {
         this.accessTokenRepository = accessTokenRepository;
         this.accessTokenDtoService = accessTokenDtoService;
+        this.mongoTemplate = mongoTemplate;
+        this.userRepository = userRepository;
     }
 
     // basically auth with refresh token.
     public AccessToken getValidAccessTokenForUser(User user) {
         long userId = user.getUserId();
+        // clients with many tabs refresh at the same time, they all get the same token.
+        return accessTokenIssuing.execute(userId, () -> findOrRotateAccessToken(userId));
+    }
+
+    private AccessToken findOrRotateAccessToken(long userId) {
         AccessTokenEntity accessTokenEntity = accessTokenRepository.findByUserId(userId);
-        long currentTimeSeconds = Instant.now().getEpochSecond();
 
-        if (null == accessTokenEntity) {
-            accessTokenEntity = AccessTokenEntity
-                    .builder()
-                    .validUntil(currentTimeSeconds + ACCESS_TOKEN_DURATION_IN_SECONDS)
-                    .value(generateRandomTokenValue())
-                    .userId(userId)
-                    .build();
-            accessTokenEntity = accessTokenRepository.save(accessTokenEntity);
-        } else if (accessTokenIsInvalid(accessTokenEntity.getValidUntil())) {
-            log.debug("Deleting AccessToken for UserId {}, because its invalid now.", userId);
-            long deletedTokenAmount = accessTokenRepository.deleteByUserId(userId);
-            if (1L != deletedTokenAmount)
-                throw new FileFighterDataException("AccessToken for userId " + userId + " could not be deleted.");
-
-            accessTokenEntity = AccessTokenEntity
-                    .builder()
-                    .validUntil(currentTimeSeconds + ACCESS_TOKEN_DURATION_IN_SECONDS)
-                    .value(generateRandomTokenValue())
-                    .userId(userId)
-                    .build();
-            accessTokenEntity = accessTokenRepository.save(accessTokenEntity);
+        if (null == accessTokenEntity || accessTokenIsInvalid(accessTokenEntity.getValidUntil())) {
+            log.debug("Issuing a new AccessToken for UserId {}.", userId);
+            accessTokenEntity = rotateAccessToken(userId);
         }
 
+        // the snapshot stays when the token is rotated, so this only happens for the first token of a user.
+        if (null == accessTokenEntity.getUser())
+            accessTokenEntity.setUser(createUserSnapshot(userId));
+
         return accessTokenDtoService.createDto(accessTokenEntity);
     }
 
+    private UserSnapshot createUserSnapshot(long userId) {
+        UserEntity userEntity = userRepository.findByUserId(userId);
+        if (null == userEntity)
+            throw new UserNotFoundException(userId);
+
+        return updateUserSnapshot(userEntity);
+    }
+
+    /**
+     * Writes the username and the groups of the user into the token of the user, if it has no snapshot or an older one.
+     * Call it after every change of the username or the groups, together with incrementing the version of the user.
+     *
+     * @param userEntity user as it is in the db now.
+     * @return the new snapshot.
+     */
+    public UserSnapshot updateUserSnapshot(UserEntity userEntity) {
+        UserSnapshot userSnapshot = UserSnapshot
+                .builder()
+                .username(userEntity.getUsername())
+                .groupIds(null == userEntity.getGroupIds() ? new long[0] : userEntity.getGroupIds())
+                .version(userEntity.getVersion())
+                .build();
+
+        // the version makes sure a slow writer with an older copy of the user does not win.
+        Query query = new Query()
+                .addCriteria(Criteria.where("userId").is(userEntity.getUserId()))
+                .addCriteria(new Criteria().orOperator(
+                        Criteria.where(USER_SNAPSHOT_FIELD).is(null),
+                        Criteria.where(USER_SNAPSHOT_FIELD + ".version").lt(userEntity.getVersion())));
+
+        mongoTemplate.updateFirst(query, new Update().set(USER_SNAPSHOT_FIELD, userSnapshot), AccessTokenEntity.class);
+        return userSnapshot;
+    }
+
+    /**
+     * Replaces the invalid token of the user or inserts the first one in a single atomic operation.
+     * If another node was faster, the token in the db is valid now and is used instead, the unique index on the userId prevents a second one.
+     */
+    private AccessTokenEntity rotateAccessToken(long userId) {
+        long currentTimeSeconds = Instant.now().getEpochSecond();
+        Query query = new Query()
+                .addCriteria(Criteria.where("userId").is(userId))
+                .addCriteria(Criteria.where("validUntil").lt(currentTimeSeconds + ACCESS_TOKEN_SAFETY_MARGIN));
+
+        Update update = new Update()
+                .set("value", generateRandomTokenValue())
+                .set("validUntil", currentTimeSeconds + ACCESS_TOKEN_DURATION_IN_SECONDS);
+
+        try {
+            return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), AccessTokenEntity.class);
+        } catch (DuplicateKeyException ex) {
+            log.debug("AccessToken for UserId {} was rotated concurrently.", userId);
+            AccessTokenEntity rotatedAccessToken = accessTokenRepository.findByUserId(userId);
+            if (null == rotatedAccessToken)
+                throw new FileFighterDataException("AccessToken for userId " + userId + " could not be rotated.");
+
+            return rotatedAccessToken;
+        }
+    }
+
     public AccessToken findAccessTokenByValueAndUserId(String accessTokenValue, long userId) {
         AccessTokenEntity accessTokenEntity = accessTokenRepository.findByUserIdAndValue(userId, accessTokenValue);
         if (null == accessTokenEntity)
@@ -67,12 +137,25 @@ public class AccessTokenBusinessService {
         return accessTokenDtoService.createDto(accessTokenEntity);
     }
 
+    /**
+     * The token is only read once per request, the rate limit and the authentication of the endpoint both need it.
+     */
     public AccessToken findAccessTokenByValue(String accessTokenValue) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (null != requestAttributes) {
+            Object foundAccessToken = requestAttributes.getAttribute(FOUND_ACCESS_TOKEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (foundAccessToken instanceof AccessToken && ((AccessToken) foundAccessToken).getTokenValue().equals(accessTokenValue))
+                return (AccessToken) foundAccessToken;
+        }
+
         AccessTokenEntity accessTokenEntity = accessTokenRepository.findByValue(accessTokenValue);
         if (null == accessTokenEntity)
             throw new UserNotAuthenticatedException("AccessToken not found.");
 
-        return accessTokenDtoService.createDto(accessTokenEntity);
+        AccessToken accessToken = accessTokenDtoService.createDto(accessTokenEntity);
+        if (null != requestAttributes && null != accessToken.getTokenValue())
+            requestAttributes.setAttribute(FOUND_ACCESS_TOKEN_ATTRIBUTE, accessToken, RequestAttributes.SCOPE_REQUEST);
+        return accessToken;
     }
 
     public boolean accessTokenIsInvalid(long timeStampToTest) {
@@ -4,16 +4,21 @@ import de.filefighter.rest.domain.common.DTOServiceInterface;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
+import de.filefighter.rest.domain.token.data.persistence.UserSnapshot;
 import de.filefighter.rest.domain.token.exceptions.AccessTokenNotFoundException;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.group.GroupRepository;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AccessTokenDTOService implements DTOServiceInterface<AccessToken, AccessTokenEntity> {
 
     private final AccessTokenRepository accessTokenRepository;
+    private final GroupRepository groupRepository;
 
-    public AccessTokenDTOService(AccessTokenRepository accessTokenRepository) {
+    public AccessTokenDTOService(AccessTokenRepository accessTokenRepository, GroupRepository groupRepository) {
         this.accessTokenRepository = accessTokenRepository;
+        this.groupRepository = groupRepository;
     }
 
     @Override
@@ -23,6 +28,19 @@ public class AccessTokenDTOService implements DTOServiceInterface<AccessToken, A
                 .tokenValue(entity.getValue())
                 .userId(entity.getUserId())
                 .validUntil(entity.getValidUntil())
+                .user(createUser(entity.getUserId(), entity.getUser()))
+                .build();
+    }
+
+    private User createUser(long userId, UserSnapshot userSnapshot) {
+        if (null == userSnapshot)
+            return null;
+
+        return User
+                .builder()
+                .userId(userId)
+                .username(userSnapshot.getUsername())
+                .groups(groupRepository.getGroupsByIds(userSnapshot.getGroupIds()))
                 .build();
     }
 
@@ -0,0 +1,44 @@
+package de.filefighter.rest.domain.token.business;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Users are found by the SHA-256 digest of their refresh token, it has a fixed length and a unique index.
+ * The token itself is then compared in constant time, so the response time does not tell how much of a guessed token was right.
+ */
+public final class RefreshTokenDigest {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private RefreshTokenDigest() {
+    }
+
+    /**
+     * @return the SHA-256 digest of the token as 64 hex characters.
+     */
+    public static String digest(String refreshToken) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            // every java runtime has to support SHA-256.
+            throw new IllegalStateException(ex);
+        }
+
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    public static boolean matches(String refreshToken, String storedRefreshToken) {
+        if (null == refreshToken || null == storedRefreshToken)
+            return false;
+
+        return MessageDigest.isEqual(refreshToken.getBytes(StandardCharsets.UTF_8), storedRefreshToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
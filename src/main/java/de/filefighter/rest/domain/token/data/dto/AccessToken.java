@@ -1,5 +1,7 @@
 package de.filefighter.rest.domain.token.data.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.filefighter.rest.domain.user.data.dto.User;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,4 +12,7 @@ public class AccessToken {
     @Builder.Default
     private long userId = -1;
     private long validUntil;
+    // the user of the snapshot in the token, null for older tokens without one.
+    @JsonIgnore
+    private User user;
 }
@@ -2,6 +2,7 @@ package de.filefighter.rest.domain.token.data.persistence;
 
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
@@ -12,9 +13,13 @@ public class AccessTokenEntity {
 
     @MongoId
     private String mongoId;
+    @Indexed
     private String value;
+    // a user only has one token, the rotation relies on it.
+    @Indexed(unique = true)
     @Builder.Default
     private long userId = -1;
     private long validUntil;
+    private UserSnapshot user;
 
 }
\ No newline at end of file
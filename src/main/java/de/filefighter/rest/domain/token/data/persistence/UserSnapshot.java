@@ -0,0 +1,19 @@
+package de.filefighter.rest.domain.token.data.persistence;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Copy of the user inside the token, so authenticating with the token needs only one read.
+ * The version is the one of the user entity, a snapshot is never replaced by an older one.
+ */
+@Data
+@Builder
+public class UserSnapshot {
+
+    private String username;
+    @Builder.Default
+    private long[] groupIds = new long[0];
+    private long version;
+
+}
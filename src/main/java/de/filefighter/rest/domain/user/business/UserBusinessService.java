@@ -1,7 +1,10 @@
 package de.filefighter.rest.domain.user.business;
 
+import de.filefighter.rest.domain.authentication.PasswordHashingService;
 import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
 import de.filefighter.rest.domain.token.data.dto.RefreshToken;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.data.dto.UserRegisterForm;
@@ -12,17 +15,25 @@ import de.filefighter.rest.domain.user.exceptions.UserNotRegisteredException;
 import de.filefighter.rest.domain.user.exceptions.UserNotUpdatedException;
 import de.filefighter.rest.domain.user.group.Group;
 import de.filefighter.rest.domain.user.group.GroupRepository;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static de.filefighter.rest.domain.common.InputSanitizerService.stringIsValid;
+import static de.filefighter.rest.domain.filesystem.business.FileSystemHelperService.CHANGES_FIELD;
 
 @Service
 public class UserBusinessService {
@@ -33,15 +44,17 @@ public class UserBusinessService {
     private final GroupRepository groupRepository;
     private final MongoTemplate mongoTemplate;
     private final InputSanitizerService inputSanitizerService;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final AccessTokenBusinessService accessTokenBusinessService;
 
-    public UserBusinessService(UserRepository userRepository, UserDTOService userDtoService, GroupRepository groupRepository, MongoTemplate mongoTemplate, InputSanitizerService inputSanitizerService, PasswordEncoder passwordEncoder) {
+    public UserBusinessService(UserRepository userRepository, UserDTOService userDtoService, GroupRepository groupRepository, MongoTemplate mongoTemplate, InputSanitizerService inputSanitizerService, PasswordHashingService passwordHashingService, AccessTokenBusinessService accessTokenBusinessService) {
         this.userRepository = userRepository;
         this.userDtoService = userDtoService;
         this.groupRepository = groupRepository;
         this.mongoTemplate = mongoTemplate;
         this.inputSanitizerService = inputSanitizerService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.accessTokenBusinessService = accessTokenBusinessService;
     }
 
     public long getUserCount() {
@@ -57,6 +70,22 @@ public class UserBusinessService {
         return userDtoService.createDto(userEntity);
     }
 
+    /**
+     * Loads all users with one query.
+     *
+     * @return the found users by their id, users that do not exist are missing.
+     */
+    public Map<Long, User> findUsersByIds(Collection<Long> userIds) {
+        Map<Long, User> users = new HashMap<>();
+        if (userIds.isEmpty())
+            return users;
+
+        for (UserEntity userEntity : userRepository.findAllByUserIdIn(userIds)) {
+            users.put(userEntity.getUserId(), userDtoService.createDto(userEntity));
+        }
+        return users;
+    }
+
     public RefreshToken getRefreshTokenForUser(User user) {
         UserEntity userEntity = userRepository.findByUserIdAndUsername(user.getUserId(), user.getUsername());
         if (null == userEntity)
@@ -82,7 +111,12 @@ public class UserBusinessService {
         return userDtoService.createDto(entity);
     }
 
-    public UserEntity registerNewUser(UserRegisterForm newUser) {
+    /**
+     * The new user is checked right away, the password is hashed on the pool of the {@link PasswordHashingService} and the user is saved afterwards.
+     *
+     * @return the saved user.
+     */
+    public Mono<UserEntity> registerNewUser(UserRegisterForm newUser) {
         String username = newUser.getUsername();
 
         if (!stringIsValid(username))
@@ -120,18 +154,29 @@ public class UserBusinessService {
             }
         }
 
-        // hash password.
-        String hashedPassword = passwordEncoder.encode(password);
-
-        //create new user.
-        return userRepository.save(UserEntity.builder()
-                .lowercaseUsername(username.toLowerCase())
-                .username(username)
-                .groupIds(userGroups)
-                .password(hashedPassword)
-                .refreshToken(AccessTokenBusinessService.generateRandomTokenValue())
-                .userId(generateRandomUserId())
-                .build());
+        long[] checkedUserGroups = userGroups;
+        return hashPassword(password).map(hashedPassword -> {
+            //create new user.
+            String refreshToken = AccessTokenBusinessService.generateRandomTokenValue();
+            return userRepository.save(UserEntity.builder()
+                    .lowercaseUsername(username.toLowerCase())
+                    .username(username)
+                    .groupIds(checkedUserGroups)
+                    .password(hashedPassword)
+                    .refreshToken(refreshToken)
+                    .refreshTokenDigest(RefreshTokenDigest.digest(refreshToken))
+                    .userId(generateRandomUserId())
+                    .build());
+        });
+    }
+
+    /**
+     * @throws de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException if the pool of the {@link PasswordHashingService} is saturated.
+     */
+    private Mono<String> hashPassword(String password) {
+        return Mono.fromFuture(passwordHashingService.encode(password))
+                // leave the password hashing pool before going to the db.
+                .publishOn(Schedulers.boundedElastic());
     }
 
     /**
@@ -143,7 +188,10 @@ public class UserBusinessService {
         return userRepository.findByLowercaseUsername(lowercaseUsername);
     }
 
-    public void updateUser(long userId, UserRegisterForm userToUpdate, User authenticatedUser) {
+    /**
+     * The update is checked right away, a new password is hashed on the pool of the {@link PasswordHashingService} before the user is updated.
+     */
+    public Mono<Void> updateUser(long userId, UserRegisterForm userToUpdate, User authenticatedUser) {
         if (null == userToUpdate)
             throw new UserNotUpdatedException("No updates specified.");
 
@@ -163,18 +211,51 @@ public class UserBusinessService {
 
         Update newUpdate = new Update();
 
-        boolean changesWereMade = updateUserName(newUpdate, userEntityToUpdate, userToUpdate.getUsername());
-        boolean passwordWasUpdated = updatePassword(newUpdate, userToUpdate.getPassword(), userToUpdate.getConfirmationPassword());
-        changesWereMade = passwordWasUpdated || changesWereMade;
+        boolean usernameWasUpdated = updateUserName(newUpdate, userEntityToUpdate, userToUpdate.getUsername());
+        boolean passwordWasUpdated = passwordIsUpdated(userToUpdate.getPassword(), userToUpdate.getConfirmationPassword());
         boolean userGroupsWereUpdated = updateGroups(newUpdate, userToUpdate.getGroupIds(), authenticatedUserIsAdmin);
-        changesWereMade = userGroupsWereUpdated || changesWereMade;
+        boolean changesWereMade = usernameWasUpdated || passwordWasUpdated || userGroupsWereUpdated;
 
         if (!changesWereMade)
             throw new UserNotUpdatedException("No changes were made.");
 
-        Query query = new Query();
-        query.addCriteria(Criteria.where("userId").is(userId));
-        mongoTemplate.findAndModify(query, newUpdate, UserEntity.class);
+        // the access tokens contain a copy of the username and the groups.
+        boolean userSnapshotChanged = usernameWasUpdated || userGroupsWereUpdated;
+        if (userSnapshotChanged)
+            newUpdate.inc("version", 1);
+
+        Mono<Update> completeUpdate = passwordWasUpdated
+                ? hashPassword(userToUpdate.getPassword()).map(hashedPassword -> setPassword(newUpdate, hashedPassword))
+                : Mono.just(newUpdate);
+        return completeUpdate.doOnNext(update -> {
+            Query query = new Query();
+            query.addCriteria(Criteria.where("userId").is(userId));
+            UserEntity updatedUserEntity = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), UserEntity.class);
+
+            if (userSnapshotChanged && null != updatedUserEntity)
+                accessTokenBusinessService.updateUserSnapshot(updatedUserEntity);
+
+            if (usernameWasUpdated && null != updatedUserEntity)
+                markFileSystemEntitiesOfUserAsChanged(userId);
+        }).then();
+    }
+
+    /**
+     * The file system items show the usernames of their owner and of the last user that updated them, but their etags are built from the entities only.
+     * So the change counters of the entities and the folders that contain them are incremented, otherwise clients keep the old username.
+     */
+    private void markFileSystemEntitiesOfUserAsChanged(long userId) {
+        // items always belong to the owner of their folder, so the folders that contain the owned ones are incremented too.
+        Query entitiesOfUser = new Query(new Criteria().orOperator(Criteria.where("ownerId").is(userId), Criteria.where("lastUpdatedBy").is(userId)));
+        mongoTemplate.updateMulti(entitiesOfUser, new Update().inc(CHANGES_FIELD, 1), FileSystemEntity.class);
+
+        Query updatedInFoldersOfOthers = new Query(Criteria.where("lastUpdatedBy").is(userId).and("ownerId").ne(userId));
+        updatedInFoldersOfOthers.fields().include("fileSystemId");
+        List<Long> fileSystemIds = mongoTemplate.find(updatedInFoldersOfOthers, FileSystemEntity.class).stream()
+                .map(FileSystemEntity::getFileSystemId)
+                .collect(Collectors.toList());
+        if (!fileSystemIds.isEmpty())
+            mongoTemplate.updateMulti(new Query(Criteria.where("itemIds").in(fileSystemIds)), new Update().inc(CHANGES_FIELD, 1), FileSystemEntity.class);
     }
 
     private boolean updateGroups(Update newUpdate, long[] groupIds, boolean authenticatedUserIsAdmin) {
@@ -196,7 +277,7 @@ public class UserBusinessService {
         return false;
     }
 
-    private boolean updatePassword(Update newUpdate, String password, String confirmationPassword) {
+    private boolean passwordIsUpdated(String password, String confirmationPassword) {
         if (null != password) {
 
             if (!stringIsValid(password) || !stringIsValid(confirmationPassword))
@@ -208,19 +289,20 @@ public class UserBusinessService {
             if (!password.contentEquals(confirmationPassword))
                 throw new UserNotUpdatedException("Passwords do not match.");
 
-            // hash password.
-            String hashedPassword = passwordEncoder.encode(password);
-
-            newUpdate.set("password", hashedPassword);
-            //update refreshToken
-            String newRefreshToken = AccessTokenBusinessService.generateRandomTokenValue();
-            newUpdate.set("refreshToken", newRefreshToken);
-
             return true;
         }
         return false;
     }
 
+    private Update setPassword(Update newUpdate, String hashedPassword) {
+        newUpdate.set("password", hashedPassword);
+        //update refreshToken
+        String newRefreshToken = AccessTokenBusinessService.generateRandomTokenValue();
+        newUpdate.set("refreshToken", newRefreshToken);
+        newUpdate.set("refreshTokenDigest", RefreshTokenDigest.digest(newRefreshToken));
+        return newUpdate;
+    }
+
     private boolean updateUserName(Update update, UserEntity userEntityToUpdate, String username) {
         if (null != username) {
             if (!stringIsValid(username))
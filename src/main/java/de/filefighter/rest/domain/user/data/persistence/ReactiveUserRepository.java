@@ -0,0 +1,15 @@
+package de.filefighter.rest.domain.user.data.persistence;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+@Service
+public interface ReactiveUserRepository extends ReactiveMongoRepository<UserEntity, String> {
+    Mono<UserEntity> findByLowercaseUsername(String lowercaseUsername);
+
+    Flux<UserEntity> findAllByUserIdIn(Collection<Long> userIds);
+}
@@ -2,6 +2,7 @@ package de.filefighter.rest.domain.user.data.persistence;
 
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.MongoId;
 
@@ -17,7 +18,10 @@ public class UserEntity {
     private String lowercaseUsername; // Redundancy for performance tradeoff.
     private String password;
     private String refreshToken;
+    @Indexed(unique = true, sparse = true)
+    private String refreshTokenDigest; // users are looked up by this, see RefreshTokenDigest.
     @Builder.Default
     private long[] groupIds = new long[0];
+    private long version; // incremented when the username or the groups change, the copies in the access tokens are compared with it.
 
 }
@@ -3,10 +3,14 @@ package de.filefighter.rest.domain.user.data.persistence;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+
 @Service
 public interface UserRepository extends MongoRepository<UserEntity, String> {
     UserEntity findByUserIdAndUsername(long userId, String username);
-    UserEntity findByRefreshToken(String refreshToken);
+    UserEntity findByRefreshTokenDigest(String refreshTokenDigest);
     UserEntity findByUserId(long userId);
     UserEntity findByLowercaseUsername(String lowercaseUsername);
+    List<UserEntity> findAllByUserIdIn(Collection<Long> userIds);
 }
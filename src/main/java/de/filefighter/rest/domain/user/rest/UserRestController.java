@@ -10,6 +10,7 @@ import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletResponse;
@@ -31,20 +32,26 @@ public class UserRestController {
         this.userRestService = userRestService;
     }
 
+    /**
+     * The request thread is released while the password is hashed.
+     */
     @PostMapping(USER_BASE_URI + "register")
-    public ResponseEntity<ServerResponse> registerNewUser(
+    public Mono<ResponseEntity<ServerResponse>> registerNewUser(
             @RequestHeader(value = "Authorization") String accessToken,
             @RequestBody UserRegisterForm newUser) {
 
-        log.info("Registered new User {}.", newUser);
+        log.debug("Registered new User {}.", newUser);
         return userRestService.registerNewUserWithAccessToken(newUser, accessToken);
     }
 
+    /**
+     * The request thread is released while the password is checked.
+     */
     @GetMapping(USER_BASE_URI + "login")
-    public ResponseEntity<RefreshToken> loginWithUsernameAndPassword(
+    public Mono<ResponseEntity<RefreshToken>> loginWithUsernameAndPassword(
             @RequestHeader(value = "Authorization") String base64encodedUserAndPassword) {
 
-        log.info("Requested Login.");
+        log.debug("Requested Login.");
         return userRestService.getRefreshTokenWithUsernameAndPassword(base64encodedUserAndPassword);
     }
 
@@ -53,7 +60,7 @@ public class UserRestController {
             HttpServletResponse response,
             @RequestHeader(value = "Authorization") String refreshToken) {
 
-        log.info("Requested login for token {}.", refreshToken);
+        log.debug("Requested login for token {}.", refreshToken);
         ResponseEntity<AccessToken> responseEntity = userRestService.getAccessTokenByRefreshToken(refreshToken);
 
         Cookie cookie = new Cookie(AUTHORIZATION_ACCESS_TOKEN_COOKIE, Objects.requireNonNull(responseEntity.getBody()).getTokenValue());
@@ -71,17 +78,20 @@ public class UserRestController {
             @PathVariable long userId,
             @RequestHeader(value = "Authorization") String accessToken) {
 
-        log.info("Requested User {} with token {}.", userId, accessToken);
+        log.debug("Requested User {} with token {}.", userId, accessToken);
         return userRestService.getUserByUserIdAuthenticateWithAccessToken(accessToken, userId);
     }
 
+    /**
+     * The request thread is released while a new password is hashed.
+     */
     @PutMapping(USER_BASE_URI + "{userId}/edit")
-    public ResponseEntity<ServerResponse> updateUser(
+    public Mono<ResponseEntity<ServerResponse>> updateUser(
             @PathVariable long userId,
             @RequestHeader(value = "Authorization") String accessToken,
             @RequestBody UserRegisterForm updatedUser) {
 
-        log.info("Updated User {} and Token {}, with form {}.", userId, accessToken, updatedUser);
+        log.debug("Updated User {} and Token {}, with form {}.", userId, accessToken, updatedUser);
         return userRestService.updateUserByUserIdAuthenticateWithAccessToken(updatedUser, userId, accessToken);
     }
 
@@ -90,7 +100,7 @@ public class UserRestController {
             @RequestHeader(value = "Authorization") String accessToken,
             @RequestParam(name = "username", value = "username") String username
     ) {
-        log.info("Requested finding User with the username {} and Token {}", username, accessToken);
+        log.debug("Requested finding User with the username {} and Token {}", username, accessToken);
         return userRestService.findUserByUsernameAndAccessToken(username, accessToken);
     }
 }
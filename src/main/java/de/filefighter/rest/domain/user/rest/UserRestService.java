@@ -9,11 +9,12 @@ import de.filefighter.rest.domain.token.data.dto.RefreshToken;
 import de.filefighter.rest.domain.user.business.UserBusinessService;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.data.dto.UserRegisterForm;
-import de.filefighter.rest.domain.user.data.persistence.UserEntity;
 import de.filefighter.rest.rest.ServerResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import static de.filefighter.rest.domain.user.group.Group.ADMIN;
 
@@ -43,10 +44,11 @@ public class UserRestService implements UserRestServiceInterface {
     }
 
     @Override
-    public ResponseEntity<RefreshToken> getRefreshTokenWithUsernameAndPassword(String base64encodedUserAndPasswordWithHeader) {
-        User authenticatedUser = authenticationService.basicAuthentication(base64encodedUserAndPasswordWithHeader);
-        RefreshToken refreshToken = userBusinessService.getRefreshTokenForUser(authenticatedUser);
-        return new ResponseEntity<>(refreshToken, HttpStatus.OK);
+    public Mono<ResponseEntity<RefreshToken>> getRefreshTokenWithUsernameAndPassword(String base64encodedUserAndPasswordWithHeader) {
+        return Mono.defer(() -> Mono.fromFuture(authenticationService.basicAuthentication(base64encodedUserAndPasswordWithHeader)))
+                // leave the password hashing pool before going to the db.
+                .publishOn(Schedulers.boundedElastic())
+                .map(authenticatedUser -> new ResponseEntity<>(userBusinessService.getRefreshTokenForUser(authenticatedUser), HttpStatus.OK));
     }
 
     @Override
@@ -57,19 +59,22 @@ public class UserRestService implements UserRestServiceInterface {
     }
 
     @Override
-    public ResponseEntity<ServerResponse> updateUserByUserIdAuthenticateWithAccessToken(UserRegisterForm updatedUser, long userId, String accessTokenHeader) {
-        User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenHeader);
-        userBusinessService.updateUser(userId, updatedUser, authenticatedUser);
-        ServerResponse response = new ServerResponse(HttpStatus.CREATED, "User successfully updated.");
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public Mono<ResponseEntity<ServerResponse>> updateUserByUserIdAuthenticateWithAccessToken(UserRegisterForm updatedUser, long userId, String accessTokenHeader) {
+        return Mono.defer(() -> {
+            User authenticatedUser = authenticationService.bearerAuthenticationWithAccessToken(accessTokenHeader);
+            return userBusinessService.updateUser(userId, updatedUser, authenticatedUser);
+        }).thenReturn(new ResponseEntity<>(new ServerResponse(HttpStatus.CREATED, "User successfully updated."), HttpStatus.CREATED));
     }
 
     @Override
-    public ResponseEntity<ServerResponse> registerNewUserWithAccessToken(UserRegisterForm newUser, String accessTokenHeader) {
-        authenticationService.bearerAuthenticationWithAccessTokenAndGroup(accessTokenHeader, ADMIN);
-        UserEntity registeredUserEntity = userBusinessService.registerNewUser(newUser);
-        fileSystemHelperService.createBasicFilesForNewUser(registeredUserEntity);
-        return new ResponseEntity<>(new ServerResponse(HttpStatus.CREATED, "User successfully created."), HttpStatus.CREATED);
+    public Mono<ResponseEntity<ServerResponse>> registerNewUserWithAccessToken(UserRegisterForm newUser, String accessTokenHeader) {
+        return Mono.defer(() -> {
+            authenticationService.bearerAuthenticationWithAccessTokenAndGroup(accessTokenHeader, ADMIN);
+            return userBusinessService.registerNewUser(newUser);
+        }).map(registeredUserEntity -> {
+            fileSystemHelperService.createBasicFilesForNewUser(registeredUserEntity);
+            return new ResponseEntity<>(new ServerResponse(HttpStatus.CREATED, "User successfully created."), HttpStatus.CREATED);
+        });
     }
 
     @Override
@@ -6,12 +6,13 @@ import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.data.dto.UserRegisterForm;
 import de.filefighter.rest.rest.ServerResponse;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
 
 public interface UserRestServiceInterface {
     ResponseEntity<User> getUserByUserIdAuthenticateWithAccessToken(String accessToken, long userId);
-    ResponseEntity<RefreshToken> getRefreshTokenWithUsernameAndPassword(String base64encodedUserAndPassword);
+    Mono<ResponseEntity<RefreshToken>> getRefreshTokenWithUsernameAndPassword(String base64encodedUserAndPassword);
     ResponseEntity<AccessToken> getAccessTokenByRefreshToken(String refreshToken);
-    ResponseEntity<ServerResponse> updateUserByUserIdAuthenticateWithAccessToken(UserRegisterForm updatedUser, long userId, String accessToken);
-    ResponseEntity<ServerResponse> registerNewUserWithAccessToken(UserRegisterForm newUser, String accessToken);
+    Mono<ResponseEntity<ServerResponse>> updateUserByUserIdAuthenticateWithAccessToken(UserRegisterForm updatedUser, long userId, String accessToken);
+    Mono<ResponseEntity<ServerResponse>> registerNewUserWithAccessToken(UserRegisterForm newUser, String accessToken);
     ResponseEntity<User> findUserByUsernameAndAccessToken(String username, String accessToken);
 }
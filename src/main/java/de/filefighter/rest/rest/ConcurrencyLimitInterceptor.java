@@ -0,0 +1,59 @@
+package de.filefighter.rest.rest;
+
+import de.filefighter.rest.domain.common.concurrency.ConcurrencyLimiter;
+import de.filefighter.rest.domain.common.concurrency.RequestPriority;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Admits a request only while the {@link ConcurrencyLimiter} has room for its priority, otherwise it gets a 503.
+ * The reactive endpoints hold their place until their async dispatch completed.
+ */
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+    private static final String PRIORITY_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".priority";
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final Map<String, RequestPriority> priorities;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimiter concurrencyLimiter, Map<String, RequestPriority> priorities) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.priorities = priorities;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod))
+            return true;
+
+        String mapping = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        RequestPriority priority = priorities.getOrDefault(mapping, RequestPriority.NORMAL);
+        if (!concurrencyLimiter.tryAcquire(priority))
+            throw new ServiceOverloadedException("Too many requests in flight for " + mapping + ".");
+
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        request.setAttribute(PRIORITY_ATTRIBUTE, priority);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (null == start)
+            return;
+
+        // removed, so the place is only given back once.
+        request.removeAttribute(START_ATTRIBUTE);
+        // the logins wait for bcrypt on their own pool, their latency says nothing about the load of the db.
+        boolean isSample = RequestPriority.CRITICAL != request.getAttribute(PRIORITY_ATTRIBUTE);
+        concurrencyLimiter.release(isSample ? System.nanoTime() - start : -1);
+    }
+}
@@ -0,0 +1,112 @@
+package de.filefighter.rest.rest;
+
+import de.filefighter.rest.configuration.DatabaseOperations;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.StringMapMessage;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static de.filefighter.rest.configuration.RestConfiguration.DB_OPERATIONS_HEADER;
+import static de.filefighter.rest.configuration.RestConfiguration.DB_TIME_HEADER;
+
+/**
+ * Counts the db operations of every request, writes them to the access log and warns about requests with too many of them.
+ * With the debug header the response is buffered, because the headers can only be set before the body is sent.
+ */
+@Log4j2
+public class DatabaseOperationsFilter extends OncePerRequestFilter {
+
+    private static final Logger accessLog = LogManager.getLogger("de.filefighter.rest.access");
+
+    private final boolean addHeader;
+    private final int warnThreshold;
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates;
+
+    public DatabaseOperationsFilter(boolean addHeader, int warnThreshold, double defaultSampleRate, Map<String, Double> sampleRates) {
+        this.addHeader = addHeader;
+        this.warnThreshold = warnThreshold;
+        this.defaultSampleRate = defaultSampleRate;
+        this.sampleRates = sampleRates;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // the buffered body of the reactive endpoints is sent after the async dispatch.
+        return !addHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            filterChain.doFilter(request, response);
+            copyBufferedBody(request, response);
+            return;
+        }
+
+        HttpServletResponse responseToUse = addHeader ? new ContentCachingResponseWrapper(response) : response;
+        long start = System.nanoTime();
+        DatabaseOperations databaseOperations = DatabaseOperations.start();
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            DatabaseOperations.stop();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            String mapping = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (accessLog.isInfoEnabled() && isSampled(mapping, responseToUse.getStatus()))
+                accessLog.info(new StringMapMessage(8)
+                        .with("method", request.getMethod())
+                        .with("mapping", null == mapping ? request.getRequestURI() : mapping)
+                        .with("status", responseToUse.getStatus())
+                        .with("millis", elapsedMillis)
+                        .with("dbOps", databaseOperations.getCount())
+                        .with("dbMillis", databaseOperations.getElapsedMillis())
+                        .with("dbDocs", databaseOperations.getDocuments())
+                        .with("async", request.isAsyncStarted()));
+
+            if (warnThreshold > 0 && databaseOperations.getCount() > warnThreshold)
+                log.warn("{} {} needed {} db operations, more than the threshold of {}.", request.getMethod(), request.getRequestURI(), databaseOperations.getCount(), warnThreshold);
+
+            if (addHeader) {
+                responseToUse.setHeader(DB_OPERATIONS_HEADER, String.valueOf(databaseOperations.getCount()));
+                responseToUse.setHeader(DB_TIME_HEADER, String.valueOf(databaseOperations.getElapsedMillis()));
+                copyBufferedBody(request, responseToUse);
+            }
+        }
+    }
+
+    /**
+     * Errors are always logged, the other requests with the sample rate of their mapping.
+     */
+    boolean isSampled(String mapping, int status) {
+        if (status >= 500)
+            return true;
+
+        double sampleRate = null == mapping ? defaultSampleRate : sampleRates.getOrDefault(mapping, defaultSampleRate);
+        if (sampleRate >= 1.0)
+            return true;
+
+        return sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void copyBufferedBody(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (isAsyncStarted(request))
+            return;
+
+        ContentCachingResponseWrapper responseWrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (null != responseWrapper)
+            responseWrapper.copyBodyToResponse();
+    }
+}
@@ -0,0 +1,138 @@
+package de.filefighter.rest.rest;
+
+import de.filefighter.rest.configuration.DatabaseOperations;
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import de.filefighter.rest.domain.common.exceptions.TooManyRequestsException;
+import de.filefighter.rest.domain.common.ratelimit.RateLimit;
+import de.filefighter.rest.domain.common.ratelimit.RateLimiter;
+import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.data.dto.AccessToken;
+import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_ACCESS_TOKEN_COOKIE;
+import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BEARER_PREFIX;
+
+/**
+ * Limits the requests of every client per endpoint. A request takes one token before it runs,
+ * after it finished it is charged the db operations it issued and the documents they returned, see {@link DatabaseOperations}.
+ * Clients are told apart by the user of their access token, clients without a valid one by their address.
+ * The token is looked up like the authentication of the endpoint does it, which then finds it again without another db operation.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    static final String RATE_LIMITED_METRIC = "filefighter.rate.limited";
+    private static final String KEY_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".key";
+    private static final String LIMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".limit";
+    private static final String OPERATIONS_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".operations";
+
+    private final RateLimiter rateLimiter;
+    private final AccessTokenBusinessService accessTokenBusinessService;
+    private final InputSanitizerService inputSanitizerService;
+    private final RateLimit defaultLimit;
+    private final Map<String, RateLimit> limits;
+    private final double documentsPerToken;
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, AccessTokenBusinessService accessTokenBusinessService, InputSanitizerService inputSanitizerService, RateLimit defaultLimit, Map<String, RateLimit> limits, double documentsPerToken, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.accessTokenBusinessService = accessTokenBusinessService;
+        this.inputSanitizerService = inputSanitizerService;
+        this.defaultLimit = defaultLimit;
+        this.limits = limits;
+        this.documentsPerToken = documentsPerToken;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // the async dispatch of the reactive endpoints was already counted when the request started.
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod))
+            return true;
+
+        String mapping = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        RateLimit limit = limits.getOrDefault(mapping, defaultLimit);
+        String key = getClientKey(request) + " " + mapping;
+
+        long retryAfterSeconds = rateLimiter.tryAcquire(key, limit);
+        if (retryAfterSeconds > 0) {
+            Counter.builder(RATE_LIMITED_METRIC)
+                    .description("Requests that were rejected because the client exceeded its limit.")
+                    .tag("mapping", String.valueOf(mapping))
+                    .register(meterRegistry)
+                    .increment();
+            throw new TooManyRequestsException(retryAfterSeconds, "Exceeded the limit of " + mapping + ".");
+        }
+
+        request.setAttribute(KEY_ATTRIBUTE, key);
+        request.setAttribute(LIMIT_ATTRIBUTE, limit);
+        // kept for the async dispatch, the bulkheads count the operations of the request on their threads into it.
+        request.setAttribute(OPERATIONS_ATTRIBUTE, DatabaseOperations.current());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        String key = (String) request.getAttribute(KEY_ATTRIBUTE);
+        DatabaseOperations databaseOperations = (DatabaseOperations) request.getAttribute(OPERATIONS_ATTRIBUTE);
+        if (null == key || null == databaseOperations)
+            return;
+
+        request.removeAttribute(KEY_ATTRIBUTE);
+        // the first token was already taken.
+        double cost = databaseOperations.getCount() + databaseOperations.getDocuments() / documentsPerToken - 1;
+        if (cost > 0)
+            rateLimiter.charge(key, (RateLimit) request.getAttribute(LIMIT_ATTRIBUTE), cost);
+    }
+
+    String getClientKey(HttpServletRequest request) {
+        // made up tokens would get a fresh bucket every time, so only the ones of a user count.
+        AccessToken accessToken = findAccessToken(request);
+        if (null != accessToken)
+            return "user:" + accessToken.getUserId();
+
+        return "address:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Same order as the authentication: the bearer header, if there is no valid one the cookie.
+     *
+     * @return null if the request has no valid access token.
+     */
+    private AccessToken findAccessToken(HttpServletRequest request) {
+        String accessTokenValue;
+        try {
+            accessTokenValue = inputSanitizerService.sanitizeTokenValue(inputSanitizerService.sanitizeRequestHeader(AUTHORIZATION_BEARER_PREFIX, request.getHeader(HttpHeaders.AUTHORIZATION)));
+        } catch (RequestDidntMeetFormalRequirementsException ex) {
+            Cookie cookie = WebUtils.getCookie(request, AUTHORIZATION_ACCESS_TOKEN_COOKIE);
+            if (null == cookie)
+                return null;
+
+            try {
+                accessTokenValue = inputSanitizerService.sanitizeTokenValue(cookie.getValue());
+            } catch (RequestDidntMeetFormalRequirementsException exception) {
+                return null;
+            }
+        }
+
+        try {
+            AccessToken accessToken = accessTokenBusinessService.findAccessTokenByValue(accessTokenValue);
+            return accessTokenBusinessService.accessTokenIsInvalid(accessToken.getValidUntil()) ? null : accessToken;
+        } catch (UserNotAuthenticatedException ex) {
+            return null;
+        }
+    }
+}
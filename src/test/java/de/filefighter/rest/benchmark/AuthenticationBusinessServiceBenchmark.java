@@ -0,0 +1,52 @@
+package de.filefighter.rest.benchmark;
+
+import de.filefighter.rest.domain.authentication.AuthenticationBusinessService;
+import de.filefighter.rest.domain.authentication.PasswordHashingService;
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.user.business.UserDTOService;
+import de.filefighter.rest.domain.user.data.persistence.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Parsing of the basic auth header of the login, without the db lookup and the password hashing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationBusinessServiceBenchmark {
+
+    private AuthenticationBusinessService authenticationBusinessService;
+    private String base64encodedUserAndPassword;
+
+    @Setup
+    public void setUp() {
+        authenticationBusinessService = new AuthenticationBusinessService(
+                mock(UserRepository.class, withSettings().stubOnly()),
+                mock(UserDTOService.class, withSettings().stubOnly()),
+                new InputSanitizerService(),
+                mock(PasswordHashingService.class, withSettings().stubOnly()),
+                mock(AccessTokenBusinessService.class, withSettings().stubOnly()),
+                mock(MongoTemplate.class, withSettings().stubOnly()));
+
+        String credentials = "Richard:86C9C198F7DF1F0E6633E21A12BCA14730A27070BBCC742FEC8B2B14B44A0126";
+        base64encodedUserAndPassword = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Pair<String, String> parseBase64Credentials() {
+        return authenticationBusinessService.parseBase64Credentials(base64encodedUserAndPassword);
+    }
+}
@@ -0,0 +1,120 @@
+package de.filefighter.rest.benchmark;
+
+import de.filefighter.rest.domain.filesystem.business.FileSystemHelperService;
+import de.filefighter.rest.domain.filesystem.business.IdGenerationService;
+import de.filefighter.rest.domain.filesystem.data.InteractionType;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
+import de.filefighter.rest.domain.user.business.UserBusinessService;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.group.Group;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * The helper methods every folder listing and download calls once per item.
+ * The users come from a map and the db is never called, so only the work of the helper itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSystemHelperServiceBenchmark {
+
+    private FileSystemHelperService fileSystemHelperService;
+    private User authenticatedUser;
+    private FileSystemEntity sharedEntity;
+    private FileSystemEntity ownEntity;
+
+    @Setup
+    public void setUp() {
+        authenticatedUser = User.builder().userId(42).username("Richard").groups(new Group[]{Group.FAMILY}).build();
+        User owner = User.builder().userId(1).username("Owner").groups(new Group[]{Group.FAMILY, Group.ADMIN}).build();
+        Map<Long, User> users = new HashMap<>();
+        users.put(owner.getUserId(), owner);
+        users.put(authenticatedUser.getUserId(), authenticatedUser);
+
+        // a mock would be slower than the method itself.
+        UserBusinessService userBusinessService = new UserBusinessService(null, null, null, null, null, null, null) {
+            @Override
+            public User findUserById(long id) {
+                return users.get(id);
+            }
+        };
+        fileSystemHelperService = new FileSystemHelperService(
+                mock(FileSystemRepository.class, withSettings().stubOnly()),
+                new FileSystemTypeRepository(),
+                userBusinessService,
+                mock(MongoTemplate.class, withSettings().stubOnly()),
+                mock(IdGenerationService.class, withSettings().stubOnly()));
+
+        // the user only finds the shared entity through the last of its groups.
+        sharedEntity = FileSystemEntity.builder()
+                .fileSystemId(1234)
+                .name("holiday.mp4")
+                .path("")
+                .ownerId(1)
+                .lastUpdatedBy(1)
+                .typeId(FileSystemType.VIDEO.getId())
+                .isFile(true)
+                .visibleForUserIds(new long[]{2, 3, 4, 5, 6, 7})
+                .visibleForGroupIds(new long[]{Group.ADMIN.getGroupId(), Group.FAMILY.getGroupId()})
+                .build();
+        ownEntity = FileSystemEntity.builder()
+                .fileSystemId(4321)
+                .name("notes.txt")
+                .path("")
+                .ownerId(42)
+                .lastUpdatedBy(42)
+                .typeId(FileSystemType.TEXT.getId())
+                .isFile(true)
+                .build();
+    }
+
+    @Benchmark
+    public boolean userIsAllowedToReadSharedEntity() {
+        return fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(sharedEntity, authenticatedUser, InteractionType.READ);
+    }
+
+    @Benchmark
+    public boolean userIsAllowedToEditSharedEntity() {
+        return fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(sharedEntity, authenticatedUser, InteractionType.CHANGE);
+    }
+
+    @Benchmark
+    public boolean userIsAllowedToDeleteOwnEntity() {
+        return fileSystemHelperService.userIsAllowedToInteractWithFileSystemEntity(ownEntity, authenticatedUser, InteractionType.DELETE);
+    }
+
+    @Benchmark
+    public FileSystemItem createDTOOfSharedEntity() {
+        return fileSystemHelperService.createDTO(sharedEntity, authenticatedUser, "/owner/videos/holiday.mp4");
+    }
+
+    @Benchmark
+    public FileSystemItem createDTOOfOwnEntity() {
+        return fileSystemHelperService.createDTO(ownEntity, authenticatedUser, "/richard/notes.txt");
+    }
+
+    @Benchmark
+    public String[] splitPathIntoEnitityPaths() {
+        return fileSystemHelperService.splitPathIntoEnitityPaths("/richard/some/deeply/nested/folder/structure", "");
+    }
+
+    @Benchmark
+    public String removeTrailingBackSlashes() {
+        return fileSystemHelperService.removeTrailingBackSlashes("/richard/some/folder/");
+    }
+}
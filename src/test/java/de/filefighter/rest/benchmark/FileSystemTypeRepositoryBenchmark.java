@@ -0,0 +1,29 @@
+package de.filefighter.rest.benchmark;
+
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every uploaded file gets its type from the mime type, the last branches are the slowest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileSystemTypeRepositoryBenchmark {
+
+    private final FileSystemTypeRepository fileSystemTypeRepository = new FileSystemTypeRepository();
+
+    @Param({"text/plain", "image/png", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "chemical/x-pdb"})
+    private String mimeType;
+
+    @Benchmark
+    public FileSystemType parseMimeType() {
+        return fileSystemTypeRepository.parseMimeType(mimeType);
+    }
+}
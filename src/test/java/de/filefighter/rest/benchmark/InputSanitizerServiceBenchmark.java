@@ -0,0 +1,41 @@
+package de.filefighter.rest.benchmark;
+
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BEARER_PREFIX;
+
+/**
+ * Every authenticated request sanitizes its Authorization header, every filesystem request its path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputSanitizerServiceBenchmark {
+
+    private final InputSanitizerService inputSanitizerService = new InputSanitizerService();
+
+    private final String bearerHeader = AUTHORIZATION_BEARER_PREFIX + "a83e1a9f-4b6e-4a8c-bc8a-2b2f6c7d0e31";
+
+    @Benchmark
+    public String sanitizeRequestHeader() {
+        return inputSanitizerService.sanitizeRequestHeader(AUTHORIZATION_BEARER_PREFIX, bearerHeader);
+    }
+
+    @Benchmark
+    public boolean pathIsValid(Paths paths) {
+        return inputSanitizerService.pathIsValid(paths.path);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Paths {
+
+        @Param({"/richard", "/richard/some/deeply/nested/folder/structure", "/richard/invalid|path"})
+        private String path;
+    }
+}
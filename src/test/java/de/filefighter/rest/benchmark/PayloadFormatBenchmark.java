@@ -0,0 +1,105 @@
+package de.filefighter.rest.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import de.filefighter.rest.configuration.JacksonConfiguration;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.group.Group;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the payload size and the serialization time of json, cbor and smile for generated folder trees,
+ * like the ones the download manifests and big folder listings return.
+ * <p>
+ * Arguments: [numberOfItems] [iterations]
+ * for example: 10000 200
+ */
+public class PayloadFormatBenchmark {
+
+    private static final int MAX_DEPTH = 6;
+
+    public static void main(String[] args) throws Exception {
+        int numberOfItems = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        List<FileSystemItem> tree = generateTree(numberOfItems, new Random(42));
+
+        System.out.printf("%d items, %d iterations%n", numberOfItems, iterations);
+        run("json", createObjectMapper(new JsonFactory()), tree, iterations);
+        run("cbor", createObjectMapper(new CBORFactory()), tree, iterations);
+        run("smile", createObjectMapper(new SmileFactory()), tree, iterations);
+    }
+
+    private static void run(String format, ObjectMapper objectMapper, List<FileSystemItem> tree, int iterations) throws Exception {
+        // warm up the jit before measuring.
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.readTree(objectMapper.writeValueAsBytes(tree));
+        }
+
+        int size = 0;
+        long serializationNanos = 0;
+        long deserializationNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            byte[] payload = objectMapper.writeValueAsBytes(tree);
+            long serialized = System.nanoTime();
+            objectMapper.readTree(payload);
+            deserializationNanos += System.nanoTime() - serialized;
+            serializationNanos += serialized - start;
+            size = payload.length;
+        }
+
+        System.out.printf("%-5s size: %9d bytes, write: %8.3f ms, read: %8.3f ms%n", format, size,
+                serializationNanos / 1e6 / iterations, deserializationNanos / 1e6 / iterations);
+    }
+
+    private static ObjectMapper createObjectMapper(JsonFactory factory) {
+        return new Jackson2ObjectMapperBuilder()
+                .filters(JacksonConfiguration.createDefaultFilters())
+                .factory(factory)
+                .build();
+    }
+
+    /**
+     * Items of a few users in nested folders, similar to a download manifest.
+     */
+    static List<FileSystemItem> generateTree(int numberOfItems, Random random) {
+        User[] users = new User[10];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = User.builder().userId(i).username("user" + i).groups(new Group[]{Group.FAMILY}).build();
+        }
+
+        FileSystemType[] types = FileSystemType.values();
+        List<FileSystemItem> items = new ArrayList<>(numberOfItems);
+        String currentFolder = "/user0";
+        int depth = 0;
+        for (int i = 0; i < numberOfItems; i++) {
+            boolean isFolder = random.nextInt(10) == 0;
+            String name = (isFolder ? "folder" : "file") + i + (isFolder ? "" : ".txt");
+            items.add(FileSystemItem.builder()
+                    .fileSystemId(i)
+                    .name(name)
+                    .path(currentFolder + "/" + name)
+                    .isShared(random.nextBoolean())
+                    .size(isFolder ? 0 : random.nextInt(100_000_000))
+                    .owner(users[random.nextInt(users.length)])
+                    .lastUpdatedBy(users[random.nextInt(users.length)])
+                    .lastUpdated(1_600_000_000L + random.nextInt(100_000_000))
+                    .type(isFolder ? FileSystemType.FOLDER : types[random.nextInt(types.length)])
+                    .mimeType(isFolder ? null : "text/plain")
+                    .build());
+            if (isFolder)
+                currentFolder = ++depth > MAX_DEPTH ? "/user0" : currentFolder + "/" + name;
+            if (depth > MAX_DEPTH)
+                depth = 0;
+        }
+        return items;
+    }
+}
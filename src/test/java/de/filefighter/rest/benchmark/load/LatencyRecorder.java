@@ -0,0 +1,56 @@
+package de.filefighter.rest.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies of one operation, so the percentiles can be calculated afterwards.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private int skipped;
+
+    synchronized void record(long latencyInNanos, boolean successful) {
+        if (count == latencies.length)
+            latencies = Arrays.copyOf(latencies, count * 2);
+
+        latencies[count++] = latencyInNanos;
+        if (!successful)
+            errors++;
+    }
+
+    /**
+     * The operation had nothing to do, for example there was nothing uploaded that could be deleted.
+     */
+    synchronized void skip() {
+        skipped++;
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    synchronized int getErrors() {
+        return errors;
+    }
+
+    synchronized int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @param percentile between 0 and 1, for example 0.99
+     * @return the latency in milliseconds, 0 if nothing was recorded.
+     */
+    synchronized double getPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * count) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,32 @@
+package de.filefighter.rest.benchmark.load;
+
+import java.util.Arrays;
+
+/**
+ * The endpoints the {@link ReadEndpointLoadDriver} calls.
+ */
+public enum LoadTestOperation {
+    CONTENTS("contents"),
+    SEARCH("search"),
+    UPLOAD("upload"),
+    PREFLIGHT("preflight"),
+    DOWNLOAD("download"),
+    DELETE("delete");
+
+    private final String name;
+
+    LoadTestOperation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static LoadTestOperation fromName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation " + name));
+    }
+}
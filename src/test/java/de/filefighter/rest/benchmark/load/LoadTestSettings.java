@@ -0,0 +1,171 @@
+package de.filefighter.rest.benchmark.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of the {@link ReadEndpointLoadDriver}, given as key=value arguments.
+ * Seeding and running need the same tree settings, because the driver generates the same tree again instead of reading it from the db.
+ */
+public class LoadTestSettings {
+
+    private boolean seedMode = false;
+    private String baseUrl = "http://localhost:8080";
+    private String mongoUri = "mongodb://localhost:20000";
+    private String database = "filefighter";
+    private String resultFile = "target/loadtest-result.json";
+
+    // tree
+    private int users = 10;
+    private int depth = 3;
+    private int fanOut = 4;
+    private int files = 10;
+    private double shareDensity = 0.2;
+    private long seed = 42;
+
+    // workload
+    private int concurrency = 32;
+    private int duration = 30;
+    private Map<LoadTestOperation, Integer> mix = parseMix("contents:40,search:10,upload:10,preflight:10,download:20,delete:10");
+
+    public static LoadTestSettings parse(String[] args) {
+        LoadTestSettings settings = new LoadTestSettings();
+        for (String arg : args) {
+            String[] keyAndValue = arg.split("=", 2);
+            if (keyAndValue.length != 2)
+                throw new IllegalArgumentException("Arguments need to look like key=value, but was " + arg);
+
+            String value = keyAndValue[1];
+            switch (keyAndValue[0]) {
+                case "mode":
+                    settings.seedMode = parseMode(value);
+                    break;
+                case "baseUrl":
+                    settings.baseUrl = value;
+                    break;
+                case "mongoUri":
+                    settings.mongoUri = value;
+                    break;
+                case "database":
+                    settings.database = value;
+                    break;
+                case "resultFile":
+                    settings.resultFile = value;
+                    break;
+                case "users":
+                    settings.users = Integer.parseInt(value);
+                    break;
+                case "depth":
+                    settings.depth = Integer.parseInt(value);
+                    break;
+                case "fanOut":
+                    settings.fanOut = Integer.parseInt(value);
+                    break;
+                case "files":
+                    settings.files = Integer.parseInt(value);
+                    break;
+                case "shareDensity":
+                    settings.shareDensity = Double.parseDouble(value);
+                    break;
+                case "seed":
+                    settings.seed = Long.parseLong(value);
+                    break;
+                case "concurrency":
+                    settings.concurrency = Integer.parseInt(value);
+                    break;
+                case "duration":
+                    settings.duration = Integer.parseInt(value);
+                    break;
+                case "mix":
+                    settings.mix = parseMix(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + keyAndValue[0]);
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * @param mode seed to write the tree into the db, run to drive the endpoints.
+     * @return true for seed.
+     */
+    static boolean parseMode(String mode) {
+        if ("seed".equals(mode))
+            return true;
+        if ("run".equals(mode))
+            return false;
+        throw new IllegalArgumentException("The mode needs to be seed or run, but was " + mode);
+    }
+
+    /**
+     * @param mix comma separated operation:weight pairs, for example contents:80,download:20
+     */
+    static Map<LoadTestOperation, Integer> parseMix(String mix) {
+        Map<LoadTestOperation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] operationAndWeight = entry.split(":");
+            if (operationAndWeight.length != 2)
+                throw new IllegalArgumentException("The mix needs to look like operation:weight,operation:weight, but was " + mix);
+
+            weights.put(LoadTestOperation.fromName(operationAndWeight[0].trim()), Integer.parseInt(operationAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    public boolean isSeedMode() {
+        return seedMode;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getMongoUri() {
+        return mongoUri;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getResultFile() {
+        return resultFile;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public double getShareDensity() {
+        return shareDensity;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public Map<LoadTestOperation, Integer> getMix() {
+        return mix;
+    }
+}
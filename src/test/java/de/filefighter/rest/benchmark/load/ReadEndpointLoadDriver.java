@@ -0,0 +1,303 @@
+package de.filefighter.rest.benchmark.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUpload;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static de.filefighter.rest.configuration.RestConfiguration.*;
+
+/**
+ * The load test harness, it seeds the db with a synthetic tree and drives the rest endpoints of a running instance on it.
+ * <p>
+ * With mode=seed the tree of the {@link SyntheticTreeGenerator} is written into the db with bulk inserts.
+ * This drops the user, filesystem and token collections! Start the server afterwards with the prod or stage profile,
+ * so the data is kept and the ids are generated after the highest seeded one.
+ * <p>
+ * With mode=run the same tree is generated again, so use the same tree settings. First every operation of the mix runs alone,
+ * so the db operations can be assigned to it, then the whole mix runs concurrently. For every scenario the throughput,
+ * the p50/p99/p999 latencies and the db operations (from the serverStatus opcounters) are reported, on the console and as json in the resultFile.
+ * To compare the virtual threads run it once against a server started with filefighter.virtual-threads=false and once with true.
+ * <p>
+ * Arguments: key=value pairs, see {@link LoadTestSettings}.
+ * for example: mode=seed users=50 depth=4 fanOut=5 files=20 shareDensity=0.2
+ * and then: mode=run users=50 depth=4 fanOut=5 files=20 shareDensity=0.2 concurrency=64 duration=60 mix=contents:70,download:30
+ */
+public class ReadEndpointLoadDriver {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int UPLOADS_PER_PREFLIGHT = 5;
+    private static final int BATCH_SIZE = 1000;
+
+    private final LoadTestSettings settings;
+    private final SyntheticTree tree;
+    private final String fileSystemUri;
+    private final HttpClient httpClient;
+    private final Map<Long, String> accessTokens = new HashMap<>();
+    // uploaded files by the id of the user that uploaded them, the delete operation removes them again.
+    private final Queue<Pair<Long, Long>> uploadedFiles = new ConcurrentLinkedQueue<>();
+    private final AtomicLong uploadCounter = new AtomicLong();
+    private final long runId = System.currentTimeMillis();
+
+    public ReadEndpointLoadDriver(LoadTestSettings settings, SyntheticTree tree) {
+        this.settings = settings;
+        this.tree = tree;
+        this.fileSystemUri = settings.getBaseUrl() + "/" + BASE_API_URI + FS_BASE_URI;
+        this.httpClient = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(settings.getConcurrency()))
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args);
+        SyntheticTree tree = new SyntheticTreeGenerator(settings).generate();
+        if (settings.isSeedMode()) {
+            long start = System.nanoTime();
+            try (MongoClient mongoClient = MongoClients.create(settings.getMongoUri())) {
+                seed(new MongoTemplate(mongoClient, settings.getDatabase()), tree);
+            }
+            System.out.printf("Inserted %d users and %d entities in %.1f s.%n", tree.getUsers().size(), tree.getEntities().size(), (System.nanoTime() - start) / 1e9);
+            return;
+        }
+
+        ReadEndpointLoadDriver driver = new ReadEndpointLoadDriver(settings, tree);
+        driver.login();
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        try (MongoClient mongoClient = MongoClients.create(settings.getMongoUri())) {
+            for (LoadTestOperation operation : settings.getMix().keySet()) {
+                results.add(driver.runScenario(operation.getName(), Collections.singletonMap(operation, 1), mongoClient));
+            }
+            results.add(driver.runScenario("mixed", settings.getMix(), mongoClient));
+        }
+
+        File resultFile = new File(settings.getResultFile());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(resultFile, results);
+        System.out.println("Results were written to " + resultFile.getAbsolutePath());
+        System.exit(0);
+    }
+
+    static void seed(MongoTemplate mongoTemplate, SyntheticTree tree) {
+        mongoTemplate.dropCollection(UserEntity.class);
+        mongoTemplate.dropCollection(FileSystemEntity.class);
+        mongoTemplate.dropCollection(AccessTokenEntity.class);
+
+        // hashing is slow on purpose, so every user gets the same hash.
+        String password = new BCryptPasswordEncoder().encode(SyntheticTreeGenerator.PASSWORD_HASH);
+        tree.getUsers().stream()
+                .filter(user -> user.getUserId() != RUNTIME_USER_ID)
+                .forEach(user -> user.setPassword(password));
+
+        bulkInsert(mongoTemplate, tree.getUsers(), UserEntity.class);
+        bulkInsert(mongoTemplate, tree.getEntities(), FileSystemEntity.class);
+    }
+
+    private static <T> void bulkInsert(MongoTemplate mongoTemplate, List<T> documents, Class<T> entityClass) {
+        for (int from = 0; from < documents.size(); from += BATCH_SIZE) {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass)
+                    .insert(documents.subList(from, Math.min(from + BATCH_SIZE, documents.size())))
+                    .execute();
+        }
+    }
+
+    /**
+     * Gets a access token for every generated user, like the clients do.
+     */
+    void login() throws IOException, InterruptedException {
+        for (long userId = 1; userId <= settings.getUsers(); userId++) {
+            String credentials = SyntheticTreeGenerator.USERNAME_PREFIX + userId + ":" + SyntheticTreeGenerator.PASSWORD_HASH;
+            JsonNode refreshToken = sendForJson(HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + "/" + BASE_API_URI + USER_BASE_URI + "login"))
+                    .header("Authorization", AUTHORIZATION_BASIC_PREFIX + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                    .GET().build());
+            JsonNode accessToken = sendForJson(HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + "/" + BASE_API_URI + USER_BASE_URI + "auth"))
+                    .header("Authorization", AUTHORIZATION_BEARER_PREFIX + refreshToken.get("tokenValue").asText())
+                    .GET().build());
+            accessTokens.put(userId, AUTHORIZATION_BEARER_PREFIX + accessToken.get("tokenValue").asText());
+        }
+    }
+
+    private JsonNode sendForJson(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400)
+            throw new IllegalStateException(request.uri() + " answered with " + response.statusCode() + ": " + response.body());
+        return objectMapper.readTree(response.body());
+    }
+
+    Map<String, Object> runScenario(String name, Map<LoadTestOperation, Integer> mix, MongoClient mongoClient) throws InterruptedException {
+        Map<LoadTestOperation, LatencyRecorder> recorders = new EnumMap<>(LoadTestOperation.class);
+        List<LoadTestOperation> weightedOperations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            recorders.put(operation, new LatencyRecorder());
+            for (int i = 0; i < weight; i++) {
+                weightedOperations.add(operation);
+            }
+        });
+
+        Map<String, Long> opCountersBefore = getOpCounters(mongoClient);
+        ExecutorService executor = Executors.newFixedThreadPool(settings.getConcurrency());
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(settings.getDuration());
+        for (int i = 0; i < settings.getConcurrency(); i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < end) {
+                    LoadTestOperation operation = weightedOperations.get(ThreadLocalRandom.current().nextInt(weightedOperations.size()));
+                    execute(operation, recorders.get(operation));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(settings.getDuration() + 60L, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<String, Long> opCounters = getOpCounters(mongoClient);
+        opCounters.replaceAll((counter, value) -> value - opCountersBefore.getOrDefault(counter, 0L));
+        return report(name, seconds, recorders, opCounters);
+    }
+
+    private void execute(LoadTestOperation operation, LatencyRecorder recorder) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = 1 + random.nextInt(settings.getUsers());
+        List<FileSystemEntity> folders = tree.getFoldersOfUser(userId);
+        String uploadName = null;
+
+        HttpRequest.Builder request;
+        switch (operation) {
+            case CONTENTS:
+                FileSystemEntity folder = folders.get(random.nextInt(folders.size()));
+                String username = SyntheticTreeGenerator.USERNAME_PREFIX.toLowerCase() + userId;
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + "contents"))
+                        .header(FS_PATH_HEADER, "/".equals(folder.getPath()) ? "/" + username : "/" + username + folder.getPath())
+                        .GET();
+                break;
+            case SEARCH:
+                String fileName = tree.getFileNames().get(random.nextInt(tree.getFileNames().size()));
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + "search?name=" + URLEncoder.encode(fileName, StandardCharsets.UTF_8))).GET();
+                break;
+            case UPLOAD:
+                uploadName = "upload" + runId + "-" + uploadCounter.incrementAndGet() + ".txt";
+                FileSystemUpload upload = FileSystemUpload.builder().path(uploadName).name(uploadName).mimeType("text/plain").size(1234).build();
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + folders.get(0).getFileSystemId() + "/upload"))
+                        .POST(createJsonBody(upload));
+                break;
+            case PREFLIGHT:
+                List<FileSystemUpload> uploads = new ArrayList<>();
+                for (int i = 0; i < UPLOADS_PER_PREFLIGHT; i++) {
+                    uploads.add(FileSystemUpload.builder().path("preflight/folder/file" + i + ".txt").name("file" + i + ".txt").mimeType("text/plain").size(1234).build());
+                }
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + folders.get(random.nextInt(folders.size())).getFileSystemId() + "/upload/preflight"))
+                        .POST(createJsonBody(uploads));
+                break;
+            case DOWNLOAD:
+                // the home folder would download the whole tree of the user.
+                FileSystemEntity folderToDownload = folders.size() > 1 ? folders.get(1 + random.nextInt(folders.size() - 1)) : folders.get(0);
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + "download?ids=" + folderToDownload.getFileSystemId())).GET();
+                break;
+            case DELETE:
+                Pair<Long, Long> uploadedFile = uploadedFiles.poll();
+                if (null == uploadedFile) {
+                    recorder.skip();
+                    return;
+                }
+                userId = uploadedFile.getFirst();
+                request = HttpRequest.newBuilder(URI.create(fileSystemUri + uploadedFile.getSecond() + "/delete")).DELETE();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+
+        long start = System.nanoTime();
+        boolean successful;
+        try {
+            HttpResponse<String> response = httpClient.send(request.header("Authorization", accessTokens.get(userId)).build(), HttpResponse.BodyHandlers.ofString());
+            successful = response.statusCode() < 400;
+            if (successful && null != uploadName)
+                rememberUploadedFile(userId, uploadName, response.body());
+        } catch (IOException ex) {
+            successful = false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        recorder.record(System.nanoTime() - start, successful);
+    }
+
+    private HttpRequest.BodyPublisher createJsonBody(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void rememberUploadedFile(long userId, String uploadName, String responseBody) throws IOException {
+        for (JsonNode item : objectMapper.readTree(responseBody)) {
+            if (uploadName.equals(item.get("name").asText()))
+                uploadedFiles.add(new Pair<>(userId, item.get("fileSystemId").asLong()));
+        }
+    }
+
+    private Map<String, Long> getOpCounters(MongoClient mongoClient) {
+        Document opCounters = (Document) mongoClient.getDatabase("admin").runCommand(new Document("serverStatus", 1)).get("opcounters");
+        Map<String, Long> counters = new TreeMap<>();
+        opCounters.forEach((counter, value) -> counters.put(counter, ((Number) value).longValue()));
+        return counters;
+    }
+
+    private Map<String, Object> report(String name, double seconds, Map<LoadTestOperation, LatencyRecorder> recorders, Map<String, Long> opCounters) {
+        int totalRequests = recorders.values().stream().mapToInt(LatencyRecorder::getCount).sum();
+        System.out.printf("%s: %d requests in %.1f s, %.1f req/s, db operations %s%n", name, totalRequests, seconds, totalRequests / seconds, opCounters);
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        recorders.forEach((operation, recorder) -> {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", recorder.getCount());
+            result.put("errors", recorder.getErrors());
+            result.put("skipped", recorder.getSkipped());
+            result.put("throughput", recorder.getCount() / seconds);
+            result.put("p50", recorder.getPercentile(0.5));
+            result.put("p99", recorder.getPercentile(0.99));
+            result.put("p999", recorder.getPercentile(0.999));
+            operations.put(operation.getName(), result);
+
+            System.out.printf("  %-10s %8d requests, %6d errors, %6d skipped, %8.1f req/s, p50 %7.1f ms, p99 %7.1f ms, p999 %7.1f ms%n",
+                    operation.getName(), recorder.getCount(), recorder.getErrors(), recorder.getSkipped(), recorder.getCount() / seconds,
+                    recorder.getPercentile(0.5), recorder.getPercentile(0.99), recorder.getPercentile(0.999));
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", name);
+        result.put("seconds", seconds);
+        result.put("requests", totalRequests);
+        result.put("throughput", totalRequests / seconds);
+        result.put("operations", operations);
+        result.put("dbOperations", opCounters);
+        return result;
+    }
+}
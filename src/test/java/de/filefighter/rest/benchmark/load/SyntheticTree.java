@@ -0,0 +1,53 @@
+package de.filefighter.rest.benchmark.load;
+
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Users and entities generated by the {@link SyntheticTreeGenerator}.
+ */
+public class SyntheticTree {
+
+    private final List<UserEntity> users = new ArrayList<>();
+    private final List<FileSystemEntity> entities = new ArrayList<>();
+    private final Map<Long, List<FileSystemEntity>> foldersByOwner = new HashMap<>();
+    private final List<String> fileNames = new ArrayList<>();
+
+    void addUser(UserEntity user) {
+        users.add(user);
+    }
+
+    void addFolder(FileSystemEntity folder) {
+        entities.add(folder);
+        foldersByOwner.computeIfAbsent(folder.getOwnerId(), ownerId -> new ArrayList<>()).add(folder);
+    }
+
+    void addFile(FileSystemEntity file) {
+        entities.add(file);
+        fileNames.add(file.getName());
+    }
+
+    public List<UserEntity> getUsers() {
+        return users;
+    }
+
+    public List<FileSystemEntity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return the folders of the user, the first one is the home folder.
+     */
+    public List<FileSystemEntity> getFoldersOfUser(long userId) {
+        return foldersByOwner.get(userId);
+    }
+
+    public List<String> getFileNames() {
+        return fileNames;
+    }
+}
@@ -0,0 +1,124 @@
+package de.filefighter.rest.benchmark.load;
+
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static de.filefighter.rest.configuration.RestConfiguration.RUNTIME_USER_ID;
+import static de.filefighter.rest.domain.filesystem.type.FileSystemType.FOLDER;
+import static de.filefighter.rest.domain.filesystem.type.FileSystemType.TEXT;
+import static de.filefighter.rest.domain.user.group.Group.*;
+
+/**
+ * Generates users with a folder tree each, the {@link ReadEndpointLoadDriver} seeds the db with it and drives the endpoints on it.
+ * Every folder has fanOut sub folders up to the depth and the given number of files. With the shareDensity as probability
+ * a entity is visible for the family group, so other users see it too.
+ */
+class SyntheticTreeGenerator {
+
+    // sha256 of the password with salt, every generated user has the same one.
+    static final String PASSWORD_HASH = "D3500EF92337ED226F500EE57084D8FEEE559D0E411A635BC861DFD8159C0FBC";
+    static final String USERNAME_PREFIX = "LoadUser";
+
+    private final LoadTestSettings settings;
+    private final long timeStamp = Instant.now().getEpochSecond();
+    private long nextFileSystemId = 0;
+
+    SyntheticTreeGenerator(LoadTestSettings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * The same settings always generate the same tree.
+     */
+    SyntheticTree generate() {
+        Random random = new Random(settings.getSeed());
+        SyntheticTree tree = new SyntheticTree();
+        nextFileSystemId = 0;
+
+        tree.addUser(UserEntity.builder()
+                .userId(RUNTIME_USER_ID)
+                .username("FileFighter")
+                .lowercaseUsername("filefighter")
+                .groupIds(new long[]{SYSTEM.getGroupId()})
+                .build());
+
+        for (long userId = 1; userId <= settings.getUsers(); userId++) {
+            String username = USERNAME_PREFIX + userId;
+            tree.addUser(UserEntity.builder()
+                    .userId(userId)
+                    .username(username)
+                    .lowercaseUsername(username.toLowerCase())
+                    .groupIds(userId == 1 ? new long[]{ADMIN.getGroupId(), FAMILY.getGroupId()} : new long[]{FAMILY.getGroupId()})
+                    .build());
+
+            FileSystemEntity homeFolder = createFolder(userId, "HOME_" + userId, "/", random);
+            tree.addFolder(homeFolder);
+            addFolderContents(tree, homeFolder, 0, random);
+        }
+        return tree;
+    }
+
+    private void addFolderContents(SyntheticTree tree, FileSystemEntity folder, int level, Random random) {
+        List<FileSystemEntity> children = new ArrayList<>();
+        for (int i = 0; i < settings.getFiles(); i++) {
+            long fileSystemId = nextFileSystemId++;
+            FileSystemEntity file = FileSystemEntity.builder()
+                    .fileSystemId(fileSystemId)
+                    .name("file" + fileSystemId + ".txt")
+                    .isFile(true)
+                    .typeId(TEXT.getId())
+                    .mimeType("text/plain")
+                    .size(random.nextInt(10_000_000))
+                    .ownerId(folder.getOwnerId())
+                    .lastUpdatedBy(folder.getOwnerId())
+                    .lastUpdated(timeStamp)
+                    .build();
+            share(file, random);
+            tree.addFile(file);
+            children.add(file);
+        }
+
+        if (level < settings.getDepth()) {
+            for (int i = 0; i < settings.getFanOut(); i++) {
+                String name = "Folder" + i;
+                String path = ("/".equals(folder.getPath()) ? "" : folder.getPath()) + "/" + name.toLowerCase();
+                FileSystemEntity subFolder = createFolder(folder.getOwnerId(), name, path, random);
+                tree.addFolder(subFolder);
+                addFolderContents(tree, subFolder, level + 1, random);
+                children.add(subFolder);
+            }
+        }
+
+        folder.setItemIds(children.stream().mapToLong(FileSystemEntity::getFileSystemId).toArray());
+        folder.setSize(children.stream().mapToDouble(FileSystemEntity::getSize).sum());
+    }
+
+    private FileSystemEntity createFolder(long ownerId, String name, String path, Random random) {
+        FileSystemEntity folder = FileSystemEntity.builder()
+                .fileSystemId(nextFileSystemId++)
+                .name(name)
+                .path(path)
+                .isFile(false)
+                .typeId(FOLDER.getId())
+                .ownerId(ownerId)
+                .lastUpdatedBy(ownerId)
+                .lastUpdated(timeStamp)
+                .build();
+        share(folder, random);
+        return folder;
+    }
+
+    private void share(FileSystemEntity entity, Random random) {
+        if (random.nextDouble() >= settings.getShareDensity())
+            return;
+
+        entity.setVisibleForGroupIds(new long[]{FAMILY.getGroupId()});
+        if (random.nextBoolean())
+            entity.setEditableFoGroupIds(new long[]{FAMILY.getGroupId()});
+    }
+}
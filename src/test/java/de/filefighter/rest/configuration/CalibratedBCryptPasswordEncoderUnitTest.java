@@ -0,0 +1,61 @@
+package de.filefighter.rest.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedBCryptPasswordEncoderUnitTest {
+
+    private static final String PASSWORD = "86C9C198F7DF1F0E6633E21A12BCA14730A27070BBCC742FEC8B2B14B44A0126";
+
+    @Test
+    void pickCostStaysWithinTheBudget() {
+        // 1ms at cost 10, so 4ms at cost 12 and 8ms at cost 13.
+        long budgetNanos = 5_000_000;
+        assertEquals(12, CalibratedBCryptPasswordEncoder.pickCost(budgetNanos, 1_000_000));
+        assertEquals(13, CalibratedBCryptPasswordEncoder.pickCost(8_000_000, 1_000_000));
+        // slow hardware still gets the minimum.
+        assertEquals(CalibratedBCryptPasswordEncoder.MIN_COST, CalibratedBCryptPasswordEncoder.pickCost(budgetNanos, 10_000_000));
+        assertEquals(CalibratedBCryptPasswordEncoder.MAX_COST, CalibratedBCryptPasswordEncoder.pickCost(budgetNanos, 1));
+    }
+
+    @Test
+    void getCostWorks() {
+        assertEquals(10, CalibratedBCryptPasswordEncoder.getCost("$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy"));
+        assertEquals(4, CalibratedBCryptPasswordEncoder.getCost("$2b$04$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy"));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.getCost(null));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.getCost("$2a$1"));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.getCost("$2a$xx$N9qo8uLOickgx2ZMRZoMye"));
+        assertEquals(-1, CalibratedBCryptPasswordEncoder.getCost("plaintext"));
+    }
+
+    @Test
+    void upgradeEncodingIsTrueForEveryOtherCost() {
+        CalibratedBCryptPasswordEncoder encoder = new CalibratedBCryptPasswordEncoder(5);
+
+        assertFalse(encoder.upgradeEncoding(BCrypt.hashpw(PASSWORD, BCrypt.gensalt(5))));
+        assertTrue(encoder.upgradeEncoding(BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4))));
+        assertTrue(encoder.upgradeEncoding(BCrypt.hashpw(PASSWORD, BCrypt.gensalt(6))));
+        assertFalse(encoder.upgradeEncoding("plaintext"));
+    }
+
+    @Test
+    void securityEncoderStoresAlgorithmAndCost() {
+        FileFighterProperties properties = new FileFighterProperties();
+        properties.setPasswordHashingCost(5);
+        PasswordEncoder passwordEncoder = new Security().encoder(properties);
+
+        String encoded = passwordEncoder.encode(PASSWORD);
+        assertTrue(encoded.startsWith("{bcrypt}$2a$05$"));
+        assertTrue(passwordEncoder.matches(PASSWORD, encoded));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+
+        // hashes from before are still accepted, but replaced.
+        String legacyHash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(5));
+        assertTrue(passwordEncoder.matches(PASSWORD, legacyHash));
+        assertTrue(passwordEncoder.upgradeEncoding(legacyHash));
+        assertTrue(passwordEncoder.upgradeEncoding("{bcrypt}" + BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4))));
+    }
+}
@@ -0,0 +1,125 @@
+package de.filefighter.rest.configuration;
+
+import com.mongodb.client.result.UpdateResult;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
+import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DatabaseMigrationsUnitTest {
+
+    private final MongoTemplate mongoTemplateMock = mock(MongoTemplate.class);
+    private final IndexOperations indexOperationsMock = mock(IndexOperations.class);
+    private DatabaseMigrations databaseMigrations;
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplateMock.indexOps(any(Class.class))).thenReturn(indexOperationsMock);
+        databaseMigrations = new DatabaseMigrations(mongoTemplateMock);
+    }
+
+    @Test
+    void mergeDuplicateFoldersIsSkippedWithTheIndex() {
+        IndexInfo index = new IndexInfo(Collections.emptyList(), DatabaseMigrations.FOLDER_PATH_INDEX, true, false, null);
+        when(indexOperationsMock.getIndexInfo()).thenReturn(Collections.singletonList(index));
+
+        databaseMigrations.mergeDuplicateFolders();
+
+        verify(mongoTemplateMock, never()).aggregate(any(Aggregation.class), eq(FileSystemEntity.class), eq(Document.class));
+    }
+
+    @Test
+    void mergeDuplicateFoldersKeepsTheFirstFolder() {
+        when(indexOperationsMock.getIndexInfo()).thenReturn(Collections.emptyList());
+        Document duplicates = new Document("_id", new Document("ownerId", 1L).append("path", "/foo"))
+                .append("fileSystemIds", Arrays.asList(3L, 7L, 9L))
+                .append("count", 3);
+        when(mongoTemplateMock.aggregate(any(Aggregation.class), eq(FileSystemEntity.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(Collections.singletonList(duplicates), new Document()));
+        when(mongoTemplateMock.find(any(Query.class), eq(FileSystemEntity.class))).thenReturn(Arrays.asList(
+                FileSystemEntity.builder().fileSystemId(7).itemIds(new long[]{10, 11}).size(20).build(),
+                FileSystemEntity.builder().fileSystemId(9).itemIds(new long[]{11, 12}).size(30).build()));
+
+        databaseMigrations.mergeDuplicateFolders();
+
+        ArgumentCaptor<Query> survivingFolder = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> survivingFolderUpdate = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).updateFirst(survivingFolder.capture(), survivingFolderUpdate.capture(), eq(FileSystemEntity.class));
+        assertEquals(3L, survivingFolder.getValue().getQueryObject().get("fileSystemId"));
+        Document update = survivingFolderUpdate.getValue().getUpdateObject();
+        Update.Modifier addedItemIds = (Update.Modifier) ((Document) update.get("$addToSet")).get("itemIds");
+        assertEquals(Arrays.asList(10L, 11L, 12L), Arrays.asList((Object[]) addedItemIds.getValue()));
+        assertEquals(50.0, ((Document) update.get("$inc")).get("size"));
+
+        verify(mongoTemplateMock, times(2)).updateMulti(any(Query.class), any(Update.class), eq(FileSystemEntity.class));
+        ArgumentCaptor<Query> removedFolders = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock).remove(removedFolders.capture(), eq(FileSystemEntity.class));
+        assertEquals(new Document("$in", List.of(7L, 9L)), removedFolders.getValue().getQueryObject().get("fileSystemId"));
+    }
+
+    @Test
+    void removeDuplicateAccessTokensIsSkippedWithTheIndex() {
+        IndexInfo index = new IndexInfo(Collections.singletonList(IndexField.create("userId", Sort.Direction.ASC)), "userId", true, false, null);
+        when(indexOperationsMock.getIndexInfo()).thenReturn(Collections.singletonList(index));
+
+        databaseMigrations.removeDuplicateAccessTokens();
+
+        verify(mongoTemplateMock, never()).aggregate(any(Aggregation.class), anyString(), eq(Document.class));
+    }
+
+    @Test
+    void removeDuplicateAccessTokensKeepsTheNewestToken() {
+        when(indexOperationsMock.getIndexInfo()).thenReturn(Collections.emptyList());
+        when(mongoTemplateMock.getCollectionName(AccessTokenEntity.class)).thenReturn("token");
+        Document duplicates = new Document("_id", 1L)
+                .append("mongoIds", Arrays.asList("newest", "older", "oldest"))
+                .append("count", 3);
+        when(mongoTemplateMock.aggregate(any(Aggregation.class), eq("token"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(Collections.singletonList(duplicates), new Document()));
+
+        databaseMigrations.removeDuplicateAccessTokens();
+
+        ArgumentCaptor<Query> removedTokens = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock).remove(removedTokens.capture(), eq("token"));
+        assertEquals(new Document("$in", List.of("older", "oldest")), removedTokens.getValue().getQueryObject().get("_id"));
+    }
+
+    @Test
+    void addRefreshTokenDigestsWorks() {
+        when(mongoTemplateMock.find(any(Query.class), eq(UserEntity.class))).thenReturn(Collections.singletonList(
+                UserEntity.builder().userId(420).refreshToken("rft").build()));
+        when(mongoTemplateMock.updateFirst(any(Query.class), any(Update.class), eq(UserEntity.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        databaseMigrations.addRefreshTokenDigests();
+
+        ArgumentCaptor<Query> user = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).updateFirst(user.capture(), update.capture(), eq(UserEntity.class));
+        assertEquals(420L, user.getValue().getQueryObject().get("userId"));
+        assertEquals("rft", user.getValue().getQueryObject().get("refreshToken"));
+        assertEquals(RefreshTokenDigest.digest("rft"), update.getValue().getUpdateObject().get("$set", Document.class).get("refreshTokenDigest"));
+    }
+}
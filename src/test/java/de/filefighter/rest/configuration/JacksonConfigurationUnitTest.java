@@ -0,0 +1,66 @@
+package de.filefighter.rest.configuration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.user.data.dto.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JacksonConfigurationUnitTest {
+
+    private final JacksonConfiguration jacksonConfiguration = new JacksonConfiguration();
+
+    private final FileSystemItem item = FileSystemItem.builder()
+            .fileSystemId(42)
+            .name("bla.txt")
+            .path("/richard/bla.txt")
+            .owner(User.builder().userId(1).username("Richard").build())
+            .type(FileSystemType.TEXT)
+            .build();
+
+    @Test
+    void cborHttpMessageConverterWorks() throws IOException {
+        AbstractJackson2HttpMessageConverter converter = jacksonConfiguration.cborHttpMessageConverter(createBuilder());
+        assertTrue(converter.canWrite(FileSystemItem.class, MediaType.APPLICATION_CBOR));
+
+        JsonNode actual = writeAndReadBack(converter, MediaType.APPLICATION_CBOR);
+        assertEquals("bla.txt", actual.get("name").asText());
+        assertEquals("Richard", actual.get("owner").get("username").asText());
+    }
+
+    @Test
+    void smileHttpMessageConverterWorks() throws IOException {
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+        AbstractJackson2HttpMessageConverter converter = jacksonConfiguration.smileHttpMessageConverter(createBuilder());
+        assertTrue(converter.canWrite(FileSystemItem.class, smile));
+
+        JsonNode actual = writeAndReadBack(converter, smile);
+        assertEquals(42, actual.get("fileSystemId").asLong());
+        assertEquals("TEXT", actual.get("type").asText());
+    }
+
+    private Jackson2ObjectMapperBuilder createBuilder() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        jacksonConfiguration.fileSystemItemFieldsFilterCustomizer().customize(builder);
+        return builder;
+    }
+
+    private JsonNode writeAndReadBack(AbstractJackson2HttpMessageConverter converter, MediaType mediaType) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(item, mediaType, outputMessage);
+
+        byte[] body = outputMessage.getBodyAsBytes();
+        // no json, the filter of the FileSystemItem is known to the binary mappers too.
+        assertFalse(new String(body, StandardCharsets.UTF_8).contains("\"name\""));
+        return converter.getObjectMapper().readTree(body);
+    }
+}
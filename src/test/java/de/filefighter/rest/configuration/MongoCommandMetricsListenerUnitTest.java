@@ -0,0 +1,58 @@
+package de.filefighter.rest.configuration;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoCommandMetricsListenerUnitTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MongoCommandMetricsListener listener = new MongoCommandMetricsListener(meterRegistry);
+    private final ConnectionDescription connectionDescription = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    @Test
+    void getCollectionNameWorks() {
+        assertEquals("filesystem", MongoCommandMetricsListener.getCollectionName("find", new BsonDocument("find", new BsonString("filesystem"))));
+        assertEquals("user", MongoCommandMetricsListener.getCollectionName("getMore", new BsonDocument("getMore", new BsonInt64(42)).append("collection", new BsonString("user"))));
+        assertNull(MongoCommandMetricsListener.getCollectionName("ping", new BsonDocument("ping", new BsonInt64(1))));
+    }
+
+    @Test
+    void commandSucceededIsRecorded() {
+        BsonDocument command = new BsonDocument("find", new BsonString("filesystem"));
+        listener.commandStarted(new CommandStartedEvent(1, connectionDescription, "filefighter", "find", command));
+        listener.commandSucceeded(new CommandSucceededEvent(1, connectionDescription, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(5)));
+
+        Timer timer = meterRegistry.find(MongoCommandMetricsListener.METRIC_NAME)
+                .tags("command", "find", "collection", "filesystem", "status", "SUCCESS")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertEquals(5, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void commandFailedIsRecorded() {
+        listener.commandFailed(new CommandFailedEvent(2, connectionDescription, "ping", 1000, new RuntimeException()));
+
+        Timer timer = meterRegistry.find(MongoCommandMetricsListener.METRIC_NAME)
+                .tags("command", "ping", "collection", MongoCommandMetricsListener.UNKNOWN_COLLECTION, "status", "FAILED")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+}
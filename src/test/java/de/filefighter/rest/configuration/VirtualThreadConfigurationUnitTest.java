@@ -0,0 +1,18 @@
+package de.filefighter.rest.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VirtualThreadConfigurationUnitTest {
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_17)
+    void failsWithoutVirtualThreads() {
+        VirtualThreadConfiguration configuration = new VirtualThreadConfiguration();
+
+        assertThrows(IllegalStateException.class, configuration::virtualThreadProtocolHandlerCustomizer);
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import de.filefighter.rest.RestApplicationIntegrationTest;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
 import de.filefighter.rest.domain.user.data.persistence.UserEntity;
 import de.filefighter.rest.domain.user.data.persistence.UserRepository;
@@ -24,6 +25,7 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
 
+import static de.filefighter.rest.configuration.RestConfiguration.DB_OPERATIONS_HEADER;
 import static de.filefighter.rest.configuration.RestConfiguration.RUNTIME_USER_ID;
 import static de.filefighter.rest.domain.user.group.Group.SYSTEM;
 import static org.junit.jupiter.api.Assertions.*;
@@ -75,6 +77,7 @@ public class CommonCucumberSteps extends RestApplicationIntegrationTest {
                 .lowercaseUsername(username.toLowerCase())
                 .password(hashedPw)
                 .refreshToken(refreshTokenValue)
+                .refreshTokenDigest(RefreshTokenDigest.digest(refreshTokenValue))
                 .build()));
     }
 
@@ -285,4 +288,14 @@ public class CommonCucumberSteps extends RestApplicationIntegrationTest {
         }
         assertTrue(found);
     }
+
+    @And("the request needed at most {int} database operations")
+    public void theRequestNeededAtMostDatabaseOperations(int maxDatabaseOperations) {
+        String databaseOperations = latestResponse.getHeaders().getFirst(DB_OPERATIONS_HEADER);
+        if (null == databaseOperations)
+            throw new AssertionError("Header " + DB_OPERATIONS_HEADER + " was missing");
+
+        int actual = Integer.parseInt(databaseOperations);
+        assertTrue(actual <= maxDatabaseOperations, "Request needed " + actual + " database operations, the budget was " + maxDatabaseOperations);
+    }
 }
@@ -2,7 +2,9 @@ package de.filefighter.rest.domain.authentication;
 
 import de.filefighter.rest.domain.common.InputSanitizerService;
 import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
 import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.business.RefreshTokenDigest;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.user.business.UserDTOService;
 import de.filefighter.rest.domain.user.data.dto.User;
@@ -10,33 +12,41 @@ import de.filefighter.rest.domain.user.data.persistence.UserEntity;
 import de.filefighter.rest.domain.user.data.persistence.UserRepository;
 import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
 import de.filefighter.rest.domain.user.group.Group;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BEARER_PREFIX;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class AuthenticationBusinessServiceUnitTest {
 
     private final UserRepository userRepositoryMock = mock(UserRepository.class);
     private final UserDTOService userDtoServiceMock = mock(UserDTOService.class);
     private final InputSanitizerService inputSanitizerServiceMock = mock(InputSanitizerService.class);
-    private final PasswordEncoder passwordEncoderMock = mock(PasswordEncoder.class);
+    private final PasswordHashingService passwordHashingServiceMock = mock(PasswordHashingService.class);
     private final AccessTokenBusinessService accessTokenBusinessServiceMock = mock(AccessTokenBusinessService.class);
+    private final MongoTemplate mongoTemplateMock = mock(MongoTemplate.class);
     private final AuthenticationBusinessService authenticationBusinessService =
             new AuthenticationBusinessService(
                     userRepositoryMock,
                     userDtoServiceMock,
                     inputSanitizerServiceMock,
-                    passwordEncoderMock,
-                    accessTokenBusinessServiceMock);
+                    passwordHashingServiceMock,
+                    accessTokenBusinessServiceMock,
+                    mongoTemplateMock);
 
     @Test
     void authenticateUserWithUsernameAndPasswordThrows() {
@@ -68,10 +78,12 @@ class AuthenticationBusinessServiceUnitTest {
 
         UserEntity userEntityFound = UserEntity.builder().build();
         when(userRepositoryMock.findByLowercaseUsername(any())).thenReturn(userEntityFound);
-        when(passwordEncoderMock.matches(any(), eq(userEntityFound.getPassword()))).thenReturn(false);
+        when(passwordHashingServiceMock.matches(any(), eq(userEntityFound.getPassword()))).thenReturn(CompletableFuture.completedFuture(false));
 
-        noAuthEx = assertThrows(UserNotAuthenticatedException.class, () ->
-                authenticationBusinessService.authenticateUserWithUsernameAndPassword(base64EncodedUsernameAndPassword));
+        CompletableFuture<User> wrongPassword = authenticationBusinessService.authenticateUserWithUsernameAndPassword(base64EncodedUsernameAndPassword);
+        CompletionException completionEx = assertThrows(CompletionException.class, wrongPassword::join);
+        assertTrue(completionEx.getCause() instanceof UserNotAuthenticatedException);
+        noAuthEx = (UserNotAuthenticatedException) completionEx.getCause();
         assertEquals(UserNotAuthenticatedException.getErrorMessagePrefix() + " No User found with this username and password.", noAuthEx.getMessage());
     }
 
@@ -87,39 +99,73 @@ class AuthenticationBusinessServiceUnitTest {
         when(inputSanitizerServiceMock.sanitizeString(username)).thenReturn(username);
         when(inputSanitizerServiceMock.passwordIsValid(password)).thenReturn(true);
         when(userRepositoryMock.findByLowercaseUsername(username)).thenReturn(dummyEntity);
-        when(passwordEncoderMock.matches(password, null)).thenReturn(true);
+        when(passwordHashingServiceMock.matches(password, null)).thenReturn(CompletableFuture.completedFuture(true));
         when(userDtoServiceMock.createDto(dummyEntity)).thenReturn(dummyUser);
 
-        User actual = authenticationBusinessService.authenticateUserWithUsernameAndPassword(usernameAndPassword);
+        User actual = authenticationBusinessService.authenticateUserWithUsernameAndPassword(usernameAndPassword).join();
         assertEquals(dummyUser, actual);
     }
 
+    @Test
+    void authenticateUserWithUsernameAndPasswordRehashesPassword() {
+        String username = "user";
+        String password = "5E884898DA28047151D0E56F8DC6292773603D0D6AABBDD62A11EF721D1542D8";
+        String usernameAndPassword = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        UserEntity dummyEntity = UserEntity.builder().userId(420).password("$2a$10$oldHash").build();
+
+        when(inputSanitizerServiceMock.sanitizeString(password)).thenReturn(password);
+        when(inputSanitizerServiceMock.sanitizeString(username)).thenReturn(username);
+        when(inputSanitizerServiceMock.passwordIsValid(password)).thenReturn(true);
+        when(userRepositoryMock.findByLowercaseUsername(username)).thenReturn(dummyEntity);
+        when(passwordHashingServiceMock.matches(password, "$2a$10$oldHash")).thenReturn(CompletableFuture.completedFuture(true));
+        when(passwordHashingServiceMock.needsRehash("$2a$10$oldHash")).thenReturn(true);
+        when(passwordHashingServiceMock.encode(password)).thenReturn(CompletableFuture.completedFuture("{bcrypt}$2a$12$newHash"));
+
+        authenticationBusinessService.authenticateUserWithUsernameAndPassword(usernameAndPassword).join();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).updateFirst(query.capture(), update.capture(), eq(UserEntity.class));
+        assertEquals("$2a$10$oldHash", query.getValue().getQueryObject().get("password"));
+        assertEquals("{bcrypt}$2a$12$newHash", update.getValue().getUpdateObject().get("$set", Document.class).get("password"));
+
+        // a saturated pool only skips the rehash.
+        when(passwordHashingServiceMock.encode(password)).thenThrow(new ServiceOverloadedException("test"));
+        assertDoesNotThrow(() -> authenticationBusinessService.authenticateUserWithUsernameAndPassword(usernameAndPassword).join());
+    }
+
     @Test
     void authenticateUserWithRefreshTokenThrowsExceptions() {
         String refreshToken = "Something";
         String authString = AUTHORIZATION_BEARER_PREFIX + refreshToken;
 
-        when(userRepositoryMock.findByRefreshToken(refreshToken)).thenReturn(null);
+        when(userRepositoryMock.findByRefreshTokenDigest(RefreshTokenDigest.digest(authString))).thenReturn(null);
 
         UserNotAuthenticatedException ex = assertThrows(UserNotAuthenticatedException.class, () ->
                 authenticationBusinessService.authenticateUserWithRefreshToken(authString));
         assertEquals(UserNotAuthenticatedException.getErrorMessagePrefix() + " No user found for this Refresh Token.", ex.getMessage());
+
+        // the digest matched, but the token did not.
+        when(userRepositoryMock.findByRefreshTokenDigest(RefreshTokenDigest.digest(refreshToken))).thenReturn(UserEntity.builder().refreshToken("SomethingElse").build());
+
+        ex = assertThrows(UserNotAuthenticatedException.class, () ->
+                authenticationBusinessService.authenticateUserWithRefreshToken(refreshToken));
+        assertEquals(UserNotAuthenticatedException.getErrorMessagePrefix() + " No user found for this Refresh Token.", ex.getMessage());
     }
 
     @Test
     void authenticateUserWithRefreshTokenWorksCorrectly() {
         String refreshToken = "Something";
-        UserEntity dummyEntity = UserEntity.builder().build();
+        UserEntity dummyEntity = UserEntity.builder().refreshToken(refreshToken).refreshTokenDigest(RefreshTokenDigest.digest(refreshToken)).build();
         User dummyUser = User.builder().build();
 
-        when(userRepositoryMock.findByRefreshToken(refreshToken)).thenReturn(dummyEntity);
+        when(userRepositoryMock.findByRefreshTokenDigest(RefreshTokenDigest.digest(refreshToken))).thenReturn(dummyEntity);
         when(userDtoServiceMock.createDto(dummyEntity)).thenReturn(dummyUser);
 
         User actualUser = authenticationBusinessService.authenticateUserWithRefreshToken(refreshToken);
         assertEquals(dummyUser, actualUser);
     }
 
-
     @Test
     void authenticateUserWithAccessTokenThrows() {
         long userId = 420;
@@ -151,6 +197,18 @@ class AuthenticationBusinessServiceUnitTest {
         assertDoesNotThrow(() -> authenticationBusinessService.authenticateUserWithAccessToken(accessToken));
     }
 
+    @Test
+    void authenticateUserWithAccessTokenUsesUserSnapshot() {
+        long userId = 420;
+        User snapshotUser = User.builder().userId(userId).username("Richard").groups(new Group[]{Group.ADMIN}).build();
+        AccessToken accessToken = AccessToken.builder().userId(userId).user(snapshotUser).build();
+
+        assertEquals(snapshotUser, authenticationBusinessService.authenticateUserWithAccessToken(accessToken));
+        assertDoesNotThrow(() -> authenticationBusinessService.authenticateUserWithAccessTokenAndGroup(accessToken, Group.ADMIN));
+        assertThrows(UserNotAuthenticatedException.class, () -> authenticationBusinessService.authenticateUserWithAccessTokenAndGroup(accessToken, Group.FAMILY));
+        verify(userRepositoryMock, never()).findByUserId(anyLong());
+    }
+
     @Test
     void authenticateUserWithAccessTokenAndGroupThrows() {
         long userId = 420;
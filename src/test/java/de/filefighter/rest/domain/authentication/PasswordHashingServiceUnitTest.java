@@ -0,0 +1,61 @@
+package de.filefighter.rest.domain.authentication;
+
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHashingServiceUnitTest {
+
+    private final PasswordEncoder passwordEncoderMock = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHashingService passwordHashingService =
+            new PasswordHashingService(passwordEncoderMock, PasswordHashingService.createExecutor(1, 1), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Test
+    void matchesAndEncodeRunOnThePool() throws Exception {
+        when(passwordEncoderMock.matches("password", "hash")).thenAnswer(invocation -> Thread.currentThread().getName().startsWith("password-hashing-"));
+        when(passwordEncoderMock.encode("password")).thenReturn("hash");
+
+        assertTrue(passwordHashingService.matches("password", "hash").get(1, TimeUnit.SECONDS));
+        assertEquals("hash", passwordHashingService.encode("password").get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoderMock.matches(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+
+        CompletableFuture<Boolean> running = passwordHashingService.matches("a", "hash");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = passwordHashingService.matches("b", "hash");
+        assertEquals(1.0, meterRegistry.get("executor.queued").tag("name", PasswordHashingService.EXECUTOR_NAME).gauge().value());
+
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, () -> passwordHashingService.matches("c", "hash"));
+        assertEquals(ServiceOverloadedException.getErrorMessagePrefix() + " Too many logins at the same time.", ex.getMessage());
+        assertEquals(1.0, meterRegistry.get(PasswordHashingService.REJECTED_METRIC).counter().count());
+
+        release.countDown();
+        assertTrue(running.get(1, TimeUnit.SECONDS));
+        assertTrue(queued.get(1, TimeUnit.SECONDS));
+    }
+}
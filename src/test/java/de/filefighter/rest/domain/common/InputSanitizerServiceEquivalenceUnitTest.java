@@ -0,0 +1,175 @@
+package de.filefighter.rest.domain.common;
+
+import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BASIC_PREFIX;
+import static de.filefighter.rest.configuration.RestConfiguration.AUTHORIZATION_BEARER_PREFIX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the scanners of the InputSanitizerService with the regular expressions they replaced, on random inputs.
+ * The inputs are built from the characters the expressions treat differently, so the edge cases are hit often.
+ */
+class InputSanitizerServiceEquivalenceUnitTest {
+
+    private static final int SAMPLES = 20_000;
+    private static final String[] PARTS = {
+            "a", "Z", "0", "9", "f", "F", "g", "/", "//", ".", "-", "_", "=",
+            " ", "\t", "\n", "\r", "\u000B", "\f", "\u00A0", "\u2003",
+            "\u0085", "\u2028", "\u2029", "\uD83D\uDE00", "\uD83D",
+            "~", "#", "@", "*", "+", ":", "!", "?", "&", "%", "<", ">", "|", "\"", "^", "\\",
+            AUTHORIZATION_BEARER_PREFIX, AUTHORIZATION_BASIC_PREFIX, "Bearer", "bearer "
+    };
+    private static final String HEX = "0123456789abcdefABCDEF";
+
+    private final InputSanitizerService inputSanitizerService = new InputSanitizerService();
+    private final Random random = new Random(42);
+
+    @Test
+    void sanitizeStringIsEquivalent() {
+        assertEquivalent(this::randomString, ReferenceInputSanitizer::sanitizeString, inputSanitizerService::sanitizeString);
+    }
+
+    @Test
+    void pathIsValidIsEquivalent() {
+        assertEquivalent(this::randomString, ReferenceInputSanitizer::pathIsValid, inputSanitizerService::pathIsValid);
+    }
+
+    @Test
+    void sanitizePathIsEquivalent() {
+        assertEquivalent(this::randomString, ReferenceInputSanitizer::sanitizePath, inputSanitizerService::sanitizePath);
+    }
+
+    @Test
+    void passwordIsValidIsEquivalent() {
+        assertEquivalent(this::randomPassword, ReferenceInputSanitizer::passwordIsValid, inputSanitizerService::passwordIsValid);
+    }
+
+    @Test
+    void sanitizeRequestHeaderIsEquivalent() {
+        for (String header : new String[]{AUTHORIZATION_BEARER_PREFIX, AUTHORIZATION_BASIC_PREFIX}) {
+            assertEquivalent(() -> randomHeaderValue(header),
+                    value -> ReferenceInputSanitizer.sanitizeRequestHeader(header, value),
+                    value -> inputSanitizerService.sanitizeRequestHeader(header, value));
+        }
+    }
+
+    private <T> void assertEquivalent(Supplier<String> inputs, Function<String, T> reference, Function<String, T> actual) {
+        for (int i = 0; i < SAMPLES; i++) {
+            String input = inputs.get();
+            assertEquals(outcomeOf(reference, input), outcomeOf(actual, input), () -> "Different outcome for '" + escape(input) + "'");
+        }
+    }
+
+    private static <T> String outcomeOf(Function<String, T> function, String input) {
+        try {
+            return "returned " + function.apply(input);
+        } catch (RequestDidntMeetFormalRequirementsException ex) {
+            return "rejected with " + ex.getMessage();
+        } catch (NullPointerException ex) {
+            return "failed with NullPointerException";
+        }
+    }
+
+    private String randomString() {
+        int dice = random.nextInt(20);
+        if (dice == 0)
+            return null;
+        if (dice == 1)
+            return "";
+
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            builder.append(PARTS[random.nextInt(PARTS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private String randomPassword() {
+        int length = 62 + random.nextInt(5);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(HEX.charAt(random.nextInt(HEX.length())));
+        }
+        // replace one character with a random part in some of the cases.
+        if (random.nextBoolean()) {
+            int position = random.nextInt(length);
+            builder.replace(position, position + 1, PARTS[random.nextInt(PARTS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private String randomHeaderValue(String header) {
+        String rest = randomString();
+        if (null == rest || random.nextInt(10) == 0)
+            return rest;
+
+        return header + rest;
+    }
+
+    private static String escape(String input) {
+        if (null == input)
+            return "null";
+
+        StringBuilder escaped = new StringBuilder();
+        for (char c : input.toCharArray()) {
+            if (c < 0x20 || c > 0x7e)
+                escaped.append(String.format("\\u%04X", (int) c));
+            else
+                escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The implementation with regular expressions before the scanners.
+     */
+    private static class ReferenceInputSanitizer {
+
+        static String sanitizeString(String string) {
+            if (!InputSanitizerService.stringIsValid(string))
+                throw new RequestDidntMeetFormalRequirementsException("String was empty.");
+            return string.replaceAll("\\s", "");
+        }
+
+        static String sanitizePath(String path) {
+            if (!pathIsValid(path))
+                throw new RequestDidntMeetFormalRequirementsException("Path was not valid.");
+
+            return sanitizeString(path);
+        }
+
+        static String sanitizeRequestHeader(String header, String testString) {
+            if (!(InputSanitizerService.stringIsValid(testString) && InputSanitizerService.stringIsValid(header)))
+                throw new RequestDidntMeetFormalRequirementsException("Header does not contain a valid String.");
+
+            if (!testString.matches("^" + header + "[^\\s](.*)$"))
+                throw new RequestDidntMeetFormalRequirementsException("Header does not contain '" + header + "', or format is invalid.");
+            String[] split = testString.split(header);
+            if (split.length < 2) // was an ArrayIndexOutOfBoundsException, the scanner rejects these values.
+                throw new RequestDidntMeetFormalRequirementsException("Header does not contain '" + header + "', or format is invalid.");
+            return split[1];
+        }
+
+        static boolean passwordIsValid(String password) {
+            Pattern pattern = Pattern.compile("\\b[A-Fa-f0-9]{64}\\b");
+            return pattern.matcher(password).matches();
+        }
+
+        static boolean pathIsValid(String path) {
+            String validString = sanitizeString(path);
+
+            Pattern pattern = Pattern.compile("[~#@*+:!?&%<>|\"^\\\\]");
+            boolean stringContainsDoubleSlash = validString.contains("//");
+
+            return !(pattern.matcher(validString).find() || stringContainsDoubleSlash);
+        }
+    }
+}
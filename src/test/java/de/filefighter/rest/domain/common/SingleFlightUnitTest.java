@@ -0,0 +1,147 @@
+package de.filefighter.rest.domain.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightUnitTest {
+
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallsShareTheResult() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                return calls.incrementAndGet();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Integer> second = executor.submit(() -> singleFlight.execute("key", calls::incrementAndGet));
+            // give the second call time to join the running one.
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(1, first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, singleFlight.getRunningCalls());
+    }
+
+    @Test
+    void callsAfterwardsRunAgain() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, singleFlight.execute("key", calls::incrementAndGet));
+        assertEquals(2, singleFlight.execute("key", calls::incrementAndGet));
+        assertEquals(3, singleFlight.execute("otherKey", calls::incrementAndGet));
+    }
+
+    @Test
+    void exceptionsAreThrownToAllCallers() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> singleFlight.execute("key", () -> {
+                started.countDown();
+                await(release);
+                throw new IllegalStateException("failed");
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Integer> second = executor.submit(() -> singleFlight.execute("key", () -> 42));
+            Thread.sleep(100);
+            release.countDown();
+
+            ExecutionException firstEx = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException secondEx = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+            assertTrue(firstEx.getCause() instanceof IllegalStateException);
+            assertTrue(secondEx.getCause() instanceof IllegalStateException);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, singleFlight.getRunningCalls());
+    }
+
+    @Test
+    void resultsAreSharedWithinTheWindow() {
+        AtomicLong nanos = new AtomicLong();
+        SingleFlight<String, Integer> coalescing = new SingleFlight<>(1000, 10, nanos::get, eviction -> {
+        });
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, coalescing.execute("key", calls::incrementAndGet));
+        nanos.addAndGet(1000);
+        assertEquals(1, coalescing.execute("key", calls::incrementAndGet));
+        assertEquals(2, coalescing.execute("otherKey", calls::incrementAndGet));
+
+        nanos.addAndGet(1);
+        assertEquals(3, coalescing.execute("key", calls::incrementAndGet));
+    }
+
+    @Test
+    void failuresAreNotKeptWithinTheWindow() {
+        SingleFlight<String, Integer> coalescing = new SingleFlight<>(1000, 10, () -> 0, Runnable::run);
+
+        assertThrows(IllegalStateException.class, () -> coalescing.execute("key", () -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(0, coalescing.getRunningCalls());
+        assertEquals(42, coalescing.execute("key", () -> 42));
+    }
+
+    @Test
+    void keptResultsAreEvictedAfterTheWindow() {
+        List<Runnable> evictions = new ArrayList<>();
+        SingleFlight<String, Integer> coalescing = new SingleFlight<>(1000, 10, () -> 0, evictions::add);
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescing.execute("key", calls::incrementAndGet);
+        assertEquals(1, coalescing.getRunningCalls());
+        assertEquals(1, evictions.size());
+
+        evictions.get(0).run();
+        assertEquals(0, coalescing.getRunningCalls());
+        assertEquals(2, coalescing.execute("key", calls::incrementAndGet));
+    }
+
+    @Test
+    void onlyFewResultsAreKept() {
+        List<Runnable> evictions = new ArrayList<>();
+        SingleFlight<Integer, Integer> coalescing = new SingleFlight<>(1000, 2, () -> 0, evictions::add);
+        for (int i = 0; i < 5; i++) {
+            int key = i;
+            coalescing.execute(key, () -> key);
+        }
+        assertEquals(2, coalescing.getRunningCalls());
+
+        evictions.forEach(Runnable::run);
+        assertEquals(0, coalescing.getRunningCalls());
+        coalescing.execute(5, () -> 5);
+        assertEquals(1, coalescing.getRunningCalls());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.filefighter.rest.domain.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CacheInvalidationBusUnitTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CacheInvalidationBus cacheInvalidationBus = new CacheInvalidationBus(meterRegistry);
+
+    @Test
+    void publishReachesTheListenersOfTheCollection() {
+        List<CacheInvalidation> userInvalidations = new ArrayList<>();
+        List<CacheInvalidation> tokenInvalidations = new ArrayList<>();
+        cacheInvalidationBus.subscribe("user", invalidation -> {
+            throw new IllegalStateException("broken cache");
+        });
+        cacheInvalidationBus.subscribe("user", userInvalidations::add);
+        cacheInvalidationBus.subscribe("token", tokenInvalidations::add);
+
+        CacheInvalidation invalidation = new CacheInvalidation("user", "someId", null);
+        cacheInvalidationBus.publish(invalidation);
+        cacheInvalidationBus.publish(CacheInvalidation.everything("filesystem"));
+
+        assertEquals(List.of(invalidation), userInvalidations);
+        assertEquals(0, tokenInvalidations.size());
+        assertEquals(1.0, meterRegistry.get(CacheInvalidationBus.INVALIDATIONS_METRIC).tag("collection", "user").tag("scope", "document").counter().count());
+        assertEquals(1.0, meterRegistry.get(CacheInvalidationBus.INVALIDATIONS_METRIC).tag("collection", "filesystem").tag("scope", "collection").counter().count());
+    }
+
+    @Test
+    void collectionsAreOnlyWatchedOnceTheyHaveListeners() {
+        List<String> watches = new ArrayList<>();
+        cacheInvalidationBus.subscribe("user", invalidation -> {
+        });
+        cacheInvalidationBus.setCollectionWatcher((collection, withDocuments) -> watches.add(collection + ":" + withDocuments));
+        assertEquals(List.of("user:false"), watches);
+
+        cacheInvalidationBus.subscribe("user", invalidation -> {
+        });
+        cacheInvalidationBus.subscribe("token", invalidation -> {
+        });
+        assertEquals(List.of("user:false", "token:false"), watches);
+
+        // the documents are looked up once a listener needs them.
+        cacheInvalidationBus.subscribeWithDocuments("user", invalidation -> {
+        });
+        cacheInvalidationBus.subscribe("user", invalidation -> {
+        });
+        assertEquals(List.of("user:false", "token:false", "user:true"), watches);
+    }
+}
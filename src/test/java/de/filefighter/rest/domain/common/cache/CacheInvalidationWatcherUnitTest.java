@@ -0,0 +1,100 @@
+package de.filefighter.rest.domain.common.cache;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import de.filefighter.rest.configuration.FileFighterProperties;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationWatcherUnitTest {
+
+    private final CacheInvalidationBus cacheInvalidationBusMock = mock(CacheInvalidationBus.class);
+    private final ReactiveMongoTemplate reactiveMongoTemplateMock = mock(ReactiveMongoTemplate.class);
+    private final CacheInvalidationWatcher cacheInvalidationWatcher =
+            new CacheInvalidationWatcher(reactiveMongoTemplateMock, cacheInvalidationBusMock, new FileFighterProperties());
+
+    @AfterEach
+    void stopWatcher() {
+        cacheInvalidationWatcher.stop();
+    }
+
+    @Test
+    void nothingIsWatchedOnStartup() {
+        cacheInvalidationWatcher.start();
+
+        verify(cacheInvalidationBusMock).setCollectionWatcher(any());
+        verifyNoInteractions(reactiveMongoTemplateMock);
+    }
+
+    @Test
+    void documentsAreOnlyLookedUpIfNeeded() {
+        when(reactiveMongoTemplateMock.executeCommand(any(Document.class))).thenReturn(Mono.just(new Document("setName", "rs0")));
+        when(reactiveMongoTemplateMock.changeStream(eq("user"), any(ChangeStreamOptions.class), eq(Document.class))).thenReturn(Flux.never());
+        ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+
+        cacheInvalidationWatcher.watch("user", false);
+        cacheInvalidationWatcher.watch("user", false);
+        verify(reactiveMongoTemplateMock, times(1)).changeStream(eq("user"), options.capture(), eq(Document.class));
+        assertEquals(Optional.of(FullDocument.DEFAULT), options.getValue().getFullDocumentLookup());
+
+        cacheInvalidationWatcher.watch("user", true);
+        verify(reactiveMongoTemplateMock, times(2)).changeStream(eq("user"), options.capture(), eq(Document.class));
+        assertEquals(Optional.of(FullDocument.UPDATE_LOOKUP), options.getValue().getFullDocumentLookup());
+        // the changes while switching the streams are not known.
+        verify(cacheInvalidationBusMock).publish(CacheInvalidation.everything("user"));
+    }
+
+    @Test
+    void toInvalidationUsesTheDocumentKey() {
+        ObjectId objectId = new ObjectId();
+        Document fullDocument = new Document("userId", 420);
+        ChangeStreamDocument<Document> update = change(OperationType.UPDATE, new BsonDocument("_id", new BsonObjectId(objectId)), fullDocument);
+
+        CacheInvalidation invalidation = CacheInvalidationWatcher.toInvalidation("user", update);
+        assertEquals(new CacheInvalidation("user", objectId.toHexString(), fullDocument), invalidation);
+        assertFalse(invalidation.isEverything());
+    }
+
+    @Test
+    void toInvalidationEvictsEverythingForCollectionEvents() {
+        assertTrue(CacheInvalidationWatcher.toInvalidation("token", change(OperationType.DROP, null, null)).isEverything());
+        assertTrue(CacheInvalidationWatcher.toInvalidation("token", change(OperationType.INVALIDATE, null, null)).isEverything());
+    }
+
+    @Test
+    void changedWriteCountEvictsEverything() {
+        cacheInvalidationWatcher.onWriteCount("filesystem", 10);
+        cacheInvalidationWatcher.onWriteCount("filesystem", 10);
+        verify(cacheInvalidationBusMock, never()).publish(any());
+
+        cacheInvalidationWatcher.onWriteCount("filesystem", 11);
+        verify(cacheInvalidationBusMock).publish(CacheInvalidation.everything("filesystem"));
+    }
+
+    @Test
+    void getWriteCountWorks() {
+        Document collStats = new Document("latencyStats", new Document("writes", new Document("ops", 1337L)));
+        assertEquals(1337L, CacheInvalidationWatcher.getWriteCount(collStats));
+        assertEquals(0L, CacheInvalidationWatcher.getWriteCount(new Document()));
+    }
+
+    private static ChangeStreamDocument<Document> change(OperationType operationType, BsonDocument documentKey, Document fullDocument) {
+        return new ChangeStreamDocument<>(operationType, new BsonDocument(), null, null, fullDocument, documentKey, null, null, null, null);
+    }
+}
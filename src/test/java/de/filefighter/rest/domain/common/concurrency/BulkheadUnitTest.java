@@ -0,0 +1,130 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import de.filefighter.rest.configuration.DatabaseOperations;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadUnitTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Bulkhead bulkhead = new Bulkhead("search", 1, 1, Duration.ofMillis(500), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void tasksRunOnTheBulkheadWithTheOperationsOfTheRequest() {
+        DatabaseOperations databaseOperations = DatabaseOperations.start();
+        Mono<Boolean> task;
+        try {
+            task = bulkhead.execute(() -> Thread.currentThread().getName().startsWith("bulkhead-search-") && databaseOperations == DatabaseOperations.current());
+        } finally {
+            DatabaseOperations.stop();
+        }
+
+        assertTrue(task.block());
+    }
+
+    @Test
+    void rejectsWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Mono<Boolean> running = bulkhead.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }).cache();
+        running.subscribe();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        Mono<Boolean> queued = bulkhead.execute(() -> true).cache();
+        queued.subscribe();
+        assertEquals(1.0, meterRegistry.get("executor.queued").tag("name", "bulkhead.search").gauge().value());
+
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, () -> bulkhead.execute(() -> true).block());
+        assertEquals(ServiceOverloadedException.getErrorMessagePrefix() + " Too many requests for search at the same time.", ex.getMessage());
+        assertEquals(1.0, meterRegistry.get(Bulkhead.REJECTED_METRIC).tag("bulkhead", "search").counter().count());
+
+        release.countDown();
+        assertTrue(running.block());
+        assertTrue(queued.block());
+    }
+
+    @Test
+    void slowTasksTimeOut() {
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, () -> bulkhead.execute(() -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }).block());
+        assertEquals(ServiceOverloadedException.getErrorMessagePrefix() + " The search took longer than 500ms.", ex.getMessage());
+        assertEquals(1.0, meterRegistry.get(Bulkhead.TIMED_OUT_METRIC).tag("bulkhead", "search").counter().count());
+    }
+
+    @Test
+    void queuedTasksThatTimedOutNeverRun() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedTaskRan = new AtomicBoolean();
+
+        Mono<Boolean> running = bulkhead.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }).onErrorReturn(false);
+        CompletableFuture<Boolean> runningResult = running.toFuture();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        assertThrows(ServiceOverloadedException.class, () -> bulkhead.execute(() -> queuedTaskRan.getAndSet(true)).block());
+        // the queue has room again although the first task still runs.
+        assertEquals(0.0, meterRegistry.get("executor.queued").tag("name", "bulkhead.search").gauge().value());
+
+        release.countDown();
+        runningResult.get(5, TimeUnit.SECONDS);
+        bulkhead.shutdown();
+        assertTrue(bulkhead.awaitTermination(Duration.ofSeconds(5)));
+        assertFalse(queuedTaskRan.get());
+    }
+
+    @Test
+    void withoutTimeoutTheRequestWaitsForTheTask() {
+        Bulkhead delete = new Bulkhead("delete", 1, 1, Duration.ZERO, meterRegistry);
+        try {
+            assertTrue(delete.execute(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }).block());
+            assertEquals(0.0, meterRegistry.get(Bulkhead.TIMED_OUT_METRIC).tag("bulkhead", "delete").counter().count());
+        } finally {
+            delete.shutdown();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterUnitTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, 10, 100, meterRegistry);
+
+    @Test
+    void lowPriorityRequestsAreShedFirst() {
+        for (int i = 0; i < 6; i++)
+            assertTrue(concurrencyLimiter.tryAcquire(RequestPriority.LOW));
+        assertFalse(concurrencyLimiter.tryAcquire(RequestPriority.LOW));
+
+        for (int i = 0; i < 3; i++)
+            assertTrue(concurrencyLimiter.tryAcquire(RequestPriority.NORMAL));
+        assertFalse(concurrencyLimiter.tryAcquire(RequestPriority.NORMAL));
+
+        assertTrue(concurrencyLimiter.tryAcquire(RequestPriority.CRITICAL));
+        assertFalse(concurrencyLimiter.tryAcquire(RequestPriority.CRITICAL));
+
+        assertEquals(1.0, meterRegistry.get(ConcurrencyLimiter.SHED_METRIC).tag("priority", "low").counter().count());
+        assertEquals(1.0, meterRegistry.get(ConcurrencyLimiter.SHED_METRIC).tag("priority", "critical").counter().count());
+        assertEquals(10.0, meterRegistry.get(ConcurrencyLimiter.IN_FLIGHT_METRIC).gauge().value());
+        assertEquals(10.0, meterRegistry.get(ConcurrencyLimiter.LIMIT_METRIC).gauge().value());
+
+        concurrencyLimiter.release(-1);
+        assertEquals(9, concurrencyLimiter.getInFlight());
+        assertTrue(concurrencyLimiter.tryAcquire(RequestPriority.CRITICAL));
+    }
+}
@@ -0,0 +1,42 @@
+package de.filefighter.rest.domain.common.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimitUnitTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    void limitGrowsWhileTheLatencyStaysTheSame() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(20, 10, 100);
+        for (int i = 0; i < 200; i++)
+            limit.onSample(5 * MILLI, limit.getLimit());
+
+        assertEquals(100, limit.getLimit());
+    }
+
+    @Test
+    void limitShrinksWhenTheLatencyGrows() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(80, 10, 100);
+        for (int i = 0; i < 50; i++)
+            limit.onSample(5 * MILLI, limit.getLimit());
+        int limitBefore = limit.getLimit();
+
+        for (int i = 0; i < 50; i++)
+            limit.onSample(100 * MILLI, limit.getLimit());
+
+        assertTrue(limit.getLimit() < limitBefore / 2);
+        assertTrue(limit.getLimit() >= 10);
+    }
+
+    @Test
+    void limitStaysWhenFarBelowIt() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(50, 10, 100);
+        for (int i = 0; i < 50; i++)
+            limit.onSample(5 * MILLI + i * MILLI, 3);
+
+        assertEquals(50, limit.getLimit());
+    }
+}
@@ -0,0 +1,76 @@
+package de.filefighter.rest.domain.common.jfr;
+
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RepositoryCallEventAspectUnitTest {
+
+    private final RepositoryCallEventAspect repositoryCallEventAspect = new RepositoryCallEventAspect();
+
+    @Test
+    void formatArgumentsWorks() {
+        UserEntity userEntity = UserEntity.builder().password("secret").build();
+
+        assertEquals("42, [1, 2], [3, 4]", RepositoryCallEventAspect.formatArguments(new Object[]{42L, Arrays.asList(1L, 2L), new long[]{3, 4}}));
+        assertEquals("String, UserEntity, null", RepositoryCallEventAspect.formatArguments(new Object[]{"token", userEntity, null}));
+
+        Object[] manyIds = new Object[]{Collections.nCopies(200, 123456L)};
+        assertEquals(RepositoryCallEventAspect.MAX_ARGUMENTS_LENGTH + 3, RepositoryCallEventAspect.formatArguments(manyIds).length());
+    }
+
+    @Test
+    void countResultsWorks() {
+        assertEquals(0, RepositoryCallEventAspect.countResults(null));
+        assertEquals(2, RepositoryCallEventAspect.countResults(Arrays.asList(1, 2)));
+        assertEquals(1, RepositoryCallEventAspect.countResults(UserEntity.builder().build()));
+        assertEquals(-1, RepositoryCallEventAspect.countResults(5L));
+    }
+
+    @Test
+    void recordRepositoryCallWorks() throws Throwable {
+        List<Long> result = Arrays.asList(1L, 2L, 3L);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        Signature signature = mock(Signature.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(signature.getName()).thenReturn("findAllByFileSystemIdIn");
+        when(signature.getDeclaringType()).thenReturn(List.class);
+        when(joinPoint.getTarget()).thenReturn(new Object());
+        when(joinPoint.getArgs()).thenReturn(new Object[]{Arrays.asList(1L, 2L, 3L)});
+        when(joinPoint.proceed()).thenReturn(result);
+
+        Path recordingFile = Files.createTempFile("repository-call", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryCallEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            assertEquals(result, repositoryCallEventAspect.recordRepositoryCall(joinPoint));
+            recording.stop();
+            recording.dump(recordingFile);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            assertEquals(1, events.size());
+            assertEquals("de.filefighter.RepositoryCall", events.get(0).getEventType().getName());
+            assertEquals("List", events.get(0).getString("repository"));
+            assertEquals("findAllByFileSystemIdIn", events.get(0).getString("method"));
+            assertEquals("[1, 2, 3]", events.get(0).getString("arguments"));
+            assertEquals(3, events.get(0).getInt("resultCount"));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryRateLimiterUnitTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(clock::get);
+    private final RateLimit limit = new RateLimit(2, 0.5);
+
+    @Test
+    void tryAcquireTakesTokensUntilTheBucketIsEmpty() {
+        assertEquals(0, rateLimiter.tryAcquire("user", limit));
+        assertEquals(0, rateLimiter.tryAcquire("user", limit));
+        assertEquals(2, rateLimiter.tryAcquire("user", limit));
+        // other clients have their own bucket.
+        assertEquals(0, rateLimiter.tryAcquire("otherUser", limit));
+
+        clock.addAndGet(2 * SECOND);
+        assertEquals(0, rateLimiter.tryAcquire("user", limit));
+        assertEquals(2, rateLimiter.tryAcquire("user", limit));
+    }
+
+    @Test
+    void chargeCanEmptyTheBucketBelowZero() {
+        assertEquals(0, rateLimiter.tryAcquire("user", limit));
+        rateLimiter.charge("user", limit, 5);
+
+        assertEquals(10, rateLimiter.tryAcquire("user", limit));
+        clock.addAndGet(10 * SECOND);
+        assertEquals(0, rateLimiter.tryAcquire("user", limit));
+    }
+
+    @Test
+    void fullBucketsAreRemoved() {
+        for (int i = 0; i <= InMemoryRateLimiter.SWEEP_THRESHOLD; i++)
+            rateLimiter.tryAcquire("user" + i, limit);
+        assertEquals(InMemoryRateLimiter.SWEEP_THRESHOLD + 1, rateLimiter.getBucketCount());
+
+        clock.addAndGet(2 * SECOND);
+        rateLimiter.tryAcquire("user", limit);
+        assertEquals(1, rateLimiter.getBucketCount());
+    }
+}
@@ -0,0 +1,49 @@
+package de.filefighter.rest.domain.common.ratelimit;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class MongoRateLimiterUnitTest {
+
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> collectionMock = mock(MongoCollection.class);
+    private final MongoTemplate mongoTemplateMock = mock(MongoTemplate.class);
+    private final MongoRateLimiter mongoRateLimiter = new MongoRateLimiter(mongoTemplateMock);
+    private final RateLimit limit = new RateLimit(10, 2);
+
+    @Test
+    void tryAcquireWorks() {
+        when(mongoTemplateMock.getCollectionName(RateLimitBucketEntity.class)).thenReturn("ratelimit");
+        when(mongoTemplateMock.getCollection("ratelimit")).thenReturn(collectionMock);
+        when(collectionMock.findOneAndUpdate(any(Bson.class), anyList(), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(new Document("granted", true).append("tokens", 9.0))
+                .thenReturn(new Document("granted", false).append("tokens", -4.5));
+
+        assertEquals(0, mongoRateLimiter.tryAcquire("user", limit));
+        assertEquals(3, mongoRateLimiter.tryAcquire("user", limit));
+    }
+
+    @Test
+    void createUpdateRefillsBeforeTaking() {
+        List<Bson> update = MongoRateLimiter.createUpdate(limit, 3, false);
+        assertEquals(3, update.size());
+        Document refill = (Document) ((Document) update.get(0)).get("$set");
+        assertEquals("$$NOW", refill.get("updatedAt"));
+        Document granted = (Document) ((Document) update.get(1)).get("$set");
+        assertEquals(new Document("$gte", List.of("$tokens", 3.0)), granted.get("granted"));
+
+        Document forced = (Document) ((Document) MongoRateLimiter.createUpdate(limit, 3, true).get(1)).get("$set");
+        assertEquals(true, forced.get("granted"));
+    }
+}
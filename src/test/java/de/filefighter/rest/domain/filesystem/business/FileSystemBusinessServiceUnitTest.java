@@ -1,9 +1,12 @@
 package de.filefighter.rest.domain.filesystem.business;
 
+import de.filefighter.rest.configuration.FileFighterProperties;
 import de.filefighter.rest.configuration.RestConfiguration;
 import de.filefighter.rest.domain.common.Pair;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
 import de.filefighter.rest.domain.filesystem.data.InteractionType;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
@@ -20,7 +23,9 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static de.filefighter.rest.domain.filesystem.type.FileSystemType.FOLDER;
 import static de.filefighter.rest.domain.filesystem.type.FileSystemType.TEXT;
@@ -34,7 +39,13 @@ class FileSystemBusinessServiceUnitTest {
     private final FileSystemTypeRepository fileSystemTypeRepositoryMock = mock(FileSystemTypeRepository.class);
     private final FileSystemHelperService fileSystemHelperServiceMock = mock(FileSystemHelperService.class);
 
-    private final FileSystemBusinessService fileSystemBusinessService = new FileSystemBusinessService(fileSystemRepositoryMock, fileSystemHelperServiceMock, fileSystemTypeRepositoryMock, userBusinessServiceMock);
+    private final FileSystemBusinessService fileSystemBusinessService = new FileSystemBusinessService(fileSystemRepositoryMock, fileSystemHelperServiceMock, fileSystemTypeRepositoryMock, userBusinessServiceMock, createProperties(0));
+
+    private static FileFighterProperties createProperties(long coalescingWindowMillis) {
+        FileFighterProperties fileFighterProperties = new FileFighterProperties();
+        fileFighterProperties.setFolderContentsCoalescingWindowMillis(coalescingWindowMillis);
+        return fileFighterProperties;
+    }
 
     @Test
     void getFolderContentsByPathThrows() {
@@ -179,8 +190,8 @@ class FileSystemBusinessServiceUnitTest {
         when(userBusinessServiceMock.findUserByUsername(ownerName)).thenReturn(user);
         when(fileSystemHelperServiceMock.removeTrailingBackSlashes(path)).thenReturn(path);
         when(fileSystemRepositoryMock.findByPath(path)).thenReturn(entities);
-        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(fileSystemEntity, user, InteractionType.READ)).thenReturn(true);
-        when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(fileSystemEntity, user, true, false)).thenReturn(children);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(user), eq(InteractionType.READ))).thenReturn(true);
+        when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(fileSystemEntity, null, false, false)).thenReturn(children);
         when(fileSystemHelperServiceMock.createDTO(child, user, requestingPath + path + itemName)).thenReturn(childItem);
 
         Pair<List<FileSystemItem>, Long> result = fileSystemBusinessService.getFolderContentsByPath(requestingPath, user);
@@ -192,6 +203,91 @@ class FileSystemBusinessServiceUnitTest {
         assertEquals(fileSystemId, currentId);
     }
 
+    @Test
+    void usersWithTheSameViewShareOneListing() {
+        FileSystemBusinessService coalescingBusinessService = new FileSystemBusinessService(fileSystemRepositoryMock, fileSystemHelperServiceMock, fileSystemTypeRepositoryMock, userBusinessServiceMock, createProperties(60_000));
+        String ownerName = "foobar";
+        User owner = User.builder().userId(420).username(ownerName).build();
+        User user = User.builder().userId(1).groups(new Group[]{Group.FAMILY}).build();
+        User otherUser = User.builder().userId(2).groups(new Group[]{Group.FAMILY}).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(12345).path("/").ownerId(420).isFile(false).typeId(FOLDER.getId()).build();
+        FileSystemEntity child = FileSystemEntity.builder().fileSystemId(1).name("baum.txt").ownerId(420).build();
+        FileSystemEntity hiddenChild = FileSystemEntity.builder().fileSystemId(2).name("hidden.txt").ownerId(420).build();
+        FileSystemItem childItem = FileSystemItem.builder().name("baum.txt").build();
+
+        when(userBusinessServiceMock.findUserByUsername(ownerName)).thenReturn(owner);
+        when(fileSystemHelperServiceMock.removeTrailingBackSlashes("/")).thenReturn("/");
+        when(fileSystemRepositoryMock.findByPath("/")).thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(folder)));
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), any(), eq(InteractionType.READ))).thenReturn(true);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(hiddenChild, user, InteractionType.READ)).thenReturn(false);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(hiddenChild, otherUser, InteractionType.READ)).thenReturn(false);
+        when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(folder, null, false, false)).thenReturn(Arrays.asList(child, hiddenChild));
+        when(fileSystemHelperServiceMock.createDTO(eq(child), any(), eq("/foobar/baum.txt"))).thenReturn(childItem);
+
+        assertEquals(Collections.singletonList(childItem), coalescingBusinessService.getFolderContentsByPath("/" + ownerName, user).getFirst());
+        assertEquals(Collections.singletonList(childItem), coalescingBusinessService.getFolderContentsByPath("/" + ownerName, otherUser).getFirst());
+
+        verify(fileSystemHelperServiceMock, times(1)).getFolderContentsOfEntityAndPermissions(folder, null, false, false);
+        verify(fileSystemHelperServiceMock, times(1)).createDTO(any(), any(), any());
+    }
+
+    @Test
+    void usersWithOtherViewsDoNotShareTheListing() {
+        FileSystemBusinessService coalescingBusinessService = new FileSystemBusinessService(fileSystemRepositoryMock, fileSystemHelperServiceMock, fileSystemTypeRepositoryMock, userBusinessServiceMock, createProperties(60_000));
+        String ownerName = "foobar";
+        User owner = User.builder().userId(420).username(ownerName).build();
+        User user = User.builder().userId(1).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(12345).path("/").ownerId(420).isFile(false).typeId(FOLDER.getId()).build();
+        FileSystemEntity child = FileSystemEntity.builder().fileSystemId(1).name("baum.txt").ownerId(420).build();
+
+        when(userBusinessServiceMock.findUserByUsername(ownerName)).thenReturn(owner);
+        when(fileSystemHelperServiceMock.removeTrailingBackSlashes("/")).thenReturn("/");
+        when(fileSystemRepositoryMock.findByPath("/")).thenAnswer(invocation -> new ArrayList<>(Collections.singletonList(folder)));
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), any(), eq(InteractionType.READ))).thenReturn(true);
+        when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(folder, null, false, false)).thenReturn(Collections.singletonList(child));
+
+        coalescingBusinessService.getFolderContentsByPath("/" + ownerName, owner);
+        coalescingBusinessService.getFolderContentsByPath("/" + ownerName, user);
+
+        // the contents are loaded once, but the owner does not see them as shared.
+        verify(fileSystemHelperServiceMock, times(1)).getFolderContentsOfEntityAndPermissions(folder, null, false, false);
+        verify(fileSystemHelperServiceMock).createDTO(child, owner, "/foobar/baum.txt");
+        verify(fileSystemHelperServiceMock).createDTO(child, user, "/foobar/baum.txt");
+    }
+
+    @Test
+    void getCompactFolderContentsByPathWorks() {
+        String ownerName = "foobar";
+        String requestingPath = "/" + ownerName;
+        long userId = 420;
+        User user = User.builder().userId(userId).username(ownerName).build();
+        FileSystemEntity fileSystemEntity = FileSystemEntity.builder().fileSystemId(12345).path("/").ownerId(userId).isFile(false).lastUpdatedBy(userId).typeId(FOLDER.getId()).build();
+        ArrayList<FileSystemEntity> entities = new ArrayList<>();
+        entities.add(fileSystemEntity);
+
+        FileSystemEntity child = FileSystemEntity.builder().name("baum.txt").ownerId(userId).lastUpdatedBy(userId).build();
+        FileSystemEntity otherChild = FileSystemEntity.builder().name("other.txt").ownerId(userId).lastUpdatedBy(userId).build();
+        FileSystemItem childItem = FileSystemItem.builder().owner(user).lastUpdatedBy(user).build();
+        CompactFileSystemContents compactContents = CompactFileSystemContents.builder().build();
+
+        when(userBusinessServiceMock.findUserByUsername(ownerName)).thenReturn(user);
+        when(fileSystemHelperServiceMock.removeTrailingBackSlashes("/")).thenReturn("/");
+        when(fileSystemRepositoryMock.findByPath("/")).thenReturn(entities);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(user), eq(InteractionType.READ))).thenReturn(true);
+        when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(fileSystemEntity, null, false, false)).thenReturn(Arrays.asList(child, otherChild));
+        when(userBusinessServiceMock.findUsersByIds(Collections.singleton(userId))).thenReturn(Collections.singletonMap(userId, user));
+        when(fileSystemHelperServiceMock.createDTO(any(), eq(user), eq(user), eq(user), any())).thenReturn(childItem);
+        when(fileSystemHelperServiceMock.createCompactDTO(Arrays.asList(childItem, childItem))).thenReturn(compactContents);
+
+        Pair<CompactFileSystemContents, Long> result = fileSystemBusinessService.getCompactFolderContentsByPath(requestingPath, user);
+
+        assertEquals(compactContents, result.getFirst());
+        assertEquals(12345, result.getSecond());
+        verify(fileSystemHelperServiceMock).createDTO(child, user, user, user, "/foobar/baum.txt");
+        // the users are only loaded once.
+        verify(userBusinessServiceMock, never()).findUserById(anyLong());
+    }
+
     @Test
     void deleteFileSystemItemByIdThrows() {
         long requestId = 420;
@@ -369,4 +465,50 @@ class FileSystemBusinessServiceUnitTest {
         FileSystemItem fileSystemItem = fileSystemBusinessService.getFileSystemItemInfo(id, dummyUser);
         assertEquals(item, fileSystemItem);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFileSystemItemInfoWithFieldsWorks() {
+        long id = 420;
+        User dummyUser = User.builder().userId(1234321).build();
+        Set<FileSystemItemField> fields = EnumSet.of(FileSystemItemField.NAME);
+        FileSystemEntity entity = FileSystemEntity.builder().name("Folder").build();
+        FileSystemItem item = FileSystemItem.builder().name("Folder").build();
+
+        when(fileSystemHelperServiceMock.findFileSystemEntityWithFields(id, fields, false)).thenReturn(entity);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(entity, dummyUser, InteractionType.READ)).thenReturn(true);
+        when(fileSystemHelperServiceMock.createDTO(entity, dummyUser, null, fields)).thenReturn(item);
+
+        assertEquals(item, fileSystemBusinessService.getFileSystemItemInfo(id, dummyUser, fields));
+        // only the projected entity is loaded.
+        verify(fileSystemRepositoryMock, never()).findByFileSystemId(id);
+    }
+
+    @Test
+    void getFolderContentsETagWorks() {
+        String path = "/";
+        User user = User.builder().userId(420).build();
+        FileSystemEntity fileSystemEntity = FileSystemEntity.builder().path("/").ownerId(420).isFile(false).typeId(FOLDER.getId()).build();
+        ArrayList<FileSystemEntity> entities = new ArrayList<>();
+        entities.add(fileSystemEntity);
+
+        when(fileSystemHelperServiceMock.removeTrailingBackSlashes(path)).thenReturn(path);
+        when(fileSystemRepositoryMock.findByPath(path)).thenReturn(entities);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(fileSystemEntity, user, InteractionType.READ)).thenReturn(true);
+        when(fileSystemHelperServiceMock.createETag(entities, user)).thenReturn("\"etag\"");
+
+        assertEquals("\"etag\"", fileSystemBusinessService.getFolderContentsETag(path, user));
+        // the contents are not loaded for the etag.
+        verify(fileSystemHelperServiceMock, never()).getFolderContentsOfEntityAndPermissions(any(), any(), anyBoolean(), anyBoolean());
+        verify(fileSystemHelperServiceMock, never()).createDTO(any(), any(), any());
+    }
+
+    @Test
+    void getFileSystemItemInfoETagThrows() {
+        long id = 420;
+        User dummyUser = User.builder().userId(213421234).build();
+
+        when(fileSystemRepositoryMock.findByFileSystemId(id)).thenReturn(FileSystemEntity.builder().build());
+        assertThrows(FileSystemItemNotFoundException.class, () ->
+                fileSystemBusinessService.getFileSystemItemInfoETag(id, dummyUser));
+    }
+}
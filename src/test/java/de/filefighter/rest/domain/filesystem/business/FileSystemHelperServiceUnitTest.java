@@ -3,6 +3,8 @@ package de.filefighter.rest.domain.filesystem.business;
 
 import de.filefighter.rest.configuration.RestConfiguration;
 import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
@@ -12,20 +14,28 @@ import de.filefighter.rest.domain.user.business.UserBusinessService;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.exceptions.UserNotFoundException;
 import de.filefighter.rest.domain.user.group.Group;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static de.filefighter.rest.domain.filesystem.business.FileSystemBusinessService.DELETION_FAILED_MSG;
 import static de.filefighter.rest.domain.filesystem.data.InteractionType.*;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -117,6 +127,47 @@ class FileSystemHelperServiceUnitTest {
         assertNotEquals(fs3.get(0), fs3.get(2));
     }
 
+    @Test
+    void createETagWorks() {
+        User user = User.builder().userId(420).groups(new Group[]{Group.FAMILY}).build();
+        User otherUser = User.builder().userId(421).groups(new Group[]{Group.FAMILY}).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(1).version(3).lastUpdated(1000).build();
+        List<FileSystemEntity> folders = Collections.singletonList(folder);
+
+        String eTag = fileSystemHelperService.createETag(folders, user);
+        assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+        assertEquals(eTag, fileSystemHelperService.createETag(folders, user));
+        assertNotEquals(eTag, fileSystemHelperService.createETag(folders, otherUser));
+
+        folder.setVersion(4);
+        assertNotEquals(eTag, fileSystemHelperService.createETag(folders, user));
+
+        // uploads only count the changes up.
+        eTag = fileSystemHelperService.createETag(folders, user);
+        folder.setChanges(1);
+        assertNotEquals(eTag, fileSystemHelperService.createETag(folders, user));
+    }
+
+    @Test
+    void createCompactDTOWorks() {
+        User owner = User.builder().userId(1).username("owner").build();
+        User editor = User.builder().userId(2).username("editor").build();
+        FileSystemItem first = FileSystemItem.builder().fileSystemId(10).name("a.txt").owner(owner).lastUpdatedBy(editor).build();
+        FileSystemItem second = FileSystemItem.builder().fileSystemId(11).name("b.txt").owner(owner).lastUpdatedBy(owner).build();
+
+        CompactFileSystemContents actual = fileSystemHelperService.createCompactDTO(Arrays.asList(first, second));
+
+        assertEquals(2, actual.getUsers().size());
+        assertEquals(owner, actual.getUsers().get(1L));
+        assertEquals(editor, actual.getUsers().get(2L));
+        assertEquals(2, actual.getItems().size());
+        assertEquals(10, actual.getItems().get(0).getFileSystemId());
+        assertEquals("a.txt", actual.getItems().get(0).getName());
+        assertEquals(1, actual.getItems().get(0).getOwnerId());
+        assertEquals(2, actual.getItems().get(0).getLastUpdatedById());
+        assertEquals(1, actual.getItems().get(1).getLastUpdatedById());
+    }
+
     @Test
     void removeTrailingWhiteSpaces() {
         String doesNotRemove0 = "/";
@@ -252,6 +303,71 @@ class FileSystemHelperServiceUnitTest {
         assertTrue(actual.isShared());
     }
 
+    @Test
+    void createDTOWithFieldsWorks() {
+        long ownerId = 420L;
+        User authenticatedUser = User.builder().userId(ownerId).build();
+        FileSystemEntity fileSystemEntity = FileSystemEntity.builder()
+                .fileSystemId(123)
+                .name("SomeText.txt")
+                .ownerId(ownerId)
+                .lastUpdatedBy(ownerId)
+                .size(1234)
+                .typeId(-1)
+                .build();
+
+        FileSystemItem actual = fileSystemHelperService.createDTO(fileSystemEntity, authenticatedUser, "/bla/SomeText.txt", EnumSet.of(FileSystemItemField.NAME, FileSystemItemField.SIZE));
+
+        assertEquals("SomeText.txt", actual.getName());
+        assertEquals(1234, actual.getSize());
+        assertEquals(-1, actual.getFileSystemId());
+        assertNull(actual.getPath());
+        assertNull(actual.getOwner());
+        assertNull(actual.getType());
+        // users and types are only looked up for the selected fields.
+        verify(userBusinessServiceMock, never()).findUserById(anyLong());
+        verify(fileSystemTypeRepositoryMock, never()).findFileSystemTypeById(anyLong());
+    }
+
+    @Test
+    void createDTOWithFieldsAndLoadedUsersWorks() {
+        User owner = User.builder().userId(420).username("Owner").build();
+        User authenticatedUser = User.builder().userId(1).build();
+        FileSystemEntity rootFolder = FileSystemEntity.builder().fileSystemId(123).name("HOME_Owner").ownerId(420).build();
+        Set<FileSystemItemField> fields = EnumSet.of(FileSystemItemField.NAME, FileSystemItemField.SHARED);
+
+        FileSystemItem actual = fileSystemHelperService.createDTO(rootFolder, owner, null, authenticatedUser, "/", fields);
+
+        // the name of a root folder is the username of the owner.
+        assertEquals("Owner", actual.getName());
+        assertTrue(actual.isShared());
+        verify(userBusinessServiceMock, never()).findUserById(anyLong());
+        assertThrows(FileFighterDataException.class, () -> fileSystemHelperService.createDTO(rootFolder, null, null, authenticatedUser, "/", fields));
+    }
+
+    @Test
+    void getVisibleFolderContentsWithFieldsWorks() {
+        long userId = 1234;
+        User authenticatedUser = User.builder().userId(userId).build();
+        FileSystemEntity visibleEntity = FileSystemEntity.builder().fileSystemId(1).ownerId(userId).build();
+        FileSystemEntity otherVisibleEntity = FileSystemEntity.builder().fileSystemId(2).visibleForUserIds(new long[]{userId}).build();
+        FileSystemEntity invisibleEntity = FileSystemEntity.builder().fileSystemId(3).build();
+        FileSystemEntity folder = FileSystemEntity.builder().itemIds(new long[]{2, 3, 1}).build();
+
+        when(mongoTemplateMock.find(any(Query.class), eq(FileSystemEntity.class))).thenReturn(Arrays.asList(visibleEntity, otherVisibleEntity, invisibleEntity));
+
+        List<FileSystemEntity> actual = fileSystemHelperService.getVisibleFolderContentsWithFields(folder, authenticatedUser, EnumSet.of(FileSystemItemField.NAME), false);
+
+        assertEquals(Arrays.asList(otherVisibleEntity, visibleEntity), actual);
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock, times(1)).find(queryCaptor.capture(), eq(FileSystemEntity.class));
+        Document projection = queryCaptor.getValue().getFieldsObject();
+        assertEquals(1, projection.get("name"));
+        assertEquals(1, projection.get("visibleForUserIds"));
+        assertFalse(projection.containsKey("size"));
+        assertFalse(projection.containsKey("itemIds"));
+    }
+
     @Test
     void getTotalFileSizeThrows() {
         when(fileSystemRepositoryMock.findByPath("/")).thenReturn(null);
@@ -271,6 +387,20 @@ class FileSystemHelperServiceUnitTest {
         assertEquals(FileFighterDataException.getErrorMessagePrefix() + " " + DELETION_FAILED_MSG + fileSystemId, ex.getMessage());
     }
 
+    @Test
+    void deleteAndUnbindFileSystemEntityIfPresentSkipsDeletedEntities() {
+        long fileSystemId = 420;
+        FileSystemEntity fileSystemEntity = FileSystemEntity.builder().fileSystemId(fileSystemId).build();
+
+        when(fileSystemRepositoryMock.deleteByFileSystemId(fileSystemId)).thenReturn(0L);
+        assertFalse(fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(fileSystemEntity));
+        verify(mongoTemplateMock, never()).findAndModify(any(), any(), eq(FileSystemEntity.class));
+
+        when(fileSystemRepositoryMock.deleteByFileSystemId(fileSystemId)).thenReturn(1L);
+        assertTrue(fileSystemHelperService.deleteAndUnbindFileSystemEntityIfPresent(fileSystemEntity));
+        verify(mongoTemplateMock, times(1)).findAndModify(any(), any(), eq(FileSystemEntity.class));
+    }
+
     @SuppressWarnings("squid:S5778")
     @Test
     void recursivlyUpdateTimeStampsThrows() {
@@ -315,7 +445,47 @@ class FileSystemHelperServiceUnitTest {
         ArgumentCaptor<Query> queryArgumentCaptor = ArgumentCaptor.forClass(Query.class);
         verify(mongoTemplateMock, times(1)).findAndModify(queryArgumentCaptor.capture(), updateArgumentCaptor.capture(), eq(FileSystemEntity.class));
         assertEquals("Query: { \"fileSystemId\" : " + fsItemId + "}, Fields: {}, Sort: {}", queryArgumentCaptor.getValue().toString());
-        assertEquals("{ \"$set\" : { \"visibleForUserIds\" : [ " + otherUserId + " ], \"visibleForGroupIds\" : [ " + otherGroupId + " ] } }", updateArgumentCaptor.getValue().toString());
+        assertEquals("{ \"$pull\" : { \"visibleForUserIds\" : " + userId + "}, \"$pullAll\" : { \"visibleForGroupIds\" : [" + groupId + "]}, \"$inc\" : { \"changes\" : 1}}", updateArgumentCaptor.getValue().toString());
+    }
+
+    @Test
+    void updateFileSystemEntityIfUnchangedWorks() {
+        long fsItemId = 123;
+        long version = 42;
+        FileSystemEntity fileSystemEntity = FileSystemEntity.builder().fileSystemId(fsItemId).version(version).build();
+
+        when(mongoTemplateMock.findAndModify(any(), any(), eq(FileSystemEntity.class))).thenReturn(fileSystemEntity);
+        assertTrue(fileSystemHelperService.updateFileSystemEntityIfUnchanged(fileSystemEntity, new Update().push("itemIds", 1)));
+
+        ArgumentCaptor<Update> updateArgumentCaptor = ArgumentCaptor.forClass(Update.class);
+        ArgumentCaptor<Query> queryArgumentCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock, times(1)).findAndModify(queryArgumentCaptor.capture(), updateArgumentCaptor.capture(), eq(FileSystemEntity.class));
+        assertEquals("Query: { \"fileSystemId\" : " + fsItemId + ", \"version\" : " + version + "}, Fields: {}, Sort: {}", queryArgumentCaptor.getValue().toString());
+        assertEquals("{ \"$push\" : { \"itemIds\" : 1}, \"$inc\" : { \"version\" : 1, \"changes\" : 1}}", updateArgumentCaptor.getValue().toString());
+
+        when(mongoTemplateMock.findAndModify(any(), any(), eq(FileSystemEntity.class))).thenReturn(null);
+        assertFalse(fileSystemHelperService.updateFileSystemEntityIfUnchanged(fileSystemEntity, new Update()));
+    }
+
+    @Test
+    void createFolderIfAbsentWorks() {
+        FileSystemEntity newFolder = FileSystemEntity.builder().fileSystemId(2).ownerId(420).path("/foo").name("foo").isFile(false).build();
+        FileSystemEntity existingFolder = FileSystemEntity.builder().fileSystemId(1).ownerId(420).path("/foo").isFile(false).build();
+
+        when(mongoTemplateMock.findAndModify(any(), any(), any(FindAndModifyOptions.class), eq(FileSystemEntity.class))).thenReturn(newFolder);
+        assertEquals(newFolder, fileSystemHelperService.createFolderIfAbsent(newFolder));
+
+        ArgumentCaptor<Query> queryArgumentCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<FindAndModifyOptions> optionsArgumentCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplateMock, times(1)).findAndModify(queryArgumentCaptor.capture(), any(), optionsArgumentCaptor.capture(), eq(FileSystemEntity.class));
+        assertEquals("Query: { \"ownerId\" : 420, \"path\" : \"/foo\", \"isFile\" : false}, Fields: {}, Sort: {}", queryArgumentCaptor.getValue().toString());
+        assertTrue(optionsArgumentCaptor.getValue().isUpsert());
+        assertTrue(optionsArgumentCaptor.getValue().isReturnNew());
+
+        // another node was faster.
+        when(mongoTemplateMock.findAndModify(any(), any(), any(FindAndModifyOptions.class), eq(FileSystemEntity.class))).thenThrow(new DuplicateKeyException("duplicate"));
+        when(mongoTemplateMock.findOne(any(), eq(FileSystemEntity.class))).thenReturn(existingFolder);
+        assertEquals(existingFolder, fileSystemHelperService.createFolderIfAbsent(newFolder));
     }
 
     @Test
@@ -0,0 +1,41 @@
+package de.filefighter.rest.domain.filesystem.business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSystemPathLockServiceUnitTest {
+
+    private final FileSystemPathLockService fileSystemPathLockService = new FileSystemPathLockService();
+
+    @Test
+    void normalizePathWorks() {
+        assertEquals("/", fileSystemPathLockService.normalizePath("/"));
+        assertEquals("/foo/bar", fileSystemPathLockService.normalizePath("/Foo/BAR//"));
+    }
+
+    @Test
+    void getLockReturnsSameLockForSamePath() {
+        Lock lock = fileSystemPathLockService.getLock(420, "/foo/bar");
+
+        assertSame(lock, fileSystemPathLockService.getLock(420, "/foo/bar"));
+        assertSame(lock, fileSystemPathLockService.getLock(420, "/Foo/Bar/"));
+    }
+
+    @Test
+    void getStripeIndexSpreadsPaths() {
+        Set<Integer> usedStripes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int index = fileSystemPathLockService.getStripeIndex(i % 10, "/folder" + i);
+            assertTrue(index >= 0 && index < FileSystemPathLockService.NUMBER_OF_STRIPES);
+            usedStripes.add(index);
+        }
+        assertTrue(usedStripes.size() > FileSystemPathLockService.NUMBER_OF_STRIPES / 2);
+    }
+}
@@ -1,26 +1,39 @@
 package de.filefighter.rest.domain.filesystem.business;
 
+import com.mongodb.client.result.UpdateResult;
 import de.filefighter.rest.domain.common.InputSanitizerService;
 import de.filefighter.rest.domain.filesystem.data.InteractionType;
 import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
 import de.filefighter.rest.domain.filesystem.data.dto.upload.CreateNewFolder;
+import de.filefighter.rest.domain.filesystem.data.dto.upload.FileSystemUpload;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
 import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemRepository;
 import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemCouldNotBeUploadedException;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
 import de.filefighter.rest.domain.filesystem.type.FileSystemTypeRepository;
 import de.filefighter.rest.domain.user.business.UserBusinessService;
 import de.filefighter.rest.domain.user.data.dto.User;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.mongodb.core.MongoTemplate;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 class FileSystemUploadServiceUnitTest {
 
@@ -32,7 +45,8 @@ class FileSystemUploadServiceUnitTest {
     private final UserBusinessService userBusinessServiceMock = mock(UserBusinessService.class);
     private final IdGenerationService idGenerationServiceMock = mock(IdGenerationService.class);
 
-    private final FileSystemUploadService fileSystemUploadService = new FileSystemUploadService(fileSystemRepositoryMock, fileSystemHelperServiceMock, inputSanitizerServiceMock, fileSystemTypeRepositoryMock, mongoTemplateMock, userBusinessServiceMock, idGenerationServiceMock);
+    private final FileSystemPathLockService fileSystemPathLockService = new FileSystemPathLockService();
+    private final FileSystemUploadService fileSystemUploadService = new FileSystemUploadService(fileSystemRepositoryMock, fileSystemHelperServiceMock, inputSanitizerServiceMock, fileSystemTypeRepositoryMock, mongoTemplateMock, userBusinessServiceMock, idGenerationServiceMock, fileSystemPathLockService);
 
     @Test
     void createNewFolderThrows() {
@@ -45,7 +59,7 @@ class FileSystemUploadServiceUnitTest {
                 () -> fileSystemUploadService.createNewFolder(parentId, createNewFolder, autheticatedUser));
         assertEquals(FileSystemItemCouldNotBeUploadedException.getErrorMessagePrefix() + " Could not find parent entity or you are not allowed to see it.", ex.getMessage());
 
-        FileSystemEntity parent = FileSystemEntity.builder().build();
+        FileSystemEntity parent = FileSystemEntity.builder().path("/").build();
         when(fileSystemRepositoryMock.findByFileSystemId(parentId)).thenReturn(parent);
 
         ex = assertThrows(FileSystemItemCouldNotBeUploadedException.class,
@@ -80,6 +94,8 @@ class FileSystemUploadServiceUnitTest {
         when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(parent, autheticatedUser, InteractionType.CHANGE)).thenReturn(true);
         when(fileSystemHelperServiceMock.getFolderContentsOfEntityAndPermissions(parent, autheticatedUser, false, false)).thenReturn(Collections.singletonList(FileSystemEntity.builder().name("a name").build()));
         when(userBusinessServiceMock.findUserById(userId)).thenReturn(User.builder().username(folderName).build());
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(eq(parent), any())).thenReturn(true);
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
 
         FileSystemItem item = FileSystemItem.builder().build();
         String path = "/" + folderName + "/parent/" + folderName.toLowerCase();
@@ -88,4 +104,216 @@ class FileSystemUploadServiceUnitTest {
         FileSystemItem actual = fileSystemUploadService.createNewFolder(parentId, createNewFolder, autheticatedUser);
         assertEquals(item, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    void createNewFolderRetriesWhenParentWasModified() {
+        long parentId = 420;
+        String folderName = "Kevin";
+        CreateNewFolder createNewFolder = new CreateNewFolder(folderName);
+        User autheticatedUser = User.builder().build();
+
+        FileSystemEntity parent = FileSystemEntity.builder().fileSystemId(parentId).path("/").version(1).build();
+        FileSystemEntity modifiedParent = FileSystemEntity.builder().fileSystemId(parentId).path("/").version(2).itemIds(new long[]{1}).build();
+        when(fileSystemRepositoryMock.findByFileSystemId(parentId)).thenReturn(parent, modifiedParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(autheticatedUser), any())).thenReturn(true);
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[]{1L});
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(eq(parent), any())).thenReturn(false);
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(eq(modifiedParent), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(anyLong())).thenReturn(User.builder().username(folderName).build());
+        when(idGenerationServiceMock.consumeNext()).thenReturn(2L);
+
+        fileSystemUploadService.createNewFolder(parentId, createNewFolder, autheticatedUser);
+        verify(fileSystemHelperServiceMock, times(2)).updateFileSystemEntityIfUnchanged(any(), any());
+        verify(fileSystemHelperServiceMock, never()).deleteFolderIfEmpty(any());
+
+        // someone else created a entity with the same name in the meantime.
+        when(fileSystemRepositoryMock.findByFileSystemId(parentId)).thenReturn(parent, modifiedParent);
+        when(fileSystemRepositoryMock.findAllByFileSystemIdInAndNameIgnoreCase(Collections.singletonList(1L), folderName)).thenReturn(Collections.singletonList(FileSystemEntity.builder().build()));
+
+        FileSystemItemCouldNotBeUploadedException ex = assertThrows(FileSystemItemCouldNotBeUploadedException.class,
+                () -> fileSystemUploadService.createNewFolder(parentId, createNewFolder, autheticatedUser));
+        assertEquals(FileSystemItemCouldNotBeUploadedException.getErrorMessagePrefix() + " A Entity with the same name already exists in this directory.", ex.getMessage());
+        verify(fileSystemHelperServiceMock, times(1)).deleteFolderIfEmpty(argThat(folder -> folder.getFileSystemId() == 2L));
+    }
+
+    @Test
+    void pathLockIsReleasedWhileBackingOff() {
+        long parentId = 420;
+        String folderName = "Kevin";
+        User autheticatedUser = User.builder().build();
+
+        FileSystemEntity parent = FileSystemEntity.builder().fileSystemId(parentId).path("/").version(1).build();
+        FileSystemEntity modifiedParent = FileSystemEntity.builder().fileSystemId(parentId).path("/").version(2).build();
+        when(fileSystemRepositoryMock.findByFileSystemId(parentId)).thenReturn(parent, modifiedParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(autheticatedUser), any())).thenReturn(true);
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(eq(parent), any())).thenReturn(false);
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(eq(modifiedParent), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(anyLong())).thenReturn(User.builder().username(folderName).build());
+        when(idGenerationServiceMock.consumeNext()).thenReturn(2L);
+
+        Lock pathLock = fileSystemPathLockService.getLock(-1, "/" + folderName.toLowerCase());
+        AtomicBoolean lockWasFree = new AtomicBoolean();
+        doAnswer(invocation -> {
+            // another thread, the lock is reentrant.
+            lockWasFree.set(CompletableFuture.supplyAsync(() -> {
+                boolean locked = pathLock.tryLock();
+                if (locked)
+                    pathLock.unlock();
+                return locked;
+            }).join());
+            return null;
+        }).when(fileSystemHelperServiceMock).backOffBeforeRetry(anyInt());
+
+        fileSystemUploadService.createNewFolder(parentId, new CreateNewFolder(folderName), autheticatedUser);
+        verify(fileSystemHelperServiceMock).backOffBeforeRetry(1);
+        assertTrue(lockWasFree.get());
+    }
+
+    @Test
+    void parallelUploadsIntoOneFolderAllSucceed() throws Exception {
+        int uploads = 20;
+        long rootItemId = 420;
+        User authenticatedUser = User.builder().userId(rootItemId).build();
+        FileSystemEntity uploadParent = FileSystemEntity.builder().fileSystemId(rootItemId).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/").build();
+        AtomicLong ids = new AtomicLong(1000);
+
+        when(fileSystemRepositoryMock.findByFileSystemId(rootItemId)).thenReturn(uploadParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(authenticatedUser), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(rootItemId)).thenReturn(authenticatedUser);
+        when(fileSystemHelperServiceMock.splitPathIntoEnitityPaths(any(), eq("/"))).thenAnswer(invocation -> new String[]{invocation.getArgument(0)});
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
+        when(fileSystemTypeRepositoryMock.parseMimeType("text/plain")).thenReturn(FileSystemType.TEXT);
+        when(idGenerationServiceMock.consumeNext()).thenAnswer(invocation -> ids.incrementAndGet());
+        when(mongoTemplateMock.updateFirst(any(), any(), eq(FileSystemEntity.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(uploads);
+        try {
+            List<Future<List<FileSystemItem>>> results = new ArrayList<>();
+            for (int i = 0; i < uploads; i++) {
+                FileSystemUpload upload = FileSystemUpload.builder().name("file" + i + ".txt").path("/file" + i + ".txt").mimeType("text/plain").size(42).build();
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser);
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<FileSystemItem>> result : results)
+                assertEquals(1, result.get(5, TimeUnit.SECONDS).size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // every file is pushed once and none has to wait for the others.
+        verify(mongoTemplateMock, times(uploads)).updateFirst(any(), any(), eq(FileSystemEntity.class));
+        verify(fileSystemHelperServiceMock, never()).updateFileSystemEntityIfUnchanged(any(), any());
+        verify(fileSystemHelperServiceMock, never()).deleteAndUnbindFileSystemEntityIfPresent(any());
+    }
+
+    @Test
+    void uploadFileSystemItemOverwritesOlderFilesWithTheSameName() {
+        long rootItemId = 420;
+        long newFileId = 1234;
+        User authenticatedUser = User.builder().userId(rootItemId).build();
+        FileSystemUpload upload = FileSystemUpload.builder().name("file.txt").path("/file.txt").mimeType("text/plain").size(42).build();
+        FileSystemEntity uploadParent = FileSystemEntity.builder().fileSystemId(rootItemId).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/").build();
+        // two uploads of the same name were bound concurrently before this one, another one after it.
+        FileSystemEntity boundParent = FileSystemEntity.builder().fileSystemId(rootItemId).itemIds(new long[]{1, 2, newFileId, 3}).build();
+        FileSystemEntity olderFile = FileSystemEntity.builder().fileSystemId(1).name("file.txt").typeId(FileSystemType.TEXT.getId()).build();
+        FileSystemEntity otherOlderFile = FileSystemEntity.builder().fileSystemId(2).name("FILE.txt").typeId(FileSystemType.TEXT.getId()).build();
+        FileSystemEntity newerFile = FileSystemEntity.builder().fileSystemId(3).name("file.txt").typeId(FileSystemType.TEXT.getId()).build();
+
+        when(fileSystemRepositoryMock.findByFileSystemId(rootItemId)).thenReturn(uploadParent, boundParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(authenticatedUser), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(rootItemId)).thenReturn(authenticatedUser);
+        when(fileSystemHelperServiceMock.splitPathIntoEnitityPaths("/file.txt", "/")).thenReturn(new String[]{"/file.txt"});
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(boundParent.getItemIds())).thenReturn(new Long[]{1L, 2L, newFileId, 3L});
+        when(fileSystemRepositoryMock.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(1L, 2L, newFileId, 3L), "file.txt")).thenReturn(Arrays.asList(olderFile, otherOlderFile, FileSystemEntity.builder().fileSystemId(newFileId).name("file.txt").build(), newerFile));
+        when(fileSystemTypeRepositoryMock.parseMimeType("text/plain")).thenReturn(FileSystemType.TEXT);
+        when(idGenerationServiceMock.consumeNext()).thenReturn(newFileId);
+        when(mongoTemplateMock.updateFirst(any(), any(), eq(FileSystemEntity.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertEquals(1, fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser).size());
+        verify(fileSystemHelperServiceMock, times(1)).deleteAndUnbindFileSystemEntityIfPresent(olderFile);
+        verify(fileSystemHelperServiceMock, times(1)).deleteAndUnbindFileSystemEntityIfPresent(otherOlderFile);
+        // the newer one replaces this one itself.
+        verify(fileSystemHelperServiceMock, never()).deleteAndUnbindFileSystemEntityIfPresent(newerFile);
+        verify(fileSystemHelperServiceMock, times(1)).recursivlyUpdateTimeStamps(uploadParent, authenticatedUser, 0);
+    }
+
+    @Test
+    void uploadFileSystemItemRemovesTheFileWhenItFails() {
+        long rootItemId = 420;
+        long newFileId = 1234;
+        User authenticatedUser = User.builder().userId(rootItemId).build();
+        FileSystemUpload upload = FileSystemUpload.builder().name("file.txt").path("/file.txt").mimeType("text/plain").size(42).build();
+        FileSystemEntity uploadParent = FileSystemEntity.builder().fileSystemId(rootItemId).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/").build();
+        FileSystemEntity boundParent = FileSystemEntity.builder().fileSystemId(rootItemId).itemIds(new long[]{1, newFileId}).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(1).name("file.txt").isFile(false).typeId(FileSystemType.FOLDER.getId()).build();
+
+        when(fileSystemRepositoryMock.findByFileSystemId(rootItemId)).thenReturn(uploadParent, boundParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(authenticatedUser), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(rootItemId)).thenReturn(authenticatedUser);
+        when(fileSystemHelperServiceMock.splitPathIntoEnitityPaths("/file.txt", "/")).thenReturn(new String[]{"/file.txt"});
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(boundParent.getItemIds())).thenReturn(new Long[]{1L, newFileId});
+        when(fileSystemRepositoryMock.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(1L, newFileId), "file.txt")).thenReturn(Collections.singletonList(folder));
+        when(fileSystemTypeRepositoryMock.parseMimeType("text/plain")).thenReturn(FileSystemType.TEXT);
+        when(idGenerationServiceMock.consumeNext()).thenReturn(newFileId);
+        when(mongoTemplateMock.updateFirst(any(), any(), eq(FileSystemEntity.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        // a folder with the same name was created concurrently.
+        FileSystemItemCouldNotBeUploadedException ex = assertThrows(FileSystemItemCouldNotBeUploadedException.class,
+                () -> fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser));
+        assertEquals(FileSystemItemCouldNotBeUploadedException.getErrorMessagePrefix() + " A Entity with the same name 'file.txt' already exists.", ex.getMessage());
+        verify(fileSystemHelperServiceMock, times(1)).deleteAndUnbindFileSystemEntityIfPresent(argThat(entity -> entity.getFileSystemId() == newFileId));
+        verify(fileSystemHelperServiceMock, never()).deleteAndUnbindFileSystemEntityIfPresent(folder);
+
+        // any other failure removes it as well.
+        when(fileSystemRepositoryMock.findByFileSystemId(rootItemId)).thenReturn(uploadParent, boundParent);
+        when(fileSystemRepositoryMock.findAllByFileSystemIdInAndNameIgnoreCase(Arrays.asList(1L, newFileId), "file.txt")).thenThrow(new IllegalStateException("mongo is gone"));
+
+        assertThrows(IllegalStateException.class, () -> fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser));
+        verify(fileSystemHelperServiceMock, times(2)).deleteAndUnbindFileSystemEntityIfPresent(argThat(entity -> entity.getFileSystemId() == newFileId));
+        verify(fileSystemHelperServiceMock, never()).recursivlyUpdateTimeStamps(any(), any(), anyLong());
+    }
+
+    @Test
+    void uploadFileSystemItemCreatesMissingFolderOnlyOnce() {
+        long rootItemId = 420;
+        User authenticatedUser = User.builder().userId(rootItemId).build();
+        FileSystemUpload upload = FileSystemUpload.builder().name("file.txt").path("/a/file.txt").mimeType("text/plain").size(42).build();
+        FileSystemEntity uploadParent = FileSystemEntity.builder().fileSystemId(rootItemId).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/").build();
+        FileSystemEntity createdFolder = FileSystemEntity.builder().fileSystemId(1).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/a").name("a").build();
+        FileSystemEntity concurrentlyCreatedFolder = FileSystemEntity.builder().fileSystemId(99).ownerId(rootItemId).isFile(false).typeId(FileSystemType.FOLDER.getId()).path("/a").name("a").build();
+
+        when(fileSystemRepositoryMock.findByFileSystemId(rootItemId)).thenReturn(uploadParent);
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(authenticatedUser), any())).thenReturn(true);
+        when(userBusinessServiceMock.findUserById(rootItemId)).thenReturn(authenticatedUser);
+        when(fileSystemHelperServiceMock.splitPathIntoEnitityPaths("/a/file.txt", "/")).thenReturn(new String[]{"/a", "/a/file.txt"});
+        when(fileSystemHelperServiceMock.getEntityNameFromPath("/a")).thenReturn("a");
+        when(fileSystemHelperServiceMock.transformlongArrayToLong(any())).thenReturn(new Long[0]);
+        when(fileSystemTypeRepositoryMock.parseMimeType("text/plain")).thenReturn(FileSystemType.TEXT);
+        when(idGenerationServiceMock.consumeNext()).thenReturn(1L, 2L);
+        when(fileSystemHelperServiceMock.createFolderIfAbsent(any())).thenReturn(createdFolder);
+        when(fileSystemHelperServiceMock.updateFileSystemEntityIfUnchanged(any(), any())).thenReturn(true);
+        when(fileSystemRepositoryMock.findByFileSystemId(1L)).thenReturn(createdFolder);
+        when(fileSystemRepositoryMock.findByFileSystemId(99L)).thenReturn(concurrentlyCreatedFolder);
+        when(mongoTemplateMock.updateFirst(any(), any(), eq(FileSystemEntity.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertEquals(2, fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser).size());
+        verify(fileSystemHelperServiceMock, times(1)).updateFileSystemEntityIfUnchanged(eq(uploadParent), any());
+        verify(mongoTemplateMock, times(1)).updateFirst(any(), any(), eq(FileSystemEntity.class));
+
+        // another node created the folder first, so it only gets merged.
+        when(idGenerationServiceMock.consumeNext()).thenReturn(3L, 4L);
+        when(fileSystemHelperServiceMock.createFolderIfAbsent(any())).thenReturn(concurrentlyCreatedFolder);
+
+        assertEquals(2, fileSystemUploadService.uploadFileSystemItem(rootItemId, upload, authenticatedUser).size());
+        verify(fileSystemHelperServiceMock, times(1)).updateFileSystemEntityIfUnchanged(any(), any());
+        verify(mongoTemplateMock, times(2)).updateFirst(any(), any(), eq(FileSystemEntity.class));
+    }
+}
@@ -7,8 +7,14 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -65,4 +71,21 @@ class IdGenerationServiceUnitTest {
             assertEquals(101 + i, nextId);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void consumeNextWorksInParallel() throws InterruptedException {
+        when(fileSystemRepositoryMock.findAll()).thenReturn(mockData);
+        idGenerationService.initializeService();
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> ids.add(idGenerationService.consumeNext()));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, ids.size());
+        assertEquals(1101, idGenerationService.peekNext());
+    }
+}
@@ -0,0 +1,157 @@
+package de.filefighter.rest.domain.filesystem.business;
+
+import de.filefighter.rest.domain.common.Pair;
+import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.filesystem.data.persistence.ReactiveFileSystemRepository;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemContentsNotAccessibleException;
+import de.filefighter.rest.domain.filesystem.exceptions.FileSystemItemNotFoundException;
+import de.filefighter.rest.domain.filesystem.type.FileSystemType;
+import de.filefighter.rest.domain.user.business.UserDTOService;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.data.persistence.ReactiveUserRepository;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReactiveFileSystemBusinessServiceUnitTest {
+
+    private final ReactiveFileSystemRepository reactiveFileSystemRepositoryMock = mock(ReactiveFileSystemRepository.class);
+    private final ReactiveUserRepository reactiveUserRepositoryMock = mock(ReactiveUserRepository.class);
+    private final FileSystemHelperService fileSystemHelperServiceMock = mock(FileSystemHelperService.class);
+    private final UserDTOService userDTOServiceMock = mock(UserDTOService.class);
+    private final ReactiveMongoTemplate reactiveMongoTemplateMock = mock(ReactiveMongoTemplate.class);
+
+    private final ReactiveFileSystemBusinessService reactiveFileSystemBusinessService = new ReactiveFileSystemBusinessService(reactiveFileSystemRepositoryMock, reactiveUserRepositoryMock, fileSystemHelperServiceMock, userDTOServiceMock, reactiveMongoTemplateMock);
+
+    private final UserEntity ownerEntity = UserEntity.builder().userId(1).username("Richard").lowercaseUsername("richard").build();
+    private final User owner = User.builder().userId(1).username("Richard").build();
+
+    @BeforeEach
+    void setUp() {
+        when(userDTOServiceMock.createDto(ownerEntity)).thenReturn(owner);
+        when(reactiveUserRepositoryMock.findAllByUserIdIn(any())).thenAnswer(invocation -> Flux.just(ownerEntity));
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(owner), any())).thenReturn(true);
+        when(fileSystemHelperServiceMock.removeTrailingBackSlashes(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(fileSystemHelperServiceMock.createDTO(any(), eq(owner), eq(owner), eq(owner), any())).thenAnswer(invocation -> {
+            FileSystemEntity entity = invocation.getArgument(0);
+            return FileSystemItem.builder().fileSystemId(entity.getFileSystemId()).path(invocation.getArgument(4)).build();
+        });
+    }
+
+    @Test
+    void getFolderContentsByPathThrows() {
+        Mono<Pair<List<FileSystemItem>, Long>> wrongFormat = reactiveFileSystemBusinessService.getFolderContentsByPath("richard/bla", owner);
+        FileSystemContentsNotAccessibleException ex = assertThrows(FileSystemContentsNotAccessibleException.class, wrongFormat::block);
+        assertEquals(FileSystemContentsNotAccessibleException.getErrorMessagePrefix() + " Path was in wrong format. Use a leading backslash.", ex.getMessage());
+
+        when(reactiveUserRepositoryMock.findByLowercaseUsername("richard")).thenReturn(Mono.empty());
+        Mono<Pair<List<FileSystemItem>, Long>> unknownUser = reactiveFileSystemBusinessService.getFolderContentsByPath("/Richard/bla", owner);
+        assertThrows(FileSystemContentsNotAccessibleException.class, unknownUser::block);
+    }
+
+    @Test
+    void getFolderContentsByPathWorks() {
+        FileSystemEntity file = FileSystemEntity.builder().fileSystemId(1).name("file.txt").ownerId(1).lastUpdatedBy(1).build();
+        FileSystemEntity otherFile = FileSystemEntity.builder().fileSystemId(2).name("other.txt").ownerId(1).lastUpdatedBy(1).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(42).path("/bla").isFile(false).typeId(FileSystemType.FOLDER.getId()).ownerId(1).itemIds(new long[]{2, 1}).build();
+
+        when(reactiveUserRepositoryMock.findByLowercaseUsername("richard")).thenReturn(Mono.just(ownerEntity));
+        when(reactiveFileSystemRepositoryMock.findByPath("/bla")).thenReturn(Flux.just(folder));
+        when(reactiveFileSystemRepositoryMock.findAllByFileSystemIdIn(Arrays.asList(2L, 1L))).thenReturn(Flux.just(file, otherFile));
+
+        Pair<List<FileSystemItem>, Long> actual = reactiveFileSystemBusinessService.getFolderContentsByPath("/Richard/bla", owner).block();
+
+        assertEquals(42L, actual.getSecond());
+        assertEquals(2, actual.getFirst().size());
+        // the order of the item ids is kept.
+        assertEquals(2, actual.getFirst().get(0).getFileSystemId());
+        assertEquals("/Richard/bla/other.txt", actual.getFirst().get(0).getPath());
+        assertEquals("/Richard/bla/file.txt", actual.getFirst().get(1).getPath());
+        verify(reactiveUserRepositoryMock, times(1)).findAllByUserIdIn(Collections.singleton(1L));
+    }
+
+    @Test
+    void getFolderContentsByPathWithFieldsOnlyLoadsTheFields() {
+        Set<FileSystemItemField> fields = EnumSet.of(FileSystemItemField.NAME);
+        FileSystemEntity file = FileSystemEntity.builder().fileSystemId(1).name("file.txt").ownerId(1).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(42).path("/bla").isFile(false).typeId(FileSystemType.FOLDER.getId()).ownerId(1).itemIds(new long[]{1}).build();
+        FileSystemItem item = FileSystemItem.builder().name("file.txt").build();
+
+        when(reactiveUserRepositoryMock.findByLowercaseUsername("richard")).thenReturn(Mono.just(ownerEntity));
+        when(reactiveFileSystemRepositoryMock.findByPath("/bla")).thenReturn(Flux.just(folder));
+        when(fileSystemHelperServiceMock.includeEntityFields(any(), eq(fields), eq(false))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(reactiveMongoTemplateMock.find(any(Query.class), eq(FileSystemEntity.class))).thenReturn(Flux.just(file));
+        when(fileSystemHelperServiceMock.createDTO(file, null, null, owner, "/Richard/bla/file.txt", fields)).thenReturn(item);
+
+        Pair<List<FileSystemItem>, Long> actual = reactiveFileSystemBusinessService.getFolderContentsByPath("/Richard/bla", owner, fields).block();
+
+        assertEquals(Collections.singletonList(item), actual.getFirst());
+        verify(reactiveFileSystemRepositoryMock, never()).findAllByFileSystemIdIn(any());
+        // the users are not selected, so they are not loaded.
+        verify(reactiveUserRepositoryMock, never()).findAllByUserIdIn(any());
+    }
+
+    @Test
+    void getFolderContentsETagWorks() {
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(42).path("/bla").isFile(false).typeId(FileSystemType.FOLDER.getId()).ownerId(1).itemIds(new long[]{2, 1}).build();
+
+        when(reactiveUserRepositoryMock.findByLowercaseUsername("richard")).thenReturn(Mono.just(ownerEntity));
+        when(reactiveFileSystemRepositoryMock.findByPath("/bla")).thenReturn(Flux.just(folder));
+        when(fileSystemHelperServiceMock.createETag(Collections.singletonList(folder), owner)).thenReturn("\"etag\"");
+
+        assertEquals("\"etag\"", reactiveFileSystemBusinessService.getFolderContentsETag("/Richard/bla", owner).block());
+        // the contents are not loaded for the etag.
+        verify(reactiveFileSystemRepositoryMock, never()).findAllByFileSystemIdIn(any());
+    }
+
+    @Test
+    void getFileSystemItemInfoThrows() {
+        FileSystemEntity invisibleEntity = FileSystemEntity.builder().fileSystemId(42).build();
+        User otherUser = User.builder().userId(2).build();
+
+        when(reactiveFileSystemRepositoryMock.findByFileSystemId(42)).thenReturn(Mono.just(invisibleEntity));
+        when(fileSystemHelperServiceMock.userIsAllowedToInteractWithFileSystemEntity(any(), eq(otherUser), any())).thenReturn(false);
+
+        Mono<FileSystemItem> info = reactiveFileSystemBusinessService.getFileSystemItemInfo(42, otherUser);
+        assertThrows(FileSystemItemNotFoundException.class, info::block);
+    }
+
+    @Test
+    void downloadFileSystemEntityWorks() {
+        FileSystemEntity fileInSubFolder = FileSystemEntity.builder().fileSystemId(3).name("c.txt").ownerId(1).lastUpdatedBy(1).build();
+        FileSystemEntity subFolder = FileSystemEntity.builder().fileSystemId(2).name("b").path("/bla/b").isFile(false).typeId(FileSystemType.FOLDER.getId()).ownerId(1).lastUpdatedBy(1).itemIds(new long[]{3}).build();
+        FileSystemEntity file = FileSystemEntity.builder().fileSystemId(1).name("a.txt").ownerId(1).lastUpdatedBy(1).build();
+        FileSystemEntity folder = FileSystemEntity.builder().fileSystemId(42).name("bla").path("/bla").isFile(false).typeId(FileSystemType.FOLDER.getId()).ownerId(1).lastUpdatedBy(1).itemIds(new long[]{1, 2}).build();
+
+        when(reactiveFileSystemRepositoryMock.findByFileSystemId(42)).thenReturn(Mono.just(folder));
+        when(reactiveFileSystemRepositoryMock.findAllByFileSystemIdIn(Arrays.asList(1L, 2L))).thenReturn(Flux.just(file, subFolder));
+        when(reactiveFileSystemRepositoryMock.findAllByFileSystemIdIn(Collections.singletonList(3L))).thenReturn(Flux.just(fileInSubFolder));
+
+        Pair<List<FileSystemItem>, String> actual = reactiveFileSystemBusinessService.downloadFileSystemEntity(Collections.singletonList(42L), owner).block();
+
+        assertEquals("bla", actual.getSecond());
+        assertEquals(2, actual.getFirst().size());
+        assertEquals("a.txt", actual.getFirst().get(0).getPath());
+        assertEquals("b/c.txt", actual.getFirst().get(1).getPath());
+    }
+}
@@ -0,0 +1,30 @@
+package de.filefighter.rest.domain.filesystem.data;
+
+import de.filefighter.rest.domain.common.exceptions.RequestDidntMeetFormalRequirementsException;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileSystemItemFieldUnitTest {
+
+    @Test
+    void parseFieldsThrows() {
+        RequestDidntMeetFormalRequirementsException ex = assertThrows(RequestDidntMeetFormalRequirementsException.class, () ->
+                FileSystemItemField.parseFields("name,password"));
+        assertEquals(RequestDidntMeetFormalRequirementsException.getErrorMessagePrefix() + " Fields contained a unknown field.", ex.getMessage());
+
+        ex = assertThrows(RequestDidntMeetFormalRequirementsException.class, () ->
+                FileSystemItemField.parseFields(" , "));
+        assertEquals(RequestDidntMeetFormalRequirementsException.getErrorMessagePrefix() + " Fields did not contain any field.", ex.getMessage());
+    }
+
+    @Test
+    void parseFieldsWorks() {
+        assertEquals(EnumSet.of(FileSystemItemField.NAME, FileSystemItemField.SIZE, FileSystemItemField.FILE_SYSTEM_ID),
+                FileSystemItemField.parseFields("size, name,fileSystemId,size"));
+        assertEquals(EnumSet.of(FileSystemItemField.SHARED), FileSystemItemField.parseFields("shared"));
+    }
+}
@@ -0,0 +1,71 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.domain.filesystem.data.FileSystemItemField;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalRequestsUnitTest {
+
+    private final String eTag = "\"5d41402abc4b2a76b9719d911017c592\"";
+
+    @Test
+    void isNotModifiedWorks() {
+        assertFalse(ConditionalRequests.isNotModified(null, eTag));
+        assertFalse(ConditionalRequests.isNotModified("", eTag));
+        assertFalse(ConditionalRequests.isNotModified("\"other\"", eTag));
+        assertFalse(ConditionalRequests.isNotModified("5d41402abc4b2a76b9719d911017c592", eTag));
+
+        assertTrue(ConditionalRequests.isNotModified(eTag, eTag));
+        assertTrue(ConditionalRequests.isNotModified("W/" + eTag, eTag));
+        assertTrue(ConditionalRequests.isNotModified("\"other\", " + eTag, eTag));
+        assertTrue(ConditionalRequests.isNotModified("*", eTag));
+    }
+
+    @Test
+    void createHeadResponseWorks() {
+        ResponseEntity<Void> notModified = ConditionalRequests.createHeadResponse(eTag, eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(eTag, notModified.getHeaders().getETag());
+
+        ResponseEntity<Void> modified = ConditionalRequests.createHeadResponse("\"other\"", eTag);
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals(eTag, modified.getHeaders().getETag());
+        assertEquals("no-cache, private", modified.getHeaders().getCacheControl());
+        assertNull(modified.getBody());
+    }
+
+    @Test
+    void createETagOfFieldsVariantWorks() {
+        assertEquals(eTag, ConditionalRequests.createETagOfFieldsVariant(eTag, null));
+
+        String nameAndSize = ConditionalRequests.createETagOfFieldsVariant(eTag, EnumSet.of(FileSystemItemField.SIZE, FileSystemItemField.NAME));
+        assertNotEquals(eTag, nameAndSize);
+        assertEquals(ConditionalRequests.createETagOfVariant(eTag, "name.size"), nameAndSize);
+    }
+
+    @Test
+    void createETagOfMediaTypeVariantWorks() {
+        assertEquals(eTag, ConditionalRequests.createETagOfMediaTypeVariant(eTag, null));
+        assertEquals(eTag, ConditionalRequests.createETagOfMediaTypeVariant(eTag, "*/*"));
+        assertEquals(eTag, ConditionalRequests.createETagOfMediaTypeVariant(eTag, "application/json, application/cbor"));
+        assertEquals(eTag, ConditionalRequests.createETagOfMediaTypeVariant(eTag, "not a media type"));
+
+        String cbor = ConditionalRequests.createETagOfMediaTypeVariant(eTag, "application/cbor");
+        String smile = ConditionalRequests.createETagOfMediaTypeVariant(eTag, "application/json;q=0.5, application/x-jackson-smile");
+        assertEquals(ConditionalRequests.createETagOfVariant(eTag, "cbor"), cbor);
+        assertEquals(ConditionalRequests.createETagOfVariant(eTag, "smile"), smile);
+        assertEquals(cbor, ConditionalRequests.createETagOfMediaTypeVariant(eTag, "application/json;q=0, application/cbor"));
+        assertEquals(eTag, ConditionalRequests.createETagOfMediaTypeVariant(eTag, "application/*"));
+    }
+
+    @Test
+    void createETagHeadersVaryByAccept() {
+        assertTrue(ConditionalRequests.createETagHeaders(eTag).getVary().contains(HttpHeaders.ACCEPT));
+    }
+}
@@ -0,0 +1,156 @@
+package de.filefighter.rest.domain.filesystem.rest;
+
+import de.filefighter.rest.domain.filesystem.data.dto.CompactFileSystemContents;
+import de.filefighter.rest.domain.filesystem.data.dto.FileSystemItem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.filefighter.rest.configuration.RestConfiguration.FS_COMPACT_CONTENTS_MEDIA_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpStatus.OK;
+
+class FileSystemReadRestControllerUnitTest {
+
+    private final FileSystemRestServiceInterface fileSystemRestServiceMock = mock(FileSystemRestService.class);
+    private FileSystemReadRestController fileSystemReadRestController;
+
+    @BeforeEach
+    void setUp() {
+        fileSystemReadRestController = new FileSystemReadRestController(fileSystemRestServiceMock);
+    }
+
+    @Test
+    void getContentsOfFolder() {
+        List<FileSystemItem> itemArrayList = new ArrayList<>();
+        itemArrayList.add(FileSystemItem.builder().build());
+
+        ResponseEntity<List<FileSystemItem>> expectedModel = new ResponseEntity<>(itemArrayList, HttpStatus.OK);
+        String path = "/username/data.txt";
+        String token = "token";
+
+        when(fileSystemRestServiceMock.getContentsOfFolderByPathAndAccessToken(path, token, "name,size", null, null)).thenReturn(expectedModel);
+
+        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemReadRestController.getContentsOfFolder(path, "name,size", token, null, null);
+        assertEquals(itemArrayList, actualModel.getBody());
+    }
+
+    @Test
+    void getCompactContentsOfFolder() {
+        CompactFileSystemContents contents = CompactFileSystemContents.builder().build();
+        ResponseEntity<CompactFileSystemContents> expectedModel = new ResponseEntity<>(contents, HttpStatus.OK);
+        String path = "/username/data";
+        String token = "token";
+
+        when(fileSystemRestServiceMock.getCompactContentsOfFolderByPathAndAccessToken(path, token, null, null)).thenReturn(expectedModel);
+
+        ResponseEntity<CompactFileSystemContents> actualModel = fileSystemReadRestController.getCompactContentsOfFolder(path, token, null, null);
+        assertEquals(contents, actualModel.getBody());
+    }
+
+    @Test
+    void getCompactContentsOfFolderByMediaType() {
+        CompactFileSystemContents contents = CompactFileSystemContents.builder().build();
+        ResponseEntity<CompactFileSystemContents> expectedModel = new ResponseEntity<>(contents, HttpStatus.OK);
+        String path = "/username/data";
+        String token = "token";
+        String accept = FS_COMPACT_CONTENTS_MEDIA_TYPE;
+
+        when(fileSystemRestServiceMock.getCompactContentsOfFolderByPathAndAccessToken(path, token, null, accept)).thenReturn(expectedModel);
+
+        ResponseEntity<CompactFileSystemContents> actualModel = fileSystemReadRestController.getCompactContentsOfFolderByMediaType(path, token, null, accept);
+        assertEquals(contents, actualModel.getBody());
+    }
+
+    @Test
+    void getETagOfCompactContentsOfFolderByMediaType() {
+        ResponseEntity<Void> expectedModel = new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        String path = "/username/data";
+        String token = "token";
+        String eTag = "\"etag\"";
+        String accept = FS_COMPACT_CONTENTS_MEDIA_TYPE;
+
+        when(fileSystemRestServiceMock.getETagOfFolderContentsByPathAndAccessToken(path, token, true, null, eTag, accept)).thenReturn(expectedModel);
+
+        ResponseEntity<Void> actualModel = fileSystemReadRestController.getETagOfContentsOfFolder(path, false, null, token, eTag, accept);
+        assertEquals(expectedModel, actualModel);
+    }
+
+    @Test
+    void acceptsCompactContentsOnlyForTheirMediaType() {
+        assertTrue(FileSystemRestService.acceptsCompactContents("application/json;q=0.5, " + FS_COMPACT_CONTENTS_MEDIA_TYPE));
+        assertFalse(FileSystemRestService.acceptsCompactContents(FS_COMPACT_CONTENTS_MEDIA_TYPE + ";q=0, application/json"));
+        assertFalse(FileSystemRestService.acceptsCompactContents("*/*"));
+        assertFalse(FileSystemRestService.acceptsCompactContents("application/*"));
+        assertFalse(FileSystemRestService.acceptsCompactContents("not a media type"));
+        assertFalse(FileSystemRestService.acceptsCompactContents(null));
+    }
+
+    @Test
+    void getETagOfContentsOfFolder() {
+        ResponseEntity<Void> expectedModel = new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        String path = "/username/data";
+        String token = "token";
+        String eTag = "\"etag\"";
+
+        when(fileSystemRestServiceMock.getETagOfFolderContentsByPathAndAccessToken(path, token, false, null, eTag, null)).thenReturn(expectedModel);
+
+        ResponseEntity<Void> actualModel = fileSystemReadRestController.getETagOfContentsOfFolder(path, false, null, token, eTag, null);
+        assertEquals(expectedModel, actualModel);
+    }
+
+    @Test
+    void getFileOrFolderInfo() {
+        FileSystemItem file = FileSystemItem.builder().build();
+        ResponseEntity<FileSystemItem> expectedModel = new ResponseEntity<>(file, OK);
+
+        long id = 420;
+        String token = "token";
+        String cookieValue = null;
+
+        when(fileSystemRestServiceMock.getInfoAboutFileOrFolderByIdAndAccessToken(eq(id), any(), eq(null), eq(null), eq(null))).thenReturn(expectedModel);
+
+        ResponseEntity<FileSystemItem> actualModel = fileSystemReadRestController.getFileOrFolderInfo(id, null, cookieValue, token, null, null);
+        assertEquals(expectedModel, actualModel);
+    }
+
+    @Test
+    void getETagOfFileOrFolderInfo() {
+        ResponseEntity<Void> expectedModel = new ResponseEntity<>(OK);
+        long id = 420;
+        String token = "token";
+
+        when(fileSystemRestServiceMock.getETagOfFileOrFolderByIdAndAccessToken(eq(id), any(), eq(null), eq(null), eq(null))).thenReturn(expectedModel);
+
+        ResponseEntity<Void> actualModel = fileSystemReadRestController.getETagOfFileOrFolderInfo(id, null, null, token, null, null);
+        assertEquals(expectedModel, actualModel);
+    }
+
+    @Test
+    void searchFileOrFolderByName() {
+        FileSystemItem file = FileSystemItem.builder().build();
+        List<FileSystemItem> list = new ArrayList<>();
+        list.add(file);
+        ResponseEntity<List<FileSystemItem>> expectedModel = new ResponseEntity<>(list, OK);
+
+        String name = "randomFile.exe";
+        String token = "token";
+
+        when(fileSystemRestServiceMock.findFileOrFolderByNameAndAccessToken(name, token, null)).thenReturn(Mono.just(expectedModel));
+
+        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemReadRestController.searchFileOrFolderByName(name, null, token).block();
+        assertEquals(expectedModel, actualModel);
+    }
+}
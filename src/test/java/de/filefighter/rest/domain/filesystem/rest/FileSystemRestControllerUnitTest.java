@@ -9,12 +9,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import reactor.core.publisher.Mono;
+
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.OK;
@@ -29,52 +29,6 @@ class FileSystemRestControllerUnitTest {
         fileSystemRestController = new FileSystemRestController(fileSystemRestServiceMock);
     }
 
-    @Test
-    void getContentsOfFolder() {
-        List<FileSystemItem> itemArrayList = new ArrayList<>();
-        itemArrayList.add(FileSystemItem.builder().build());
-
-        ResponseEntity<List<FileSystemItem>> expectedModel = new ResponseEntity<>(itemArrayList, HttpStatus.OK);
-        String path = "/username/data.txt";
-        String token = "token";
-
-        when(fileSystemRestServiceMock.getContentsOfFolderByPathAndAccessToken(path, token)).thenReturn(expectedModel);
-
-        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemRestController.getContentsOfFolder(path, token);
-        assertEquals(itemArrayList, actualModel.getBody());
-    }
-
-    @Test
-    void getFileOrFolderInfo() {
-        FileSystemItem file = FileSystemItem.builder().build();
-        ResponseEntity<FileSystemItem> expectedModel = new ResponseEntity<>(file, OK);
-
-        long id = 420;
-        String token = "token";
-        String cookieValue = null;
-
-        when(fileSystemRestServiceMock.getInfoAboutFileOrFolderByIdAndAccessToken(eq(id), any())).thenReturn(expectedModel);
-
-        ResponseEntity<FileSystemItem> actualModel = fileSystemRestController.getFileOrFolderInfo(id, cookieValue, token);
-        assertEquals(expectedModel, actualModel);
-    }
-
-    @Test
-    void searchFileOrFolderByName() {
-        FileSystemItem file = FileSystemItem.builder().build();
-        List<FileSystemItem> list = new ArrayList<>();
-        list.add(file);
-        ResponseEntity<List<FileSystemItem>> expectedModel = new ResponseEntity<>(list, OK);
-
-        String name = "randomFile.exe";
-        String token = "token";
-
-        when(fileSystemRestServiceMock.findFileOrFolderByNameAndAccessToken(name, token)).thenReturn(expectedModel);
-
-        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemRestController.searchFileOrFolderByName(name, token);
-        assertEquals(expectedModel, actualModel);
-    }
-
     @Test
     void preflightUpload() {
         List<FileSystemUpload> uploads = new ArrayList<>();
@@ -130,9 +84,9 @@ class FileSystemRestControllerUnitTest {
         long id = 420;
         String token = "token";
 
-        when(fileSystemRestServiceMock.deleteFileSystemItemWithIdAndAccessToken(id, token)).thenReturn(expectedModel);
+        when(fileSystemRestServiceMock.deleteFileSystemItemWithIdAndAccessToken(id, token)).thenReturn(Mono.just(expectedModel));
 
-        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemRestController.deleteFileOrFolder(id, token);
+        ResponseEntity<List<FileSystemItem>> actualModel = fileSystemRestController.deleteFileOrFolder(id, token).block();
         assertEquals(expectedModel, actualModel);
     }
 }
\ No newline at end of file
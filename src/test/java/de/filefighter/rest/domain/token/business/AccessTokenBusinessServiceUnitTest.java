@@ -4,27 +4,48 @@ import de.filefighter.rest.domain.common.exceptions.FileFighterDataException;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
+import de.filefighter.rest.domain.token.data.persistence.UserSnapshot;
 import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.data.persistence.UserEntity;
+import de.filefighter.rest.domain.user.data.persistence.UserRepository;
 import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class AccessTokenBusinessServiceUnitTest {
 
     private final AccessTokenRepository accessTokenRepositoryMock = mock(AccessTokenRepository.class);
     private final AccessTokenDTOService accessTokenDtoServiceMock = mock(AccessTokenDTOService.class);
+    private final MongoTemplate mongoTemplateMock = mock(MongoTemplate.class);
+    private final UserRepository userRepositoryMock = mock(UserRepository.class);
     private AccessTokenBusinessService accessTokenBusinessService;
 
     @BeforeEach
     void setUp() {
-        accessTokenBusinessService = new AccessTokenBusinessService(accessTokenRepositoryMock, accessTokenDtoServiceMock);
+        accessTokenBusinessService = new AccessTokenBusinessService(accessTokenRepositoryMock, accessTokenDtoServiceMock, mongoTemplateMock, userRepositoryMock);
+        when(userRepositoryMock.findByUserId(anyLong())).thenAnswer(invocation -> UserEntity.builder().userId(invocation.getArgument(0)).username("user").build());
     }
 
     @Test
@@ -35,7 +56,7 @@ class AccessTokenBusinessServiceUnitTest {
         AccessTokenEntity dummyAccessTokenEntity = AccessTokenEntity.builder().userId(dummyId).build();
 
         when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(null);
-        when(accessTokenRepositoryMock.save(any())).thenReturn(dummyAccessTokenEntity);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(AccessTokenEntity.class))).thenReturn(dummyAccessTokenEntity);
         when(accessTokenDtoServiceMock.createDto(dummyAccessTokenEntity)).thenReturn(dummyAccessToken);
 
         AccessToken accessToken = accessTokenBusinessService.getValidAccessTokenForUser(dummyUser);
@@ -65,39 +86,133 @@ class AccessTokenBusinessServiceUnitTest {
         long dummyId = 1234;
         User dummyUser = User.builder().userId(dummyId).build();
         AccessToken dummyAccessToken = AccessToken.builder().userId(dummyId).build();
-        AccessTokenEntity dummyAccessTokenEntity = AccessTokenEntity
+        AccessTokenEntity invalidAccessTokenEntity = AccessTokenEntity
                 .builder()
                 .userId(dummyId)
                 .validUntil(Instant.now().getEpochSecond())
                 .build();
+        AccessTokenEntity rotatedAccessTokenEntity = AccessTokenEntity.builder().userId(dummyId).value("new").build();
 
-        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(dummyAccessTokenEntity);
-        when(accessTokenRepositoryMock.save(any())).thenReturn(dummyAccessTokenEntity);
-        when(accessTokenRepositoryMock.deleteByUserId(dummyId)).thenReturn(1L);
-        when(accessTokenDtoServiceMock.createDto(dummyAccessTokenEntity)).thenReturn(dummyAccessToken);
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(invalidAccessTokenEntity);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(AccessTokenEntity.class))).thenReturn(rotatedAccessTokenEntity);
+        when(accessTokenDtoServiceMock.createDto(rotatedAccessTokenEntity)).thenReturn(dummyAccessToken);
 
         AccessToken accessToken = accessTokenBusinessService.getValidAccessTokenForUser(dummyUser);
-
         assertEquals(dummyAccessToken, accessToken);
-        verify(accessTokenRepositoryMock, times(0)).save(dummyAccessTokenEntity); // the newly saved token is different.
+
+        ArgumentCaptor<Query> queryArgumentCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<FindAndModifyOptions> optionsArgumentCaptor = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplateMock, times(1)).findAndModify(queryArgumentCaptor.capture(), any(), optionsArgumentCaptor.capture(), eq(AccessTokenEntity.class));
+        assertEquals(dummyId, queryArgumentCaptor.getValue().getQueryObject().get("userId"));
+        assertTrue(optionsArgumentCaptor.getValue().isUpsert());
+        assertTrue(optionsArgumentCaptor.getValue().isReturnNew());
+        verify(accessTokenRepositoryMock, never()).save(any());
     }
 
     @Test
-    void getValidAccessTokenForUserWhenTokenDeletionFails() {
+    void getValidAccessTokenForUserWhenRotatedConcurrently() {
         long dummyId = 1234;
         User dummyUser = User.builder().userId(dummyId).build();
-        AccessTokenEntity dummyAccessTokenEntity = AccessTokenEntity
-                .builder()
-                .userId(dummyId)
-                .validUntil(Instant.now().getEpochSecond())
-                .build();
+        AccessToken dummyAccessToken = AccessToken.builder().userId(dummyId).build();
+        AccessTokenEntity invalidAccessTokenEntity = AccessTokenEntity.builder().userId(dummyId).validUntil(Instant.now().getEpochSecond()).build();
+        AccessTokenEntity rotatedAccessTokenEntity = AccessTokenEntity.builder().userId(dummyId).value("fromOtherNode").build();
 
-        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(dummyAccessTokenEntity);
-        when(accessTokenRepositoryMock.deleteByUserId(dummyId)).thenReturn(dummyId - 1);
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(invalidAccessTokenEntity, rotatedAccessTokenEntity);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(AccessTokenEntity.class))).thenThrow(new DuplicateKeyException("userId"));
+        when(accessTokenDtoServiceMock.createDto(rotatedAccessTokenEntity)).thenReturn(dummyAccessToken);
+
+        assertEquals(dummyAccessToken, accessTokenBusinessService.getValidAccessTokenForUser(dummyUser));
+    }
+
+    @Test
+    void getValidAccessTokenForUserWhenRotationFails() {
+        long dummyId = 1234;
+        User dummyUser = User.builder().userId(dummyId).build();
+
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(null);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(AccessTokenEntity.class))).thenThrow(new DuplicateKeyException("userId"));
 
         FileFighterDataException ex = assertThrows(FileFighterDataException.class, () ->
                 accessTokenBusinessService.getValidAccessTokenForUser(dummyUser));
-        assertEquals(FileFighterDataException.getErrorMessagePrefix() + " AccessToken for userId " + dummyId + " could not be deleted.", ex.getMessage());
+        assertEquals(FileFighterDataException.getErrorMessagePrefix() + " AccessToken for userId " + dummyId + " could not be rotated.", ex.getMessage());
+    }
+
+    @Test
+    void getValidAccessTokenForUserIssuesOneTokenForConcurrentCalls() throws Exception {
+        long dummyId = 1234;
+        User dummyUser = User.builder().userId(dummyId).build();
+        AccessTokenEntity rotatedAccessTokenEntity = AccessTokenEntity.builder().userId(dummyId).value("new").build();
+        CountDownLatch rotationStarted = new CountDownLatch(1);
+        CountDownLatch releaseRotation = new CountDownLatch(1);
+
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(null);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(AccessTokenEntity.class))).thenAnswer(invocation -> {
+            rotationStarted.countDown();
+            assertTrue(releaseRotation.await(5, TimeUnit.SECONDS));
+            return rotatedAccessTokenEntity;
+        });
+        when(accessTokenDtoServiceMock.createDto(rotatedAccessTokenEntity)).thenAnswer(invocation -> AccessToken.builder().userId(dummyId).tokenValue("new").build());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<AccessToken> first = executor.submit(() -> accessTokenBusinessService.getValidAccessTokenForUser(dummyUser));
+            assertTrue(rotationStarted.await(5, TimeUnit.SECONDS));
+            List<Future<AccessToken>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(executor.submit(() -> accessTokenBusinessService.getValidAccessTokenForUser(dummyUser)));
+            }
+            // give the other calls time to join the running one.
+            Thread.sleep(100);
+            releaseRotation.countDown();
+
+            AccessToken issued = first.get(5, TimeUnit.SECONDS);
+            for (Future<AccessToken> other : others) {
+                assertSame(issued, other.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(mongoTemplateMock, times(1)).findAndModify(any(), any(), any(), eq(AccessTokenEntity.class));
+    }
+
+    @Test
+    void getValidAccessTokenForUserAddsUserSnapshot() {
+        long dummyId = 1234;
+        User dummyUser = User.builder().userId(dummyId).build();
+        AccessTokenEntity tokenWithoutSnapshot = AccessTokenEntity.builder().userId(dummyId).validUntil(Instant.now().getEpochSecond() + 100).build();
+        UserEntity userEntity = UserEntity.builder().userId(dummyId).username("Richard").groupIds(new long[]{1}).version(3).build();
+
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(tokenWithoutSnapshot);
+        when(userRepositoryMock.findByUserId(dummyId)).thenReturn(userEntity);
+
+        accessTokenBusinessService.getValidAccessTokenForUser(dummyUser);
+
+        UserSnapshot expectedSnapshot = UserSnapshot.builder().username("Richard").groupIds(new long[]{1}).version(3).build();
+        ArgumentCaptor<Update> updateArgumentCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).updateFirst(any(), updateArgumentCaptor.capture(), eq(AccessTokenEntity.class));
+        assertEquals(expectedSnapshot, updateArgumentCaptor.getValue().getUpdateObject().get("$set", Document.class).get("user"));
+        verify(accessTokenDtoServiceMock).createDto(argThat(entity -> expectedSnapshot.equals(entity.getUser())));
+
+        // tokens that have one are not written.
+        AccessTokenEntity tokenWithSnapshot = AccessTokenEntity.builder().userId(dummyId).validUntil(Instant.now().getEpochSecond() + 100).user(expectedSnapshot).build();
+        when(accessTokenRepositoryMock.findByUserId(dummyId)).thenReturn(tokenWithSnapshot);
+        accessTokenBusinessService.getValidAccessTokenForUser(dummyUser);
+        verify(mongoTemplateMock, times(1)).updateFirst(any(), any(), eq(AccessTokenEntity.class));
+    }
+
+    @Test
+    void updateUserSnapshotOnlyReplacesOlderSnapshots() {
+        UserEntity userEntity = UserEntity.builder().userId(1234).username("Richard").groupIds(null).version(2).build();
+
+        UserSnapshot snapshot = accessTokenBusinessService.updateUserSnapshot(userEntity);
+        assertEquals(2, snapshot.getVersion());
+        assertEquals(0, snapshot.getGroupIds().length);
+
+        ArgumentCaptor<Query> queryArgumentCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock).updateFirst(queryArgumentCaptor.capture(), any(), eq(AccessTokenEntity.class));
+        String query = queryArgumentCaptor.getValue().getQueryObject().toJson();
+        assertTrue(query.contains("\"userId\": 1234"));
+        assertTrue(query.contains("\"user.version\": {\"$lt\": 2}"));
     }
 
     @Test
@@ -155,6 +270,31 @@ class AccessTokenBusinessServiceUnitTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void findAccessTokenByValueReadsTheTokenOncePerRequest() {
+        String value = "ugabuga";
+        AccessTokenEntity accessTokenEntity = AccessTokenEntity.builder().value(value).build();
+        AccessToken expected = AccessToken.builder().tokenValue(value).userId(420).build();
+        when(accessTokenRepositoryMock.findByValue(value)).thenReturn(accessTokenEntity);
+        when(accessTokenDtoServiceMock.createDto(accessTokenEntity)).thenReturn(expected);
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            assertEquals(expected, accessTokenBusinessService.findAccessTokenByValue(value));
+            assertEquals(expected, accessTokenBusinessService.findAccessTokenByValue(value));
+            verify(accessTokenRepositoryMock, times(1)).findByValue(value);
+
+            // other values are still looked up.
+            assertThrows(UserNotAuthenticatedException.class, () -> accessTokenBusinessService.findAccessTokenByValue("other"));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        // without a request every call reads it.
+        accessTokenBusinessService.findAccessTokenByValue(value);
+        verify(accessTokenRepositoryMock, times(2)).findByValue(value);
+    }
+
     @Test
     void generateRandomTokenValue() {
         String generatedToken = AccessTokenBusinessService.generateRandomTokenValue();
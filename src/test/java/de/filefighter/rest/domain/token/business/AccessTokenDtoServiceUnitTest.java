@@ -3,12 +3,15 @@ package de.filefighter.rest.domain.token.business;
 import de.filefighter.rest.domain.token.data.dto.AccessToken;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenEntity;
 import de.filefighter.rest.domain.token.data.persistence.AccessTokenRepository;
+import de.filefighter.rest.domain.token.data.persistence.UserSnapshot;
 import de.filefighter.rest.domain.token.exceptions.AccessTokenNotFoundException;
+import de.filefighter.rest.domain.user.data.dto.User;
+import de.filefighter.rest.domain.user.group.Group;
+import de.filefighter.rest.domain.user.group.GroupRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -19,7 +22,7 @@ class AccessTokenDtoServiceUnitTest {
 
     @BeforeEach
     void setUp() {
-        accessTokenDtoService = new AccessTokenDTOService(accessTokenRepository);
+        accessTokenDtoService = new AccessTokenDTOService(accessTokenRepository, new GroupRepository());
     }
 
     @Test
@@ -35,6 +38,22 @@ class AccessTokenDtoServiceUnitTest {
         assertEquals(dummyEntity.getUserId(), actual.getUserId());
         assertEquals(dummyEntity.getValidUntil(), actual.getValidUntil());
         assertEquals(dummyEntity.getValue(), actual.getTokenValue());
+        assertNull(actual.getUser());
+    }
+
+    @Test
+    void createDtoWithUserSnapshot() {
+        AccessTokenEntity dummyEntity = AccessTokenEntity.builder()
+                .userId(240)
+                .value("token")
+                .user(UserSnapshot.builder().username("Richard").groupIds(new long[]{1}).version(2).build())
+                .build();
+
+        User actual = accessTokenDtoService.createDto(dummyEntity).getUser();
+
+        assertEquals(240, actual.getUserId());
+        assertEquals("Richard", actual.getUsername());
+        assertArrayEquals(new Group[]{Group.ADMIN}, actual.getGroups());
     }
 
     @Test
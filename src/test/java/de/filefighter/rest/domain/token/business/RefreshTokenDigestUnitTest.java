@@ -0,0 +1,24 @@
+package de.filefighter.rest.domain.token.business;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshTokenDigestUnitTest {
+
+    @Test
+    void digestHasFixedLength() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", RefreshTokenDigest.digest(""));
+        assertEquals(64, RefreshTokenDigest.digest(AccessTokenBusinessService.generateRandomTokenValue()).length());
+        assertEquals(RefreshTokenDigest.digest("rft1234"), RefreshTokenDigest.digest("rft1234"));
+        assertNotEquals(RefreshTokenDigest.digest("rft1234"), RefreshTokenDigest.digest("rft"));
+    }
+
+    @Test
+    void matchesComparesTheTokens() {
+        assertTrue(RefreshTokenDigest.matches("rft1234", "rft1234"));
+        assertFalse(RefreshTokenDigest.matches("rft1234", "rft"));
+        assertFalse(RefreshTokenDigest.matches("rft1234", null));
+        assertFalse(RefreshTokenDigest.matches(null, "rft1234"));
+    }
+}
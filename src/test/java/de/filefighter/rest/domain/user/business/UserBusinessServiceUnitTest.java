@@ -1,6 +1,9 @@
 package de.filefighter.rest.domain.user.business;
 
+import de.filefighter.rest.domain.authentication.PasswordHashingService;
 import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.filesystem.data.persistence.FileSystemEntity;
+import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
 import de.filefighter.rest.domain.token.data.dto.RefreshToken;
 import de.filefighter.rest.domain.user.data.dto.User;
 import de.filefighter.rest.domain.user.data.dto.UserRegisterForm;
@@ -11,15 +14,24 @@ import de.filefighter.rest.domain.user.exceptions.UserNotRegisteredException;
 import de.filefighter.rest.domain.user.exceptions.UserNotUpdatedException;
 import de.filefighter.rest.domain.user.group.Group;
 import de.filefighter.rest.domain.user.group.GroupRepository;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 class UserBusinessServiceUnitTest {
 
@@ -28,14 +40,16 @@ class UserBusinessServiceUnitTest {
     private final GroupRepository groupRepositoryMock = mock(GroupRepository.class);
     private final MongoTemplate mongoTemplateMock = mock(MongoTemplate.class);
     private final InputSanitizerService inputSanitizerServiceMock = mock(InputSanitizerService.class);
-    private final PasswordEncoder passwordEncoderMock = mock(PasswordEncoder.class);
+    private final PasswordHashingService passwordHashingServiceMock = mock(PasswordHashingService.class);
+    private final AccessTokenBusinessService accessTokenBusinessServiceMock = mock(AccessTokenBusinessService.class);
     private final UserBusinessService userBusinessService = new UserBusinessService(
             userRepositoryMock,
             userDtoServiceMock,
             groupRepositoryMock,
             mongoTemplateMock,
             inputSanitizerServiceMock,
-            passwordEncoderMock);
+            passwordHashingServiceMock,
+            accessTokenBusinessServiceMock);
 
 
     private static UserEntity userEntityMock;
@@ -135,6 +149,27 @@ class UserBusinessServiceUnitTest {
         assertEquals(dummyUser, actual);
     }
 
+    @Test
+    void findUsersByIdsWorks() {
+        UserEntity firstEntity = UserEntity.builder().userId(1).build();
+        UserEntity secondEntity = UserEntity.builder().userId(2).build();
+        User firstUser = User.builder().userId(1).build();
+        User secondUser = User.builder().userId(2).build();
+        List<Long> ids = Arrays.asList(1L, 2L, 3L);
+
+        when(userRepositoryMock.findAllByUserIdIn(ids)).thenReturn(Arrays.asList(firstEntity, secondEntity));
+        when(userDtoServiceMock.createDto(firstEntity)).thenReturn(firstUser);
+        when(userDtoServiceMock.createDto(secondEntity)).thenReturn(secondUser);
+
+        Map<Long, User> actual = userBusinessService.findUsersByIds(ids);
+        assertEquals(2, actual.size());
+        assertEquals(firstUser, actual.get(1L));
+        assertEquals(secondUser, actual.get(2L));
+
+        assertTrue(userBusinessService.findUsersByIds(Collections.emptyList()).isEmpty());
+        verify(userRepositoryMock, times(1)).findAllByUserIdIn(any());
+    }
+
     @Test
     void findUserByUsernameThrowsExceptions() {
         String validFormat = "ugabuga";
@@ -245,6 +280,8 @@ class UserBusinessServiceUnitTest {
         long[] groups = new long[]{0};
 
         when(inputSanitizerServiceMock.passwordIsValid(password)).thenReturn(true);
+        when(passwordHashingServiceMock.encode(password)).thenReturn(CompletableFuture.completedFuture("hashedPassword"));
+        when(userRepositoryMock.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
 
         UserRegisterForm userRegisterForm = UserRegisterForm.builder()
                 .username(username)
@@ -253,10 +290,11 @@ class UserBusinessServiceUnitTest {
                 .groupIds(groups)
                 .build();
 
-        assertDoesNotThrow(() -> userBusinessService.registerNewUser(userRegisterForm));
+        assertDoesNotThrow(() -> userBusinessService.registerNewUser(userRegisterForm).block());
 
         userRegisterForm.setGroupIds(null);
-        assertDoesNotThrow(() -> userBusinessService.registerNewUser(userRegisterForm));
+        assertDoesNotThrow(() -> userBusinessService.registerNewUser(userRegisterForm).block());
+        verify(userRepositoryMock, times(2)).save(argThat(user -> "hashedPassword".equals(user.getPassword())));
     }
 
     @Test
@@ -327,8 +365,14 @@ class UserBusinessServiceUnitTest {
         User authenticatedUser = User.builder().userId(userId).groups(new Group[]{Group.FAMILY}).build();
 
         when(userRepositoryMock.findByUserId(userId)).thenReturn(userEntityMock);
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(UserEntity.class))).thenReturn(userEntityMock);
+        when(mongoTemplateMock.find(any(), eq(FileSystemEntity.class))).thenReturn(Collections.singletonList(FileSystemEntity.builder().fileSystemId(42).build()));
 
-        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser));
+        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser).block());
+        // the items show the username, so their etags have to change.
+        ArgumentCaptor<Query> changedEntities = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplateMock, times(2)).updateMulti(changedEntities.capture(), any(Update.class), eq(FileSystemEntity.class));
+        assertEquals(new Document("$in", Collections.singletonList(42L)), changedEntities.getAllValues().get(1).getQueryObject().get("itemIds"));
 
         // updating the user with the same username works.
         UserRegisterForm anotherOne = UserRegisterForm.builder().username(userEntityMock.getUsername()).build();
@@ -384,8 +428,15 @@ class UserBusinessServiceUnitTest {
 
         when(userRepositoryMock.findByUserId(userId)).thenReturn(dummyEntity);
         when(inputSanitizerServiceMock.passwordIsValid(password)).thenReturn(true);
-
-        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser));
+        when(passwordHashingServiceMock.encode(password)).thenReturn(CompletableFuture.completedFuture("hashedPassword"));
+
+        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser).block());
+        ArgumentCaptor<Update> updateArgumentCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).findAndModify(any(), updateArgumentCaptor.capture(), any(), eq(UserEntity.class));
+        assertEquals("hashedPassword", updateArgumentCaptor.getValue().getUpdateObject().get("$set", Document.class).get("password"));
+        // the password is not part of the access tokens.
+        verify(accessTokenBusinessServiceMock, never()).updateUserSnapshot(any());
+        verify(mongoTemplateMock, never()).updateMulti(any(Query.class), any(Update.class), eq(FileSystemEntity.class));
     }
 
     @Test
@@ -430,7 +481,15 @@ class UserBusinessServiceUnitTest {
         userRegisterForm.setGroupIds(groups);
         when(userRepositoryMock.findByUserId(userId)).thenReturn(dummyEntity);
         when(groupRepositoryMock.getGroupsByIds(groups)).thenReturn(new Group[]{Group.FAMILY});
-        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser));
+        UserEntity updatedEntity = UserEntity.builder().userId(userId).groupIds(groups).version(1).build();
+        when(mongoTemplateMock.findAndModify(any(), any(), any(), eq(UserEntity.class))).thenReturn(updatedEntity);
+        assertDoesNotThrow(() -> userBusinessService.updateUser(userId, userRegisterForm, authenticatedUser).block());
+
+        // the copies of the user in the access tokens are refreshed.
+        ArgumentCaptor<Update> updateArgumentCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplateMock).findAndModify(any(), updateArgumentCaptor.capture(), any(), eq(UserEntity.class));
+        assertEquals(1, updateArgumentCaptor.getValue().getUpdateObject().get("$inc", Document.class).get("version"));
+        verify(accessTokenBusinessServiceMock).updateUserSnapshot(updatedEntity);
     }
 
     @Test
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletResponse;
+import reactor.core.publisher.Mono;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,9 +33,9 @@ class UserRestControllerUnitTest {
         ServerResponse expected = new ServerResponse(OK, "");
         ResponseEntity<ServerResponse> expectedEntity = new ResponseEntity<>(expected, CREATED);
 
-        when(userRestServiceMock.registerNewUserWithAccessToken(any(), any())).thenReturn(expectedEntity);
+        when(userRestServiceMock.registerNewUserWithAccessToken(any(), any())).thenReturn(Mono.just(expectedEntity));
 
-        ResponseEntity<ServerResponse> actual = userRestController.registerNewUser("", null);
+        ResponseEntity<ServerResponse> actual = userRestController.registerNewUser("", null).block();
 
         assertEquals(expectedEntity, actual);
     }
@@ -45,9 +46,9 @@ class UserRestControllerUnitTest {
         RefreshToken refreshToken = RefreshToken.builder().tokenValue("token").user(user).build();
         ResponseEntity<RefreshToken> expectedRefreshToken = new ResponseEntity<>(refreshToken, OK);
 
-        when(userRestServiceMock.getRefreshTokenWithUsernameAndPassword(any())).thenReturn(expectedRefreshToken);
+        when(userRestServiceMock.getRefreshTokenWithUsernameAndPassword(any())).thenReturn(Mono.just(expectedRefreshToken));
 
-        ResponseEntity<RefreshToken> actualRefreshToken = userRestController.loginWithUsernameAndPassword("");
+        ResponseEntity<RefreshToken> actualRefreshToken = userRestController.loginWithUsernameAndPassword("").block();
 
         assertEquals(expectedRefreshToken, actualRefreshToken);
     }
@@ -80,8 +81,8 @@ class UserRestControllerUnitTest {
         ResponseEntity<ServerResponse> expectedResponse = new ResponseEntity<>(new ServerResponse(CREATED, "uga"), CREATED);
         UserRegisterForm userRegisterForm = UserRegisterForm.builder().build();
 
-        when(userRestServiceMock.updateUserByUserIdAuthenticateWithAccessToken(userRegisterForm, 0, "token")).thenReturn(expectedResponse);
-        ResponseEntity<ServerResponse> actualResponse = userRestController.updateUser(0, "token", userRegisterForm);
+        when(userRestServiceMock.updateUserByUserIdAuthenticateWithAccessToken(userRegisterForm, 0, "token")).thenReturn(Mono.just(expectedResponse));
+        ResponseEntity<ServerResponse> actualResponse = userRestController.updateUser(0, "token", userRegisterForm).block();
 
         assertEquals(expectedResponse, actualResponse);
     }
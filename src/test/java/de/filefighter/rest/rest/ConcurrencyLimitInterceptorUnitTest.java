@@ -0,0 +1,80 @@
+package de.filefighter.rest.rest;
+
+import de.filefighter.rest.domain.common.concurrency.ConcurrencyLimiter;
+import de.filefighter.rest.domain.common.concurrency.RequestPriority;
+import de.filefighter.rest.domain.common.exceptions.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitInterceptorUnitTest {
+
+    private static final String SEARCH_MAPPING = "/v1/filesystem/search";
+    private static final String LOGIN_MAPPING = "/v1/users/login";
+
+    private final ConcurrencyLimiter concurrencyLimiterMock = mock(ConcurrencyLimiter.class);
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor = new ConcurrencyLimitInterceptor(concurrencyLimiterMock,
+            Collections.singletonMap(SEARCH_MAPPING, RequestPriority.LOW));
+    private final HandlerMethod handlerMethod = mock(HandlerMethod.class);
+
+    @Test
+    void requestsOverTheLimitAreRejected() {
+        when(concurrencyLimiterMock.tryAcquire(RequestPriority.LOW)).thenReturn(false);
+
+        ServiceOverloadedException ex = assertThrows(ServiceOverloadedException.class, () ->
+                concurrencyLimitInterceptor.preHandle(createRequest(SEARCH_MAPPING), new MockHttpServletResponse(), handlerMethod));
+        assertEquals(ServiceOverloadedException.getErrorMessagePrefix() + " Too many requests in flight for " + SEARCH_MAPPING + ".", ex.getMessage());
+    }
+
+    @Test
+    void placeIsGivenBackOnce() {
+        when(concurrencyLimiterMock.tryAcquire(RequestPriority.NORMAL)).thenReturn(true);
+        MockHttpServletRequest request = createRequest("/v1/filesystem/contents");
+
+        assertTrue(concurrencyLimitInterceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod));
+        // the async dispatch of a reactive endpoint does not take a second place.
+        request.setDispatcherType(DispatcherType.ASYNC);
+        assertTrue(concurrencyLimitInterceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod));
+        concurrencyLimitInterceptor.afterCompletion(request, new MockHttpServletResponse(), handlerMethod, null);
+        concurrencyLimitInterceptor.afterCompletion(request, new MockHttpServletResponse(), handlerMethod, null);
+
+        verify(concurrencyLimiterMock, times(1)).tryAcquire(RequestPriority.NORMAL);
+        verify(concurrencyLimiterMock, times(1)).release(longThat(rtt -> rtt >= 0));
+    }
+
+    @Test
+    void criticalRequestsDoNotChangeTheLimit() {
+        when(concurrencyLimiterMock.tryAcquire(RequestPriority.CRITICAL)).thenReturn(true);
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(concurrencyLimiterMock,
+                Collections.singletonMap(LOGIN_MAPPING, RequestPriority.CRITICAL));
+        MockHttpServletRequest request = createRequest(LOGIN_MAPPING);
+
+        interceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod);
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), handlerMethod, null);
+
+        verify(concurrencyLimiterMock).release(-1);
+    }
+
+    @Test
+    void otherHandlersAreNotLimited() {
+        assertTrue(concurrencyLimitInterceptor.preHandle(createRequest(SEARCH_MAPPING), new MockHttpServletResponse(), new Object()));
+        concurrencyLimitInterceptor.afterCompletion(createRequest(SEARCH_MAPPING), new MockHttpServletResponse(), new Object(), null);
+        verify(concurrencyLimiterMock, never()).tryAcquire(any());
+        verify(concurrencyLimiterMock, never()).release(anyLong());
+    }
+
+    private MockHttpServletRequest createRequest(String mapping) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", mapping);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, mapping);
+        return request;
+    }
+}
@@ -0,0 +1,96 @@
+package de.filefighter.rest.rest;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandSucceededEvent;
+import de.filefighter.rest.configuration.DatabaseOperations;
+import de.filefighter.rest.configuration.DatabaseOperationsListener;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static de.filefighter.rest.configuration.RestConfiguration.DB_OPERATIONS_HEADER;
+import static de.filefighter.rest.configuration.RestConfiguration.DB_TIME_HEADER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseOperationsFilterUnitTest {
+
+    private final DatabaseOperationsListener listener = new DatabaseOperationsListener();
+    private final ConnectionDescription connectionDescription = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private final FilterChain twoOperationsChain = (request, response) -> {
+        listener.commandSucceeded(new CommandSucceededEvent(1, connectionDescription, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(3)));
+        listener.commandSucceeded(new CommandSucceededEvent(2, connectionDescription, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(4)));
+        response.getOutputStream().write("body".getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void headersAreSetWorks() throws Exception {
+        DatabaseOperationsFilter filter = new DatabaseOperationsFilter(true, 0, 1.0, Collections.emptyMap());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/filesystem/contents"), response, twoOperationsChain);
+
+        assertEquals("2", response.getHeader(DB_OPERATIONS_HEADER));
+        assertEquals("7", response.getHeader(DB_TIME_HEADER));
+        assertEquals("body", response.getContentAsString());
+        assertNull(DatabaseOperations.current());
+    }
+
+    @Test
+    void headersAreNotSetWithoutDebugHeader() throws Exception {
+        DatabaseOperationsFilter filter = new DatabaseOperationsFilter(false, 1, 1.0, Collections.emptyMap());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/v1/filesystem/contents"), response, twoOperationsChain);
+
+        assertNull(response.getHeader(DB_OPERATIONS_HEADER));
+        assertEquals("body", response.getContentAsString());
+        assertNull(DatabaseOperations.current());
+    }
+
+    @Test
+    void operationsOutsideOfRequestsAreIgnored() {
+        assertDoesNotThrow(() -> listener.commandSucceeded(new CommandSucceededEvent(1, connectionDescription, "find", new BsonDocument(), 1)));
+        assertNull(DatabaseOperations.current());
+    }
+
+    @Test
+    void returnedDocumentsAreCounted() {
+        BsonDocument firstBatch = new BsonDocument("cursor", new BsonDocument("firstBatch", new BsonArray(Arrays.asList(new BsonDocument(), new BsonDocument(), new BsonDocument()))));
+        BsonDocument nextBatch = new BsonDocument("cursor", new BsonDocument("nextBatch", new BsonArray(Collections.singletonList(new BsonDocument()))));
+
+        DatabaseOperations databaseOperations = DatabaseOperations.start();
+        try {
+            listener.commandSucceeded(new CommandSucceededEvent(1, connectionDescription, "find", firstBatch, 1));
+            listener.commandSucceeded(new CommandSucceededEvent(2, connectionDescription, "getMore", nextBatch, 1));
+            listener.commandSucceeded(new CommandSucceededEvent(3, connectionDescription, "update", new BsonDocument("n", new BsonInt32(1)), 1));
+        } finally {
+            DatabaseOperations.stop();
+        }
+
+        assertEquals(3, databaseOperations.getCount());
+        assertEquals(4, databaseOperations.getDocuments());
+    }
+
+    @Test
+    void isSampledWorks() {
+        DatabaseOperationsFilter filter = new DatabaseOperationsFilter(false, 0, 1.0, Collections.singletonMap("/v1/filesystem/contents", 0.0));
+
+        assertTrue(filter.isSampled("/v1/filesystem/search", 200));
+        assertTrue(filter.isSampled(null, 404));
+        assertFalse(filter.isSampled("/v1/filesystem/contents", 200));
+        assertTrue(filter.isSampled("/v1/filesystem/contents", 500));
+    }
+}
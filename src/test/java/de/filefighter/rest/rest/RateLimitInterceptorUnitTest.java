@@ -0,0 +1,140 @@
+package de.filefighter.rest.rest;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandSucceededEvent;
+import de.filefighter.rest.configuration.DatabaseOperations;
+import de.filefighter.rest.configuration.DatabaseOperationsListener;
+import de.filefighter.rest.domain.common.InputSanitizerService;
+import de.filefighter.rest.domain.common.exceptions.TooManyRequestsException;
+import de.filefighter.rest.domain.common.ratelimit.RateLimit;
+import de.filefighter.rest.domain.common.ratelimit.RateLimiter;
+import de.filefighter.rest.domain.token.business.AccessTokenBusinessService;
+import de.filefighter.rest.domain.token.data.dto.AccessToken;
+import de.filefighter.rest.domain.user.exceptions.UserNotAuthenticatedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.Cookie;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+class RateLimitInterceptorUnitTest {
+
+    private static final String SEARCH_MAPPING = "/v1/filesystem/search";
+
+    private final RateLimiter rateLimiterMock = mock(RateLimiter.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RateLimit defaultLimit = new RateLimit(200, 50);
+    private final RateLimit searchLimit = new RateLimit(50, 5);
+    private final AccessTokenBusinessService accessTokenBusinessServiceMock = mock(AccessTokenBusinessService.class);
+    private final RateLimitInterceptor rateLimitInterceptor = new RateLimitInterceptor(rateLimiterMock, accessTokenBusinessServiceMock, new InputSanitizerService(), defaultLimit,
+            Collections.singletonMap(SEARCH_MAPPING, searchLimit), 100, meterRegistry);
+    private final HandlerMethod handlerMethod = mock(HandlerMethod.class);
+    private final DatabaseOperationsListener listener = new DatabaseOperationsListener();
+    private final ConnectionDescription connectionDescription = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    @BeforeEach
+    void setUp() {
+        when(accessTokenBusinessServiceMock.findAccessTokenByValue(any())).thenThrow(new UserNotAuthenticatedException("AccessToken not found."));
+        doReturn(AccessToken.builder().tokenValue("someToken").userId(42).build()).when(accessTokenBusinessServiceMock).findAccessTokenByValue("someToken");
+    }
+
+    @Test
+    void requestsAreLimitedPerClientAndEndpoint() {
+        MockHttpServletRequest request = createRequest();
+        when(rateLimiterMock.tryAcquire("user:42 " + SEARCH_MAPPING, searchLimit)).thenReturn(0L, 7L);
+
+        assertTrue(rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod));
+        TooManyRequestsException ex = assertThrows(TooManyRequestsException.class, () ->
+                rateLimitInterceptor.preHandle(createRequest(), new MockHttpServletResponse(), handlerMethod));
+        assertEquals(7, ex.getRetryAfterSeconds());
+        assertEquals(TooManyRequestsException.getErrorMessagePrefix() + " Exceeded the limit of " + SEARCH_MAPPING + ".", ex.getMessage());
+        assertEquals(1.0, meterRegistry.get(RateLimitInterceptor.RATE_LIMITED_METRIC).tag("mapping", SEARCH_MAPPING).counter().count());
+    }
+
+    @Test
+    void finishedRequestsAreChargedTheirCost() {
+        // nothing is known outside of the db operations filter.
+        MockHttpServletRequest uncountedRequest = createRequest();
+        rateLimitInterceptor.preHandle(uncountedRequest, new MockHttpServletResponse(), handlerMethod);
+        rateLimitInterceptor.afterCompletion(uncountedRequest, new MockHttpServletResponse(), handlerMethod, null);
+        verify(rateLimiterMock, never()).charge(any(), any(), anyDouble());
+
+        BsonArray documents = new BsonArray();
+        for (int i = 0; i < 50; i++)
+            documents.add(new BsonDocument());
+        MockHttpServletRequest request = createRequest();
+        DatabaseOperations.start();
+        try {
+            rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), handlerMethod);
+            for (int i = 0; i < 3; i++)
+                listener.commandSucceeded(new CommandSucceededEvent(i, connectionDescription, "find", new BsonDocument("cursor", new BsonDocument("firstBatch", documents)), 1));
+        } finally {
+            DatabaseOperations.stop();
+        }
+        // also counted after the thread of the request stopped, like in the async dispatch.
+        rateLimitInterceptor.afterCompletion(request, new MockHttpServletResponse(), handlerMethod, null);
+
+        // 3 operations and 150 documents, minus the token taken before.
+        verify(rateLimiterMock).charge("user:42 " + SEARCH_MAPPING, searchLimit, 3.5);
+    }
+
+    @Test
+    void getClientKeyWorks() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        assertEquals("address:10.0.0.1", rateLimitInterceptor.getClientKey(request));
+
+        request.setCookies(new Cookie("token", "someToken"));
+        assertEquals("user:42", rateLimitInterceptor.getClientKey(request));
+
+        // the authentication falls back to the cookie as well.
+        request.addHeader(HttpHeaders.AUTHORIZATION, "NoBearer madeUpToken");
+        assertEquals("user:42", rateLimitInterceptor.getClientKey(request));
+    }
+
+    @Test
+    void madeUpTokensAreLimitedByAddress() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.1");
+        request.setCookies(new Cookie("token", "someToken"));
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer madeUpToken");
+        assertEquals("address:10.0.0.1", rateLimitInterceptor.getClientKey(request));
+
+        doReturn(AccessToken.builder().tokenValue("expiredToken").userId(43).validUntil(0).build()).when(accessTokenBusinessServiceMock).findAccessTokenByValue("expiredToken");
+        when(accessTokenBusinessServiceMock.accessTokenIsInvalid(0)).thenReturn(true);
+        MockHttpServletRequest expiredRequest = new MockHttpServletRequest();
+        expiredRequest.setRemoteAddr("10.0.0.2");
+        expiredRequest.addHeader(HttpHeaders.AUTHORIZATION, "Bearer expiredToken");
+        assertEquals("address:10.0.0.2", rateLimitInterceptor.getClientKey(expiredRequest));
+    }
+
+    @Test
+    void otherHandlersAreNotLimited() {
+        MockHttpServletRequest request = createRequest();
+        assertTrue(rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), new Object()));
+        verifyNoInteractions(rateLimiterMock);
+    }
+
+    private MockHttpServletRequest createRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", SEARCH_MAPPING);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, SEARCH_MAPPING);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer someToken");
+        return request;
+    }
+}
@@ -19,6 +19,7 @@ Feature: Search Files and Directories
     When user with token "Richard" searches for "wow"
     Then response status code is 200
     And the response contains a entity with the path "/richard/bla/wow.txt" that has key "name" with value "wow.txt"
+    And the request needed at most 15 database operations
 
   Scenario: Successful interaction, searching for personal root folder
     When user with token "Richard" searches for "Richard"
@@ -20,6 +20,7 @@ Feature: View Folder
     Then response status code is 200
     And the response contains the file with fileSystemId 72 and name "wow.txt"
     And the response has a header "X-FF-CURRENT" set with the value "42"
+    And the request needed at most 15 database operations
 
   Scenario: Successful interaction shared folder
     # the folder